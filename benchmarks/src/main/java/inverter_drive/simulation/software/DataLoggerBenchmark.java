@@ -0,0 +1,59 @@
+package inverter_drive.simulation.software;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/// Cost of DataLogger.logData on the simulation thread: publishing into the ring buffer, plus waiting for the
+/// writer thread whenever it falls behind (the default BLOCK backpressure).
+/// Each iteration logs a fixed batch into a fresh temporary log so the file size stays bounded;
+/// divide the reported time per batch by the batch size for the cost per sample.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = DataLoggerBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = DataLoggerBenchmark.BATCH_SIZE)
+@Fork(1)
+public class DataLoggerBenchmark {
+    static final int BATCH_SIZE = 1_000_000;
+
+    private DataLogger dataLogger;
+    private Path logFile;
+    private final double[] voltages = {120.5, -60.25, -60.25};
+    private final double[] currents = {10.1, -5.05, -5.05};
+    private double time;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("telemetry", ".idtl");
+        Files.delete(logFile);
+        dataLogger = new DataLogger(logFile, logFile.resolveSibling(logFile.getFileName() + ".csv"));
+        time = 0.0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        dataLogger.close();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void logData() {
+        dataLogger.logData(time, voltages, currents, 98.7, 12.3, "V/f", "None");
+        time += Config.SIMULATION_TIME_STEP;
+    }
+}
@@ -0,0 +1,55 @@
+package inverter_drive.simulation.software;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/// Cost of one SIMULATION_TIME_STEP of the full drive pipeline for each control mode and PWM type
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriveStepBenchmark {
+    @Param({"V_F", "FOC", "DTC"})
+    public ControlStrategy controlMode;
+
+    @Param({"SPWM", "SVPWM"})
+    public ModulationStrategy pwmType;
+
+    private DriveSystem drive;
+    private SimulationParameters parameters;
+    private double time;
+
+    @Setup
+    public void setUp() {
+        InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+        InductionMotor motor = new InductionMotor();
+        SensorModel sensors = new SensorModel(42L);
+        drive = new DriveSystem(inverter, motor, new VfController(motor), sensors,
+                new FaultSimulator(inverter, sensors));
+        parameters = new SimulationParameters.Builder()
+                .control(controlMode, 100.0, 50.0, 1.0, 10.0, 1.0)
+                .powerStage(400.0, 10000, 1e-6, 0.8, false, false, pwmType)
+                .build();
+        time = 0.0;
+    }
+
+    @Benchmark
+    public double step() {
+        drive.step(parameters, time);
+        time += Config.SIMULATION_TIME_STEP;
+        return drive.getMotor().getSpeed();
+    }
+}
@@ -0,0 +1,144 @@
+package inverter_drive.simulation.software;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/// Optimizer kernels: evaluation of one individual or a whole batch, and non-dominated sorting of the combined population
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class OptimizerBenchmark {
+
+    private static Optimizer newOptimizer() {
+        InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+        InductionMotor motor = new InductionMotor();
+        SensorModel sensors = new SensorModel(42L);
+        return new Optimizer(inverter, motor, new FaultSimulator(inverter, sensors), sensors,
+                new VfController(motor), null, 42L);
+    }
+
+    @State(Scope.Thread)
+    public static class EvaluationState {
+        Optimizer optimizer;
+        DriveSystem template;
+        Optimizer.Individual individual;
+
+        @Setup
+        public void setUp() {
+            optimizer = newOptimizer();
+            InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+            InductionMotor motor = new InductionMotor();
+            SensorModel sensors = new SensorModel(42L);
+            template = new DriveSystem(inverter, motor, new VfController(motor), sensors,
+                    new FaultSimulator(inverter, sensors));
+            individual = new Optimizer.Individual(new double[]{10000, 0.8, 0.5, 5.0});
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BatchState {
+        @Param({"50", "256"})
+        public int lanes;
+
+        PopulationBatchEvaluator evaluator;
+        double[][] parameters;
+        long[] seeds;
+        double[][] objectives;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+            InductionMotor motor = new InductionMotor();
+            motor.setParameters(motor.getRatedVoltage(), motor.getRatedPower(), (int) motor.getPolePairs(),
+                    motor.getResistance(), motor.getInductance(), LoadModel.CONSTANT,
+                    0.1, 0.01, 0.05, 0.01, 0.005, 5000, 0.0, 0.0);
+            SensorModel sensors = new SensorModel(42L);
+            DriveSystem template = new DriveSystem(inverter, motor, new VfController(motor), sensors,
+                    new FaultSimulator(inverter, sensors));
+            SimulationParameters scenario = new SimulationParameters.Builder()
+                    .control(ControlStrategy.V_F, 100.0, 50.0, 1.0, 10.0, 1.0)
+                    .powerStage(400.0, 10000, 1e-6, 0.8, false, false, ModulationStrategy.SVPWM)
+                    .thermal(0.5, 5.0, 150.0, ProtectionMode.WARNING, true)
+                    .build();
+            evaluator = new PopulationBatchEvaluator(template, scenario, 10000);
+            Random random = new Random(42L);
+            parameters = new double[lanes][];
+            seeds = new long[lanes];
+            objectives = new double[lanes][3];
+            for (int i = 0; i < lanes; i++) {
+                parameters[i] = new double[]{2000 + random.nextDouble() * 18000, 0.1 + random.nextDouble() * 0.9,
+                        random.nextDouble(), random.nextDouble() * 10};
+                seeds[i] = random.nextLong();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SortingState {
+        @Param({"100", "1000", "10000"})
+        public int populationSize;
+
+        Optimizer optimizer;
+        Optimizer.Individual[] original;
+        Optimizer.Individual[] population;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            optimizer = newOptimizer();
+            Random random = new Random(42L);
+            original = new Optimizer.Individual[populationSize];
+            for (int i = 0; i < populationSize; i++) {
+                original[i] = new Optimizer.Individual(new double[4]);
+                for (int obj = 0; obj < 3; obj++) {
+                    original[i].objectives[obj] = random.nextDouble();
+                }
+            }
+        }
+
+        /// assignRanksAndCrowding sorts in place, so every invocation starts from the unsorted population
+        @Setup(Level.Invocation)
+        public void copyPopulation() {
+            population = new Optimizer.Individual[populationSize];
+            for (int i = 0; i < populationSize; i++) {
+                population[i] = new Optimizer.Individual(original[i].parameters);
+                System.arraycopy(original[i].objectives, 0, population[i].objectives, 0, 3);
+            }
+        }
+    }
+
+    /// One full 10,000-step fitness evaluation on a freshly cloned drive
+    @Benchmark
+    public double evaluateIndividual(EvaluationState state) {
+        state.optimizer.evaluateIndividual(state.individual, state.template.isolatedCopy(7L));
+        return state.individual.objectives[0];
+    }
+
+    /// The same evaluation for a whole batch in structure-of-arrays form;
+    /// run with --add-modules jdk.incubator.vector in jvmArgsAppend to measure the SIMD kernel
+    @Benchmark
+    public double evaluateBatch(BatchState state) {
+        state.evaluator.evaluate(state.parameters, state.seeds, state.objectives);
+        return state.objectives[0][0];
+    }
+
+    @Benchmark
+    public int assignRanksAndCrowding(SortingState state) {
+        state.optimizer.assignRanksAndCrowding(state.population);
+        return state.population[0].rank;
+    }
+}
@@ -22,4 +22,6 @@ public class Config {
     public static final double OVERCURRENT_VOLTAGE_SCALE = 1.5; // Voltage scaling for overcurrent fault
     public static final double UNDERVOLTAGE_VOLTAGE_SCALE = 0.5; // Voltage scaling for undervoltage fault
     public static final double IGBT_FAILURE_DUTY_CYCLE = 0.3; // Duty cycle for IGBT failure simulation
+    public static final double FAULT_AUTO_RESET_DELAY = 2.0; // Simulated seconds before auto-reset clears a fault
+    public static final long RANDOM_SEED = 42L; // Master seed every random stream of the application is split from
 }
\ No newline at end of file
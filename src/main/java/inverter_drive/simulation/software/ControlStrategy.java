@@ -0,0 +1,31 @@
+package inverter_drive.simulation.software;
+
+/// Control law of VfController, resolved once when SimulationParameters is built so the per-step dispatch
+/// is a switch on the constant rather than a string comparison
+public enum ControlStrategy {
+    /// Scalar V/f with a PI speed loop and acceleration limit
+    V_F("V/f"),
+    /// Field-oriented control with PI torque and flux loops
+    FOC("FOC"),
+    /// Direct torque control with hysteresis bands and a switching table
+    DTC("DTC");
+
+    private final String label;
+
+    ControlStrategy(String label) {
+        this.label = label;
+    }
+
+    /// Name shown in the UI and written to the telemetry log
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static ControlStrategy fromLabel(String label) {
+        for (ControlStrategy strategy : values()) {
+            if (strategy.label.equals(label)) return strategy;
+        }
+        throw new IllegalArgumentException("Unknown control mode: " + label);
+    }
+}
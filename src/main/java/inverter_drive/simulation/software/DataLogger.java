@@ -1,45 +1,251 @@
 package inverter_drive.simulation.software;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
 
+/// Records every simulation step to a binary columnar TelemetryLog; the CSV is generated from it on demand.
+/// logData only publishes into a lock-free ring buffer; a background writer thread drains it in batches
+/// to the log, so file I/O never runs on the simulation thread. logData must be called by one thread at a time.
 public class DataLogger {
-    private final Queue<String> logBuffer;
-    private final int maxBufferSize = 1000;
+    /// What logData does when the writer falls behind and the ring buffer fills up
+    public enum Backpressure {
+        /// Wait for the writer; no sample is lost, but the simulation thread can stall
+        BLOCK,
+        /// Overwrite the oldest queued sample
+        DROP_OLDEST,
+        /// Above half capacity keep only every decimation-th sample; drop the newest when full
+        DECIMATE
+    }
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int DRAIN_BATCH = 1024;
+    private static final long WRITER_PARK_NANOS = 1_000_000;
+    private static final long PRODUCER_PARK_NANOS = 10_000;
+
+    private final Path logFile;
+    private final Path csvFile;
+    private final TelemetryRingBuffer ring;
+    private final Backpressure backpressure;
+    private final int decimation;
+    private final Object sinkLock = new Object();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean failed = false;
+    private TelemetryLog log;
+    /// Producer-side counters, each written by a single thread
+    private volatile long publishedCount;
+    private volatile long droppedCount;
+    private volatile long decimatedCount;
+    private volatile long blockedCount;
+    private long decimationPhase;
+    /// Writer-side counter
+    private volatile long writtenCount;
 
     public DataLogger() {
-        logBuffer = new LinkedList<>();
-        logBuffer.add("Time,Va,Vb,Vc,Ia,Ib,Ic,Speed,Torque,ControlMode,Fault\n");
+        this(Paths.get("simulation_data.idtl"), Paths.get("simulation_data.csv"), DEFAULT_CAPACITY, Backpressure.BLOCK, 10);
+    }
+
+    public DataLogger(Path logFile, Path csvFile) {
+        this(logFile, csvFile, DEFAULT_CAPACITY, Backpressure.BLOCK, 10);
+    }
+
+    public DataLogger(Path logFile, Path csvFile, int capacity, Backpressure backpressure, int decimation) {
+        this.logFile = logFile;
+        this.csvFile = csvFile;
+        this.ring = new TelemetryRingBuffer(capacity);
+        this.backpressure = backpressure;
+        this.decimation = Math.max(1, decimation);
+        writer = new Thread(this::drainLoop, "telemetry-writer");
+        writer.setDaemon(true);
+        writer.start();
     }
 
-    public synchronized void logData(double time, double[] voltages, double[] currents, double speed, double torque, String controlMode, String fault) {
-        String line = String.format("%.3f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%s,%s\n",
-                time, voltages[0], voltages[1], voltages[2],
-                currents[0], currents[1], currents[2], speed, torque, controlMode, fault);
-        logBuffer.add(line);
-        if (logBuffer.size() >= maxBufferSize) {
-            exportToCSV();
+    public void logData(double time, double[] voltages, double[] currents, double speed, double torque, String controlMode, String fault) {
+        if (!running) return;
+        switch (backpressure) {
+            case BLOCK:
+                if (!ring.offer(time, voltages, currents, speed, torque, controlMode, fault)) {
+                    blockedCount++;
+                    do {
+                        LockSupport.unpark(writer);
+                        LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+                        if (!running) return;
+                    } while (!ring.offer(time, voltages, currents, speed, torque, controlMode, fault));
+                }
+                break;
+            case DROP_OLDEST:
+                if (ring.overwrite(time, voltages, currents, speed, torque, controlMode, fault)) {
+                    droppedCount++;
+                }
+                break;
+            case DECIMATE:
+                if (ring.size() >= ring.capacity() / 2 && decimationPhase++ % decimation != 0) {
+                    decimatedCount++;
+                    return;
+                }
+                if (!ring.offer(time, voltages, currents, speed, torque, controlMode, fault)) {
+                    droppedCount++;
+                    return;
+                }
+                break;
+        }
+        publishedCount++;
+    }
+
+    private void drainLoop() {
+        double[] values = new double[DRAIN_BATCH * TelemetryRingBuffer.FIELDS];
+        String[] modes = new String[DRAIN_BATCH];
+        String[] faults = new String[DRAIN_BATCH];
+        double[] voltages = new double[3];
+        double[] currents = new double[3];
+        while (true) {
+            boolean stopping = !running;
+            int n = ring.drain(values, modes, faults);
+            if (n == 0) {
+                if (stopping) break;
+                LockSupport.parkNanos(WRITER_PARK_NANOS);
+                continue;
+            }
+            synchronized (sinkLock) {
+                for (int k = 0; k < n; k++) {
+                    int base = k * TelemetryRingBuffer.FIELDS;
+                    voltages[0] = values[base + TelemetryLog.VA];
+                    voltages[1] = values[base + TelemetryLog.VB];
+                    voltages[2] = values[base + TelemetryLog.VC];
+                    currents[0] = values[base + TelemetryLog.IA];
+                    currents[1] = values[base + TelemetryLog.IB];
+                    currents[2] = values[base + TelemetryLog.IC];
+                    append(values[base + TelemetryLog.TIME], voltages, currents, values[base + TelemetryLog.SPEED],
+                            values[base + TelemetryLog.TORQUE], modes[k], faults[k]);
+                    modes[k] = null;
+                    faults[k] = null;
+                }
+            }
+            writtenCount += n;
+        }
+        synchronized (sinkLock) {
+            closeLog();
         }
     }
 
-    public synchronized void exportToCSV() {
-        try (FileWriter writer = new FileWriter("simulation_data.csv")) {
-            for (String line : logBuffer) {
-                writer.write(line);
+    private void append(double time, double[] voltages, double[] currents, double speed, double torque, String controlMode, String fault) {
+        if (failed) return;
+        try {
+            if (log == null) {
+                log = new TelemetryLog(logFile);
             }
-            logBuffer.clear();
-            logBuffer.add("Time,Va,Vb,Vc,Ia,Ib,Ic,Speed,Torque,ControlMode,Fault\n");
+            log.append(time, voltages, currents, speed, torque, controlMode, fault);
         } catch (IOException e) {
-            Platform.runLater(() -> {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("File Error");
-                alert.setHeaderText("Failed to write CSV file");
-                alert.setContentText("Error: " + e.getMessage());
-                alert.showAndWait();
-            });
+            /// Report once; later samples are still drained so the simulation thread never waits on a dead sink
+            failed = true;
+            showError("Failed to write telemetry log", e);
         }
     }
+
+    /// Waits until everything published so far has reached the log and forces it to disk
+    public void flush() {
+        long target = publishedCount;
+        while (writer.isAlive() && writtenCount + overwrittenCount() < target) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(WRITER_PARK_NANOS);
+        }
+        synchronized (sinkLock) {
+            if (log != null) {
+                try {
+                    log.flush();
+                } catch (IOException e) {
+                    showError("Failed to flush telemetry log", e);
+                }
+            }
+        }
+    }
+
+    /// Published samples that were overwritten before the writer reached them; only DROP_OLDEST overwrites
+    private long overwrittenCount() {
+        return backpressure == Backpressure.DROP_OLDEST ? droppedCount : 0;
+    }
+
+    /// Converts the complete binary log, including samples from earlier sessions, to CSV
+    public void exportToCSV() {
+        flush();
+        synchronized (sinkLock) {
+            try {
+                TelemetryCsvExporter.export(logFile, csvFile);
+            } catch (IOException e) {
+                showError("Failed to write CSV file", e);
+            }
+        }
+    }
+
+    /// Samples accepted into the ring buffer
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /// Samples lost to a full ring buffer (overwritten under DROP_OLDEST, rejected under DECIMATE)
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /// Samples skipped by DECIMATE while the ring buffer was above half capacity
+    public long getDecimatedCount() {
+        return decimatedCount;
+    }
+
+    /// Times logData had to wait for the writer under BLOCK
+    public long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /// Samples waiting in the ring buffer
+    public int getQueuedCount() {
+        return ring.size();
+    }
+
+    /// Samples handed to the telemetry log by the writer thread
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    /// Stops accepting samples, drains what is queued and closes the log
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            showError("Failed to close telemetry log", e);
+        }
+        log = null;
+    }
+
+    private void showError(String header, IOException e) {
+        Platform.runLater(() -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("File Error");
+            alert.setHeaderText(header);
+            alert.setContentText("Error: " + e.getMessage());
+            alert.showAndWait();
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package inverter_drive.simulation.software;
+
+/// A bounded decision variable of an OptimizationProblem and how its value reaches the evaluated drive.
+/// Choice variables (such as the PWM type) are searched as a continuous value in [-0.5, n - 0.5] that is
+/// rounded to an option index.
+public final class DecisionVariable {
+    /// Writes a value into the evaluation's private drive copy or into its scenario
+    @FunctionalInterface
+    public interface Setter {
+        void apply(double value, DriveSystem drive, SimulationParameters.Builder scenario);
+    }
+
+    /// Receives the option selected by a choice variable
+    @FunctionalInterface
+    public interface ChoiceSetter {
+        void apply(String option, DriveSystem drive, SimulationParameters.Builder scenario);
+    }
+
+    public static final DecisionVariable PWM_FREQUENCY = new DecisionVariable("PWM Freq (Hz)", 2000, 20000, 1.0,
+            (v, drive, scenario) -> drive.getInverter().setPwmFrequency(v));
+    public static final DecisionVariable MODULATION_INDEX = new DecisionVariable("Mod Index", 0.1, 1.0, 1e-4,
+            (v, drive, scenario) -> drive.getInverter().setModulationIndex(v));
+    /// Cooling applies to both the inverter and the motor
+    public static final DecisionVariable FAN_SPEED = new DecisionVariable("Fan Speed", 0.0, 1.0, 1e-4,
+            (v, drive, scenario) -> {
+                drive.getInverter().setCooling(v, drive.getInverter().getCoolantFlow());
+                drive.getMotor().setCooling(v, drive.getMotor().getCoolantFlow());
+            });
+    public static final DecisionVariable COOLANT_FLOW = new DecisionVariable("Coolant Flow (L/min)", 0.0, 10.0, 1e-3,
+            (v, drive, scenario) -> {
+                drive.getInverter().setCooling(drive.getInverter().getFanSpeed(), v);
+                drive.getMotor().setCooling(drive.getMotor().getFanSpeed(), v);
+            });
+    public static final DecisionVariable DEAD_TIME = new DecisionVariable("Dead Time (s)", 0.0, 5e-6, 1e-9,
+            (v, drive, scenario) -> drive.getInverter().setDeadTime(v));
+    public static final DecisionVariable DC_LINK_VOLTAGE = new DecisionVariable("DC Link (V)", 300.0, 800.0, 0.1,
+            (v, drive, scenario) -> drive.getInverter().setDcLinkVoltage(v));
+    public static final DecisionVariable KP = new DecisionVariable("Kp", 0.01, 1.0, 1e-4,
+            (v, drive, scenario) -> drive.getController().setGains(v, drive.getController().getKi()));
+    public static final DecisionVariable KI = new DecisionVariable("Ki", 0.001, 0.1, 1e-5,
+            (v, drive, scenario) -> drive.getController().setGains(drive.getController().getKp(), v));
+    public static final DecisionVariable PWM_TYPE = choice("PWM Type", new String[]{"SPWM", "SVPWM"},
+            (option, drive, scenario) -> scenario.pwmType(ModulationStrategy.fromLabel(option)));
+
+    private final String name;
+    private final double lower;
+    private final double upper;
+    private final double resolution;
+    private final Setter setter;
+    private final String[] options;
+
+    /// resolution is the fitness-cache cell: values closer than this are treated as the same point
+    public DecisionVariable(String name, double lower, double upper, double resolution, Setter setter) {
+        this(name, lower, upper, resolution, setter, null);
+    }
+
+    private DecisionVariable(String name, double lower, double upper, double resolution, Setter setter,
+                             String[] options) {
+        if (!(upper > lower)) {
+            throw new IllegalArgumentException("Upper bound of " + name + " must exceed the lower bound");
+        }
+        this.name = name;
+        this.lower = lower;
+        this.upper = upper;
+        this.resolution = resolution;
+        this.setter = setter;
+        this.options = options;
+    }
+
+    public static DecisionVariable choice(String name, String[] options, ChoiceSetter setter) {
+        String[] copy = options.clone();
+        return new DecisionVariable(name, -0.5, copy.length - 0.5, 1.0,
+                (v, drive, scenario) -> setter.apply(copy[optionIndex(v, copy.length)], drive, scenario), copy);
+    }
+
+    /// The same variable searched over different bounds
+    public DecisionVariable withBounds(double lower, double upper) {
+        return new DecisionVariable(name, lower, upper, resolution, setter, options);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    public boolean isChoice() {
+        return options != null;
+    }
+
+    /// Option selected by a value of a choice variable
+    public String option(double value) {
+        return options[optionIndex(value, options.length)];
+    }
+
+    public void apply(double value, DriveSystem drive, SimulationParameters.Builder scenario) {
+        setter.apply(value, drive, scenario);
+    }
+
+    /// Whether both variables write the same setting, whatever their bounds
+    boolean sameTarget(DecisionVariable other) {
+        return setter == other.setter;
+    }
+
+    private static int optionIndex(double value, int count) {
+        return (int) Math.max(0, Math.min(count - 1, Math.round(value)));
+    }
+}
@@ -0,0 +1,366 @@
+package inverter_drive.simulation.software;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Coordinator side of distributed evaluation: splits each population the Optimizer needs simulated into
+/// BATCH_LANES-sized batches and spreads them over a set of OptimizerWorkers over TCP.
+/// Load balancing is pull-based: every connection keeps as many batches in flight as its worker has threads,
+/// but no more than an even share of the population, and takes the next one from a shared queue as each
+/// result comes back, so faster workers take more. Once the queue is empty and some batch has finished, an
+/// idle connection steals a copy of a batch still running on one other worker, and whichever result arrives
+/// first is used; a slow or stalled worker therefore never holds up the generation.
+/// A worker that disconnects or does not answer within the timeout is dropped and its batches go back to the
+/// front of the queue; it is reconnected at the start of the next population. If no worker is left, the
+/// remaining batches are evaluated locally. Seeds are drawn by the Optimizer before batching and every worker
+/// runs the coordinator's batch kernel, scalar or Vector API; a worker without the jdk.incubator.vector module
+/// drops a job that asks for the vector kernel and is treated as lost. With the scalar kernel the result
+/// therefore does not depend on which worker evaluated what; the vector kernel's transcendental functions are
+/// only reproducible up to rounding.
+public class DistributedEvaluator implements Closeable {
+    private final List<Connection> connections = new ArrayList<>();
+    private int timeoutMillis = 300_000;
+    private long nextJobId;
+    private volatile long sentBatches;
+    private volatile long retriedBatches;
+    private volatile long stolenBatches;
+    private volatile long localBatches;
+
+    public DistributedEvaluator(List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) throw new IllegalArgumentException("At least one worker is needed");
+        for (InetSocketAddress worker : workers) {
+            connections.add(new Connection(worker));
+        }
+    }
+
+    /// How long to wait for a connection or for the next result before the worker is considered lost
+    public void setTimeoutMillis(int timeoutMillis) {
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("Timeout must be positive");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /// Workers currently connected
+    public int getConnectedWorkerCount() {
+        int connected = 0;
+        for (Connection connection : connections) {
+            if (connection.isOpen()) connected++;
+        }
+        return connected;
+    }
+
+    /// Batch messages sent to workers, including retries and stolen copies
+    public long getSentBatchCount() {
+        return sentBatches;
+    }
+
+    /// Batches sent again because the worker holding them was lost
+    public long getRetriedBatchCount() {
+        return retriedBatches;
+    }
+
+    /// Copies of running batches taken by idle workers at the end of a population
+    public long getStolenBatchCount() {
+        return stolenBatches;
+    }
+
+    /// Batches evaluated in this JVM because no worker was reachable
+    public long getLocalBatchCount() {
+        return localBatches;
+    }
+
+    /// Evaluates the pending individuals with the given seeds, filling in their objectives, simulated steps
+    /// and abort flags. Returns false early, leaving some unset, when the optimizer is cancelled; true once
+    /// every result is in.
+    boolean evaluate(Optimizer optimizer, List<Optimizer.Individual> pending, long[] seeds, DriveSystem template,
+                  EarlyAbortRule abort) {
+        if (pending.isEmpty()) return true;
+        int batchSize = Optimizer.BATCH_LANES;
+        int batches = (pending.size() + batchSize - 1) / batchSize;
+        Run run = new Run(nextJobId++, pending, seeds, batches, batchSize,
+                (batches + connections.size() - 1) / connections.size());
+        byte[] job = OptimizerProtocol.encodeJob(run.jobId, template, optimizer.getProblem(), abort,
+                optimizer.isBatchEvaluation(), optimizer.isVectorKernel());
+        for (Connection connection : connections) {
+            connection.start(run, job);
+        }
+        synchronized (run) {
+            while (run.remaining > 0 && run.active > 0 && run.failure == null && !optimizer.isCancelRequested()) {
+                try {
+                    run.wait(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    run.abandoned = true;
+                    throw new IllegalStateException("Interrupted while waiting for optimizer workers", e);
+                }
+            }
+            run.abandoned = true;
+            run.notifyAll();
+            if (run.failure != null) {
+                throw run.failure;
+            }
+            if (run.remaining == 0) return true;
+            if (optimizer.isCancelRequested()) return false;
+        }
+        /// Every connection has ended, so the queue holds all unfinished batches and nothing else touches them
+        for (int batch : run.queue) {
+            int from = batch * batchSize;
+            int to = Math.min(pending.size(), from + batchSize);
+            optimizer.evaluateChunk(pending.subList(from, to), Arrays.copyOfRange(seeds, from, to), template, abort);
+            localBatches++;
+            if (optimizer.isCancelRequested()) return false;
+        }
+        return true;
+    }
+
+    /// Closes every worker connection; the workers keep running. The evaluator cannot be used afterwards.
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            connection.shutdown();
+            connection.executor.shutdown();
+        }
+    }
+
+    /// Shared state of one population's evaluation; guarded by its own monitor
+    private final class Run {
+        final long jobId;
+        final List<Optimizer.Individual> pending;
+        final long[] seeds;
+        final int batchSize;
+        /// Most batches one connection takes from the queue at a time
+        final int fairShare;
+        final Deque<Integer> queue = new ArrayDeque<>();
+        final List<Set<Connection>> holders = new ArrayList<>();
+        final boolean[] done;
+        int remaining;
+        int completed;
+        /// Connections still serving this run
+        int active;
+        /// Set once the coordinator stops waiting; connections then only drain what they already sent
+        boolean abandoned;
+        RuntimeException failure;
+
+        Run(long jobId, List<Optimizer.Individual> pending, long[] seeds, int batches, int batchSize,
+            int fairShare) {
+            this.jobId = jobId;
+            this.pending = pending;
+            this.seeds = seeds;
+            this.batchSize = batchSize;
+            this.fairShare = fairShare;
+            this.done = new boolean[batches];
+            this.remaining = batches;
+            for (int b = 0; b < batches; b++) {
+                queue.add(b);
+                holders.add(new HashSet<>());
+            }
+        }
+
+        boolean isOver() {
+            return abandoned || remaining == 0;
+        }
+
+        /// Next batch for a connection holding inFlight batches, or -1. Once a batch of this run has
+        /// finished, an idle connection steals the first running batch that has no second copy yet
+        int take(Connection connection, int inFlight) {
+            if (isOver()) return -1;
+            Integer next = inFlight < fairShare ? queue.pollFirst() : null;
+            if (next == null && inFlight == 0 && completed > 0) {
+                for (int b = 0; b < done.length && next == null; b++) {
+                    if (!done[b] && holders.get(b).size() == 1 && !holders.get(b).contains(connection)) {
+                        next = b;
+                    }
+                }
+                if (next != null) stolenBatches++;
+            }
+            if (next == null) return -1;
+            holders.get(next).add(connection);
+            sentBatches++;
+            return next;
+        }
+
+        double[][] parameters(int batch) {
+            int from = batch * batchSize;
+            int to = Math.min(pending.size(), from + batchSize);
+            double[][] parameters = new double[to - from][];
+            for (int i = from; i < to; i++) {
+                parameters[i - from] = pending.get(i).parameters;
+            }
+            return parameters;
+        }
+
+        long[] seeds(int batch) {
+            int from = batch * batchSize;
+            return Arrays.copyOfRange(seeds, from, Math.min(pending.size(), from + batchSize));
+        }
+
+        /// First result of a batch wins; copies that arrive later are ignored
+        void complete(Connection connection, OptimizerProtocol.Result result) {
+            holders.get(result.batch).remove(connection);
+            if (done[result.batch]) return;
+            if (result.error != null) {
+                failure = new IllegalStateException("Worker " + connection.address + " failed: " + result.error);
+                notifyAll();
+                return;
+            }
+            int from = result.batch * batchSize;
+            for (int i = 0; i < result.objectives.length; i++) {
+                Optimizer.Individual ind = pending.get(from + i);
+                System.arraycopy(result.objectives[i], 0, ind.objectives, 0, ind.objectives.length);
+                ind.simulatedSteps = result.simulatedSteps[i];
+                ind.aborted = result.aborted[i];
+            }
+            done[result.batch] = true;
+            remaining--;
+            completed++;
+            notifyAll();
+        }
+
+        /// Requeues the unfinished batches that only the lost connection held
+        void lost(Connection connection, Iterable<Integer> inFlight) {
+            for (int batch : inFlight) {
+                Set<Connection> held = holders.get(batch);
+                held.remove(connection);
+                if (!done[batch] && held.isEmpty()) {
+                    queue.addFirst(batch);
+                    retriedBatches++;
+                }
+            }
+            notifyAll();
+        }
+
+        void ended() {
+            active--;
+            notifyAll();
+        }
+    }
+
+    /// One worker. Runs are served one after another on its own thread, so a run's late copies are drained
+    /// before the next run's job is sent.
+    private final class Connection {
+        final InetSocketAddress address;
+        final ExecutorService executor;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private int window;
+
+        Connection(InetSocketAddress address) {
+            this.address = address;
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "optimizer-coordinator-" + address);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        synchronized boolean isOpen() {
+            return socket != null;
+        }
+
+        void start(Run run, byte[] job) {
+            synchronized (run) {
+                run.active++;
+            }
+            executor.execute(() -> serve(run, job));
+        }
+
+        private void serve(Run run, byte[] job) {
+            List<Integer> inFlight = new ArrayList<>();
+            try {
+                if (!isOpen()) open();
+                out.write(job);
+                while (true) {
+                    List<Integer> toSend = new ArrayList<>();
+                    synchronized (run) {
+                        while (true) {
+                            while (inFlight.size() + toSend.size() < window) {
+                                int batch = run.take(this, inFlight.size() + toSend.size());
+                                if (batch < 0) break;
+                                toSend.add(batch);
+                            }
+                            if (!toSend.isEmpty() || !inFlight.isEmpty() || run.isOver()) break;
+                            /// Idle while other workers hold the rest; a lost or finished batch wakes it up
+                            run.wait();
+                        }
+                    }
+                    for (int batch : toSend) {
+                        inFlight.add(batch);
+                        OptimizerProtocol.writeBatch(out, run.jobId, batch, run.parameters(batch), run.seeds(batch));
+                    }
+                    out.flush();
+                    if (inFlight.isEmpty()) break;
+                    OptimizerProtocol.Result result = OptimizerProtocol.readResult(in);
+                    if (result.jobId != run.jobId || !inFlight.remove((Integer) result.batch)) {
+                        throw new IOException("Unexpected result for batch " + result.batch);
+                    }
+                    synchronized (run) {
+                        run.complete(this, result);
+                    }
+                }
+            } catch (IOException e) {
+                /// Lost or misbehaving worker; its batches are retried elsewhere, and it is reconnected next run
+                shutdown();
+                synchronized (run) {
+                    run.lost(this, inFlight);
+                }
+            } catch (InterruptedException e) {
+                /// Executor shut down by close()
+                Thread.currentThread().interrupt();
+            } finally {
+                synchronized (run) {
+                    run.ended();
+                }
+            }
+        }
+
+        private void open() throws IOException {
+            Socket s = new Socket();
+            try {
+                s.connect(address, timeoutMillis);
+                s.setTcpNoDelay(true);
+                s.setSoTimeout(timeoutMillis);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                int parallelism = OptimizerProtocol.connect(input, output);
+                synchronized (this) {
+                    socket = s;
+                    in = input;
+                    out = output;
+                    window = parallelism;
+                }
+            } catch (IOException e) {
+                s.close();
+                throw e;
+            }
+        }
+
+        synchronized void shutdown() {
+            if (socket == null) return;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                /// Already gone
+            }
+            socket = null;
+        }
+    }
+}
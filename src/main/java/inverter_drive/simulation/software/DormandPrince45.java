@@ -0,0 +1,138 @@
+package inverter_drive.simulation.software;
+
+/// Adaptive Dormand–Prince 4(5). Each call covers [t, t + h] in as many sub-steps as the error tolerance
+/// needs, starting from the step size accepted at the end of the previous call, so on slowly varying
+/// stretches a whole call usually takes a single sub-step. The fifth-order solution is propagated and the
+/// embedded fourth-order one only estimates the error; the last stage is reused as the first of the next
+/// sub-step within a call.
+public class DormandPrince45 implements OdeIntegrator {
+    private static final double C2 = 1.0 / 5, C3 = 3.0 / 10, C4 = 4.0 / 5, C5 = 8.0 / 9;
+    private static final double A21 = 1.0 / 5;
+    private static final double A31 = 3.0 / 40, A32 = 9.0 / 40;
+    private static final double A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9;
+    private static final double A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561,
+            A54 = -212.0 / 729;
+    private static final double A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247,
+            A64 = 49.0 / 176, A65 = -5103.0 / 18656;
+    private static final double B1 = 35.0 / 384, B3 = 500.0 / 1113, B4 = 125.0 / 192, B5 = -2187.0 / 6784,
+            B6 = 11.0 / 84;
+    /// Fifth- minus fourth-order weights
+    private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920,
+            E5 = -17253.0 / 339200, E6 = 22.0 / 525, E7 = -1.0 / 40;
+    private static final double SAFETY = 0.9;
+    private static final double MIN_FACTOR = 0.2;
+    private static final double MAX_FACTOR = 5.0;
+
+    private final double relativeTolerance;
+    private final double absoluteTolerance;
+    private double[] k1 = new double[0], k2 = new double[0], k3 = new double[0], k4 = new double[0],
+            k5 = new double[0], k6 = new double[0], k7 = new double[0];
+    private double[] stage = new double[0];
+    private double[] next = new double[0];
+    /// Step size proposed after the last accepted sub-step; 0 until the first call
+    private double proposedStep = 0.0;
+    private long evaluations = 0;
+    private long steps = 0;
+    private long rejectedSteps = 0;
+
+    public DormandPrince45() {
+        this(1e-6, 1e-9);
+    }
+
+    public DormandPrince45(double relativeTolerance, double absoluteTolerance) {
+        if (!(relativeTolerance > 0) || !(absoluteTolerance > 0)) {
+            throw new IllegalArgumentException("Tolerances must be positive");
+        }
+        this.relativeTolerance = relativeTolerance;
+        this.absoluteTolerance = absoluteTolerance;
+    }
+
+    @Override
+    public void integrate(OdeSystem system, double t, double[] y, double h) {
+        if (h <= 0) return;
+        int n = y.length;
+        if (k1.length != n) {
+            k1 = new double[n]; k2 = new double[n]; k3 = new double[n]; k4 = new double[n];
+            k5 = new double[n]; k6 = new double[n]; k7 = new double[n];
+            stage = new double[n];
+            next = new double[n];
+        }
+        double end = t + h;
+        double step = proposedStep > 0 ? proposedStep : h;
+        /// Below this a sub-step is accepted regardless of its error so the call always terminates
+        double minStep = 1e-12 * h;
+        system.derivatives(t, y, k1);
+        evaluations++;
+        while (t < end) {
+            boolean last = step >= end - t;
+            double hs = last ? end - t : step;
+            for (int i = 0; i < n; i++) stage[i] = y[i] + hs * A21 * k1[i];
+            system.derivatives(t + C2 * hs, stage, k2);
+            for (int i = 0; i < n; i++) stage[i] = y[i] + hs * (A31 * k1[i] + A32 * k2[i]);
+            system.derivatives(t + C3 * hs, stage, k3);
+            for (int i = 0; i < n; i++) stage[i] = y[i] + hs * (A41 * k1[i] + A42 * k2[i] + A43 * k3[i]);
+            system.derivatives(t + C4 * hs, stage, k4);
+            for (int i = 0; i < n; i++) {
+                stage[i] = y[i] + hs * (A51 * k1[i] + A52 * k2[i] + A53 * k3[i] + A54 * k4[i]);
+            }
+            system.derivatives(t + C5 * hs, stage, k5);
+            for (int i = 0; i < n; i++) {
+                stage[i] = y[i] + hs * (A61 * k1[i] + A62 * k2[i] + A63 * k3[i] + A64 * k4[i] + A65 * k5[i]);
+            }
+            system.derivatives(t + hs, stage, k6);
+            for (int i = 0; i < n; i++) {
+                next[i] = y[i] + hs * (B1 * k1[i] + B3 * k3[i] + B4 * k4[i] + B5 * k5[i] + B6 * k6[i]);
+            }
+            system.derivatives(t + hs, next, k7);
+            evaluations += 6;
+            /// RMS of the error estimate scaled by the mixed tolerance
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                double error = hs * (E1 * k1[i] + E3 * k3[i] + E4 * k4[i] + E5 * k5[i] + E6 * k6[i] + E7 * k7[i]);
+                double scale = absoluteTolerance + relativeTolerance * Math.max(Math.abs(y[i]), Math.abs(next[i]));
+                sum += (error / scale) * (error / scale);
+            }
+            double error = Math.sqrt(sum / n);
+            double factor = error == 0 ? MAX_FACTOR
+                    : Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, SAFETY * Math.pow(error, -0.2)));
+            if (error <= 1.0 || hs <= minStep) {
+                System.arraycopy(next, 0, y, 0, n);
+                double[] swap = k1;
+                k1 = k7;
+                k7 = swap;
+                t = last ? end : t + hs;
+                steps++;
+                /// A final sub-step shortened to land on end says nothing about the step the error allows
+                if (!last || hs >= step) step = hs * factor;
+            } else {
+                rejectedSteps++;
+                step = hs * Math.min(1.0, factor);
+            }
+        }
+        proposedStep = step;
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    @Override
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getRejectedSteps() {
+        return rejectedSteps;
+    }
+
+    @Override
+    public double getCarriedStep() {
+        return proposedStep;
+    }
+
+    @Override
+    public void setCarriedStep(double step) {
+        this.proposedStep = step;
+    }
+}
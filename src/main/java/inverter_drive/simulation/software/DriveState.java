@@ -0,0 +1,161 @@
+package inverter_drive.simulation.software;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/// Snapshot of a DriveSystem taken by DriveSystem.capture(): the configuration of its components and their
+/// state (motor speed, flux, temperatures, controller integrators, active fault and schedule position, the
+/// integrators' step control and the step count). Immutable. fork(seed) makes an independent drive that
+/// continues from the snapshot, and DriveSystem.restore(state) rewinds an existing drive to it without
+/// allocating, so a drive can be warmed up to steady state once and any number of what-if runs branched from
+/// there. The sensor noise and IGBT failure streams are not part of the state: a fork draws from streams
+/// seeded like DriveSystem.isolatedCopy(seed), and a restored drive keeps its own.
+/// write and read store a snapshot as big-endian binary behind a magic number.
+public final class DriveState {
+    static final int MAGIC = 0x49444453; // "IDDS"
+    static final int VERSION = 1;
+
+    /// Holds the configuration and state; never stepped
+    final DriveSystem drive;
+
+    private DriveState(DriveSystem drive) {
+        this.drive = drive;
+    }
+
+    static DriveState capture(DriveSystem source) {
+        DriveSystem drive = source.isolatedCopy(0L);
+        drive.copyStateFrom(source);
+        return new DriveState(drive);
+    }
+
+    /// A new drive with the snapshot's configuration and state; the sensor noise and fault streams are split
+    /// from a SplittableRandom seeded with seed, as in DriveSystem.isolatedCopy. Forks share nothing mutable
+    /// with the snapshot or with each other.
+    public DriveSystem fork(long seed) {
+        DriveSystem fork = drive.isolatedCopy(seed);
+        fork.copyStateFrom(drive);
+        return fork;
+    }
+
+    /// Electrical steps the drive had taken when captured; its simulated time is this times SIMULATION_TIME_STEP
+    public long getStepCount() {
+        return drive.getStepCount();
+    }
+
+    public double getSpeed() {
+        return drive.getMotor().getSpeed();
+    }
+
+    public double getMotorTemperature() {
+        return drive.getMotor().getTemperature();
+    }
+
+    public double getInverterTemperature() {
+        return drive.getInverter().getTemperature();
+    }
+
+    public FaultMode getFault() {
+        return drive.getFaultSimulator().getCurrentFault();
+    }
+
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            write(out);
+        }
+    }
+
+    public static DriveState read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return read(in);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeConfiguration(out, drive);
+        drive.writeState(out);
+    }
+
+    static DriveState read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a drive state");
+        }
+        DriveSystem drive = readConfiguration(in);
+        drive.readState(in);
+        return new DriveState(drive);
+    }
+
+    /// Settings of the drive's components, as copied by DriveSystem.isolatedCopy; no state
+    static void writeConfiguration(DataOutputStream out, DriveSystem drive) throws IOException {
+        InverterPowerStage inverter = drive.getInverter();
+        out.writeDouble(inverter.getDcLinkVoltage());
+        out.writeDouble(inverter.getPwmFrequency());
+        out.writeDouble(inverter.getDeadTime());
+        out.writeDouble(inverter.getModulationIndex());
+        out.writeBoolean(inverter.isHarmonicInjection());
+        out.writeBoolean(inverter.isOvermodulation());
+        out.writeDouble(inverter.getFanSpeed());
+        out.writeDouble(inverter.getCoolantFlow());
+        out.writeUTF(inverter.getIntegrator().name());
+        out.writeUTF(inverter.getTrigPrecision().name());
+        InductionMotor motor = drive.getMotor();
+        out.writeDouble(motor.getRatedVoltage());
+        out.writeDouble(motor.getRatedPower());
+        out.writeInt((int) motor.getPolePairs());
+        out.writeDouble(motor.getResistance());
+        out.writeDouble(motor.getInductance());
+        out.writeUTF(motor.getLoadType().name());
+        out.writeDouble(motor.getLoadInertia());
+        out.writeDouble(motor.getDamping());
+        out.writeDouble(motor.getShaftInertia());
+        out.writeDouble(motor.getFriction());
+        out.writeDouble(motor.getTempCoefficient());
+        out.writeDouble(motor.getCouplingStiffness());
+        out.writeDouble(motor.getFanSpeed());
+        out.writeDouble(motor.getCoolantFlow());
+        out.writeUTF(motor.getIntegrator().name());
+        VfController controller = drive.getController();
+        out.writeDouble(controller.getKp());
+        out.writeDouble(controller.getKi());
+        out.writeUTF(controller.getTrigPrecision().name());
+        SensorModel sensors = drive.getSensors();
+        out.writeBoolean(sensors.isCurrentSensorFault());
+        out.writeDouble(sensors.getPartialFailureScale());
+    }
+
+    /// A drive with the written configuration and fresh state
+    static DriveSystem readConfiguration(DataInputStream in) throws IOException {
+        InverterPowerStage inverter = new InverterPowerStage(in.readDouble(), in.readDouble(), in.readDouble(),
+                in.readDouble(), in.readBoolean(), in.readBoolean());
+        inverter.setCooling(in.readDouble(), in.readDouble());
+        inverter.setIntegrator(readEnum(in, OdeIntegrator.Method.class));
+        inverter.setTrigPrecision(readEnum(in, FastTrig.Precision.class));
+        InductionMotor motor = new InductionMotor();
+        motor.setParameters(in.readDouble(), in.readDouble(), in.readInt(), in.readDouble(), in.readDouble(),
+                readEnum(in, LoadModel.class), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        motor.setIntegrator(readEnum(in, OdeIntegrator.Method.class));
+        VfController controller = new VfController(motor);
+        controller.setGains(in.readDouble(), in.readDouble());
+        controller.setTrigPrecision(readEnum(in, FastTrig.Precision.class));
+        SensorModel sensors = new SensorModel(0L);
+        sensors.setCurrentSensorFault(in.readBoolean());
+        sensors.setPartialFailureScale(in.readDouble());
+        return new DriveSystem(inverter, motor, controller, sensors, new FaultSimulator(inverter, sensors));
+    }
+
+    static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> type) throws IOException {
+        String name = in.readUTF();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + " " + name, e);
+        }
+    }
+}
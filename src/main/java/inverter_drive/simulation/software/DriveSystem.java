@@ -0,0 +1,192 @@
+package inverter_drive.simulation.software;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+public class DriveSystem {
+    private final InverterPowerStage inverter;
+    private final InductionMotor motor;
+    private final VfController controller;
+    private final SensorModel sensors;
+    private final FaultSimulator faultSimulator;
+    /// Per-drive step buffers, reused every step so the pipeline runs without allocation
+    private final double[] pwmSignals = new double[3];
+    private final double[] phaseVoltages = new double[3];
+    private final double[] phaseCurrents = new double[3];
+    /// Electrical steps taken; the mechanical and thermal updates fire on multiples of their intervals
+    private long electricalSteps = 0;
+
+    public DriveSystem(InverterPowerStage inverter, InductionMotor motor, VfController controller,
+                       SensorModel sensors, FaultSimulator faultSimulator) {
+        this.inverter = inverter;
+        this.motor = motor;
+        this.controller = controller;
+        this.sensors = sensors;
+        this.faultSimulator = faultSimulator;
+    }
+
+    /// Builds a drive that shares no mutable state with the given components: same configuration, fresh state.
+    /// The sensor noise and fault streams are split, in that order, from a SplittableRandom seeded with seed.
+    public static DriveSystem isolatedCopy(InverterPowerStage inverter, InductionMotor motor,
+                                           VfController controller, SensorModel sensors, long seed) {
+        return isolatedCopy(inverter, motor, controller, sensors, new SplittableRandom(seed));
+    }
+
+    /// Same, splitting the sensor noise and fault streams from the given generator
+    public static DriveSystem isolatedCopy(InverterPowerStage inverter, InductionMotor motor,
+                                           VfController controller, SensorModel sensors,
+                                           RandomGenerator.SplittableGenerator streams) {
+        InverterPowerStage inverterCopy = new InverterPowerStage(inverter);
+        InductionMotor motorCopy = new InductionMotor(motor);
+        VfController controllerCopy = new VfController(controller, motorCopy);
+        SensorModel sensorsCopy = new SensorModel(sensors, streams.split());
+        return new DriveSystem(inverterCopy, motorCopy, controllerCopy, sensorsCopy,
+                new FaultSimulator(inverterCopy, sensorsCopy, streams.split()));
+    }
+
+    /// Sensor noise stream of a drive built by isolatedCopy(seed)
+    static RandomGenerator sensorStream(long seed) {
+        return new SplittableRandom(seed).split();
+    }
+
+    public DriveSystem isolatedCopy(long seed) {
+        return isolatedCopy(inverter, motor, controller, sensors, seed);
+    }
+
+    /// Snapshot of this drive's configuration and state, unaffected by later steps; see DriveState
+    public DriveState capture() {
+        return DriveState.capture(this);
+    }
+
+    /// Rewinds this drive to a captured state without allocating. The drive keeps its own configuration and
+    /// random streams, so restoring a state into a drive with other settings starts a what-if run from it.
+    /// State tied to a setting the drive does not share starts fresh: the Park rotation at another trig
+    /// precision, the adaptive step of another integrator method.
+    public void restore(DriveState state) {
+        copyStateFrom(state.drive);
+    }
+
+    /// Component states, step count and the last step's outputs
+    void copyStateFrom(DriveSystem source) {
+        inverter.copyStateFrom(source.inverter);
+        motor.copyStateFrom(source.motor);
+        controller.copyStateFrom(source.controller);
+        faultSimulator.copyStateFrom(source.faultSimulator);
+        electricalSteps = source.electricalSteps;
+        System.arraycopy(source.pwmSignals, 0, pwmSignals, 0, 3);
+        System.arraycopy(source.phaseVoltages, 0, phaseVoltages, 0, 3);
+        System.arraycopy(source.phaseCurrents, 0, phaseCurrents, 0, 3);
+    }
+
+    void writeState(DataOutputStream out) throws IOException {
+        inverter.writeState(out);
+        motor.writeState(out);
+        controller.writeState(out);
+        faultSimulator.writeState(out);
+        out.writeLong(electricalSteps);
+        for (int i = 0; i < 3; i++) {
+            out.writeDouble(pwmSignals[i]);
+            out.writeDouble(phaseVoltages[i]);
+            out.writeDouble(phaseCurrents[i]);
+        }
+    }
+
+    void readState(DataInputStream in) throws IOException {
+        inverter.readState(in);
+        motor.readState(in);
+        controller.readState(in);
+        faultSimulator.readState(in);
+        electricalSteps = in.readLong();
+        for (int i = 0; i < 3; i++) {
+            pwmSignals[i] = in.readDouble();
+            phaseVoltages[i] = in.readDouble();
+            phaseCurrents[i] = in.readDouble();
+        }
+    }
+
+    /// Electrical steps taken since the drive was built, or since the state it was restored to
+    public long getStepCount() {
+        return electricalSteps;
+    }
+
+    /// Sets the power stage, controller gains, cooling and motor of the given snapshot on the components.
+    /// step() reads only the per-step settings (control, protection, time steps, integrator and trig
+    /// precision), so these take effect only once applied here.
+    public void apply(SimulationParameters p) {
+        inverter.setDcLinkVoltage(p.dcLinkVoltage);
+        inverter.setPwmFrequency(p.pwmFrequency);
+        inverter.setDeadTime(p.deadTime);
+        inverter.setModulationIndex(p.modulationIndex);
+        inverter.setHarmonicInjection(p.harmonicInjection);
+        inverter.setOvermodulation(p.overmodulation);
+        inverter.setCooling(p.fanSpeed, p.coolantFlow);
+        controller.setGains(p.kp, p.ki);
+        motor.setParameters(p.ratedVoltage, p.ratedPower, p.polePairs,
+                p.resistance, p.inductance, p.loadType,
+                p.loadInertia, p.damping, p.shaftInertia,
+                p.friction, p.tempCoefficient, p.couplingStiffness,
+                p.fanSpeed, p.coolantFlow);
+    }
+
+    /// Advances the drive by one SIMULATION_TIME_STEP using the per-step settings of the given snapshot.
+    /// The electrical subsystem runs every step. The mechanical and thermal subsystems run at the end of
+    /// each of their own intervals, integrating the interval-averaged torque and losses over the whole
+    /// interval; between updates the electrical side sees their last speed and temperatures.
+    public void step(SimulationParameters p, double time) {
+        electricalSteps++;
+        if (p.integrator != motor.getIntegrator()) motor.setIntegrator(p.integrator);
+        if (p.integrator != inverter.getIntegrator()) inverter.setIntegrator(p.integrator);
+        if (p.trigPrecision != controller.getTrigPrecision()) controller.setTrigPrecision(p.trigPrecision);
+        if (p.trigPrecision != inverter.getTrigPrecision()) inverter.setTrigPrecision(p.trigPrecision);
+        boolean thermalDue = electricalSteps % p.thermalInterval == 0;
+        controller.updateControl(p.controlMode, p.speedRef, p.torqueRef, p.fluxRef, p.accelRate, p.direction,
+                time, pwmSignals);
+        inverter.modulate(pwmSignals, p.pwmType, time, phaseVoltages);
+        if (thermalDue) {
+            inverter.updateThermal(p.thermalTimeStep);
+        }
+        faultSimulator.applyFaults(phaseVoltages, p.autoReset, motor.getTemperature(), inverter.getTemperature(),
+                p.maxTemp, p.protectionMode, time, phaseVoltages);
+        sensors.measureCurrents(phaseVoltages, motor, phaseCurrents);
+        motor.updateElectrical(phaseVoltages, phaseCurrents, Config.SIMULATION_TIME_STEP);
+        if (thermalDue) {
+            motor.updateThermal(p.thermalTimeStep);
+        }
+        if (electricalSteps % p.mechanicalInterval == 0) {
+            motor.updateMechanical(p.loadType, p.mechanicalTimeStep);
+        }
+    }
+
+    /// Phase voltages of the last step; the array is reused by the next step
+    public double[] getPhaseVoltages() {
+        return phaseVoltages;
+    }
+
+    /// Phase currents of the last step; the array is reused by the next step
+    public double[] getPhaseCurrents() {
+        return phaseCurrents;
+    }
+
+    public InverterPowerStage getInverter() {
+        return inverter;
+    }
+
+    public InductionMotor getMotor() {
+        return motor;
+    }
+
+    public VfController getController() {
+        return controller;
+    }
+
+    public SensorModel getSensors() {
+        return sensors;
+    }
+
+    public FaultSimulator getFaultSimulator() {
+        return faultSimulator;
+    }
+}
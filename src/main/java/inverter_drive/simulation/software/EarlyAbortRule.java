@@ -0,0 +1,56 @@
+package inverter_drive.simulation.software;
+
+/// Decides when an optimizer evaluation can stop before its full run because the outcome is already settled:
+/// the peak temperature has passed a limit, or the running estimates of the objectives are dominated by a
+/// member of the current front by a clear margin. Checked every CHECK_INTERVAL steps, so the scalar and
+/// batch evaluators stop an individual at the same step. Immutable; shared by all evaluation threads.
+public class EarlyAbortRule {
+    public static final int CHECK_INTERVAL = 500;
+
+    final double temperatureLimit;
+    final double dominanceMargin;
+    final double minimumFraction;
+    final double penalty;
+    final double[][] front;
+
+    /// front holds the objectives of the current non-dominated individuals, or null to skip the dominance
+    /// test; it is only consulted after minimumFraction of the run, when the running averages have settled.
+    /// Aborted evaluations report their estimates multiplied by 1 + penalty.
+    public EarlyAbortRule(double temperatureLimit, double dominanceMargin, double minimumFraction, double penalty,
+                          double[][] front) {
+        this.temperatureLimit = temperatureLimit;
+        this.dominanceMargin = dominanceMargin;
+        this.minimumFraction = minimumFraction;
+        this.penalty = penalty;
+        this.front = front;
+    }
+
+    /// Whether the rule is checked after completedSteps; callers only need the estimates at these steps
+    public boolean isDue(int completedSteps, int totalSteps) {
+        return completedSteps % CHECK_INTERVAL == 0 && completedSteps < totalSteps;
+    }
+
+    /// Called at a due step with the running estimate of each objective and the peak temperature so far
+    public boolean shouldAbort(double[] estimates, double peakTemperature, int completedSteps, int totalSteps) {
+        if (!isDue(completedSteps, totalSteps)) return false;
+        if (peakTemperature > temperatureLimit) return true;
+        if (front == null || completedSteps < minimumFraction * totalSteps) return false;
+        for (double[] f : front) {
+            boolean dominated = true;
+            boolean clearly = false;
+            for (int obj = 0; obj < estimates.length && dominated; obj++) {
+                dominated = f[obj] <= estimates[obj];
+                clearly |= f[obj] * (1 + dominanceMargin) <= estimates[obj];
+            }
+            if (dominated && clearly) return true;
+        }
+        return false;
+    }
+
+    /// Writes the penalized objectives of an aborted evaluation
+    public void penalize(double[] estimates, double[] objectives) {
+        for (int obj = 0; obj < estimates.length; obj++) {
+            objectives[obj] = estimates[obj] * (1 + penalty);
+        }
+    }
+}
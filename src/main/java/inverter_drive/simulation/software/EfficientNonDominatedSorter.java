@@ -0,0 +1,90 @@
+package inverter_drive.simulation.software;
+
+import java.util.Arrays;
+
+/// Efficient non-dominated sort with binary front search (ENS-BS, Zhang et al. 2015).
+/// Solutions are visited in lexicographic objective order, so a solution can only be dominated by one
+/// visited before it; its front is then found by binary search over the fronts built so far.
+/// Memory is O(N) and on typical populations far fewer than N² comparisons are made.
+public class EfficientNonDominatedSorter implements NonDominatedSorter {
+    @Override
+    public int[] rank(double[][] objectives) {
+        int n = objectives.length;
+        int[] rank = new int[n];
+        if (n == 0) return rank;
+        int[] order = lexicographicOrder(objectives);
+        /// fronts[k] holds the members of front k+1 in insertion order
+        int[][] fronts = new int[8][];
+        int[] frontSizes = new int[8];
+        int frontCount = 0;
+        for (int p : order) {
+            int low = 0;
+            int high = frontCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isDominatedByFront(objectives, p, fronts[mid], frontSizes[mid])) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == frontCount) {
+                if (frontCount == fronts.length) {
+                    fronts = Arrays.copyOf(fronts, frontCount * 2);
+                    frontSizes = Arrays.copyOf(frontSizes, frontCount * 2);
+                }
+                fronts[frontCount] = new int[4];
+                frontCount++;
+            }
+            if (frontSizes[low] == fronts[low].length) {
+                fronts[low] = Arrays.copyOf(fronts[low], fronts[low].length * 2);
+            }
+            fronts[low][frontSizes[low]++] = p;
+            rank[p] = low + 1;
+        }
+        return rank;
+    }
+
+    private static boolean isDominatedByFront(double[][] objectives, int p, int[] front, int size) {
+        /// Later members are lexicographically closer to p and the most likely dominators
+        for (int k = size - 1; k >= 0; k--) {
+            if (NonDominatedSorter.dominates(objectives[front[k]], objectives[p])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] lexicographicOrder(double[][] objectives) {
+        int n = objectives.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        int[] buffer = new int[n];
+        mergeSort(objectives, order, buffer, 0, n);
+        return order;
+    }
+
+    private static void mergeSort(double[][] objectives, int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(objectives, order, buffer, from, mid);
+        mergeSort(objectives, order, buffer, mid, to);
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            buffer[k++] = compare(objectives[order[j]], objectives[order[i]]) < 0 ? order[j++] : order[i++];
+        }
+        while (i < mid) buffer[k++] = order[i++];
+        while (j < to) buffer[k++] = order[j++];
+        System.arraycopy(buffer, from, order, from, to - from);
+    }
+
+    private static int compare(double[] a, double[] b) {
+        for (int m = 0; m < a.length; m++) {
+            int c = Double.compare(a[m], b[m]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+}
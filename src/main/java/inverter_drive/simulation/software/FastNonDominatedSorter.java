@@ -0,0 +1,63 @@
+package inverter_drive.simulation.software;
+
+import java.util.Arrays;
+
+/// Deb's fast non-dominated sort (O(MN²) comparisons).
+/// Dominated sets are kept in one compressed adjacency array instead of an N×N matrix,
+/// and fronts are peeled with a work list rather than rescanning the whole population.
+public class FastNonDominatedSorter implements NonDominatedSorter {
+    @Override
+    public int[] rank(double[][] objectives) {
+        int n = objectives.length;
+        int[] rank = new int[n];
+        int[] dominationCount = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] edges = new int[Math.max(16, n)];
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = edgeCount;
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                if (NonDominatedSorter.dominates(objectives[i], objectives[j])) {
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[edgeCount++] = j;
+                } else if (NonDominatedSorter.dominates(objectives[j], objectives[i])) {
+                    dominationCount[i]++;
+                }
+            }
+        }
+        offsets[n] = edgeCount;
+        /// current front occupies front[0..frontSize), the next one is collected in next[]
+        int[] front = new int[n];
+        int[] next = new int[n];
+        int frontSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (dominationCount[i] == 0) {
+                rank[i] = 1;
+                front[frontSize++] = i;
+            }
+        }
+        int frontIndex = 1;
+        while (frontSize > 0) {
+            int nextSize = 0;
+            for (int f = 0; f < frontSize; f++) {
+                int i = front[f];
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    int dominated = edges[e];
+                    if (--dominationCount[dominated] == 0) {
+                        rank[dominated] = frontIndex + 1;
+                        next[nextSize++] = dominated;
+                    }
+                }
+            }
+            int[] swap = front;
+            front = next;
+            next = swap;
+            frontSize = nextSize;
+            frontIndex++;
+        }
+        return rank;
+    }
+}
@@ -0,0 +1,71 @@
+package inverter_drive.simulation.software;
+
+/// Sine and cosine at a selectable accuracy for the modulation and control paths that evaluate them every
+/// step. Apart from EXACT, values come from a table of one sine period, linearly interpolated; the error is
+/// at most h²/8 for table spacing h. Tables are built once and shared; lookups never allocate.
+public final class FastTrig {
+    static final double SQRT3 = Math.sqrt(3);
+    static final double HALF_SQRT3 = SQRT3 / 2;
+
+    public enum Precision {
+        /// Math.sin and Math.cos with the original formulas; reproduces earlier results bit for bit
+        EXACT(0),
+        /// 16,384-entry table, error below 2e-8
+        HIGH(14),
+        /// 1,024-entry table, error below 5e-6
+        MEDIUM(10),
+        /// 128-entry table, error below 3.1e-4; fits in a few cache lines
+        LOW(7);
+
+        private final double[] table;
+        private final double scale;
+        private final long mask;
+        private final double quarter;
+        private final double maxError;
+
+        Precision(int bits) {
+            if (bits == 0) {
+                table = null;
+                scale = 0;
+                mask = 0;
+                quarter = 0;
+                maxError = 0;
+                return;
+            }
+            int size = 1 << bits;
+            /// One extra entry so interpolation never wraps
+            table = new double[size + 1];
+            for (int i = 0; i <= size; i++) {
+                table[i] = Math.sin(2 * Math.PI * i / size);
+            }
+            scale = size / (2 * Math.PI);
+            mask = size - 1;
+            quarter = size / 4;
+            double spacing = 2 * Math.PI / size;
+            maxError = spacing * spacing / 8 + 1e-15;
+        }
+
+        public double sin(double x) {
+            return table == null ? Math.sin(x) : lookup(x * scale);
+        }
+
+        public double cos(double x) {
+            return table == null ? Math.cos(x) : lookup(x * scale + quarter);
+        }
+
+        /// Bound on |sin(x) - Math.sin(x)| and |cos(x) - Math.cos(x)|; zero for EXACT
+        public double maxError() {
+            return maxError;
+        }
+
+        private double lookup(double index) {
+            double floor = Math.floor(index);
+            int i = (int) ((long) floor & mask);
+            double low = table[i];
+            return low + (table[i + 1] - low) * (index - floor);
+        }
+    }
+
+    private FastTrig() {
+    }
+}
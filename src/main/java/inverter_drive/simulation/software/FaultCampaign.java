@@ -0,0 +1,183 @@
+package inverter_drive.simulation.software;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/// Monte Carlo fault campaign: runs every scenario on its own isolated drive, in parallel, and streams one
+/// FaultCampaignResults record per scenario as it finishes. Scenarios share nothing but the results file,
+/// so throughput scales with the worker count. Each scenario's random streams are seeded from the campaign
+/// seed and its index, so results do not depend on scheduling or thread count.
+/// Usage: FaultCampaign <scenarios.csv | default> <results file> [seconds] [threads] [seed]
+public class FaultCampaign {
+    /// Metric indices of a result record
+    public static final int PEAK_CURRENT = 0;
+    public static final int PEAK_TEMPERATURE = 1;
+    public static final int SPEED_DEVIATION = 2;
+    public static final int RECOVERY_TIME = 3;
+    public static final int METRICS = 4;
+    /// Speed counts as recovered within this fraction of its pre-fault value, and never tighter than
+    /// RECOVERY_FLOOR rad/s
+    static final double RECOVERY_BAND = 0.05;
+    static final double RECOVERY_FLOOR = 1.0;
+
+    private final DriveSystem template;
+    private final SimulationParameters baseParameters;
+    private final double simulatedSeconds;
+    private final long seed;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    public FaultCampaign(DriveSystem template, SimulationParameters baseParameters, double simulatedSeconds,
+                         long seed) {
+        this.template = template;
+        this.baseParameters = baseParameters;
+        this.simulatedSeconds = simulatedSeconds;
+        this.seed = seed;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /// Scenarios finished by the current or last run; safe to poll from another thread
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    /// Runs all scenarios and writes their records to resultsFile, replacing it
+    public void run(List<FaultScenario> scenarios, Path resultsFile) throws IOException {
+        completed.set(0);
+        long[] seeds = new long[scenarios.size()];
+        SplittableRandom seedSource = new SplittableRandom(seed);
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = seedSource.nextLong();
+        }
+        try (FaultCampaignResults results = FaultCampaignResults.create(resultsFile, scenarios.size())) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> IntStream.range(0, scenarios.size()).parallel().forEach(i -> {
+                    double[] metrics = simulate(scenarios.get(i), template.isolatedCopy(seeds[i]));
+                    try {
+                        results.write(i, metrics);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    completed.incrementAndGet();
+                })).join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /// Runs one scenario on the given drive, which must not be shared, and returns its metrics
+    public double[] simulate(FaultScenario scenario, DriveSystem drive) {
+        SimulationParameters p = new SimulationParameters.Builder(baseParameters)
+                .thermal(baseParameters.fanSpeed, baseParameters.coolantFlow, baseParameters.maxTemp,
+                        scenario.protectionMode, baseParameters.autoReset)
+                .motor(baseParameters.ratedVoltage, baseParameters.ratedPower, baseParameters.polePairs,
+                        baseParameters.resistance, baseParameters.inductance, scenario.loadType,
+                        baseParameters.loadInertia, baseParameters.damping, baseParameters.shaftInertia,
+                        baseParameters.friction, baseParameters.tempCoefficient, baseParameters.couplingStiffness)
+                .build();
+        drive.getSensors().setPartialFailureScale(scenario.partialFailureScale);
+        InductionMotor motor = drive.getMotor();
+        InverterPowerStage inverter = drive.getInverter();
+        FaultSimulator faultSimulator = drive.getFaultSimulator();
+        double[] phaseCurrents = drive.getPhaseCurrents();
+        double dt = Config.SIMULATION_TIME_STEP;
+        long steps = Math.round(simulatedSeconds / dt);
+        /// The schedule fires each event on the step nearest to its time
+        faultSimulator.setSchedule(new FaultSchedule()
+                .inject(scenario.injectionTime, scenario.faultType)
+                .clear(scenario.injectionTime + scenario.duration, scenario.faultType));
+        long injectStep = Math.round(scenario.injectionTime / dt);
+        long clearStep = Math.round((scenario.injectionTime + scenario.duration) / dt);
+        double peakCurrent = 0.0;
+        double peakTemperature = Math.max(motor.getTemperature(), inverter.getTemperature());
+        double preFaultSpeed = 0.0;
+        double deviationSum = 0.0;
+        long deviationSamples = 0;
+        long lastOutOfBand = clearStep - 1;
+        double time = 0.0;
+        for (long step = 0; step < steps; step++) {
+            if (step == injectStep) {
+                preFaultSpeed = motor.getSpeed();
+            }
+            drive.step(p, time);
+            time += dt;
+            for (int k = 0; k < 3; k++) {
+                peakCurrent = Math.max(peakCurrent, Math.abs(phaseCurrents[k]));
+            }
+            peakTemperature = Math.max(peakTemperature, Math.max(motor.getTemperature(), inverter.getTemperature()));
+            if (step >= injectStep) {
+                double deviation = Math.abs(motor.getSpeed() - preFaultSpeed);
+                deviationSum += deviation;
+                deviationSamples++;
+                if (step >= clearStep
+                        && deviation > Math.max(RECOVERY_FLOOR, RECOVERY_BAND * Math.abs(preFaultSpeed))) {
+                    lastOutOfBand = step;
+                }
+            }
+        }
+        double[] metrics = new double[METRICS];
+        metrics[PEAK_CURRENT] = peakCurrent;
+        metrics[PEAK_TEMPERATURE] = peakTemperature;
+        metrics[SPEED_DEVIATION] = deviationSamples == 0 ? 0.0 : deviationSum / deviationSamples;
+        /// NaN when the fault never cleared within the run or speed was still outside the band at the end
+        metrics[RECOVERY_TIME] = clearStep >= steps || lastOutOfBand == steps - 1 ? Double.NaN
+                : (lastOutOfBand + 1 - clearStep) * dt;
+        return metrics;
+    }
+
+    /// Every fault type at two injection times and durations, under each load, three partial failure
+    /// scales and each protection mode: 432 scenarios
+    public static List<FaultScenario> defaultMatrix() {
+        return FaultScenario.matrix(
+                new FaultMode[]{FaultMode.OVERCURRENT, FaultMode.UNDERVOLTAGE, FaultMode.PHASE_LOSS,
+                        FaultMode.IGBT_FAILURE},
+                new double[]{0.1, 0.3},
+                new double[]{0.05, 0.2},
+                LoadModel.values(),
+                new double[]{1.0, 0.8, 0.5},
+                new ProtectionMode[]{ProtectionMode.WARNING, ProtectionMode.SHUTDOWN, ProtectionMode.NONE});
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 5) {
+            System.err.println("Usage: FaultCampaign <scenarios.csv | default> <results file> [seconds] [threads] [seed]");
+            System.exit(2);
+        }
+        List<FaultScenario> scenarios = args[0].equals("default") ? defaultMatrix()
+                : FaultScenario.readCsv(Paths.get(args[0]));
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : Config.RANDOM_SEED;
+        InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+        InductionMotor motor = new InductionMotor();
+        SensorModel sensors = new SensorModel();
+        DriveSystem template = new DriveSystem(inverter, motor, new VfController(motor), sensors,
+                new FaultSimulator(inverter, sensors));
+        FaultCampaign campaign = new FaultCampaign(template, new SimulationParameters.Builder().build(), seconds, seed);
+        if (args.length > 3) {
+            campaign.setParallelism(Integer.parseInt(args[3]));
+        }
+        long start = System.nanoTime();
+        campaign.run(scenarios, Paths.get(args[1]));
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Ran %d scenarios in %.2f s (%.1f scenarios/s) on %d threads%n", scenarios.size(), elapsed,
+                scenarios.size() / elapsed, campaign.getParallelism());
+    }
+}
@@ -0,0 +1,126 @@
+package inverter_drive.simulation.software;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/// Compact binary results of a fault campaign: a 16-byte header followed by one fixed 20-byte record per
+/// scenario at offset HEADER_BYTES + index * RECORD_BYTES, so workers write their records as soon as a
+/// scenario finishes, in any order, without coordinating. A record is a status int (0 = not run yet,
+/// 1 = done) followed by the FaultCampaign metrics as little-endian floats.
+/// Usage: FaultCampaignResults <results file> prints the records as CSV.
+public class FaultCampaignResults implements Closeable {
+    static final int MAGIC = 0x49444643; // "IDFC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 4 + 4 * FaultCampaign.METRICS;
+    public static final String CSV_HEADER = "scenario,peak_current,peak_temperature,speed_deviation,recovery_time";
+
+    private final FileChannel channel;
+    private final int scenarioCount;
+
+    private FaultCampaignResults(FileChannel channel, int scenarioCount) {
+        this.channel = channel;
+        this.scenarioCount = scenarioCount;
+    }
+
+    /// Creates or truncates the file with room for scenarioCount records, all marked not run
+    public static FaultCampaignResults create(Path file, int scenarioCount) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(scenarioCount).putInt(RECORD_BYTES).flip();
+        writeFully(channel, header, 0);
+        /// Extend to full size so unwritten records read back as zero (not run)
+        writeFully(channel, ByteBuffer.allocate(1), HEADER_BYTES + (long) scenarioCount * RECORD_BYTES - 1);
+        return new FaultCampaignResults(channel, scenarioCount);
+    }
+
+    /// Thread-safe; each index should be written once
+    public void write(int index, double[] metrics) throws IOException {
+        if (index < 0 || index >= scenarioCount) {
+            throw new IndexOutOfBoundsException("Scenario " + index + " of " + scenarioCount);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(1);
+        for (int m = 0; m < FaultCampaign.METRICS; m++) {
+            record.putFloat((float) metrics[m]);
+        }
+        record.flip();
+        writeFully(channel, record, HEADER_BYTES + (long) index * RECORD_BYTES);
+    }
+
+    public int getScenarioCount() {
+        return scenarioCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    /// metrics[index] per scenario; null for scenarios that were not run
+    public static float[][] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a fault campaign results file: " + file);
+            }
+            int count = header.getInt();
+            int recordBytes = header.getInt();
+            if (count < 0 || recordBytes != RECORD_BYTES) {
+                throw new IOException("Unsupported record layout in " + file);
+            }
+            ByteBuffer body = ByteBuffer.allocate(count * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, body, HEADER_BYTES);
+            body.flip();
+            float[][] metrics = new float[count][];
+            for (int i = 0; i < count; i++) {
+                boolean done = body.getInt() == 1;
+                float[] record = new float[FaultCampaign.METRICS];
+                for (int m = 0; m < FaultCampaign.METRICS; m++) {
+                    record[m] = body.getFloat();
+                }
+                metrics[i] = done ? record : null;
+            }
+            return metrics;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("Truncated fault campaign results file");
+            position += n;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: FaultCampaignResults <results file>");
+            System.exit(2);
+        }
+        float[][] metrics = read(Paths.get(args[0]));
+        System.out.println(CSV_HEADER);
+        for (int i = 0; i < metrics.length; i++) {
+            if (metrics[i] == null) continue;
+            System.out.println(i + "," + metrics[i][FaultCampaign.PEAK_CURRENT] + ","
+                    + metrics[i][FaultCampaign.PEAK_TEMPERATURE] + "," + metrics[i][FaultCampaign.SPEED_DEVIATION]
+                    + "," + metrics[i][FaultCampaign.RECOVERY_TIME]);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package inverter_drive.simulation.software;
+
+/// Fault active in FaultSimulator
+public enum FaultMode {
+    NONE("None"),
+    /// Phase voltages scaled by OVERCURRENT_VOLTAGE_SCALE
+    OVERCURRENT("Overcurrent"),
+    /// Phase voltages scaled by UNDERVOLTAGE_VOLTAGE_SCALE
+    UNDERVOLTAGE("Undervoltage"),
+    /// Phase A open
+    PHASE_LOSS("Phase Loss"),
+    /// Set by thermal protection; cuts the output only under ProtectionMode.SHUTDOWN
+    OVERHEAT("Overheat"),
+    /// Phase A intermittently open for IGBT_FAILURE_DUTY_CYCLE of the steps
+    IGBT_FAILURE("IGBTFailure");
+
+    private final String label;
+
+    FaultMode(String label) {
+        this.label = label;
+    }
+
+    /// Name shown in the UI and written to the telemetry log and fault campaign files
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static FaultMode fromLabel(String label) {
+        for (FaultMode mode : values()) {
+            if (mode.label.equals(label)) return mode;
+        }
+        throw new IllegalArgumentException("Unknown fault type: " + label);
+    }
+}
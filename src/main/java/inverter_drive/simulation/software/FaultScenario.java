@@ -0,0 +1,78 @@
+package inverter_drive.simulation.software;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/// One row of a fault campaign: which fault is injected when and for how long, under which load,
+/// current-sensor partial failure scale and thermal protection mode. Times are simulated seconds.
+public final class FaultScenario {
+    public static final String CSV_HEADER = "fault,injection_time,duration,load,partial_failure_scale,protection";
+
+    public final FaultMode faultType;
+    public final double injectionTime;
+    public final double duration;
+    public final LoadModel loadType;
+    public final double partialFailureScale;
+    public final ProtectionMode protectionMode;
+
+    public FaultScenario(FaultMode faultType, double injectionTime, double duration, LoadModel loadType,
+                         double partialFailureScale, ProtectionMode protectionMode) {
+        this.faultType = faultType;
+        this.injectionTime = injectionTime;
+        this.duration = duration;
+        this.loadType = loadType;
+        this.partialFailureScale = partialFailureScale;
+        this.protectionMode = protectionMode;
+    }
+
+    /// Full cartesian product of the given values, fault type varying slowest
+    public static List<FaultScenario> matrix(FaultMode[] faultTypes, double[] injectionTimes, double[] durations,
+                                             LoadModel[] loadTypes, double[] partialFailureScales,
+                                             ProtectionMode[] protectionModes) {
+        List<FaultScenario> scenarios = new ArrayList<>();
+        for (FaultMode fault : faultTypes)
+            for (double injectionTime : injectionTimes)
+                for (double duration : durations)
+                    for (LoadModel load : loadTypes)
+                        for (double scale : partialFailureScales)
+                            for (ProtectionMode protection : protectionModes)
+                                scenarios.add(new FaultScenario(fault, injectionTime, duration, load, scale, protection));
+        return scenarios;
+    }
+
+    /// Reads scenarios from a CSV file laid out as CSV_HEADER; the header line is optional
+    public static List<FaultScenario> readCsv(Path file) throws IOException {
+        List<FaultScenario> scenarios = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.equals(CSV_HEADER)) continue;
+                String[] f = line.split(",");
+                if (f.length != 6) {
+                    throw new IOException("Line " + lineNumber + ": expected 6 fields, found " + f.length);
+                }
+                try {
+                    scenarios.add(new FaultScenario(FaultMode.fromLabel(f[0].trim()),
+                            Double.parseDouble(f[1].trim()), Double.parseDouble(f[2].trim()),
+                            LoadModel.fromLabel(f[3].trim()), Double.parseDouble(f[4].trim()),
+                            ProtectionMode.fromLabel(f[5].trim())));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    public String toCsv() {
+        return faultType + "," + injectionTime + "," + duration + "," + loadType + ","
+                + partialFailureScale + "," + protectionMode;
+    }
+}
@@ -0,0 +1,55 @@
+package inverter_drive.simulation.software;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/// Timeline of fault inject and clear events on simulated time, run by FaultSimulator.setSchedule.
+/// Events fire on the simulation step nearest to their time; events at the same time fire in the order
+/// they were added.
+public class FaultSchedule {
+    public static final class Event {
+        public final double time; // s, simulated
+        /// Fault to inject, or for a clear event the fault to clear; null clears whatever is active
+        public final FaultMode faultType;
+        public final boolean inject;
+
+        public Event(double time, FaultMode faultType, boolean inject) {
+            this.time = time;
+            this.faultType = faultType;
+            this.inject = inject;
+        }
+    }
+
+    private final List<Event> events = new ArrayList<>();
+
+    public FaultSchedule inject(double time, FaultMode faultType) {
+        return add(new Event(time, faultType, true));
+    }
+
+    /// Clears whatever fault is active at time
+    public FaultSchedule clear(double time) {
+        return add(new Event(time, null, false));
+    }
+
+    /// Clears faultType at time if it is still the active fault, leaving e.g. a later overheat alone
+    public FaultSchedule clear(double time, FaultMode faultType) {
+        return add(new Event(time, faultType, false));
+    }
+
+    private FaultSchedule add(Event event) {
+        if (Double.isNaN(event.time)) {
+            throw new IllegalArgumentException("Event time must be a number");
+        }
+        events.add(event);
+        return this;
+    }
+
+    /// Events sorted by time
+    public List<Event> getEvents() {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparingDouble(e -> e.time));
+        return Collections.unmodifiableList(sorted);
+    }
+}
@@ -1,50 +1,90 @@
 package inverter_drive.simulation.software;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 public class FaultSimulator {
     private final InverterPowerStage inverter;
     private final SensorModel sensors;
-    private String currentFault = "None";
-    private double faultTime = 0.0;
+    private final RandomGenerator random;
+    private FaultMode currentFault = FaultMode.NONE;
+    private double faultTime = 0.0; // s, simulated
+    /// Simulated time of the last applyFaults call
+    private double simulationTime = 0.0;
+    private FaultSchedule.Event[] schedule = new FaultSchedule.Event[0];
+    private int nextEvent = 0;
 
     public FaultSimulator(InverterPowerStage inverter, SensorModel sensors) {
+        this(inverter, sensors, new SplittableRandom());
+    }
+
+    /// random drives the intermittent IGBT failure and must not be shared with another thread
+    public FaultSimulator(InverterPowerStage inverter, SensorModel sensors, RandomGenerator random) {
         this.inverter = inverter;
         this.sensors = sensors;
+        this.random = random;
+    }
+
+    public double[] applyFaults(double[] phaseVoltages, boolean autoReset,
+                                double motorTemp, double inverterTemp,
+                                double maxTemp, ProtectionMode protectionMode, double time) {
+        return applyFaults(phaseVoltages, autoReset, motorTemp, inverterTemp, maxTemp, protectionMode, time,
+                new double[3]);
     }
 
+    /// Writes the faulted voltages into modifiedVoltages and returns it; allocates nothing.
+    /// modifiedVoltages may be the same array as phaseVoltages to apply the faults in place.
+    /// time is the simulated time of the step; scheduled events and the auto-reset delay run on it.
     public double[] applyFaults(double[] phaseVoltages, boolean autoReset,
                                 double motorTemp, double inverterTemp,
-                                double maxTemp, String protectionMode) {
+                                double maxTemp, ProtectionMode protectionMode, double time,
+                                double[] modifiedVoltages) {
+        simulationTime = time;
+        /// Fire scheduled events on the step nearest to their time
+        while (nextEvent < schedule.length && schedule[nextEvent].time <= time + 0.5 * Config.SIMULATION_TIME_STEP) {
+            FaultSchedule.Event event = schedule[nextEvent++];
+            if (event.inject) {
+                injectFault(event.faultType);
+            } else if (event.faultType == null || event.faultType == currentFault) {
+                clearFault();
+            }
+        }
         if (motorTemp > maxTemp || inverterTemp > maxTemp) {
-            if (protectionMode.equals("Shutdown")) {
-                currentFault = "Overheat";
-                return new double[]{0, 0, 0}; // Stop inverter
-            } else if (protectionMode.equals("Warning") && !currentFault.equals("Overheat")) {
-                currentFault = "Overheat";
-                faultTime = System.currentTimeMillis();
+            if (protectionMode == ProtectionMode.SHUTDOWN) {
+                currentFault = FaultMode.OVERHEAT;
+                for (int i = 0; i < 3; i++) modifiedVoltages[i] = 0; // Stop inverter
+                return modifiedVoltages;
+            } else if (protectionMode == ProtectionMode.WARNING && currentFault != FaultMode.OVERHEAT) {
+                currentFault = FaultMode.OVERHEAT;
+                faultTime = time;
             }
         }
-        if (autoReset && !currentFault.equals("None") && (System.currentTimeMillis() - faultTime) > 2000) {
+        if (autoReset && currentFault != FaultMode.NONE && time - faultTime > Config.FAULT_AUTO_RESET_DELAY) {
             clearFault();
         }
-        double[] modifiedVoltages = phaseVoltages.clone();
+        if (modifiedVoltages != phaseVoltages) {
+            System.arraycopy(phaseVoltages, 0, modifiedVoltages, 0, 3);
+        }
         switch (currentFault) {
-            case "Overcurrent":
+            case OVERCURRENT:
                 for (int i = 0; i < 3; i++) modifiedVoltages[i] *= Config.OVERCURRENT_VOLTAGE_SCALE;
                 break;
-            case "Undervoltage":
+            case UNDERVOLTAGE:
                 for (int i = 0; i < 3; i++) modifiedVoltages[i] *= Config.UNDERVOLTAGE_VOLTAGE_SCALE;
                 break;
-            case "Phase Loss":
+            case PHASE_LOSS:
                 modifiedVoltages[0] = 0; // Loss of phase A
                 break;
-            case "Overheat":
-                if (protectionMode.equals("Shutdown")) {
+            case OVERHEAT:
+                if (protectionMode == ProtectionMode.SHUTDOWN) {
                     for (int i = 0; i < 3; i++) modifiedVoltages[i] = 0;
                 }
                 break;
-            case "IGBTFailure":
+            case IGBT_FAILURE:
                 // Simulate intermittent failure on phase A
-                if (Math.random() < Config.IGBT_FAILURE_DUTY_CYCLE) {
+                if (random.nextDouble() < Config.IGBT_FAILURE_DUTY_CYCLE) {
                     modifiedVoltages[0] = 0;
                 }
                 break;
@@ -52,18 +92,70 @@ public class FaultSimulator {
         return modifiedVoltages;
     }
 
-    public void injectFault(String faultType) {
-        if (!faultType.equals("None")) {
+    /// Takes effect from the next step; the auto-reset delay counts from the last simulated step time
+    public void injectFault(FaultMode faultType) {
+        if (faultType != FaultMode.NONE) {
             currentFault = faultType;
-            faultTime = System.currentTimeMillis();
+            faultTime = simulationTime;
+        }
+    }
+
+    /// Replaces the fault timeline; events whose time has already passed fire on the next step
+    public void setSchedule(FaultSchedule schedule) {
+        this.schedule = schedule.getEvents().toArray(new FaultSchedule.Event[0]);
+        this.nextEvent = 0;
+    }
+
+    /// Scheduled events that have not fired yet
+    public int getPendingEventCount() {
+        return schedule.length - nextEvent;
+    }
+
+    /// Takes over the active fault, its start time, the simulated time and the schedule with its position.
+    /// The IGBT failure stream is not copied.
+    void copyStateFrom(FaultSimulator source) {
+        currentFault = source.currentFault;
+        faultTime = source.faultTime;
+        simulationTime = source.simulationTime;
+        /// Events are immutable and the array is only ever replaced, so it can be shared
+        schedule = source.schedule;
+        nextEvent = source.nextEvent;
+    }
+
+    void writeState(DataOutputStream out) throws IOException {
+        out.writeUTF(currentFault.name());
+        out.writeDouble(faultTime);
+        out.writeDouble(simulationTime);
+        out.writeInt(schedule.length);
+        for (FaultSchedule.Event event : schedule) {
+            out.writeDouble(event.time);
+            out.writeBoolean(event.faultType != null);
+            if (event.faultType != null) out.writeUTF(event.faultType.name());
+            out.writeBoolean(event.inject);
+        }
+        out.writeInt(nextEvent);
+    }
+
+    void readState(DataInputStream in) throws IOException {
+        currentFault = DriveState.readEnum(in, FaultMode.class);
+        faultTime = in.readDouble();
+        simulationTime = in.readDouble();
+        FaultSchedule.Event[] events = new FaultSchedule.Event[in.readInt()];
+        for (int i = 0; i < events.length; i++) {
+            double time = in.readDouble();
+            FaultMode faultType = in.readBoolean() ? DriveState.readEnum(in, FaultMode.class) : null;
+            events[i] = new FaultSchedule.Event(time, faultType, in.readBoolean());
         }
+        schedule = events;
+        nextEvent = in.readInt();
+        if (nextEvent < 0 || nextEvent > schedule.length) throw new IOException("Bad fault schedule position");
     }
 
     public void clearFault() {
-        currentFault = "None";
+        currentFault = FaultMode.NONE;
     }
 
-    public String getCurrentFault() {
+    public FaultMode getCurrentFault() {
         return currentFault;
     }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package inverter_drive.simulation.software;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Bounded LRU cache of objective vectors keyed on a quantized parameter vector plus the scenario definition.
+/// Parameter vectors that fall into the same quantization cell share one simulation result.
+public class FitnessCache {
+    private final int capacity;
+    private final double[] quantization;
+    private final LinkedHashMap<Key, double[]> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /// quantization[i] is the cell width for parameter i; a width of 0 keys on the exact value
+    public FitnessCache(int capacity, double... quantization) {
+        this.capacity = capacity;
+        this.quantization = quantization.clone();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+                return size() > FitnessCache.this.capacity;
+            }
+        };
+    }
+
+    public Key keyOf(double[] parameters, String scenario) {
+        long[] cells = new long[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            double q = i < quantization.length ? quantization[i] : 0.0;
+            cells[i] = q > 0 ? Math.round(parameters[i] / q) : Double.doubleToLongBits(parameters[i]);
+        }
+        return new Key(cells, scenario);
+    }
+
+    /// Returns a copy of the cached objectives, or null; counts a hit or a miss
+    public synchronized double[] get(Key key) {
+        double[] objectives = entries.get(key);
+        if (objectives == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return objectives.clone();
+    }
+
+    public synchronized void put(Key key, double[] objectives) {
+        entries.put(key, objectives.clone());
+    }
+
+    /// Counts a lookup that was satisfied without simulating, e.g. a duplicate within one batch
+    synchronized void recordHit() {
+        hits++;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /// Configuration, counters and entries from least to most recently used, for optimizer checkpoints.
+    /// Scenario strings are written once and referenced by index.
+    synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(capacity);
+        out.writeInt(quantization.length);
+        for (double q : quantization) {
+            out.writeDouble(q);
+        }
+        out.writeLong(hits);
+        out.writeLong(misses);
+        List<String> scenarios = new ArrayList<>();
+        for (Key key : entries.keySet()) {
+            if (!scenarios.contains(key.scenario)) scenarios.add(key.scenario);
+        }
+        out.writeInt(scenarios.size());
+        for (String scenario : scenarios) {
+            out.writeUTF(scenario);
+        }
+        out.writeInt(entries.size());
+        for (Map.Entry<Key, double[]> entry : entries.entrySet()) {
+            Key key = entry.getKey();
+            out.writeInt(scenarios.indexOf(key.scenario));
+            out.writeInt(key.cells.length);
+            for (long cell : key.cells) {
+                out.writeLong(cell);
+            }
+            out.writeInt(entry.getValue().length);
+            for (double value : entry.getValue()) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    /// A cache as written by write, in the same recency order
+    static FitnessCache read(DataInputStream in) throws IOException {
+        int capacity = in.readInt();
+        double[] quantization = new double[in.readInt()];
+        for (int i = 0; i < quantization.length; i++) {
+            quantization[i] = in.readDouble();
+        }
+        FitnessCache cache = new FitnessCache(capacity, quantization);
+        cache.hits = in.readLong();
+        cache.misses = in.readLong();
+        String[] scenarios = new String[in.readInt()];
+        for (int i = 0; i < scenarios.length; i++) {
+            scenarios[i] = in.readUTF();
+        }
+        int size = in.readInt();
+        for (int e = 0; e < size; e++) {
+            String scenario = scenarios[in.readInt()];
+            long[] cells = new long[in.readInt()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = in.readLong();
+            }
+            double[] objectives = new double[in.readInt()];
+            for (int i = 0; i < objectives.length; i++) {
+                objectives[i] = in.readDouble();
+            }
+            cache.entries.put(new Key(cells, scenario), objectives);
+        }
+        return cache;
+    }
+
+    public static final class Key {
+        private final long[] cells;
+        private final String scenario;
+        private final int hash;
+
+        private Key(long[] cells, String scenario) {
+            this.cells = cells;
+            this.scenario = scenario;
+            this.hash = 31 * Arrays.hashCode(cells) + scenario.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(cells, other.cells) && scenario.equals(other.scenario);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
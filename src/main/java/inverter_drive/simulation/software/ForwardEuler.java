@@ -0,0 +1,29 @@
+package inverter_drive.simulation.software;
+
+/// y += h * f(t, y)
+public class ForwardEuler implements OdeIntegrator {
+    private double[] dydt = new double[0];
+    private long evaluations = 0;
+    private long steps = 0;
+
+    @Override
+    public void integrate(OdeSystem system, double t, double[] y, double h) {
+        if (dydt.length != y.length) dydt = new double[y.length];
+        system.derivatives(t, y, dydt);
+        for (int i = 0; i < y.length; i++) {
+            y[i] += h * dydt[i];
+        }
+        evaluations++;
+        steps++;
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    @Override
+    public long getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,66 @@
+package inverter_drive.simulation.software;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/// Exact hypervolume of a set of points (minimization) with respect to a reference point, by slicing along
+/// one objective at a time down to a two-dimensional staircase sweep. O(n^(m-1) log n) for m objectives,
+/// which is plenty for population-sized fronts of a few objectives. Points not strictly better than the
+/// reference in every objective contribute nothing.
+public final class Hypervolume {
+    private Hypervolume() {
+    }
+
+    public static double compute(double[][] points, double[] reference) {
+        double[][] inside = Arrays.stream(points)
+                .filter(p -> dominates(p, reference))
+                .toArray(double[][]::new);
+        return volume(inside, inside.length, 0, reference);
+    }
+
+    private static boolean dominates(double[] point, double[] reference) {
+        for (int obj = 0; obj < reference.length; obj++) {
+            if (!(point[obj] < reference[obj])) return false;
+        }
+        return true;
+    }
+
+    /// Volume dominated in objectives from..m-1 by the first count points
+    private static double volume(double[][] points, int count, int from, double[] reference) {
+        int remaining = reference.length - from;
+        if (remaining == 1) {
+            double best = reference[from];
+            for (int i = 0; i < count; i++) best = Math.min(best, points[i][from]);
+            return reference[from] - best;
+        }
+        double[][] sorted = Arrays.copyOf(points, count);
+        Arrays.sort(sorted, Comparator.comparingDouble(p -> p[from]));
+        if (remaining == 2) {
+            return area(sorted, from, reference);
+        }
+        double volume = 0.0;
+        for (int i = 0; i < count; i++) {
+            double depth = (i + 1 < count ? sorted[i + 1][from] : reference[from]) - sorted[i][from];
+            if (depth > 0) {
+                volume += depth * volume(sorted, i + 1, from + 1, reference);
+            }
+        }
+        return volume;
+    }
+
+    /// Area dominated in objectives y and y + 1 by points sorted on y: the points that improve on y + 1 form
+    /// a staircase, and each step extends to the next one
+    private static double area(double[][] sorted, int y, double[] reference) {
+        int z = y + 1;
+        double area = 0.0;
+        double stepY = 0.0;
+        double stepZ = reference[z];
+        for (double[] p : sorted) {
+            if (p[z] >= stepZ) continue;
+            area += (p[y] - stepY) * (reference[z] - stepZ);
+            stepY = p[y];
+            stepZ = p[z];
+        }
+        return area + (reference[y] - stepY) * (reference[z] - stepZ);
+    }
+}
@@ -1,6 +1,11 @@
 package inverter_drive.simulation.software;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class InductionMotor {
+    private static final double AMBIENT_K4 = Math.pow(Config.AMBIENT_TEMPERATURE + 273.15, 4);
     private double speed = 0.0;
     private double torque = 0.0;
     private double rotorFlux = 1.0;
@@ -9,7 +14,7 @@ public class InductionMotor {
     private double polePairs = 2;
     private double resistance = 0.5;
     private double inductance = 0.01;
-    private String loadType = "Constant";
+    private LoadModel loadType = LoadModel.CONSTANT;
     private double loadInertia = 0.1;
     private double damping = 0.01;
     private double shaftInertia = 0.05;
@@ -21,9 +26,62 @@ public class InductionMotor {
     private double coolantFlow = 5.0; // L/min
     private double id = 0.0; // Direct-axis current
     private double iq = 0.0; // Quadrature-axis current
+    /// Electrical-rate sums consumed by the slower mechanical and thermal updates
+    private double torqueSum = 0.0;
+    private int torqueSamples = 0;
+    private double lossSum = 0.0;
+    private int lossSamples = 0;
+    /// Flux, speed and winding temperature are integrated as state-derivative functions of their own state,
+    /// with the inputs from other subsystems held constant over each call
+    private OdeIntegrator.Method integrator = OdeIntegrator.Method.FORWARD_EULER;
+    private OdeIntegrator fluxIntegrator = integrator.create();
+    private OdeIntegrator speedIntegrator = integrator.create();
+    private OdeIntegrator thermalIntegrator = integrator.create();
+    private final double[] odeState = new double[1];
+    private double heldId;
+    private double heldTorque;
+    private double heldHeat;
+    private LoadModel heldLoadType;
+    private final OdeIntegrator.OdeSystem fluxDynamics = (t, y, dydt) -> dydt[0] = -y[0] / inductance + heldId;
+    private final OdeIntegrator.OdeSystem speedDynamics = (t, y, dydt) -> {
+        double w = y[0];
+        double loadTorque = heldLoadType.torque(w);
+        double totalInertia = loadInertia + shaftInertia;
+        /// Scaled by the base step as in the single-rate model, so the damping does not grow with the
+        /// mechanical step
+        double couplingEffect = couplingStiffness * w * Config.SIMULATION_TIME_STEP;
+        dydt[0] = (heldTorque - loadTorque - (damping + friction) * w - couplingEffect) / totalInertia;
+    };
+    private final OdeIntegrator.OdeSystem thermalDynamics = (t, y, dydt) -> {
+        double T = y[0];
+        /// Convection: Q_conv = h * A * (T - T_amb)
+        double h = Config.MOTOR_CONVECTION_BASE + Config.MOTOR_CONVECTION_FAN_COEFF * fanSpeed
+                + Config.MOTOR_CONVECTION_COOLANT_COEFF * coolantFlow;
+        double T_K = T + 273.15; // Convert to Kelvin
+        double Q_conv = h * Config.MOTOR_SURFACE_AREA * (T - Config.AMBIENT_TEMPERATURE);
+        /// Radiation: Q_rad = ε * σ * A * (T^4 - T_amb^4)
+        double Q_rad = Config.MOTOR_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.MOTOR_SURFACE_AREA
+                * (Math.pow(T_K, 4) - AMBIENT_K4);
+        /// Total heat balance: dT/dt = (Q_gen - Q_conv - Q_rad) / C
+        double coolingEffect = (Q_conv + Q_rad) / Config.MOTOR_THERMAL_CAPACITANCE;
+        dydt[0] = heldHeat - coolingEffect;
+    };
+
+    public InductionMotor() {
+    }
+
+    /// Creates a motor with the same parameters as the template and a fresh (ambient, standstill) state
+    public InductionMotor(InductionMotor template) {
+        setParameters(template.ratedVoltage, template.ratedPower, (int) template.polePairs,
+                template.resistance, template.inductance, template.loadType,
+                template.loadInertia, template.damping, template.shaftInertia,
+                template.friction, template.tempCoefficient, template.couplingStiffness,
+                template.fanSpeed, template.coolantFlow);
+        setIntegrator(template.integrator);
+    }
 
     public void setParameters(double ratedVoltage, double ratedPower, int polePairs,
-                              double resistance, double inductance, String loadType,
+                              double resistance, double inductance, LoadModel loadType,
                               double loadInertia, double damping, double shaftInertia,
                               double friction, double tempCoefficient, double couplingStiffness,
                               double fanSpeed, double coolantFlow) {
@@ -43,8 +101,21 @@ public class InductionMotor {
         this.coolantFlow = coolantFlow;
     }
 
-    public void updateState(double[] phaseVoltages, double[] phaseCurrents, String loadType, double timeStep) {
-        updateTemperature(phaseCurrents);
+    public void setCooling(double fanSpeed, double coolantFlow) {
+        this.fanSpeed = fanSpeed;
+        this.coolantFlow = coolantFlow;
+    }
+
+    /// All three subsystems at the same step
+    public void updateState(double[] phaseVoltages, double[] phaseCurrents, LoadModel loadType, double timeStep) {
+        updateElectrical(phaseVoltages, phaseCurrents, timeStep);
+        updateThermal(timeStep);
+        updateMechanical(loadType, timeStep);
+    }
+
+    /// dq currents, torque and rotor flux. Also accumulates the torque and I²R loss of this step for the next
+    /// updateMechanical and updateThermal, so the slower subsystems see the average over their interval.
+    public void updateElectrical(double[] phaseVoltages, double[] phaseCurrents, double timeStep) {
         double effectiveResistance = resistance * (1 + tempCoefficient * (temperature - Config.AMBIENT_TEMPERATURE));
         double vq = (2.0 / 3.0) * (phaseVoltages[0] - 0.5 * (phaseVoltages[1] + phaseVoltages[2]));
         double vd = (1.0 / Math.sqrt(3)) * (phaseVoltages[1] - phaseVoltages[2]);
@@ -54,41 +125,112 @@ public class InductionMotor {
         this.id = id;
         torque = 1.5 * polePairs * rotorFlux * iq;
         double slip = (ratedVoltage / (2 * Math.PI * 50.0) - speed / polePairs) / (ratedVoltage / (2 * Math.PI * 50.0));
-        rotorFlux += timeStep * (-rotorFlux / inductance + id);
-        double loadTorque = 10.0;
-        if (loadType.equals("Fan/Pump")) {
-            loadTorque = 0.1 * speed * speed;
-        } else if (loadType.equals("Inertia")) {
-            loadTorque = 0.0;
-        }
-        double totalInertia = loadInertia + shaftInertia;
-        double couplingEffect = couplingStiffness * speed * timeStep;
-        double acceleration = (torque - loadTorque - (damping + friction) * speed - couplingEffect) / totalInertia;
-        speed += acceleration * timeStep;
+        heldId = id;
+        odeState[0] = rotorFlux;
+        fluxIntegrator.integrate(fluxDynamics, 0.0, odeState, timeStep);
+        rotorFlux = odeState[0];
+        torqueSum += torque;
+        torqueSamples++;
+        lossSum += (phaseCurrents[0] * phaseCurrents[0] +
+                phaseCurrents[1] * phaseCurrents[1] +
+                phaseCurrents[2] * phaseCurrents[2]) * resistance;
+        lossSamples++;
+    }
+
+    /// Shaft speed over timeStep, driven by the mean electrical torque since the last call
+    public void updateMechanical(LoadModel loadType, double timeStep) {
+        heldTorque = torqueSamples == 0 ? torque : torqueSum / torqueSamples;
+        torqueSum = 0.0;
+        torqueSamples = 0;
+        heldLoadType = loadType;
+        odeState[0] = speed;
+        speedIntegrator.integrate(speedDynamics, 0.0, odeState, timeStep);
+        speed = odeState[0];
         if (speed < 0) speed = 0;
     }
 
-    private void updateTemperature(double[] phaseCurrents) {
+    /// Winding temperature over timeStep, heated by the mean I²R loss since the last call
+    public void updateThermal(double timeStep) {
         /// Heat generation from I²R losses
-        double iSquaredR = (phaseCurrents[0] * phaseCurrents[0] +
-                phaseCurrents[1] * phaseCurrents[1] +
-                phaseCurrents[2] * phaseCurrents[2]) * resistance;
-        double heatGeneration = iSquaredR * Config.MOTOR_THERMAL_RESISTANCE;
-        /// Convection: Q_conv = h * A * (T - T_amb)
-        double h = Config.MOTOR_CONVECTION_BASE + Config.MOTOR_CONVECTION_FAN_COEFF * fanSpeed
-                + Config.MOTOR_CONVECTION_COOLANT_COEFF * coolantFlow;
-        double T_K = temperature + 273.15; // Convert to Kelvin
-        double T_amb_K = Config.AMBIENT_TEMPERATURE + 273.15;
-        double Q_conv = h * Config.MOTOR_SURFACE_AREA * (temperature - Config.AMBIENT_TEMPERATURE);
-        /// Radiation: Q_rad = ε * σ * A * (T^4 - T_amb^4)
-        double Q_rad = Config.MOTOR_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.MOTOR_SURFACE_AREA
-                * (Math.pow(T_K, 4) - Math.pow(T_amb_K, 4));
-        /// Total heat balance: dT/dt = (Q_gen - Q_conv - Q_rad) / C
-        double coolingEffect = (Q_conv + Q_rad) / Config.MOTOR_THERMAL_CAPACITANCE;
-        temperature += (heatGeneration - coolingEffect) * Config.SIMULATION_TIME_STEP;
+        double iSquaredR = lossSamples == 0 ? 0.0 : lossSum / lossSamples;
+        lossSum = 0.0;
+        lossSamples = 0;
+        heldHeat = iSquaredR * Config.MOTOR_THERMAL_RESISTANCE;
+        odeState[0] = temperature;
+        thermalIntegrator.integrate(thermalDynamics, 0.0, odeState, timeStep);
+        temperature = odeState[0];
         if (temperature < Config.AMBIENT_TEMPERATURE) temperature = Config.AMBIENT_TEMPERATURE;
     }
 
+    /// Takes over the dynamic state of source: speed, flux, temperature, currents, the torque and loss
+    /// averages collected for the slower subsystems and the integrators' step control. Parameters stay as they are.
+    void copyStateFrom(InductionMotor source) {
+        speed = source.speed;
+        torque = source.torque;
+        rotorFlux = source.rotorFlux;
+        temperature = source.temperature;
+        id = source.id;
+        iq = source.iq;
+        torqueSum = source.torqueSum;
+        torqueSamples = source.torqueSamples;
+        lossSum = source.lossSum;
+        lossSamples = source.lossSamples;
+        fluxIntegrator.setCarriedStep(source.fluxIntegrator.getCarriedStep());
+        speedIntegrator.setCarriedStep(source.speedIntegrator.getCarriedStep());
+        thermalIntegrator.setCarriedStep(source.thermalIntegrator.getCarriedStep());
+    }
+
+    /// The state copyStateFrom takes over
+    void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(speed);
+        out.writeDouble(torque);
+        out.writeDouble(rotorFlux);
+        out.writeDouble(temperature);
+        out.writeDouble(id);
+        out.writeDouble(iq);
+        out.writeDouble(torqueSum);
+        out.writeInt(torqueSamples);
+        out.writeDouble(lossSum);
+        out.writeInt(lossSamples);
+        out.writeDouble(fluxIntegrator.getCarriedStep());
+        out.writeDouble(speedIntegrator.getCarriedStep());
+        out.writeDouble(thermalIntegrator.getCarriedStep());
+    }
+
+    void readState(DataInputStream in) throws IOException {
+        speed = in.readDouble();
+        torque = in.readDouble();
+        rotorFlux = in.readDouble();
+        temperature = in.readDouble();
+        id = in.readDouble();
+        iq = in.readDouble();
+        torqueSum = in.readDouble();
+        torqueSamples = in.readInt();
+        lossSum = in.readDouble();
+        lossSamples = in.readInt();
+        fluxIntegrator.setCarriedStep(in.readDouble());
+        speedIntegrator.setCarriedStep(in.readDouble());
+        thermalIntegrator.setCarriedStep(in.readDouble());
+    }
+
+    public OdeIntegrator.Method getIntegrator() {
+        return integrator;
+    }
+
+    /// Switches flux, speed and thermal integration to the given method with fresh integrator state
+    public void setIntegrator(OdeIntegrator.Method integrator) {
+        this.integrator = integrator;
+        fluxIntegrator = integrator.create();
+        speedIntegrator = integrator.create();
+        thermalIntegrator = integrator.create();
+    }
+
+    /// Derivative evaluations by the current flux, speed and thermal integrators
+    public long getDerivativeEvaluations() {
+        return fluxIntegrator.getEvaluations() + speedIntegrator.getEvaluations()
+                + thermalIntegrator.getEvaluations();
+    }
+
     public double getSpeed() {
         return speed;
     }
@@ -132,4 +274,40 @@ public class InductionMotor {
     public double getPolePairs() {
         return polePairs;
     }
+
+    public LoadModel getLoadType() {
+        return loadType;
+    }
+
+    public double getLoadInertia() {
+        return loadInertia;
+    }
+
+    public double getDamping() {
+        return damping;
+    }
+
+    public double getShaftInertia() {
+        return shaftInertia;
+    }
+
+    public double getFriction() {
+        return friction;
+    }
+
+    public double getTempCoefficient() {
+        return tempCoefficient;
+    }
+
+    public double getCouplingStiffness() {
+        return couplingStiffness;
+    }
+
+    public double getFanSpeed() {
+        return fanSpeed;
+    }
+
+    public double getCoolantFlow() {
+        return coolantFlow;
+    }
 }
\ No newline at end of file
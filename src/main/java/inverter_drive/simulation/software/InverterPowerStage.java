@@ -1,6 +1,15 @@
 package inverter_drive.simulation.software;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class InverterPowerStage {
+    private static final double AMBIENT_K4 = Math.pow(Config.AMBIENT_TEMPERATURE + 273.15, 4);
+    /// cos and sin of each sector's first edge, k·60°
+    static final double[] SECTOR_COS = {1.0, 0.5, -0.5, -1.0, -0.5, 0.5};
+    static final double[] SECTOR_SIN = {0.0, FastTrig.HALF_SQRT3, FastTrig.HALF_SQRT3, 0.0,
+            -FastTrig.HALF_SQRT3, -FastTrig.HALF_SQRT3};
     private double dcLinkVoltage;
     private double pwmFrequency;
     private double deadTime;
@@ -10,6 +19,25 @@ public class InverterPowerStage {
     private double temperature = 25.0; // °C
     private double fanSpeed = 0.5; // 0–1
     private double coolantFlow = 5.0; // L/min
+    private OdeIntegrator.Method integrator = OdeIntegrator.Method.FORWARD_EULER;
+    private OdeIntegrator thermalIntegrator = integrator.create();
+    private FastTrig.Precision trigPrecision = FastTrig.Precision.EXACT;
+    private final double[] odeState = new double[1];
+    private double heldHeat;
+    private final OdeIntegrator.OdeSystem thermalDynamics = (t, y, dydt) -> {
+        double T = y[0];
+        /// Convection: Q_conv = h * A * (T - T_amb)
+        double h = Config.INVERTER_CONVECTION_BASE + Config.INVERTER_CONVECTION_FAN_COEFF * fanSpeed
+                + Config.INVERTER_CONVECTION_COOLANT_COEFF * coolantFlow;
+        double T_K = T + 273.15;
+        double Q_conv = h * Config.INVERTER_SURFACE_AREA * (T - Config.AMBIENT_TEMPERATURE);
+        /// Radiation: Q_rad = ε * σ * A * (T^4 - T_amb^4)
+        double Q_rad = Config.INVERTER_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.INVERTER_SURFACE_AREA
+                * (Math.pow(T_K, 4) - AMBIENT_K4);
+        /// Total heat balance: dT/dt = (Q_gen - Q_conv - Q_rad) / C
+        double coolingEffect = (Q_conv + Q_rad) / Config.INVERTER_THERMAL_CAPACITANCE;
+        dydt[0] = heldHeat - coolingEffect;
+    };
 
     public InverterPowerStage(double dcLinkVoltage, double pwmFrequency, double deadTime,
                               double modulationIndex, boolean harmonicInjection, boolean overmodulation) {
@@ -21,28 +49,66 @@ public class InverterPowerStage {
         this.overmodulation = overmodulation;
     }
 
-    public double[] generatePhaseVoltages(double[] pwmSignals, String pwmType) {
-        double[] phaseVoltages = new double[3];
+    /// Creates a power stage with the same configuration as the template and a fresh thermal state
+    public InverterPowerStage(InverterPowerStage template) {
+        this(template.dcLinkVoltage, template.pwmFrequency, template.deadTime,
+                template.modulationIndex, template.harmonicInjection, template.overmodulation);
+        this.fanSpeed = template.fanSpeed;
+        this.coolantFlow = template.coolantFlow;
+        setIntegrator(template.integrator);
+        this.trigPrecision = template.trigPrecision;
+    }
+
+    public double[] generatePhaseVoltages(double[] pwmSignals, ModulationStrategy pwmType, double time) {
+        return generatePhaseVoltages(pwmSignals, pwmType, time, new double[3]);
+    }
+
+    /// Modulates and advances the heatsink temperature by one SIMULATION_TIME_STEP
+    public double[] generatePhaseVoltages(double[] pwmSignals, ModulationStrategy pwmType, double time,
+                                          double[] phaseVoltages) {
+        modulate(pwmSignals, pwmType, time, phaseVoltages);
+        updateThermal(Config.SIMULATION_TIME_STEP);
+        return phaseVoltages;
+    }
+
+    /// Writes the phase voltages into phaseVoltages and returns it; allocates nothing and leaves the
+    /// thermal state alone. phaseVoltages may be the same array as pwmSignals.
+    /// time is the simulated time of the step, used for the injected third harmonic.
+    /// Below EXACT trig precision, SVPWM finds the sector and dwell times without atan2, sqrt or sin.
+    public double[] modulate(double[] pwmSignals, ModulationStrategy pwmType, double time, double[] phaseVoltages) {
         double deadTimeFactor = 1.0 - deadTime * pwmFrequency;
         double modFactor = modulationIndex * (overmodulation ? 1.15 : 1.0);
-        if (pwmType.equals("SVPWM")) { /// Space Vector PWM
-            double[] vRef = new double[3];
-            for (int i = 0; i < 3; i++) {
-                vRef[i] = 2.0 * pwmSignals[i] - 1.0;
-            }
-            double vAlpha = (2.0 / 3.0) * (vRef[0] - 0.5 * (vRef[1] + vRef[2]));
-            double vBeta = (1.0 / Math.sqrt(3)) * (vRef[1] - vRef[2]);
-            double vMag = Math.sqrt(vAlpha * vAlpha + vBeta * vBeta);
-            double theta = Math.atan2(vBeta, vAlpha);
-            int sector = (int) Math.floor(theta / (Math.PI / 3.0)) % 6;
-            if (sector < 0) sector += 6;
-            double sectorAngle = theta - sector * Math.PI / 3.0;
-            double m = vMag * Math.sqrt(3) / dcLinkVoltage;
+        double harmonic = harmonicInjection ? 0.1 * trigPrecision.sin(3 * Math.PI * pwmFrequency * time) : 0.0;
+        if (pwmType == ModulationStrategy.SVPWM) { /// Space Vector PWM
+            double vRef0 = 2.0 * pwmSignals[0] - 1.0;
+            double vRef1 = 2.0 * pwmSignals[1] - 1.0;
+            double vRef2 = 2.0 * pwmSignals[2] - 1.0;
+            double vAlpha = (2.0 / 3.0) * (vRef0 - 0.5 * (vRef1 + vRef2));
+            double vBeta = (1.0 / Math.sqrt(3)) * (vRef1 - vRef2);
             double T = 1.0 / pwmFrequency;
-            double T1 = m * T * Math.sin(Math.PI / 3.0 - sectorAngle);
-            double T2 = m * T * Math.sin(sectorAngle);
+            int sector;
+            double T1;
+            double T2;
+            if (trigPrecision == FastTrig.Precision.EXACT) {
+                double vMag = Math.sqrt(vAlpha * vAlpha + vBeta * vBeta);
+                double theta = Math.atan2(vBeta, vAlpha);
+                sector = (int) Math.floor(theta / (Math.PI / 3.0)) % 6;
+                if (sector < 0) sector += 6;
+                double sectorAngle = theta - sector * Math.PI / 3.0;
+                double m = vMag * Math.sqrt(3) / dcLinkVoltage;
+                T1 = m * T * Math.sin(Math.PI / 3.0 - sectorAngle);
+                T2 = m * T * Math.sin(sectorAngle);
+            } else {
+                sector = sector(vAlpha, vBeta);
+                /// (a, b) = |v|·(cos, sin) of the angle past the sector's first edge
+                double a = vAlpha * SECTOR_COS[sector] + vBeta * SECTOR_SIN[sector];
+                double b = vBeta * SECTOR_COS[sector] - vAlpha * SECTOR_SIN[sector];
+                T1 = T / dcLinkVoltage * (1.5 * a - FastTrig.HALF_SQRT3 * b);
+                T2 = T / dcLinkVoltage * FastTrig.SQRT3 * b;
+            }
             double T0 = T - T1 - T2;
-            double[] duties = new double[3];
+            /// Duties are staged in phaseVoltages and scaled in place below
+            double[] duties = phaseVoltages;
             switch (sector) {
                 case 0:
                     duties[0] = (T1 + T2 + T0 / 2) / T;
@@ -78,7 +144,7 @@ public class InverterPowerStage {
             for (int i = 0; i < 3; i++) {
                 double signal = duties[i];
                 if (harmonicInjection) {
-                    signal += 0.1 * Math.sin(3 * Math.PI * pwmFrequency * System.currentTimeMillis() / 1000.0);
+                    signal += harmonic;
                 }
                 phaseVoltages[i] = signal * dcLinkVoltage * deadTimeFactor * modFactor;
             }
@@ -86,35 +152,56 @@ public class InverterPowerStage {
             for (int i = 0; i < 3; i++) {
                 double signal = pwmSignals[i];
                 if (harmonicInjection) {
-                    signal += 0.1 * Math.sin(3 * Math.PI * pwmFrequency * System.currentTimeMillis() / 1000.0);
+                    signal += harmonic;
                 }
                 phaseVoltages[i] = signal * dcLinkVoltage * deadTimeFactor * modFactor;
             }
         }
 
-        updateTemperature(phaseVoltages);
         return phaseVoltages;
     }
 
-    private void updateTemperature(double[] phaseVoltages) {
+    /// SVPWM sector 0–5 of the reference vector, as floor(atan2(vBeta, vAlpha) / 60°) mod 6, from sign tests
+    /// against the sector edges at multiples of 60°. Within rounding of an edge the two may pick neighbouring
+    /// sectors; the dwell times of both meet at the edge, so the duties agree.
+    static int sector(double vAlpha, double vBeta) {
+        double edge = FastTrig.SQRT3 * vAlpha;
+        if (vBeta >= 0) {
+            if (vBeta < edge) return 0;
+            return vBeta <= -edge ? 2 : 1;
+        }
+        if (-vBeta <= edge) return 5;
+        return -vBeta < -edge ? 3 : 4;
+    }
+
+    /// Heatsink temperature over timeStep; switching losses only depend on the settings, so they are
+    /// constant over any interval
+    public void updateThermal(double timeStep) {
         /// Heat generation from switching losses
         double switchingLosses = pwmFrequency * 0.0001 * dcLinkVoltage;
-        double heatGeneration = switchingLosses * Config.INVERTER_THERMAL_RESISTANCE;
-        /// Convection: Q_conv = h * A * (T - T_amb)
-        double h = Config.INVERTER_CONVECTION_BASE + Config.INVERTER_CONVECTION_FAN_COEFF * fanSpeed
-                + Config.INVERTER_CONVECTION_COOLANT_COEFF * coolantFlow;
-        double T_K = temperature + 273.15;
-        double T_amb_K = Config.AMBIENT_TEMPERATURE + 273.15;
-        double Q_conv = h * Config.INVERTER_SURFACE_AREA * (temperature - Config.AMBIENT_TEMPERATURE);
-        /// Radiation: Q_rad = ε * σ * A * (T^4 - T_amb^4)
-        double Q_rad = Config.INVERTER_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.INVERTER_SURFACE_AREA
-                * (Math.pow(T_K, 4) - Math.pow(T_amb_K, 4));
-        /// Total heat balance: dT/dt = (Q_gen - Q_conv - Q_rad) / C
-        double coolingEffect = (Q_conv + Q_rad) / Config.INVERTER_THERMAL_CAPACITANCE;
-        temperature += (heatGeneration - coolingEffect) * Config.SIMULATION_TIME_STEP;
+        heldHeat = switchingLosses * Config.INVERTER_THERMAL_RESISTANCE;
+        odeState[0] = temperature;
+        thermalIntegrator.integrate(thermalDynamics, 0.0, odeState, timeStep);
+        temperature = odeState[0];
         if (temperature < Config.AMBIENT_TEMPERATURE) temperature = Config.AMBIENT_TEMPERATURE;
     }
 
+    /// Takes over the heatsink temperature and its integrator's step control; the settings stay as they are
+    void copyStateFrom(InverterPowerStage source) {
+        temperature = source.temperature;
+        thermalIntegrator.setCarriedStep(source.thermalIntegrator.getCarriedStep());
+    }
+
+    void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(temperature);
+        out.writeDouble(thermalIntegrator.getCarriedStep());
+    }
+
+    void readState(DataInputStream in) throws IOException {
+        temperature = in.readDouble();
+        thermalIntegrator.setCarriedStep(in.readDouble());
+    }
+
     public void setDcLinkVoltage(double voltage) {
         this.dcLinkVoltage = voltage;
     }
@@ -144,6 +231,34 @@ public class InverterPowerStage {
         this.coolantFlow = coolantFlow;
     }
 
+    public double getPwmFrequency() {
+        return pwmFrequency;
+    }
+
+    public double getFanSpeed() {
+        return fanSpeed;
+    }
+
+    public double getCoolantFlow() {
+        return coolantFlow;
+    }
+
+    public double getDeadTime() {
+        return deadTime;
+    }
+
+    public double getModulationIndex() {
+        return modulationIndex;
+    }
+
+    public boolean isHarmonicInjection() {
+        return harmonicInjection;
+    }
+
+    public boolean isOvermodulation() {
+        return overmodulation;
+    }
+
     public double getDcLinkVoltage() {
         return dcLinkVoltage;
     }
@@ -151,4 +266,27 @@ public class InverterPowerStage {
     public double getTemperature() {
         return temperature;
     }
+
+    public OdeIntegrator.Method getIntegrator() {
+        return integrator;
+    }
+
+    public FastTrig.Precision getTrigPrecision() {
+        return trigPrecision;
+    }
+
+    public void setTrigPrecision(FastTrig.Precision trigPrecision) {
+        this.trigPrecision = trigPrecision;
+    }
+
+    /// Switches thermal integration to the given method with fresh integrator state
+    public void setIntegrator(OdeIntegrator.Method integrator) {
+        this.integrator = integrator;
+        thermalIntegrator = integrator.create();
+    }
+
+    /// Derivative evaluations by the current thermal integrator
+    public long getDerivativeEvaluations() {
+        return thermalIntegrator.getEvaluations();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package inverter_drive.simulation.software;
+
+/// Load torque on the motor shaft as a function of speed
+public enum LoadModel {
+    /// 10 Nm regardless of speed
+    CONSTANT("Constant"),
+    /// Quadratic in speed, 0.1 ω² Nm
+    FAN_PUMP("Fan/Pump"),
+    /// No load torque; only the load's inertia
+    INERTIA("Inertia");
+
+    private final String label;
+
+    LoadModel(String label) {
+        this.label = label;
+    }
+
+    /// Load torque in Nm at shaft speed w (rad/s)
+    public double torque(double w) {
+        switch (this) {
+            case FAN_PUMP: return 0.1 * w * w;
+            case INERTIA: return 0.0;
+            default: return 10.0;
+        }
+    }
+
+    /// d torque / d w at shaft speed w, in Nm·s/rad
+    public double slope(double w) {
+        return this == FAN_PUMP ? 0.2 * w : 0.0;
+    }
+
+    /// Name shown in the UI and fault campaign files
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static LoadModel fromLabel(String label) {
+        for (LoadModel model : values()) {
+            if (model.label.equals(label)) return model;
+        }
+        throw new IllegalArgumentException("Unknown load type: " + label);
+    }
+}
@@ -1,7 +1,9 @@
 package inverter_drive.simulation.software;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.value.ObservableValue;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.layout.BorderPane;
@@ -13,9 +15,13 @@ import javafx.scene.layout.Pane;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.geometry.Insets;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.ScatterChart;
+import javafx.scene.chart.XYChart;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
 
 public class MainApp extends Application {
     private InverterPowerStage inverter;
@@ -25,23 +31,29 @@ public class MainApp extends Application {
     private FaultSimulator faultSimulator;
     private DataLogger dataLogger;
     private WaveformVisualizer visualizer;
-    private double simulationTime = 0.0;
-    private boolean isRunning = false;
-    private ScheduledExecutorService simulationExecutor;
+    private SimulationEngine engine;
+    private AnimationTimer displayTimer;
+    private SimulationState lastDisplayedState;
     private Text speedDisplay;
     private Text torqueDisplay;
     private Text faultDisplay;
     private Text motorTempDisplay;
     private Text inverterTempDisplay;
+    private Text clockDisplay;
+    private ComboBox<String> clockModeCombo;
+    private ComboBox<String> clockRatioCombo;
+    private TextField singleStepInput;
     private Slider dcLinkSlider;
     private Slider speedRefSlider;
     private Slider accelRateSlider;
-    private ComboBox<String> controlModeCombo;
+    private ComboBox<ControlStrategy> controlModeCombo;
     private ToggleButton directionToggle;
     private ToggleButton enableToggle;
-    private ComboBox<String> faultTypeCombo;
+    private ComboBox<FaultMode> faultTypeCombo;
     private Button faultClearBtn;
     private ToggleButton autoResetToggle;
+    private ToggleButton surrogateToggle;
+    private ToggleButton earlyStopToggle;
     private Slider torqueRefSlider;
     private Slider fluxRefSlider;
     private TextField kpInput;
@@ -51,7 +63,7 @@ public class MainApp extends Application {
     private TextField polePairsInput;
     private TextField resistanceInput;
     private TextField inductanceInput;
-    private ComboBox<String> loadTypeCombo;
+    private ComboBox<LoadModel> loadTypeCombo;
     private Slider loadInertiaSlider;
     private Slider dampingSlider;
     private Slider shaftInertiaSlider;
@@ -59,7 +71,7 @@ public class MainApp extends Application {
     private Slider tempCoeffSlider;
     private Slider couplingStiffnessSlider;
     private Slider pwmFreqSlider;
-    private ComboBox<String> pwmTypeCombo;
+    private ComboBox<ModulationStrategy> pwmTypeCombo;
     private Slider deadTimeSlider;
     private Slider modIndexSlider;
     private ToggleButton harmonicToggle;
@@ -67,24 +79,30 @@ public class MainApp extends Application {
     private Slider fanSpeedSlider;
     private Slider coolantFlowSlider;
     private TextField maxTempInput;
-    private ComboBox<String> thermalProtectionCombo;
+    private ComboBox<ProtectionMode> thermalProtectionCombo;
     private TextField motorThermalResInput;
     private TextField motorThermalCapInput;
     private TextField inverterThermalResInput;
     private TextField inverterThermalCapInput;
-    private String lastControlMode = "";
-    private String lastPwmType = "";
-    private String lastFaultType = "";
+    private TextField mechanicalStepInput;
+    private TextField thermalStepInput;
+    private ComboBox<String> integratorCombo;
+    private ComboBox<FastTrig.Precision> trigPrecisionCombo;
+    private ControlStrategy lastControlMode;
+    private ModulationStrategy lastPwmType;
+    private FaultMode lastFaultType;
     private Button optimizeBtn;
     private VBox controlPanel;
+    /// Every random stream of the session is split from this one, so a session is reproducible from Config.RANDOM_SEED
+    private final SplittableRandom randomStreams = new SplittableRandom(Config.RANDOM_SEED);
 
     @Override
     public void start(Stage primaryStage) {
         inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
         motor = new InductionMotor();
         controller = new VfController(motor);
-        sensors = new SensorModel();
-        faultSimulator = new FaultSimulator(inverter, sensors);
+        sensors = new SensorModel(randomStreams.split());
+        faultSimulator = new FaultSimulator(inverter, sensors, randomStreams.split());
         dataLogger = new DataLogger();
         visualizer = new WaveformVisualizer();
         BorderPane root = new BorderPane();
@@ -110,14 +128,14 @@ public class MainApp extends Application {
         torqueRefSlider = createSlider("Torque Ref (Nm)", 0, 100, 50, controlGrid, 3);
         fluxRefSlider = createSlider("Flux Ref (Wb)", 0.5, 1.5, 1.0, controlGrid, 4);
         controlModeCombo = new ComboBox<>();
-        controlModeCombo.getItems().addAll("V/f", "FOC", "DTC");
-        controlModeCombo.setValue("V/f");
+        controlModeCombo.getItems().addAll(ControlStrategy.values());
+        controlModeCombo.setValue(ControlStrategy.V_F);
         controlModeCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #20B2AA; -fx-pref-width: 100;");
         controlGrid.add(new Label("Control Mode:"), 0, 5);
         controlGrid.add(controlModeCombo, 1, 5);
         faultTypeCombo = new ComboBox<>();
-        faultTypeCombo.getItems().addAll("None", "Overcurrent", "Undervoltage", "Phase Loss", "Overheat", "IGBTFailure");
-        faultTypeCombo.setValue("None");
+        faultTypeCombo.getItems().addAll(FaultMode.values());
+        faultTypeCombo.setValue(FaultMode.NONE);
         faultTypeCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
         controlGrid.add(new Label("Fault Type:"), 0, 6);
         controlGrid.add(faultTypeCombo, 1, 6);
@@ -146,7 +164,14 @@ public class MainApp extends Application {
         optimizeBtn.setOnMouseEntered(e -> optimizeBtn.setStyle(buttonStyle + buttonHoverStyle));
         optimizeBtn.setOnMouseExited(e -> optimizeBtn.setStyle(buttonStyle));
         optimizeBtn.setOnAction(e -> runOptimization());
-        HBox buttonBox = new HBox(5, directionToggle, enableToggle, faultBtn, faultClearBtn, autoResetToggle, optimizeBtn);
+        surrogateToggle = new ToggleButton("RBF");
+        surrogateToggle.setStyle("-fx-background-color: #DC143C; -fx-text-fill: #ffffff; -fx-padding: 3 8; -fx-font-size: 10;");
+        surrogateToggle.setOnAction(e -> surrogateToggle.setText(surrogateToggle.isSelected() ? "RBF On" : "RBF"));
+        earlyStopToggle = new ToggleButton("Early");
+        earlyStopToggle.setStyle("-fx-background-color: #DC143C; -fx-text-fill: #ffffff; -fx-padding: 3 8; -fx-font-size: 10;");
+        earlyStopToggle.setOnAction(e -> earlyStopToggle.setText(earlyStopToggle.isSelected() ? "Early On" : "Early"));
+        HBox buttonBox = new HBox(5, directionToggle, enableToggle, faultBtn, faultClearBtn, autoResetToggle, optimizeBtn,
+                surrogateToggle, earlyStopToggle);
         controlGrid.add(buttonBox, 0, 9, 3, 1);
         controlTab.setContent(controlGrid);
         Tab motorTab = new Tab("Motor/Load");
@@ -161,8 +186,8 @@ public class MainApp extends Application {
         resistanceInput = createTextField("R (Ω)", "0.5", motorGrid, 3);
         inductanceInput = createTextField("L (H)", "0.01", motorGrid, 4);
         loadTypeCombo = new ComboBox<>();
-        loadTypeCombo.getItems().addAll("Constant", "Fan/Pump", "Inertia");
-        loadTypeCombo.setValue("Constant");
+        loadTypeCombo.getItems().addAll(LoadModel.values());
+        loadTypeCombo.setValue(LoadModel.CONSTANT);
         loadTypeCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
         motorGrid.add(new Label("Load Type:"), 0, 5);
         motorGrid.add(loadTypeCombo, 1, 5);
@@ -181,8 +206,8 @@ public class MainApp extends Application {
         pwmGrid.setPadding(new Insets(5));
         pwmFreqSlider = createSlider("PWM Freq (kHz)", 2, 20, 10, pwmGrid, 0);
         pwmTypeCombo = new ComboBox<>();
-        pwmTypeCombo.getItems().addAll("SPWM", "SVPWM");
-        pwmTypeCombo.setValue("SPWM");
+        pwmTypeCombo.getItems().addAll(ModulationStrategy.values());
+        pwmTypeCombo.setValue(ModulationStrategy.SPWM);
         pwmTypeCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
         pwmGrid.add(new Label("PWM Type:"), 0, 1);
         pwmGrid.add(pwmTypeCombo, 1, 1);
@@ -211,13 +236,56 @@ public class MainApp extends Application {
         inverterThermalResInput = createTextField("Inv Therm Res (°C/W)", String.valueOf(Config.INVERTER_THERMAL_RESISTANCE), thermalGrid, 5);
         inverterThermalCapInput = createTextField("Inv Therm Cap (J/°C)", String.valueOf(Config.INVERTER_THERMAL_CAPACITANCE), thermalGrid, 6);
         thermalProtectionCombo = new ComboBox<>();
-        thermalProtectionCombo.getItems().addAll("None", "Warning", "Shutdown");
-        thermalProtectionCombo.setValue("Warning");
+        thermalProtectionCombo.getItems().addAll(ProtectionMode.values());
+        thermalProtectionCombo.setValue(ProtectionMode.WARNING);
         thermalProtectionCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
         thermalGrid.add(new Label("Protection Mode:"), 0, 7);
         thermalGrid.add(thermalProtectionCombo, 1, 7);
         thermalTab.setContent(thermalGrid);
-        tabPane.getTabs().addAll(controlTab, motorTab, pwmTab, thermalTab);
+        Tab clockTab = new Tab("Clock");
+        clockTab.setClosable(false);
+        GridPane clockGrid = new GridPane();
+        clockGrid.setHgap(5);
+        clockGrid.setVgap(5);
+        clockGrid.setPadding(new Insets(5));
+        clockModeCombo = new ComboBox<>();
+        clockModeCombo.getItems().addAll("Real Time", "Free Run", "Single Step");
+        clockModeCombo.setValue("Real Time");
+        clockModeCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
+        clockGrid.add(new Label("Clock Mode:"), 0, 0);
+        clockGrid.add(clockModeCombo, 1, 0);
+        clockRatioCombo = new ComboBox<>();
+        clockRatioCombo.getItems().addAll("0.01", "0.1", "0.5", "1", "2", "10", "100");
+        clockRatioCombo.setValue("1");
+        clockRatioCombo.setEditable(true);
+        clockRatioCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
+        clockGrid.add(new Label("Real-Time Ratio:"), 0, 1);
+        clockGrid.add(clockRatioCombo, 1, 1);
+        singleStepInput = new TextField("1");
+        singleStepInput.setStyle("-fx-background-color: #222222; -fx-text-fill: #ffffff; -fx-border-color: #555555; -fx-border-width: 1; -fx-font-size: 10; -fx-pref-width: 100;");
+        clockGrid.add(new Label("Steps:"), 0, 2);
+        clockGrid.add(singleStepInput, 1, 2);
+        Button singleStepBtn = new Button("Step");
+        singleStepBtn.setStyle(buttonStyle);
+        singleStepBtn.setOnMouseEntered(e -> singleStepBtn.setStyle(buttonStyle + buttonHoverStyle));
+        singleStepBtn.setOnMouseExited(e -> singleStepBtn.setStyle(buttonStyle));
+        clockGrid.add(singleStepBtn, 2, 2);
+        mechanicalStepInput = createTextField("Mech Step (ms)", String.valueOf(Config.SIMULATION_TIME_STEP * 1000), clockGrid, 3);
+        thermalStepInput = createTextField("Thermal Step (ms)", String.valueOf(Config.SIMULATION_TIME_STEP * 1000), clockGrid, 4);
+        integratorCombo = new ComboBox<>();
+        integratorCombo.getItems().addAll("Euler", "RK4", "RK45", "Semi-Implicit");
+        integratorCombo.setValue("Euler");
+        integratorCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
+        clockGrid.add(new Label("Integrator:"), 0, 5);
+        clockGrid.add(integratorCombo, 1, 5);
+        trigPrecisionCombo = new ComboBox<>();
+        trigPrecisionCombo.getItems().addAll(FastTrig.Precision.values());
+        trigPrecisionCombo.setValue(FastTrig.Precision.EXACT);
+        trigPrecisionCombo.setStyle("-fx-background-color: #FFFFFF; -fx-text-fill: #ffffff; -fx-pref-width: 100;");
+        clockGrid.add(new Label("Trig Precision:"), 0, 6);
+        clockGrid.add(trigPrecisionCombo, 1, 6);
+        clockTab.setContent(clockGrid);
+        tabPane.getTabs().addAll(controlTab, motorTab, pwmTab, thermalTab, clockTab);
         Pane displayPane = new Pane();
         displayPane.setStyle("-fx-background-color: #111111; -fx-border-color: #555555; -fx-border-width: 2; -fx-padding: 8;");
         speedDisplay = new Text(8, 16, "Speed: 0.0 rad/s");
@@ -225,50 +293,79 @@ public class MainApp extends Application {
         faultDisplay = new Text(8, 48, "Fault: None");
         motorTempDisplay = new Text(8, 64, "Motor Temp: 25.0 °C");
         inverterTempDisplay = new Text(8, 80, "Inv Temp: 25.0 °C");
-        for (Text text : new Text[]{speedDisplay, torqueDisplay, faultDisplay, motorTempDisplay, inverterTempDisplay}) {
+        clockDisplay = new Text(8, 96, "Clock: 0 steps/s");
+        for (Text text : new Text[]{speedDisplay, torqueDisplay, faultDisplay, motorTempDisplay, inverterTempDisplay, clockDisplay}) {
             text.setFont(Font.font("Courier New", 12));
             text.setFill(javafx.scene.paint.Color.WHITE);
         }
-        displayPane.getChildren().addAll(speedDisplay, torqueDisplay, faultDisplay, motorTempDisplay, inverterTempDisplay);
+        displayPane.getChildren().addAll(speedDisplay, torqueDisplay, faultDisplay, motorTempDisplay, inverterTempDisplay, clockDisplay);
         controlPanel.getChildren().addAll(title, tabPane, displayPane);
         VBox waveformArea = new VBox(5);
         waveformArea.setStyle("-fx-padding: 10;");
         Label waveformLabel = new Label("Waveforms");
         waveformLabel.setStyle("-fx-text-fill: #ffffff; -fx-font-size: 12;");
-        waveformArea.getChildren().addAll(waveformLabel, visualizer.getCanvas());
+        waveformArea.getChildren().addAll(waveformLabel, visualizer.getView());
         root.setLeft(controlPanel);
         root.setCenter(waveformArea);
-        simulationExecutor = Executors.newScheduledThreadPool(1);
+        engine = new SimulationEngine(new DriveSystem(inverter, motor, controller, sensors, faultSimulator),
+                dataLogger, new SimulationParameters.Builder().build());
+        engine.setVisualizer(visualizer);
+        clockModeCombo.setOnAction(e -> applyClockMode());
+        clockRatioCombo.valueProperty().addListener((obs, old, newVal) -> applyClockMode());
+        singleStepBtn.setOnAction(e -> {
+            try {
+                long steps = Long.parseLong(singleStepInput.getText().trim());
+                clockModeCombo.setValue("Single Step");
+                engine.singleStep(steps);
+            } catch (NumberFormatException ex) {
+                showError("Invalid Input", "Steps must be a whole number");
+            }
+        });
         enableToggle.setOnAction(e -> {
             if (enableToggle.isSelected()) {
-                isRunning = true;
                 enableToggle.setText("Stop");
-                simulationExecutor.scheduleAtFixedRate(this::simulateStep, 0,
-                        (long)(Config.SIMULATION_TIME_STEP * 1000 * 1000), TimeUnit.MICROSECONDS);
+                publishParameters();
+                engine.start();
             } else {
-                isRunning = false;
                 enableToggle.setText("Start");
-                simulationExecutor.shutdownNow();
-                try {
-                    simulationExecutor.awaitTermination(1, TimeUnit.SECONDS);
-                } catch (InterruptedException ignored) {}
-                simulationExecutor = Executors.newScheduledThreadPool(1);
+                engine.stop();
             }
         });
         faultBtn.setOnAction(e -> {
-            faultSimulator.injectFault(faultTypeCombo.getValue());
+            engine.injectFault(faultTypeCombo.getValue());
             faultDisplay.setText("Fault: " + faultTypeCombo.getValue());
             visualizer.resetCanvas();
         });
         faultClearBtn.setOnAction(e -> {
-            faultSimulator.clearFault();
+            engine.clearFault();
             faultDisplay.setText("Fault: None");
-            faultTypeCombo.setValue("None");
+            faultTypeCombo.setValue(FaultMode.NONE);
             visualizer.resetCanvas();
         });
         controlModeCombo.setOnAction(e -> visualizer.resetCanvas());
         pwmTypeCombo.setOnAction(e -> visualizer.resetCanvas());
-        updateMotorParameters();
+        /// Any control change publishes a fresh parameter snapshot to the engine
+        for (ObservableValue<?> control : new ObservableValue<?>[]{
+                dcLinkSlider.valueProperty(), speedRefSlider.valueProperty(), accelRateSlider.valueProperty(),
+                torqueRefSlider.valueProperty(), fluxRefSlider.valueProperty(), loadInertiaSlider.valueProperty(),
+                dampingSlider.valueProperty(), shaftInertiaSlider.valueProperty(), frictionSlider.valueProperty(),
+                tempCoeffSlider.valueProperty(), couplingStiffnessSlider.valueProperty(), pwmFreqSlider.valueProperty(),
+                deadTimeSlider.valueProperty(), modIndexSlider.valueProperty(), fanSpeedSlider.valueProperty(),
+                coolantFlowSlider.valueProperty(), controlModeCombo.valueProperty(), pwmTypeCombo.valueProperty(),
+                loadTypeCombo.valueProperty(), thermalProtectionCombo.valueProperty(), integratorCombo.valueProperty(),
+                trigPrecisionCombo.valueProperty(), directionToggle.selectedProperty(), autoResetToggle.selectedProperty(),
+                harmonicToggle.selectedProperty(), overmodToggle.selectedProperty()}) {
+            control.addListener((obs, old, newVal) -> publishParameters());
+        }
+        publishParameters();
+        displayTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                refreshDisplay();
+                visualizer.render();
+            }
+        };
+        displayTimer.start();
         Scene scene = new Scene(root, 1100, 615);
         primaryStage.setTitle("Inverter Drive Simulation Software");
         primaryStage.setResizable(false);
@@ -292,25 +389,98 @@ public class MainApp extends Application {
 
     private void runOptimization() {
         optimizeBtn.setDisable(true);
+        /// Split here, not on the optimizer thread: SplittableRandom is not thread-safe
+        SplittableRandom optimizerStream = randomStreams.split();
+        /// The engine's published snapshot is immutable; the live components belong to the engine thread
+        SimulationParameters parameters = engine.getParameters();
+        DriveSystem template = driveFor(parameters);
+        Optimizer optimizer = new Optimizer(template.getInverter(), template.getMotor(),
+                template.getFaultSimulator(), template.getSensors(), template.getController(), dataLogger,
+                optimizerStream);
+        optimizer.setProblem(new OptimizationProblem.Builder().scenario(parameters).build());
+        optimizer.setSurrogateScreening(surrogateToggle.isSelected());
+        optimizer.setStagnationDetection(earlyStopToggle.isSelected());
+        optimizer.setEarlyAbort(earlyStopToggle.isSelected());
+
         Dialog<Void> progressDialog = new Dialog<>();
         progressDialog.setTitle("Optimization in Progress");
         progressDialog.setHeaderText("Running optimization...");
-        ProgressIndicator progress = new ProgressIndicator();
-        progress.setPrefSize(50, 50);
-        VBox dialogContent = new VBox(10, new Label("Please wait, this may take a few minutes."), progress);
+        Label status = new Label("Evaluating initial population...");
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setPrefWidth(420);
+        NumberAxis lossAxis = new NumberAxis();
+        lossAxis.setLabel("Power Loss (W)");
+        lossAxis.setForceZeroInRange(false);
+        NumberAxis temperatureAxis = new NumberAxis();
+        temperatureAxis.setLabel("Max Temp (°C)");
+        temperatureAxis.setForceZeroInRange(false);
+        ScatterChart<Number, Number> frontChart = new ScatterChart<>(lossAxis, temperatureAxis);
+        frontChart.setAnimated(false);
+        frontChart.setLegendVisible(false);
+        frontChart.setPrefSize(420, 300);
+        XYChart.Series<Number, Number> frontSeries = new XYChart.Series<>();
+        frontChart.getData().add(frontSeries);
+        VBox dialogContent = new VBox(10, status, progressBar, frontChart);
         dialogContent.setAlignment(javafx.geometry.Pos.CENTER);
         dialogContent.setPadding(new Insets(20));
         progressDialog.getDialogPane().setContent(dialogContent);
         progressDialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        /// Closing the dialog before the run returns only requests cancellation; the optimizer abandons the
+        /// generation in progress and the dialog is closed when the last completed front is in
+        boolean[] finished = {false};
         progressDialog.setOnCloseRequest(e -> {
-            e.consume();
+            if (!finished[0]) {
+                e.consume();
+                optimizer.cancel();
+                status.setText("Cancelling; keeping the last completed generation...");
+            }
         });
-        Platform.runLater(() -> progressDialog.show());
-        new Thread(() -> {
+        optimizer.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(OptimizationProgress item) {
+                Platform.runLater(() -> {
+                    if (finished[0]) return;
+                    progressBar.setProgress((double) item.generation / item.generations);
+                    status.setText(String.format("Generation %d/%d   HV %.4f   %.0f eval/s   ETA %.0f s",
+                            item.generation, item.generations, item.hypervolume, item.evaluationsPerSecond,
+                            item.etaSeconds));
+                    List<XYChart.Data<Number, Number>> points = new ArrayList<>();
+                    for (double[] objectives : item.frontObjectives) {
+                        points.add(new XYChart.Data<>(objectives[0], objectives[1]));
+                    }
+                    frontSeries.getData().setAll(points);
+                });
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        progressDialog.show();
+
+        Thread worker = new Thread(() -> {
             try {
-                Optimizer optimizer = new Optimizer(inverter, motor, faultSimulator, sensors, controller, dataLogger);
                 Optimizer.Individual[] paretoFront = optimizer.optimize();
+                double[] surrogateError = new double[3];
+                int screened = 0;
+                for (Optimizer.GenerationReport report : optimizer.getGenerationReports()) {
+                    if (Double.isNaN(report.predictionError[0])) continue;
+                    for (int k = 0; k < 3; k++) surrogateError[k] += report.predictionError[k];
+                    screened++;
+                }
+                for (int k = 0; k < 3; k++) surrogateError[k] /= Math.max(1, screened);
+                int screenedGenerations = screened;
                 Platform.runLater(() -> {
+                    finished[0] = true;
                     progressDialog.close();
                     if (paretoFront != null && paretoFront.length > 0) {
                         Optimizer.Individual best = paretoFront[0];
@@ -318,11 +488,23 @@ public class MainApp extends Application {
                         modIndexSlider.setValue(best.parameters[1]);
                         fanSpeedSlider.setValue(best.parameters[2] * 100.0);
                         coolantFlowSlider.setValue(best.parameters[3]);
-                        showInfo("Optimization Complete",
+                        FitnessCache cache = optimizer.getFitnessCache();
+                        showInfo(optimizer.isCancelled() ? "Optimization Cancelled" : "Optimization Complete",
                                 String.format("Optimal Parameters:\nPWM Freq: %.2f kHz\nMod Index: %.2f\nFan Speed: %.2f%%\nCoolant Flow: %.2f L/min\n" +
-                                                "Objectives:\nPower Loss: %.2f W\nMax Temp: %.2f °C\nFault Impact: %.2f",
+                                                "Objectives:\nPower Loss: %.2f W\nMax Temp: %.2f °C\nFault Impact: %.2f\n" +
+                                                "Fitness Cache: %d hits, %d misses (%.1f%%)\n" +
+                                                "Simulated: %d (%d generations screened, mean error %.3f / %.3f / %.3f)\n" +
+                                                "Generations: %d%s, %d evaluations aborted early",
                                         best.parameters[0] / 1000.0, best.parameters[1], best.parameters[2] * 100.0, best.parameters[3],
-                                        best.objectives[0], best.objectives[1], best.objectives[2]));
+                                        best.objectives[0], best.objectives[1], best.objectives[2],
+                                        cache != null ? cache.getHits() : 0, cache != null ? cache.getMisses() : 0,
+                                        cache != null ? cache.getHitRate() * 100.0 : 0.0,
+                                        optimizer.getSimulatedCount(), screenedGenerations,
+                                        surrogateError[0], surrogateError[1], surrogateError[2],
+                                        optimizer.getGenerationReports().size(), optimizer.isConverged() ? " (converged)" : "",
+                                        optimizer.getAbortedCount()));
+                    } else if (optimizer.isCancelled()) {
+                        showInfo("Optimization Cancelled", "Cancelled before the initial population was evaluated");
                     } else {
                         showError("Optimization Failed", "No solutions found in Pareto front");
                     }
@@ -330,6 +512,7 @@ public class MainApp extends Application {
                 });
             } catch (Exception e) {
                 Platform.runLater(() -> {
+                    finished[0] = true;
                     progressDialog.close();
                     showError("Optimization Error", "An error occurred during optimization: " + e.getMessage());
                     optimizeBtn.setDisable(false);
@@ -338,13 +521,16 @@ public class MainApp extends Application {
                 e.printStackTrace();
             } finally {
                 Platform.runLater(() -> {
+                    finished[0] = true;
                     if (progressDialog.isShowing()) {
                         progressDialog.close();
                     }
                     optimizeBtn.setDisable(false);
                 });
             }
-        }).start();
+        }, "optimizer");
+        worker.setDaemon(true);
+        worker.start();
     }
 
     private Slider createSlider(String label, double min, double max, double value, GridPane grid, int row) {
@@ -399,7 +585,7 @@ public class MainApp extends Application {
         field.textProperty().addListener((obs, old, newVal) -> {
             try {
                 Double.parseDouble(newVal);
-                updateMotorParameters();
+                publishParameters();
             } catch (NumberFormatException e) {
                 showError("Invalid Input", label + " must be a number");
                 field.setText(defaultValue);
@@ -430,99 +616,120 @@ public class MainApp extends Application {
         });
     }
 
-    private void updateMotorParameters() {
+    private void publishParameters() {
+        if (engine == null) return;
+        SimulationParameters parameters;
         try {
-            motor.setParameters(
-                    Double.parseDouble(ratedVoltageInput.getText()),
-                    Double.parseDouble(ratedPowerInput.getText()),
-                    Integer.parseInt(polePairsInput.getText()),
-                    Double.parseDouble(resistanceInput.getText()),
-                    Double.parseDouble(inductanceInput.getText()),
-                    loadTypeCombo.getValue(),
-                    loadInertiaSlider.getValue(),
-                    dampingSlider.getValue(),
-                    shaftInertiaSlider.getValue(),
-                    frictionSlider.getValue(),
-                    tempCoeffSlider.getValue(),
-                    couplingStiffnessSlider.getValue(),
-                    fanSpeedSlider.getValue() / 100.0,
-                    coolantFlowSlider.getValue()
-            );
+            parameters = new SimulationParameters.Builder()
+                    .control(controlModeCombo.getValue(), speedRefSlider.getValue(), torqueRefSlider.getValue(),
+                            fluxRefSlider.getValue(), accelRateSlider.getValue(),
+                            directionToggle.isSelected() ? -1 : 1)
+                    .gains(Double.parseDouble(kpInput.getText()), Double.parseDouble(kiInput.getText()))
+                    .powerStage(dcLinkSlider.getValue(), pwmFreqSlider.getValue() * 1000,
+                            deadTimeSlider.getValue() * 1e-6, modIndexSlider.getValue(),
+                            harmonicToggle.isSelected(), overmodToggle.isSelected(), pwmTypeCombo.getValue())
+                    .thermal(fanSpeedSlider.getValue() / 100.0, coolantFlowSlider.getValue(),
+                            Double.parseDouble(maxTempInput.getText()), thermalProtectionCombo.getValue(),
+                            autoResetToggle.isSelected())
+                    .motor(Double.parseDouble(ratedVoltageInput.getText()),
+                            Double.parseDouble(ratedPowerInput.getText()),
+                            Integer.parseInt(polePairsInput.getText()),
+                            Double.parseDouble(resistanceInput.getText()),
+                            Double.parseDouble(inductanceInput.getText()),
+                            loadTypeCombo.getValue(),
+                            loadInertiaSlider.getValue(),
+                            dampingSlider.getValue(),
+                            shaftInertiaSlider.getValue(),
+                            frictionSlider.getValue(),
+                            tempCoeffSlider.getValue(),
+                            couplingStiffnessSlider.getValue())
+                    .timeSteps(Double.parseDouble(mechanicalStepInput.getText()) / 1000,
+                            Double.parseDouble(thermalStepInput.getText()) / 1000)
+                    .integrator(integratorMethod(integratorCombo.getValue()))
+                    .trigPrecision(trigPrecisionCombo.getValue())
+                    .build();
         } catch (NumberFormatException e) {
-            showError("Invalid Motor Parameters", "All motor parameters must be valid numbers");
+            showError("Invalid Parameters", "Gains, max temperature, motor parameters and time steps must be valid numbers");
+            return;
+        } catch (IllegalArgumentException e) {
+            showError("Invalid Parameters", e.getMessage());
+            return;
         }
+        engine.publishParameters(parameters);
     }
 
-    private void simulateStep() {
-        if (!isRunning || !enableToggle.isSelected()) {
-            Platform.runLater(() -> {
-                enableToggle.setText("Start");
-                enableToggle.setSelected(false);
-            });
+    /// A drive of the optimizer's own, set up as the given snapshot describes and sharing nothing with the
+    /// engine's
+    private static DriveSystem driveFor(SimulationParameters parameters) {
+        InverterPowerStage inverter = new InverterPowerStage(parameters.dcLinkVoltage, parameters.pwmFrequency,
+                parameters.deadTime, parameters.modulationIndex, parameters.harmonicInjection,
+                parameters.overmodulation);
+        InductionMotor motor = new InductionMotor();
+        SensorModel sensors = new SensorModel();
+        DriveSystem drive = new DriveSystem(inverter, motor, new VfController(motor), sensors,
+                new FaultSimulator(inverter, sensors));
+        drive.apply(parameters);
+        return drive;
+    }
+
+    private static OdeIntegrator.Method integratorMethod(String name) {
+        switch (name) {
+            case "RK4": return OdeIntegrator.Method.RK4;
+            case "RK45": return OdeIntegrator.Method.DORMAND_PRINCE_45;
+            case "Semi-Implicit": return OdeIntegrator.Method.SEMI_IMPLICIT_EULER;
+            default: return OdeIntegrator.Method.FORWARD_EULER;
+        }
+    }
+
+    private void applyClockMode() {
+        SimulationClock clock = engine.getClock();
+        try {
+            clock.setRealTimeRatio(Double.parseDouble(clockRatioCombo.getValue().trim()));
+        } catch (RuntimeException e) {
+            showError("Invalid Input", "Real-time ratio must be a positive number");
             return;
         }
-        Platform.runLater(() -> {
-            inverter.setDcLinkVoltage(dcLinkSlider.getValue());
-            inverter.setPwmFrequency(pwmFreqSlider.getValue() * 1000);
-            inverter.setDeadTime(deadTimeSlider.getValue() * 1e-6);
-            inverter.setModulationIndex(modIndexSlider.getValue());
-            inverter.setHarmonicInjection(harmonicToggle.isSelected());
-            inverter.setOvermodulation(overmodToggle.isSelected());
-            inverter.setCooling(fanSpeedSlider.getValue() / 100.0, coolantFlowSlider.getValue());
-            try {
-                controller.setGains(
-                        Double.parseDouble(kpInput.getText()),
-                        Double.parseDouble(kiInput.getText())
-                );
-            } catch (NumberFormatException e) {
-                showError("Invalid Gains", "Kp and Ki must be valid numbers");
-                return;
-            }
-            String currentControlMode = controlModeCombo.getValue();
-            String currentPwmType = pwmTypeCombo.getValue();
-            String currentFaultType = faultTypeCombo.getValue();
-            if (!currentControlMode.equals(lastControlMode) || !currentPwmType.equals(lastPwmType) || !currentFaultType.equals(lastFaultType)) {
-                visualizer.resetCanvas();
-                lastControlMode = currentControlMode;
-                lastPwmType = currentPwmType;
-                lastFaultType = currentFaultType;
-            }
-            visualizer.setScales(inverter.getDcLinkVoltage(), motor.getRatedVoltage() / motor.getResistance(), speedRefSlider.getValue());
-            double[] pwmSignals = controller.updateControl(
-                    currentControlMode,
-                    speedRefSlider.getValue(),
-                    torqueRefSlider.getValue(),
-                    fluxRefSlider.getValue(),
-                    accelRateSlider.getValue(),
-                    directionToggle.isSelected() ? -1 : 1,
-                    simulationTime
-            );
-            double[] phaseVoltages = inverter.generatePhaseVoltages(pwmSignals, currentPwmType);
-            double maxTemp;
-            try {
-                maxTemp = Double.parseDouble(maxTempInput.getText());
-            } catch (NumberFormatException e) {
-                showError("Invalid Temperature", "Max Temp must be a valid number");
-                return;
-            }
-            phaseVoltages = faultSimulator.applyFaults(phaseVoltages, autoResetToggle.isSelected(),
-                    motor.getTemperature(), inverter.getTemperature(),
-                    maxTemp, thermalProtectionCombo.getValue());
-            double[] phaseCurrents = sensors.measureCurrents(phaseVoltages, motor);
-            motor.updateState(phaseVoltages, phaseCurrents, loadTypeCombo.getValue(), Config.SIMULATION_TIME_STEP);
-            speedDisplay.setText(String.format("Speed: %.1f rad/s", motor.getSpeed()));
-            torqueDisplay.setText(String.format("Torque: %.1f Nm", motor.getTorque()));
-            faultDisplay.setText("Fault: " + faultSimulator.getCurrentFault());
-            motorTempDisplay.setText(String.format("Motor Temp: %.1f °C", motor.getTemperature()));
-            inverterTempDisplay.setText(String.format("Inv Temp: %.1f °C", inverter.getTemperature()));
-            synchronized (dataLogger) {
-                dataLogger.logData(simulationTime, phaseVoltages, phaseCurrents, motor.getSpeed(), motor.getTorque(), currentControlMode, faultSimulator.getCurrentFault());
-            }
-            synchronized (visualizer) {
-                visualizer.updateWaveforms(phaseVoltages, phaseCurrents, motor.getSpeed(), simulationTime);
-            }
-            simulationTime += Config.SIMULATION_TIME_STEP;
-        });
+        switch (clockModeCombo.getValue()) {
+            case "Free Run": clock.setMode(SimulationClock.Mode.FREE_RUNNING); break;
+            case "Single Step": clock.setMode(SimulationClock.Mode.SINGLE_STEP); break;
+            default: clock.setMode(SimulationClock.Mode.REAL_TIME_RATIO); break;
+        }
+    }
+
+    /// Samples the engine's published state once per display frame
+    private void refreshDisplay() {
+        SimulationClock clock = engine.getClock();
+        clockDisplay.setText(String.format("Clock: %.0f steps/s (%.2fx) lag %.1f ms",
+                clock.getStepsPerSecond(), clock.getAchievedRatio(), clock.getLagSeconds() * 1000));
+        SimulationState state = engine.getState();
+        if (state == lastDisplayedState) return;
+        lastDisplayedState = state;
+        SimulationParameters parameters = engine.getParameters();
+        ControlStrategy currentControlMode = controlModeCombo.getValue();
+        ModulationStrategy currentPwmType = pwmTypeCombo.getValue();
+        FaultMode currentFaultType = faultTypeCombo.getValue();
+        if (currentControlMode != lastControlMode || currentPwmType != lastPwmType || currentFaultType != lastFaultType) {
+            visualizer.resetCanvas();
+            lastControlMode = currentControlMode;
+            lastPwmType = currentPwmType;
+            lastFaultType = currentFaultType;
+        }
+        visualizer.setScales(parameters.dcLinkVoltage, parameters.ratedVoltage / parameters.resistance, parameters.speedRef);
+        speedDisplay.setText(String.format("Speed: %.1f rad/s", state.speed));
+        torqueDisplay.setText(String.format("Torque: %.1f Nm", state.torque));
+        faultDisplay.setText("Fault: " + state.fault);
+        motorTempDisplay.setText(String.format("Motor Temp: %.1f °C", state.motorTemperature));
+        inverterTempDisplay.setText(String.format("Inv Temp: %.1f °C", state.inverterTemperature));
+    }
+
+    @Override
+    public void stop() {
+        if (engine != null) {
+            engine.stop();
+        }
+        if (dataLogger != null) {
+            dataLogger.close();
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,28 @@
+package inverter_drive.simulation.software;
+
+/// How InverterPowerStage turns the controller's PWM signals into phase voltages
+public enum ModulationStrategy {
+    /// Sinusoidal PWM: the signals are the duty cycles
+    SPWM("SPWM"),
+    /// Space vector PWM: the signals are resolved into a reference vector and its sector's dwell times
+    SVPWM("SVPWM");
+
+    private final String label;
+
+    ModulationStrategy(String label) {
+        this.label = label;
+    }
+
+    /// Name shown in the UI
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static ModulationStrategy fromLabel(String label) {
+        for (ModulationStrategy strategy : values()) {
+            if (strategy.label.equals(label)) return strategy;
+        }
+        throw new IllegalArgumentException("Unknown PWM type: " + label);
+    }
+}
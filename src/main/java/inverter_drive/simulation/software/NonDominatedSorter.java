@@ -0,0 +1,22 @@
+package inverter_drive.simulation.software;
+
+/// Assigns Pareto ranks to a set of objective vectors (all objectives minimized).
+/// Rank 1 is the non-dominated front; rank k+1 is non-dominated once fronts 1..k are removed.
+public interface NonDominatedSorter {
+    /// objectives[i] is the objective vector of solution i; returns rank[i] >= 1
+    int[] rank(double[][] objectives);
+
+    /// true if a is no worse than b in every objective and strictly better in at least one
+    static boolean dominates(double[] a, double[] b) {
+        boolean betterInAny = false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > b[i]) {
+                return false;
+            }
+            if (a[i] < b[i]) {
+                betterInAny = true;
+            }
+        }
+        return betterInAny;
+    }
+}
@@ -0,0 +1,123 @@
+package inverter_drive.simulation.software;
+
+import java.util.function.Supplier;
+
+/// A minimized optimization objective: a name and a factory for the accumulator that computes it during an
+/// evaluation. The built-in objectives reproduce the optimizer's original three plus torque ripple.
+public final class Objective {
+    /// Average switching (proportional to PWM frequency and DC-link voltage) plus I²R conduction loss
+    public static final Objective POWER_LOSS = new Objective("Power Loss (W)", PowerLoss::new);
+    /// Highest motor or inverter temperature
+    public static final Objective PEAK_TEMPERATURE = new Objective("Max Temp (°C)", PeakTemperature::new);
+    /// Average deviation of the shaft speed from the scenario's reference, weighted by the time step
+    public static final Objective FAULT_IMPACT = new Objective("Fault Impact", FaultImpact::new);
+    /// RMS deviation of the electromagnetic torque from its mean
+    public static final Objective TORQUE_RIPPLE = new Objective("Torque Ripple (Nm)", TorqueRipple::new);
+
+    private final String name;
+    private final Supplier<ObjectiveAccumulator> factory;
+
+    public Objective(String name, Supplier<ObjectiveAccumulator> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /// A fresh accumulator, one per concurrent evaluation
+    public ObjectiveAccumulator newAccumulator() {
+        return factory.get();
+    }
+
+    private static final class PowerLoss implements ObjectiveAccumulator {
+        private double sum;
+
+        @Override
+        public void reset() {
+            sum = 0.0;
+        }
+
+        @Override
+        public void accumulate(DriveSystem drive, SimulationParameters scenario) {
+            InverterPowerStage inverter = drive.getInverter();
+            double[] currents = drive.getPhaseCurrents();
+            double switchingLoss = inverter.getPwmFrequency() * 0.0001 * inverter.getDcLinkVoltage();
+            double conductionLoss = (currents[0] * currents[0] + currents[1] * currents[1]
+                    + currents[2] * currents[2]) * drive.getMotor().getResistance();
+            sum += (switchingLoss + conductionLoss) * Config.SIMULATION_TIME_STEP;
+        }
+
+        @Override
+        public double value(int completedSteps) {
+            return sum / completedSteps;
+        }
+    }
+
+    private static final class PeakTemperature implements ObjectiveAccumulator {
+        private double peak;
+
+        @Override
+        public void reset() {
+            peak = 25.0;
+        }
+
+        @Override
+        public void accumulate(DriveSystem drive, SimulationParameters scenario) {
+            peak = Math.max(peak, Math.max(drive.getMotor().getTemperature(), drive.getInverter().getTemperature()));
+        }
+
+        @Override
+        public double value(int completedSteps) {
+            return peak;
+        }
+    }
+
+    private static final class FaultImpact implements ObjectiveAccumulator {
+        private double sum;
+
+        @Override
+        public void reset() {
+            sum = 0.0;
+        }
+
+        @Override
+        public void accumulate(DriveSystem drive, SimulationParameters scenario) {
+            sum += Math.abs(drive.getMotor().getSpeed() - scenario.speedRef) * Config.SIMULATION_TIME_STEP;
+        }
+
+        @Override
+        public double value(int completedSteps) {
+            return sum / completedSteps;
+        }
+    }
+
+    /// Welford's running variance
+    private static final class TorqueRipple implements ObjectiveAccumulator {
+        private long count;
+        private double mean;
+        private double squaredDeviations;
+
+        @Override
+        public void reset() {
+            count = 0;
+            mean = 0.0;
+            squaredDeviations = 0.0;
+        }
+
+        @Override
+        public void accumulate(DriveSystem drive, SimulationParameters scenario) {
+            double torque = drive.getMotor().getTorque();
+            count++;
+            double delta = torque - mean;
+            mean += delta / count;
+            squaredDeviations += delta * (torque - mean);
+        }
+
+        @Override
+        public double value(int completedSteps) {
+            return count > 0 ? Math.sqrt(squaredDeviations / count) : 0.0;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package inverter_drive.simulation.software;
+
+/// Running value of one optimization objective over an evaluation. accumulate is called after every
+/// simulation step, so implementations keep primitive running sums and never allocate.
+public interface ObjectiveAccumulator {
+    void reset();
+
+    void accumulate(DriveSystem drive, SimulationParameters scenario);
+
+    /// Objective value if the evaluation ended after completedSteps steps; lower is better
+    double value(int completedSteps);
+}
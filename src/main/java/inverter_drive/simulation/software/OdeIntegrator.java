@@ -0,0 +1,61 @@
+package inverter_drive.simulation.software;
+
+/// One-step integrator for the continuous states of the drive models (rotor flux, shaft speed, temperatures).
+/// Inputs from other subsystems are held constant over each call. Instances keep scratch arrays and, for the
+/// adaptive method, the last accepted step size, so each state needs its own instance; none allocate after
+/// their first call.
+public interface OdeIntegrator {
+    enum Method {
+        /// Explicit Euler, one derivative evaluation per call; the original behaviour
+        FORWARD_EULER,
+        /// Classic fixed-step fourth-order Runge–Kutta
+        RK4,
+        /// Adaptive Dormand–Prince 4(5) with error control; takes as few sub-steps as the tolerance allows
+        DORMAND_PRINCE_45,
+        /// Linearly implicit Euler with a diagonal Jacobian, stable for stiff decaying states at any step
+        SEMI_IMPLICIT_EULER;
+
+        /// Largest h·|λ| for which a fixed step stays stable on a decaying state dy/dt = λy; unbounded for the
+        /// adaptive method, which shortens its sub-steps as needed, and for the implicit one
+        public double stabilityLimit() {
+            switch (this) {
+                case FORWARD_EULER: return 2.0;
+                case RK4: return 2.785;
+                default: return Double.POSITIVE_INFINITY;
+            }
+        }
+
+        public OdeIntegrator create() {
+            switch (this) {
+                case RK4: return new RungeKutta4();
+                case DORMAND_PRINCE_45: return new DormandPrince45();
+                case SEMI_IMPLICIT_EULER: return new SemiImplicitEuler();
+                default: return new ForwardEuler();
+            }
+        }
+    }
+
+    /// dy/dt = f(t, y); writes f into dydt and must not keep references to either array
+    @FunctionalInterface
+    interface OdeSystem {
+        void derivatives(double t, double[] y, double[] dydt);
+    }
+
+    /// Advances y in place from t to t + h
+    void integrate(OdeSystem system, double t, double[] y, double h);
+
+    /// Derivative evaluations since this integrator was created
+    long getEvaluations();
+
+    /// Accepted (sub-)steps since this integrator was created
+    long getSteps();
+
+    /// Step size an adaptive method carries into its next call; 0 for fixed-step methods and before the first call
+    default double getCarriedStep() {
+        return 0.0;
+    }
+
+    /// Continues from another integrator's getCarriedStep(), e.g. when a copied state is integrated further
+    default void setCarriedStep(double step) {
+    }
+}
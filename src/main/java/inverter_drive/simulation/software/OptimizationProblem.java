@@ -0,0 +1,189 @@
+package inverter_drive.simulation.software;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// Declarative definition of what Optimizer searches: the decision variables and their bounds, the
+/// objectives, and the scenario every candidate is simulated under (fixed settings, injected fault and
+/// duration), plus the population size and generation limit. Immutable; built with Builder.
+public class OptimizationProblem {
+    public final List<DecisionVariable> variables;
+    public final List<Objective> objectives;
+    public final SimulationParameters scenario;
+    /// Fault injected at the start of every evaluation
+    public final FaultMode fault;
+    /// Simulated seconds per evaluation
+    public final double duration;
+    public final int populationSize;
+    public final int generations;
+
+    private OptimizationProblem(Builder b) {
+        this.variables = List.copyOf(b.variables);
+        this.objectives = List.copyOf(b.objectives);
+        this.scenario = b.scenario;
+        this.fault = b.fault;
+        this.duration = b.duration;
+        this.populationSize = b.populationSize;
+        this.generations = b.generations;
+    }
+
+    /// The optimizer's original problem: PWM frequency, modulation index, fan speed and coolant flow against
+    /// power loss, peak temperature and fault impact, for one second of V/f speed control at 100 rad/s with
+    /// SVPWM under an overcurrent fault; 50 individuals for 100 generations
+    public static OptimizationProblem standard() {
+        return new Builder().build();
+    }
+
+    public int dimensions() {
+        return variables.size();
+    }
+
+    public int objectiveCount() {
+        return objectives.size();
+    }
+
+    public double[] lowerBounds() {
+        return variables.stream().mapToDouble(DecisionVariable::getLower).toArray();
+    }
+
+    public double[] upperBounds() {
+        return variables.stream().mapToDouble(DecisionVariable::getUpper).toArray();
+    }
+
+    public double[] resolutions() {
+        return variables.stream().mapToDouble(DecisionVariable::getResolution).toArray();
+    }
+
+    /// Simulation steps per evaluation
+    public int steps() {
+        return (int) (duration / Config.SIMULATION_TIME_STEP);
+    }
+
+    /// Fresh accumulators for one evaluation, in objective order
+    public ObjectiveAccumulator[] newAccumulators() {
+        ObjectiveAccumulator[] accumulators = new ObjectiveAccumulator[objectives.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = objectives.get(i).newAccumulator();
+        }
+        return accumulators;
+    }
+
+    /// Whether PopulationBatchEvaluator models exactly this problem: the standard variables in their
+    /// standard order (bounds may differ), the standard objectives and the overcurrent fault
+    boolean isBatchCompatible() {
+        List<DecisionVariable> standardVariables = List.of(DecisionVariable.PWM_FREQUENCY,
+                DecisionVariable.MODULATION_INDEX, DecisionVariable.FAN_SPEED, DecisionVariable.COOLANT_FLOW);
+        if (variables.size() != standardVariables.size()) return false;
+        for (int i = 0; i < variables.size(); i++) {
+            if (!variables.get(i).sameTarget(standardVariables.get(i))) return false;
+        }
+        return objectives.equals(List.of(Objective.POWER_LOSS, Objective.PEAK_TEMPERATURE, Objective.FAULT_IMPACT))
+                && fault == FaultMode.OVERCURRENT;
+    }
+
+    /// Everything besides the drive template that decides what a parameter vector evaluates to
+    String key() {
+        StringBuilder key = new StringBuilder();
+        for (DecisionVariable variable : variables) {
+            key.append(variable.getName()).append(',');
+        }
+        for (Objective objective : objectives) {
+            key.append(objective.getName()).append(',');
+        }
+        return key.append(String.join("|", String.valueOf(scenario.controlMode), String.valueOf(scenario.pwmType),
+                String.valueOf(fault),
+                String.valueOf(scenario.speedRef), String.valueOf(scenario.accelRate),
+                String.valueOf(scenario.direction), String.valueOf(scenario.kp), String.valueOf(scenario.ki),
+                String.valueOf(scenario.dcLinkVoltage), String.valueOf(scenario.pwmFrequency),
+                String.valueOf(scenario.deadTime), String.valueOf(scenario.modulationIndex),
+                String.valueOf(scenario.harmonicInjection), String.valueOf(scenario.overmodulation),
+                String.valueOf(scenario.fanSpeed), String.valueOf(scenario.coolantFlow),
+                String.valueOf(scenario.ratedVoltage), String.valueOf(scenario.ratedPower),
+                String.valueOf(scenario.polePairs), String.valueOf(scenario.resistance),
+                String.valueOf(scenario.inductance), String.valueOf(scenario.loadType),
+                String.valueOf(scenario.loadInertia), String.valueOf(scenario.damping),
+                String.valueOf(scenario.shaftInertia), String.valueOf(scenario.friction),
+                String.valueOf(scenario.tempCoefficient), String.valueOf(scenario.couplingStiffness),
+                String.valueOf(scenario.protectionMode), String.valueOf(scenario.maxTemp),
+                String.valueOf(scenario.autoReset), String.valueOf(scenario.mechanicalTimeStep),
+                String.valueOf(scenario.thermalTimeStep), String.valueOf(scenario.integrator),
+                String.valueOf(scenario.trigPrecision),
+                String.valueOf(duration))).toString();
+    }
+
+    public static class Builder {
+        private final List<DecisionVariable> variables = new ArrayList<>(List.of(DecisionVariable.PWM_FREQUENCY,
+                DecisionVariable.MODULATION_INDEX, DecisionVariable.FAN_SPEED, DecisionVariable.COOLANT_FLOW));
+        private final List<Objective> objectives = new ArrayList<>(List.of(Objective.POWER_LOSS,
+                Objective.PEAK_TEMPERATURE, Objective.FAULT_IMPACT));
+        private SimulationParameters scenario = new SimulationParameters.Builder()
+                .control(ControlStrategy.V_F, 100.0, 50.0, 1.0, 10.0, 1.0)
+                .powerStage(400.0, 10000, 1e-6, 0.8, false, false, ModulationStrategy.SVPWM)
+                .thermal(0.5, 5.0, 150.0, ProtectionMode.WARNING, true)
+                .build();
+        private FaultMode fault = FaultMode.OVERCURRENT;
+        private double duration = 1.0;
+        private int populationSize = 50;
+        private int generations = 100;
+
+        public Builder() {
+        }
+
+        public Builder(OptimizationProblem source) {
+            variables(source.variables.toArray(new DecisionVariable[0]));
+            objectives(source.objectives.toArray(new Objective[0]));
+            scenario(source.scenario);
+            fault(source.fault);
+            duration(source.duration);
+            population(source.populationSize, source.generations);
+        }
+
+        public Builder variables(DecisionVariable... variables) {
+            if (variables.length == 0) throw new IllegalArgumentException("At least one decision variable is needed");
+            this.variables.clear();
+            this.variables.addAll(Arrays.asList(variables));
+            return this;
+        }
+
+        public Builder objectives(Objective... objectives) {
+            if (objectives.length == 0) throw new IllegalArgumentException("At least one objective is needed");
+            this.objectives.clear();
+            this.objectives.addAll(Arrays.asList(objectives));
+            return this;
+        }
+
+        /// Fixed settings of every evaluation, including the power stage, gains, cooling and motor the
+        /// optimizer's drive is set to; decision variables override their part of it
+        public Builder scenario(SimulationParameters scenario) {
+            this.scenario = scenario;
+            return this;
+        }
+
+        public Builder fault(FaultMode fault) {
+            this.fault = fault;
+            return this;
+        }
+
+        public Builder duration(double seconds) {
+            if (!(seconds >= Config.SIMULATION_TIME_STEP)) {
+                throw new IllegalArgumentException("Duration must cover at least one simulation step");
+            }
+            this.duration = seconds;
+            return this;
+        }
+
+        public Builder population(int populationSize, int generations) {
+            if (populationSize < 2 || generations < 1) {
+                throw new IllegalArgumentException("Need at least 2 individuals and 1 generation");
+            }
+            this.populationSize = populationSize;
+            this.generations = generations;
+            return this;
+        }
+
+        public OptimizationProblem build() {
+            return new OptimizationProblem(this);
+        }
+    }
+}
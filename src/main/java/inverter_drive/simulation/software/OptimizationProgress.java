@@ -0,0 +1,37 @@
+package inverter_drive.simulation.software;
+
+/// Snapshot published by Optimizer after every completed generation. Everything is copied out of the
+/// running population, so subscribers may keep it and read it from any thread.
+public class OptimizationProgress {
+    /// Generations completed so far, and the generation limit of the run
+    public final int generation;
+    public final int generations;
+    /// Parameters and objectives of the current front, sorted by power loss
+    public final double[][] frontParameters;
+    public final double[][] frontObjectives;
+    public final double hypervolume;
+    /// Simulated individuals per wall-clock second since the run started
+    public final double evaluationsPerSecond;
+    /// Time left if the run goes to the generation limit; stagnation detection may end it sooner
+    public final double etaSeconds;
+    public final Optimizer.GenerationReport report;
+
+    OptimizationProgress(int generation, int generations, double[][] frontParameters, double[][] frontObjectives,
+                         double hypervolume, double evaluationsPerSecond, double etaSeconds,
+                         Optimizer.GenerationReport report) {
+        this.generation = generation;
+        this.generations = generations;
+        this.frontParameters = frontParameters;
+        this.frontObjectives = frontObjectives;
+        this.hypervolume = hypervolume;
+        this.evaluationsPerSecond = evaluationsPerSecond;
+        this.etaSeconds = etaSeconds;
+        this.report = report;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("generation %d/%d, front %d, HV %.5f, %.0f eval/s, ETA %.1f s", generation, generations,
+                frontObjectives.length, hypervolume, evaluationsPerSecond, etaSeconds);
+    }
+}
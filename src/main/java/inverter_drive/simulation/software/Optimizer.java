@@ -1,30 +1,114 @@
 package inverter_drive.simulation.software;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.IntConsumer;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
 
-public class Optimizer {
+/// NSGA-II over the decision variables and objectives of an OptimizationProblem, each candidate simulated on an
+/// isolated copy of the drive under the problem's scenario. Also a Flow.Publisher of per-generation progress:
+/// subscribers get one subscription per optimize() call, completed when the run returns, on a dedicated
+/// delivery thread.
+public class Optimizer implements Flow.Publisher<OptimizationProgress> {
+    /// Delivers progress to subscribers so a slow consumer never runs on, or blocks, the optimizer thread
+    private static final ExecutorService PROGRESS_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "optimizer-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final InverterPowerStage inverter;
     private final InductionMotor motor;
     private final FaultSimulator faultSimulator;
     private final SensorModel sensors;
     private final VfController controller;
     private final DataLogger dataLogger;
-    private final Random random = new Random();
-    private final int populationSize = 50;
-    private final int generations = 100;
+    private ReplayableRandom random;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private NonDominatedSorter sorter = new EfficientNonDominatedSorter();
+    private OptimizationProblem problem = OptimizationProblem.standard();
+    /// Cells at the variables' resolutions: finer than any difference that changes the objectives
+    private FitnessCache fitnessCache = new FitnessCache(10000, problem.resolutions());
+    private boolean batchEvaluation = true;
+    private boolean vectorKernel = PopulationBatchEvaluator.isVectorApiAvailable();
     private final double mutationRate = 0.1;
     private final double crossoverRate = 0.9;
-    /// Parameter bounds
-    private final double[] pwmFreqBounds = {2000, 20000}; // Hz
-    private final double[] modIndexBounds = {0.1, 1.0};
-    private final double[] fanSpeedBounds = {0.0, 1.0};
-    private final double[] coolantFlowBounds = {0.0, 10.0}; // L/min
+    /// Surrogate pre-screening, off by default
+    private boolean surrogateScreening = false;
+    private double surrogateSimulatedFraction = 0.3;
+    private int surrogateExplorationCount = 2;
+    private int surrogateTrainingSize = 250;
+    /// Every truly evaluated point of the current run, in evaluation order; training data for the surrogate
+    private final List<double[]> archiveParameters = new ArrayList<>();
+    private final List<double[]> archiveObjectives = new ArrayList<>();
+    /// Early termination, off by default
+    private boolean stagnationDetection = false;
+    private int stagnationWindow = 10;
+    private double stagnationTolerance = 1e-3;
+    private boolean earlyAbort = false;
+    private double abortTemperature = Double.POSITIVE_INFINITY;
+    private double abortDominanceMargin = 0.05;
+    private double abortPenalty = 0.5;
+    /// Share of the run after which the running averages are trusted for the dominance test
+    private static final double ABORT_MINIMUM_FRACTION = 0.2;
+    /// Rule for the evaluations currently running; replaced before each generation's offspring are evaluated
+    private EarlyAbortRule abortRule;
+    private final List<GenerationReport> generationReports = new ArrayList<>();
+    private long simulatedCount;
+    private long simulatedSteps;
+    private long abortedCount;
+    private boolean converged;
+    private final List<Flow.Subscriber<? super OptimizationProgress>> progressSubscribers = new CopyOnWriteArrayList<>();
+    /// Publisher of the run in progress, null between runs; guarded by this
+    private SubmissionPublisher<OptimizationProgress> progress;
+    /// Cancellation request, consumed when a run returns; lastRunCancelled records the outcome
+    private volatile boolean cancelled;
+    private volatile boolean lastRunCancelled;
+    /// Individuals per structure-of-arrays batch. Fixed rather than derived from the parallelism so every
+    /// individual lands in the same SIMD lane or scalar tail whatever the thread count, keeping the vector
+    /// path bit-reproducible; a multiple of every DoubleVector length.
+    static final int BATCH_LANES = 16;
+    /// Remote workers that simulate new individuals instead of this JVM; null evaluates locally
+    private DistributedEvaluator distributedEvaluator;
+    private Path checkpointFile;
+    private int checkpointInterval = 1;
 
     public Optimizer(InverterPowerStage inverter, InductionMotor motor, FaultSimulator faultSimulator,
                      SensorModel sensors, VfController controller, DataLogger dataLogger) {
+        this(inverter, motor, faultSimulator, sensors, controller, dataLogger,
+                new ReplayableRandom(new SplittableRandom().nextLong()));
+    }
+
+    public Optimizer(InverterPowerStage inverter, InductionMotor motor, FaultSimulator faultSimulator,
+                     SensorModel sensors, VfController controller, DataLogger dataLogger, long seed) {
+        this(inverter, motor, faultSimulator, sensors, controller, dataLogger, new ReplayableRandom(seed));
+    }
+
+    /// Variation operators draw from random on the calling thread; each evaluation gets its own seed from it
+    /// up front, so results do not depend on the parallelism
+    public Optimizer(InverterPowerStage inverter, InductionMotor motor, FaultSimulator faultSimulator,
+                     SensorModel sensors, VfController controller, DataLogger dataLogger,
+                     RandomGenerator.SplittableGenerator random) {
+        this(inverter, motor, faultSimulator, sensors, controller, dataLogger, new ReplayableRandom(random));
+    }
+
+    private Optimizer(InverterPowerStage inverter, InductionMotor motor, FaultSimulator faultSimulator,
+                      SensorModel sensors, VfController controller, DataLogger dataLogger, ReplayableRandom random) {
+        this.random = random;
         this.inverter = inverter;
         this.motor = motor;
         this.faultSimulator = faultSimulator;
@@ -34,111 +118,824 @@ public class Optimizer {
     }
 
     public static class Individual {
-        double[] parameters; // [pwmFreq, modIndex, fanSpeed, coolantFlow]
-        double[] objectives; // [powerLoss, maxTemp, faultImpact]
+        double[] parameters; // in the order of the problem's variables
+        double[] objectives; // in the order of the problem's objectives
         int rank;
         double crowdingDistance;
+        boolean evaluated;
+        /// Stopped early by the abort rule; objectives then hold penalized estimates
+        boolean aborted;
+        int simulatedSteps;
+        /// Individual of the standard problem
         Individual(double[] parameters) {
+            this(parameters, 3);
+        }
+
+        Individual(double[] parameters, int objectiveCount) {
             this.parameters = parameters;
-            this.objectives = new double[3];
+            this.objectives = new double[objectiveCount];
+        }
+    }
+
+    /// What to optimize; OptimizationProblem.standard() by default. Replaces the fitness cache with an empty
+    /// one quantized at the variables' resolutions, unless caching is disabled. Not to be changed while
+    /// optimize() runs.
+    public void setProblem(OptimizationProblem problem) {
+        this.problem = problem;
+        if (fitnessCache != null) {
+            fitnessCache = new FitnessCache(fitnessCache.getCapacity(), problem.resolutions());
+        }
+    }
+
+    public OptimizationProblem getProblem() {
+        return problem;
+    }
+
+    /// Number of worker threads used to evaluate a population; 1 evaluates sequentially on the calling thread
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /// Non-dominated sorting algorithm used for ranking; EfficientNonDominatedSorter by default
+    public void setNonDominatedSorter(NonDominatedSorter sorter) {
+        this.sorter = sorter;
+    }
+
+    /// Cache used to skip re-simulating known parameter vectors; null disables caching
+    public void setFitnessCache(FitnessCache fitnessCache) {
+        this.fitnessCache = fitnessCache;
+    }
+
+    public FitnessCache getFitnessCache() {
+        return fitnessCache;
+    }
+
+    /// Evaluate new individuals together with PopulationBatchEvaluator when the scenario allows it,
+    /// instead of stepping one DriveSystem per individual
+    public void setBatchEvaluation(boolean batchEvaluation) {
+        this.batchEvaluation = batchEvaluation;
+    }
+
+    public boolean isBatchEvaluation() {
+        return batchEvaluation;
+    }
+
+    /// Run batch evaluation on the Vector API kernel when the jdk.incubator.vector module is present (the
+    /// default). Its vectorized sin and atan2 match the scalar loop only up to rounding, so false keeps results
+    /// bit-identical across JVMs with and without the module.
+    public void setVectorKernel(boolean vectorKernel) {
+        this.vectorKernel = vectorKernel;
+    }
+
+    public boolean isVectorKernel() {
+        return vectorKernel && PopulationBatchEvaluator.isVectorApiAvailable();
+    }
+
+    /// Sends the evaluations of every generation to remote OptimizerWorkers, in BATCH_LANES-sized batches.
+    /// Workers follow this optimizer's kernel choice (setVectorKernel) and drop the connection when they cannot,
+    /// so with the scalar kernel results are identical to local evaluation whichever worker evaluated what.
+    /// The evaluator is not closed by the optimizer. null (the default) evaluates locally.
+    public void setDistributedEvaluator(DistributedEvaluator distributedEvaluator) {
+        this.distributedEvaluator = distributedEvaluator;
+    }
+
+    public DistributedEvaluator getDistributedEvaluator() {
+        return distributedEvaluator;
+    }
+
+    /// Saves the run's state to file after every interval-th generation, replacing the previous checkpoint;
+    /// resume(file) then continues from there. null disables checkpoints (the default). Needs an optimizer
+    /// created with a seed or without a generator, since a checkpoint records the position in the random stream.
+    public void setCheckpoint(Path file, int interval) {
+        if (file != null && interval < 1) throw new IllegalArgumentException("Checkpoint interval must be at least 1");
+        if (file != null && !random.isSeeded()) {
+            throw new IllegalStateException("An optimizer with a caller-supplied generator cannot be checkpointed");
+        }
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /// Pre-screen offspring on an RBF surrogate fitted to the points simulated so far, and simulate only the
+    /// most promising and most uncertain of them. The first generations are simulated in full until the
+    /// archive holds two populations' worth of points.
+    public void setSurrogateScreening(boolean surrogateScreening) {
+        this.surrogateScreening = surrogateScreening;
+    }
+
+    public boolean isSurrogateScreening() {
+        return surrogateScreening;
+    }
+
+    /// Share of each generation's offspring sent to the simulator while screening, 0.3 by default
+    public void setSurrogateSimulatedFraction(double fraction) {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Simulated fraction must be in (0, 1]");
+        }
+        this.surrogateSimulatedFraction = fraction;
+    }
+
+    public double getSurrogateSimulatedFraction() {
+        return surrogateSimulatedFraction;
+    }
+
+    /// How many of the simulated offspring are picked for being far from any training point rather than for
+    /// their predicted rank
+    public void setSurrogateExplorationCount(int count) {
+        this.surrogateExplorationCount = Math.max(0, count);
+    }
+
+    public int getSurrogateExplorationCount() {
+        return surrogateExplorationCount;
+    }
+
+    /// Most recent archive points the surrogate is fitted on; the fit costs O(n^3)
+    public void setSurrogateTrainingSize(int size) {
+        this.surrogateTrainingSize = Math.max(10, size);
+    }
+
+    public int getSurrogateTrainingSize() {
+        return surrogateTrainingSize;
+    }
+
+    /// Stop the run once the hypervolume of the front has improved by less than stagnationTolerance
+    /// (relative) over the last stagnationWindow generations
+    public void setStagnationDetection(boolean stagnationDetection) {
+        this.stagnationDetection = stagnationDetection;
+    }
+
+    public boolean isStagnationDetection() {
+        return stagnationDetection;
+    }
+
+    public void setStagnationWindow(int generations) {
+        this.stagnationWindow = Math.max(1, generations);
+    }
+
+    public int getStagnationWindow() {
+        return stagnationWindow;
+    }
+
+    public void setStagnationTolerance(double tolerance) {
+        this.stagnationTolerance = Math.max(0.0, tolerance);
+    }
+
+    public double getStagnationTolerance() {
+        return stagnationTolerance;
+    }
+
+    /// Stop individual evaluations early, see EarlyAbortRule: offspring whose running objectives are
+    /// dominated by the current front by more than abortDominanceMargin after ABORT_MINIMUM_FRACTION of the
+    /// run, and any individual whose peak temperature passes abortTemperature. Aborted individuals keep their estimates
+    /// scaled by 1 + abortPenalty and are neither cached nor used to train the surrogate.
+    public void setEarlyAbort(boolean earlyAbort) {
+        this.earlyAbort = earlyAbort;
+    }
+
+    public boolean isEarlyAbort() {
+        return earlyAbort;
+    }
+
+    /// Infinite by default: under the stock evaluation scenario every individual runs past the 150 °C
+    /// protection limit, so aborting on it would stop them all
+    public void setAbortTemperature(double temperature) {
+        this.abortTemperature = temperature;
+    }
+
+    public double getAbortTemperature() {
+        return abortTemperature;
+    }
+
+    public void setAbortDominanceMargin(double margin) {
+        this.abortDominanceMargin = Math.max(0.0, margin);
+    }
+
+    public double getAbortDominanceMargin() {
+        return abortDominanceMargin;
+    }
+
+    public void setAbortPenalty(double penalty) {
+        this.abortPenalty = Math.max(0.0, penalty);
+    }
+
+    public double getAbortPenalty() {
+        return abortPenalty;
+    }
+
+    /// One entry per generation of the last optimize() call
+    public List<GenerationReport> getGenerationReports() {
+        return generationReports;
+    }
+
+    /// Individuals simulated by the last optimize() call, excluding cache hits and duplicates
+    public long getSimulatedCount() {
+        return simulatedCount;
+    }
+
+    /// Simulation steps run by the last optimize() call; a full evaluation is 1 / SIMULATION_TIME_STEP
+    public long getSimulatedSteps() {
+        return simulatedSteps;
+    }
+
+    /// Evaluations of the last optimize() call stopped by the abort rule
+    public long getAbortedCount() {
+        return abortedCount;
+    }
+
+    /// Whether the last optimize() call stopped on stagnation before the generation limit
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /// Outcome of one generation. simulated counts the offspring sent to the simulator (all of them unless
+    /// surrogate screening is on), aborted those the abort rule stopped early. predictionError holds, per
+    /// objective, the RMS error of the surrogate's predictions for the offspring that were then simulated to
+    /// the end, divided by that objective's range over the training points; NaN when nothing was screened.
+    /// hypervolume is that of the population's front after selection, normalized so the initial population's
+    /// ideal and nadir points map to 0 and 1 and measured against 1.1 in every objective.
+    public static class GenerationReport {
+        public final int generation;
+        public final int candidates;
+        public final int simulated;
+        public final int aborted;
+        public final int trainingPoints;
+        public final double[] predictionError;
+        public final double hypervolume;
+
+        GenerationReport(int generation, int candidates, int simulated, int aborted, int trainingPoints,
+                         double[] predictionError, double hypervolume) {
+            this.generation = generation;
+            this.candidates = candidates;
+            this.simulated = simulated;
+            this.aborted = aborted;
+            this.trainingPoints = trainingPoints;
+            this.predictionError = predictionError;
+            this.hypervolume = hypervolume;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder errors = new StringBuilder();
+            for (double error : predictionError) {
+                errors.append(String.format(" %.4f", error));
+            }
+            return String.format("gen %d: simulated %d/%d, aborted %d, trained on %d, error%s, HV %.5f",
+                    generation, simulated, candidates, aborted, trainingPoints, errors, hypervolume);
+        }
+    }
+
+    /// Registers a subscriber for the progress of this and every later optimize() call. Items that arrive
+    /// while a subscriber's buffer is full are dropped for that subscriber rather than slowing the run.
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super OptimizationProgress> subscriber) {
+        progressSubscribers.add(subscriber);
+        if (progress != null) {
+            progress.subscribe(subscriber);
+        }
+    }
+
+    /// Asks the running or next optimize() call to stop. It abandons the generation in progress and returns
+    /// the front of the last completed one, or an empty front if the initial population was not finished.
+    /// Safe to call from any thread.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /// Whether the last optimize() call stopped because of cancel()
+    public boolean isCancelled() {
+        return lastRunCancelled;
+    }
+
+    /// Whether cancel() has been called during the current optimize() call; what evaluators poll
+    boolean isCancelRequested() {
+        return cancelled;
+    }
+
+    private synchronized SubmissionPublisher<OptimizationProgress> openProgress() {
+        progress = new SubmissionPublisher<>(PROGRESS_EXECUTOR, Flow.defaultBufferSize());
+        for (Flow.Subscriber<? super OptimizationProgress> subscriber : progressSubscribers) {
+            progress.subscribe(subscriber);
+        }
+        return progress;
+    }
+
+    private synchronized void closeProgress(Throwable failure) {
+        if (failure != null) {
+            progress.closeExceptionally(failure);
+        } else {
+            progress.close();
+        }
+        progress = null;
+    }
+
+    /// Throughput and remaining time are measured from startNanos, when the run or its resumption began after
+    /// startGeneration generations and startSimulated simulations
+    private void publishProgress(SubmissionPublisher<OptimizationProgress> publisher, int completed, long startNanos,
+                                 int startGeneration, long startSimulated, Individual[] population,
+                                 GenerationReport report) {
+        Individual[] front = paretoFront(population);
+        double[][] parameters = new double[front.length][];
+        double[][] objectives = new double[front.length][];
+        for (int i = 0; i < front.length; i++) {
+            parameters[i] = front[i].parameters.clone();
+            objectives[i] = front[i].objectives.clone();
         }
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        double eta = elapsed / (completed - startGeneration) * (problem.generations - completed);
+        double rate = elapsed > 0 ? (simulatedCount - startSimulated) / elapsed : 0.0;
+        publisher.offer(new OptimizationProgress(completed, problem.generations, parameters, objectives,
+                report.hypervolume, rate, eta, report), (subscriber, item) -> false);
     }
 
     public Individual[] optimize() {
-        Individual[] population = initializePopulation();
-        for (int gen = 0; gen < generations; gen++) {
-            evaluatePopulation(population);
-            Individual[] offspring = generateOffspring(population);
-            Individual[] combined = new Individual[populationSize * 2];
-            System.arraycopy(population, 0, combined, 0, populationSize);
-            System.arraycopy(offspring, 0, combined, populationSize, populationSize);
-            assignRanksAndCrowding(combined);
-            population = selectNextPopulation(combined);
-        }
-        evaluatePopulation(population);
-        assignRanksAndCrowding(population);
+        return run(null);
+    }
+
+    /// Continues the run saved in a checkpoint by setCheckpoint, returning what that run's optimize() call
+    /// would have returned. The optimizer must be configured as it was: same drive, problem and settings, and
+    /// a fitness cache if and only if the run had one; it replaces this optimizer's random stream and cache.
+    /// Checkpoints continue to be written if enabled. The generation limit may be raised to extend a run.
+    public Individual[] resume(Path file) throws IOException {
+        return run(OptimizerCheckpoint.read(file));
+    }
+
+    private Individual[] run(OptimizerCheckpoint checkpoint) {
+        long startNanos = System.nanoTime();
+        /// Freeze the live drive configuration once; every evaluation clones this template
+        DriveSystem template = DriveSystem.isolatedCopy(inverter, motor, controller, sensors, 0L);
+        template.apply(problem.scenario);
+        String scenarioKey = scenarioKey(template);
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        SubmissionPublisher<OptimizationProgress> publisher = openProgress();
+        Throwable failure = null;
+        try {
+            archiveParameters.clear();
+            archiveObjectives.clear();
+            generationReports.clear();
+            simulatedCount = 0;
+            simulatedSteps = 0;
+            abortedCount = 0;
+            converged = false;
+            Individual[] population;
+            double[][] hypervolumeScale;
+            int startGeneration;
+            if (checkpoint == null) {
+                population = initializePopulation();
+                abortRule = earlyAbort ? new EarlyAbortRule(abortTemperature, abortDominanceMargin,
+                        ABORT_MINIMUM_FRACTION, abortPenalty, null) : null;
+                evaluatePopulation(population, template, pool, scenarioKey);
+                if (cancelled) {
+                    return new Individual[0];
+                }
+                assignRanksAndCrowding(population);
+                hypervolumeScale = hypervolumeScale(population);
+                startGeneration = 0;
+            } else {
+                restore(checkpoint, scenarioKey);
+                population = checkpoint.population;
+                hypervolumeScale = checkpoint.hypervolumeScale;
+                startGeneration = checkpoint.generation;
+            }
+            long startSimulated = simulatedCount;
+            for (int gen = startGeneration; gen < problem.generations && !cancelled; gen++) {
+                Individual[] offspring = generateOffspring(population);
+                int candidates = offspring.length;
+                long abortedBefore = abortedCount;
+                abortRule = earlyAbort ? new EarlyAbortRule(abortTemperature, abortDominanceMargin,
+                        ABORT_MINIMUM_FRACTION, abortPenalty, frontObjectives(population)) : null;
+                double[] predictionError = new double[problem.objectiveCount()];
+                Arrays.fill(predictionError, Double.NaN);
+                int trainingPoints = 0;
+                /// Offspring are evaluated before environmental selection so they compete on real objectives
+                if (surrogateScreening && archiveParameters.size() >= 2 * problem.populationSize) {
+                    trainingPoints = Math.min(archiveParameters.size(), surrogateTrainingSize);
+                    offspring = screenOffspring(population, offspring, template, pool, scenarioKey, predictionError);
+                } else {
+                    evaluatePopulation(offspring, template, pool, scenarioKey);
+                }
+                if (cancelled) break;
+                Individual[] combined = new Individual[population.length + offspring.length];
+                System.arraycopy(population, 0, combined, 0, population.length);
+                System.arraycopy(offspring, 0, combined, population.length, offspring.length);
+                assignRanksAndCrowding(combined);
+                population = selectNextPopulation(combined);
+                double hypervolume = hypervolume(population, hypervolumeScale);
+                GenerationReport report = new GenerationReport(gen, candidates, offspring.length,
+                        (int) (abortedCount - abortedBefore), trainingPoints, predictionError, hypervolume);
+                generationReports.add(report);
+                publishProgress(publisher, gen + 1, startNanos, startGeneration, startSimulated, population, report);
+                if (stagnationDetection && gen >= stagnationWindow) {
+                    double earlier = generationReports.get(gen - stagnationWindow).hypervolume;
+                    if (hypervolume - earlier <= stagnationTolerance * earlier) {
+                        converged = true;
+                        break;
+                    }
+                }
+                if (checkpointFile != null && (gen + 1) % checkpointInterval == 0) {
+                    writeCheckpoint(gen + 1, population, hypervolumeScale, scenarioKey);
+                }
+            }
+            assignRanksAndCrowding(population);
+            return paretoFront(population);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            abortRule = null;
+            lastRunCancelled = cancelled;
+            cancelled = false;
+            closeProgress(failure);
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /// Problem, scenario and every setting the sequence of generations depends on. Parallelism and distributed
+    /// evaluation are left out since they do not change results.
+    private String checkpointFingerprint(String scenarioKey) {
+        return String.join("|", scenarioKey, String.valueOf(problem.populationSize), String.valueOf(batchEvaluation),
+                String.valueOf(isVectorKernel()),
+                fitnessCache != null ? String.valueOf(fitnessCache.getCapacity()) : "uncached",
+                String.valueOf(surrogateScreening), String.valueOf(surrogateSimulatedFraction),
+                String.valueOf(surrogateExplorationCount), String.valueOf(surrogateTrainingSize),
+                String.valueOf(stagnationDetection), String.valueOf(stagnationWindow),
+                String.valueOf(stagnationTolerance), String.valueOf(earlyAbort), String.valueOf(abortTemperature),
+                String.valueOf(abortDominanceMargin), String.valueOf(abortPenalty));
+    }
+
+    private void writeCheckpoint(int generation, Individual[] population, double[][] hypervolumeScale,
+                                 String scenarioKey) {
+        OptimizerCheckpoint checkpoint = new OptimizerCheckpoint(checkpointFingerprint(scenarioKey),
+                random.getSeed(), random.getDraws(), generation, simulatedCount, simulatedSteps, abortedCount,
+                hypervolumeScale, population, archiveParameters, archiveObjectives, generationReports, fitnessCache);
+        try {
+            checkpoint.write(checkpointFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write optimizer checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private void restore(OptimizerCheckpoint checkpoint, String scenarioKey) {
+        if (!checkpoint.fingerprint.equals(checkpointFingerprint(scenarioKey))) {
+            throw new IllegalStateException("Checkpoint was written for a different problem or optimizer settings");
+        }
+        random = ReplayableRandom.replay(checkpoint.seed, checkpoint.draws);
+        if (checkpoint.fitnessCache != null) {
+            fitnessCache = checkpoint.fitnessCache;
+        }
+        archiveParameters.addAll(checkpoint.archiveParameters);
+        archiveObjectives.addAll(checkpoint.archiveObjectives);
+        generationReports.addAll(checkpoint.reports);
+        simulatedCount = checkpoint.simulatedCount;
+        simulatedSteps = checkpoint.simulatedSteps;
+        abortedCount = checkpoint.abortedCount;
+    }
+
+    /// Objectives of the rank-1 members; population must be ranked
+    private static double[][] frontObjectives(Individual[] population) {
+        return Arrays.stream(population).filter(ind -> ind.rank == 1).map(ind -> ind.objectives)
+                .toArray(double[][]::new);
+    }
+
+    /// Ideal and nadir point of the initial population, fixing the hypervolume normalization for the run
+    private static double[][] hypervolumeScale(Individual[] population) {
+        int objectives = population[0].objectives.length;
+        double[] ideal = new double[objectives];
+        double[] nadir = new double[objectives];
+        Arrays.fill(ideal, Double.POSITIVE_INFINITY);
+        Arrays.fill(nadir, Double.NEGATIVE_INFINITY);
+        for (Individual ind : population) {
+            for (int obj = 0; obj < objectives; obj++) {
+                ideal[obj] = Math.min(ideal[obj], ind.objectives[obj]);
+                nadir[obj] = Math.max(nadir[obj], ind.objectives[obj]);
+            }
+        }
+        return new double[][]{ideal, nadir};
+    }
+
+    private static double hypervolume(Individual[] population, double[][] scale) {
+        double[][] front = frontObjectives(population);
+        int objectives = scale[0].length;
+        double[][] normalized = new double[front.length][objectives];
+        for (int i = 0; i < front.length; i++) {
+            for (int obj = 0; obj < objectives; obj++) {
+                double range = scale[1][obj] - scale[0][obj];
+                normalized[i][obj] = (front[i][obj] - scale[0][obj]) / (range > 0 ? range : 1.0);
+            }
+        }
+        double[] reference = new double[objectives];
+        Arrays.fill(reference, 1.1);
+        return Hypervolume.compute(normalized, reference);
+    }
+
+    /// Fits the surrogate, simulates the best-predicted and the least-certain offspring, and returns those;
+    /// the rest are discarded without ever entering the population. Writes the prediction error into error.
+    private Individual[] screenOffspring(Individual[] population, Individual[] offspring, DriveSystem template,
+                                         ForkJoinPool pool, String scenarioKey, double[] error) {
+        int from = Math.max(0, archiveParameters.size() - surrogateTrainingSize);
+        double[][] points = archiveParameters.subList(from, archiveParameters.size()).toArray(new double[0][]);
+        double[][] values = archiveObjectives.subList(from, archiveObjectives.size()).toArray(new double[0][]);
+        int objectiveCount = problem.objectiveCount();
+        RbfSurrogate surrogate = new RbfSurrogate(problem.lowerBounds(), problem.upperBounds(), objectiveCount);
+        surrogate.fit(points, values);
+
+        double[][] predicted = new double[offspring.length][];
+        double[] uncertainty = new double[offspring.length];
+        double[][] objectives = new double[population.length + offspring.length][];
+        for (int i = 0; i < population.length; i++) {
+            objectives[i] = population[i].objectives;
+        }
+        for (int i = 0; i < offspring.length; i++) {
+            predicted[i] = surrogate.predict(offspring[i].parameters, new double[objectiveCount]);
+            uncertainty[i] = surrogate.distanceToNearest(offspring[i].parameters);
+            objectives[population.length + i] = predicted[i];
+        }
+        /// Predicted rank among the current population, ties broken toward unexplored regions
+        int[] rank = sorter.rank(objectives);
+        Integer[] order = new Integer[offspring.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> rank[population.length + a] != rank[population.length + b]
+                ? Integer.compare(rank[population.length + a], rank[population.length + b])
+                : Double.compare(uncertainty[b], uncertainty[a]));
+        int budget = Math.max(1, (int) Math.ceil(surrogateSimulatedFraction * offspring.length));
+        int exploration = Math.min(surrogateExplorationCount, budget - 1);
+        boolean[] chosen = new boolean[offspring.length];
+        for (int k = 0; k < budget - exploration; k++) {
+            chosen[order[k]] = true;
+        }
+        for (int k = 0; k < exploration; k++) {
+            int farthest = -1;
+            for (int i = 0; i < offspring.length; i++) {
+                if (!chosen[i] && (farthest < 0 || uncertainty[i] > uncertainty[farthest])) farthest = i;
+            }
+            chosen[farthest] = true;
+        }
+        Individual[] selected = new Individual[budget];
+        double[][] selectedPredictions = new double[budget][];
+        int n = 0;
+        for (int i = 0; i < offspring.length; i++) {
+            if (chosen[i]) {
+                selectedPredictions[n] = predicted[i];
+                selected[n++] = offspring[i];
+            }
+        }
+        evaluatePopulation(selected, template, pool, scenarioKey);
+
+        /// Aborted individuals carry penalized estimates, not outcomes the surrogate could be judged against
+        int completed = 0;
+        for (Individual ind : selected) {
+            if (!ind.aborted) completed++;
+        }
+        for (int obj = 0; obj < objectiveCount; obj++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double[] value : values) {
+                min = Math.min(min, value[obj]);
+                max = Math.max(max, value[obj]);
+            }
+            double sum = 0.0;
+            for (int i = 0; i < budget; i++) {
+                if (selected[i].aborted) continue;
+                double diff = selectedPredictions[i][obj] - selected[i].objectives[obj];
+                sum += diff * diff;
+            }
+            double rms = completed > 0 ? Math.sqrt(sum / completed) : Double.NaN;
+            error[obj] = max > min ? rms / (max - min) : rms;
+        }
+        return selected;
+    }
+
+    private Individual[] paretoFront(Individual[] population) {
         return Arrays.stream(population)
                 .filter(ind -> ind.rank == 1)
-                .sorted(Comparator.comparingDouble(ind -> ind.objectives[0])) // Sort by power loss
+                .sorted(Comparator.comparingDouble(ind -> ind.objectives[0])) // Sort by the first objective
                 .toArray(Individual[]::new);
     }
 
     private Individual[] initializePopulation() {
-        Individual[] population = new Individual[populationSize];
-        for (int i = 0; i < populationSize; i++) {
-            double[] params = new double[]{
-                    pwmFreqBounds[0] + random.nextDouble() * (pwmFreqBounds[1] - pwmFreqBounds[0]),
-                    modIndexBounds[0] + random.nextDouble() * (modIndexBounds[1] - modIndexBounds[0]),
-                    fanSpeedBounds[0] + random.nextDouble() * (fanSpeedBounds[1] - fanSpeedBounds[0]),
-                    coolantFlowBounds[0] + random.nextDouble() * (coolantFlowBounds[1] - coolantFlowBounds[0])
-            };
-            population[i] = new Individual(params);
+        Individual[] population = new Individual[problem.populationSize];
+        for (int i = 0; i < population.length; i++) {
+            double[] params = new double[problem.dimensions()];
+            for (int v = 0; v < params.length; v++) {
+                DecisionVariable variable = problem.variables.get(v);
+                params[v] = variable.getLower() + random.nextDouble() * (variable.getUpper() - variable.getLower());
+            }
+            population[i] = new Individual(params, problem.objectiveCount());
         }
         return population;
     }
 
-    private void evaluatePopulation(Individual[] population) {
+    /// Everything besides the decision variables that the objectives depend on: the problem, and the sensor
+    /// settings, the only part of the template the scenario does not replace
+    private String scenarioKey(DriveSystem template) {
+        SensorModel sensors = template.getSensors();
+        return String.join("|", problem.key(), String.valueOf((int) (1.0 / Config.SIMULATION_TIME_STEP)),
+                String.valueOf(sensors.isCurrentSensorFault()), String.valueOf(sensors.getPartialFailureScale()));
+    }
+
+    private void evaluatePopulation(Individual[] population, DriveSystem template, ForkJoinPool pool,
+                                    String scenarioKey) {
+        /// Resolve survivors, cache hits and in-batch duplicates sequentially so only new points are simulated
+        List<Individual> pending = new ArrayList<>();
+        List<FitnessCache.Key> pendingKeys = new ArrayList<>();
+        Map<FitnessCache.Key, Individual> firstByKey = new HashMap<>();
+        List<Individual[]> duplicates = new ArrayList<>();
         for (Individual ind : population) {
-            double pwmFreq = ind.parameters[0];
-            double modIndex = ind.parameters[1];
-            double fanSpeed = ind.parameters[2];
-            double coolantFlow = ind.parameters[3];
-            inverter.setPwmFrequency(pwmFreq);
-            inverter.setModulationIndex(modIndex);
-            inverter.setCooling(fanSpeed, coolantFlow);
-            motor.setParameters(
-                    motor.getRatedVoltage(), motor.getRatedPower(), (int) motor.getPolePairs(),
-                    motor.getResistance(), motor.getInductance(), "Constant",
-                    0.1, 0.01, 0.05, 0.01, 0.005, 5000,
-                    fanSpeed, coolantFlow
-            );
-            double simulationTime = 0.0;
-            double[] phaseVoltages = new double[3];
-            double[] phaseCurrents = new double[3];
-            double powerLoss = 0.0;
-            double maxTemp = 25.0;
-            double faultImpact = 0.0;
-            int steps = (int) (1.0 / Config.SIMULATION_TIME_STEP);
-            faultSimulator.injectFault("Overcurrent");
-            for (int i = 0; i < steps; i++) {
-                double[] pwmSignals = controller.updateControl(
-                        "V/f", 100.0, 50.0, 1.0, 10.0, 1.0, simulationTime
-                );
-                phaseVoltages = inverter.generatePhaseVoltages(pwmSignals, "SVPWM");
-                phaseVoltages = faultSimulator.applyFaults(
-                        phaseVoltages, true, motor.getTemperature(), inverter.getTemperature(),
-                        150.0, "Warning"
-                );
-                phaseCurrents = sensors.measureCurrents(phaseVoltages, motor);
-                motor.updateState(phaseVoltages, phaseCurrents, "Constant", Config.SIMULATION_TIME_STEP);
-                /// Calculate power loss (switching + conduction)
-                double switchingLoss = pwmFreq * 0.0001 * inverter.getDcLinkVoltage();
-                double conductionLoss = Arrays.stream(phaseCurrents)
-                        .map(current -> current * current * motor.getResistance())
-                        .sum();
-                powerLoss += (switchingLoss + conductionLoss) * Config.SIMULATION_TIME_STEP;
-                /// Track maximum temperature
-                maxTemp = Math.max(maxTemp, Math.max(motor.getTemperature(), inverter.getTemperature()));
-                /// Measure fault impact (e.g., deviation from expected speed)
-                faultImpact += Math.abs(motor.getSpeed() - 100.0) * Config.SIMULATION_TIME_STEP;
-                simulationTime += Config.SIMULATION_TIME_STEP;
+            if (ind.evaluated) continue;
+            FitnessCache.Key key = null;
+            if (fitnessCache != null) {
+                key = fitnessCache.keyOf(ind.parameters, scenarioKey);
+                Individual first = firstByKey.get(key);
+                if (first != null) {
+                    fitnessCache.recordHit();
+                    duplicates.add(new Individual[]{ind, first});
+                    continue;
+                }
+                double[] cached = fitnessCache.get(key);
+                if (cached != null) {
+                    ind.objectives = cached;
+                    ind.evaluated = true;
+                    continue;
+                }
+                firstByKey.put(key, ind);
+            }
+            pending.add(ind);
+            pendingKeys.add(key);
+        }
+        /// Seeds are drawn in population order so the outcome does not depend on thread scheduling
+        long[] seeds = new long[pending.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+        boolean complete = true;
+        if (distributedEvaluator != null) {
+            complete = distributedEvaluator.evaluate(this, pending, seeds, template, abortRule);
+        } else if (batchEvaluation && problem.isBatchCompatible()
+                && PopulationBatchEvaluator.supports(template, problem.scenario)) {
+            evaluateBatch(pending, seeds, template, pool);
+        } else if (pool == null) {
+            for (int i = 0; i < seeds.length && !cancelled; i++) {
+                evaluateIndividual(pending.get(i), template.isolatedCopy(seeds[i]));
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, seeds.length).parallel().forEach(i -> {
+                if (!cancelled) evaluateIndividual(pending.get(i), template.isolatedCopy(seeds[i]));
+            })).join();
+        }
+        /// A cancelled evaluation leaves some objectives unset; nothing is marked or cached and the caller
+        /// discards the whole population
+        if (!complete || cancelled) return;
+        simulatedCount += pending.size();
+        for (int i = 0; i < pending.size(); i++) {
+            Individual ind = pending.get(i);
+            ind.evaluated = true;
+            simulatedSteps += ind.simulatedSteps;
+            if (ind.aborted) {
+                /// Penalized estimates depend on the front at the time; never reuse them
+                abortedCount++;
+                continue;
+            }
+            if (fitnessCache != null) {
+                fitnessCache.put(pendingKeys.get(i), ind.objectives);
+            }
+            archiveParameters.add(ind.parameters);
+            archiveObjectives.add(ind.objectives);
+        }
+        for (Individual[] duplicate : duplicates) {
+            duplicate[0].objectives = duplicate[1].objectives.clone();
+            duplicate[0].aborted = duplicate[1].aborted;
+            duplicate[0].evaluated = true;
+        }
+    }
+
+    /// Splits the pending individuals into BATCH_LANES-wide structure-of-arrays batches spread over the workers
+    private void evaluateBatch(List<Individual> pending, long[] seeds, DriveSystem template, ForkJoinPool pool) {
+        DriveSystem batchTemplate = batchTemplate(template);
+        int chunkSize = BATCH_LANES;
+        int chunks = (pending.size() + chunkSize - 1) / chunkSize;
+        EarlyAbortRule abort = abortRule;
+        IntConsumer evaluateChunk = c -> {
+            int from = c * chunkSize;
+            int to = Math.min(pending.size(), from + chunkSize);
+            if (from >= to || cancelled) return;
+            evaluateBatchChunk(pending.subList(from, to), Arrays.copyOfRange(seeds, from, to), batchTemplate, abort);
+        };
+        if (pool == null) {
+            IntStream.range(0, chunks).forEach(evaluateChunk);
+        } else {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(evaluateChunk)).join();
+        }
+    }
+
+    private DriveSystem batchTemplate(DriveSystem template) {
+        DriveSystem batchTemplate = template.isolatedCopy(0L);
+        batchTemplate.apply(problem.scenario);
+        return batchTemplate;
+    }
+
+    /// One structure-of-arrays batch of at most BATCH_LANES individuals
+    private void evaluateBatchChunk(List<Individual> chunk, long[] seeds, DriveSystem batchTemplate,
+                                    EarlyAbortRule abort) {
+        int steps = problem.steps();
+        double[][] parameters = new double[chunk.size()][];
+        double[][] objectives = new double[chunk.size()][];
+        int[] completedSteps = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            parameters[i] = chunk.get(i).parameters;
+            objectives[i] = chunk.get(i).objectives;
+        }
+        new PopulationBatchEvaluator(batchTemplate, problem.scenario, steps, vectorKernel)
+                .evaluate(parameters, seeds, objectives, abort, completedSteps);
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).simulatedSteps = completedSteps[i];
+            chunk.get(i).aborted = completedSteps[i] < steps;
+        }
+    }
+
+    /// Evaluates one BATCH_LANES-aligned chunk of a population exactly as the local paths would, on the
+    /// calling thread; used by OptimizerWorker and for batches no worker could take
+    void evaluateChunk(List<Individual> chunk, long[] seeds, DriveSystem template, EarlyAbortRule abort) {
+        if (batchEvaluation && problem.isBatchCompatible()
+                && PopulationBatchEvaluator.supports(template, problem.scenario)) {
+            evaluateBatchChunk(chunk, seeds, batchTemplate(template), abort);
+        } else {
+            for (int i = 0; i < chunk.size() && !cancelled; i++) {
+                evaluateIndividual(chunk.get(i), template.isolatedCopy(seeds[i]), abort);
+            }
+        }
+    }
+
+    void evaluateIndividual(Individual ind, DriveSystem drive) {
+        evaluateIndividual(ind, drive, abortRule);
+    }
+
+    private void evaluateIndividual(Individual ind, DriveSystem drive, EarlyAbortRule abort) {
+        InverterPowerStage inverter = drive.getInverter();
+        InductionMotor motor = drive.getMotor();
+        FaultSimulator faultSimulator = drive.getFaultSimulator();
+        /// Decision variables are applied afterwards and override their part of the scenario
+        drive.apply(problem.scenario);
+        SimulationParameters.Builder scenarioBuilder = new SimulationParameters.Builder(problem.scenario);
+        for (int v = 0; v < ind.parameters.length; v++) {
+            problem.variables.get(v).apply(ind.parameters[v], drive, scenarioBuilder);
+        }
+        SimulationParameters scenario = scenarioBuilder.build();
+        ObjectiveAccumulator[] accumulators = problem.newAccumulators();
+        for (ObjectiveAccumulator accumulator : accumulators) {
+            accumulator.reset();
+        }
+        double[] estimates = new double[accumulators.length];
+        double simulationTime = 0.0;
+        double peakTemperature = 25.0;
+        int steps = problem.steps();
+        faultSimulator.injectFault(problem.fault);
+        for (int i = 0; i < steps; i++) {
+            drive.step(scenario, simulationTime);
+            for (ObjectiveAccumulator accumulator : accumulators) {
+                accumulator.accumulate(drive, scenario);
             }
-            /// Normalize objectives
-            ind.objectives[0] = powerLoss / steps; // Average power loss
-            ind.objectives[1] = maxTemp; // Maximum temperature
-            ind.objectives[2] = faultImpact / steps; // Average fault impact
-            faultSimulator.clearFault();
+            peakTemperature = Math.max(peakTemperature, Math.max(motor.getTemperature(), inverter.getTemperature()));
+            simulationTime += Config.SIMULATION_TIME_STEP;
+            if (abort != null && abort.isDue(i + 1, steps)) {
+                for (int obj = 0; obj < accumulators.length; obj++) {
+                    estimates[obj] = accumulators[obj].value(i + 1);
+                }
+                if (abort.shouldAbort(estimates, peakTemperature, i + 1, steps)) {
+                    abort.penalize(estimates, ind.objectives);
+                    ind.aborted = true;
+                    ind.simulatedSteps = i + 1;
+                    faultSimulator.clearFault();
+                    return;
+                }
+            }
+        }
+        ind.simulatedSteps = steps;
+        for (int obj = 0; obj < accumulators.length; obj++) {
+            ind.objectives[obj] = accumulators[obj].value(steps);
         }
+        faultSimulator.clearFault();
     }
 
     private Individual[] generateOffspring(Individual[] population) {
-        Individual[] offspring = new Individual[populationSize];
-        for (int i = 0; i < populationSize; i += 2) {
+        Individual[] offspring = new Individual[problem.populationSize];
+        for (int i = 0; i < problem.populationSize; i += 2) {
             Individual parent1 = tournamentSelection(population);
             Individual parent2 = tournamentSelection(population);
             Individual[] children = crossover(parent1, parent2);
             offspring[i] = mutate(children[0]);
-            if (i + 1 < populationSize) {
+            if (i + 1 < problem.populationSize) {
                 offspring[i + 1] = mutate(children[1]);
             }
         }
@@ -146,8 +943,8 @@ public class Optimizer {
     }
 
     private Individual tournamentSelection(Individual[] population) {
-        Individual candidate1 = population[random.nextInt(populationSize)];
-        Individual candidate2 = population[random.nextInt(populationSize)];
+        Individual candidate1 = population[random.nextInt(problem.populationSize)];
+        Individual candidate2 = population[random.nextInt(problem.populationSize)];
         return candidate1.rank < candidate2.rank ||
                 (candidate1.rank == candidate2.rank && candidate1.crowdingDistance > candidate2.crowdingDistance)
                 ? candidate1 : candidate2;
@@ -155,121 +952,79 @@ public class Optimizer {
 
     private Individual[] crossover(Individual parent1, Individual parent2) {
         if (random.nextDouble() > crossoverRate) {
-            return new Individual[]{new Individual(parent1.parameters.clone()),
-                    new Individual(parent2.parameters.clone())};
+            return new Individual[]{new Individual(parent1.parameters.clone(), problem.objectiveCount()),
+                    new Individual(parent2.parameters.clone(), problem.objectiveCount())};
         }
-        double[] child1Params = new double[4];
-        double[] child2Params = new double[4];
-        for (int i = 0; i < 4; i++) {
+        int objectiveCount = problem.objectiveCount();
+        double[] child1Params = new double[problem.dimensions()];
+        double[] child2Params = new double[problem.dimensions()];
+        for (int i = 0; i < child1Params.length; i++) {
+            DecisionVariable variable = problem.variables.get(i);
             double alpha = random.nextDouble();
             child1Params[i] = alpha * parent1.parameters[i] + (1 - alpha) * parent2.parameters[i];
             child2Params[i] = alpha * parent2.parameters[i] + (1 - alpha) * parent1.parameters[i];
             /// Ensure bounds
-            child1Params[i] = Math.max(getBounds(i)[0], Math.min(getBounds(i)[1], child1Params[i]));
-            child2Params[i] = Math.max(getBounds(i)[0], Math.min(getBounds(i)[1], child2Params[i]));
+            child1Params[i] = Math.max(variable.getLower(), Math.min(variable.getUpper(), child1Params[i]));
+            child2Params[i] = Math.max(variable.getLower(), Math.min(variable.getUpper(), child2Params[i]));
         }
-        return new Individual[]{new Individual(child1Params), new Individual(child2Params)};
+        return new Individual[]{new Individual(child1Params, objectiveCount),
+                new Individual(child2Params, objectiveCount)};
     }
 
     private Individual mutate(Individual individual) {
         double[] params = individual.parameters.clone();
         for (int i = 0; i < params.length; i++) {
             if (random.nextDouble() < mutationRate) {
-                double[] bounds = getBounds(i);
-                params[i] += random.nextGaussian() * (bounds[1] - bounds[0]) * 0.1;
-                params[i] = Math.max(bounds[0], Math.min(bounds[1], params[i]));
+                DecisionVariable variable = problem.variables.get(i);
+                params[i] += random.nextGaussian() * (variable.getUpper() - variable.getLower()) * 0.1;
+                params[i] = Math.max(variable.getLower(), Math.min(variable.getUpper(), params[i]));
             }
         }
-        return new Individual(params);
+        return new Individual(params, problem.objectiveCount());
     }
 
-    private double[] getBounds(int index) {
-        switch (index) {
-            case 0: return pwmFreqBounds;
-            case 1: return modIndexBounds;
-            case 2: return fanSpeedBounds;
-            case 3: return coolantFlowBounds;
-            default: throw new IllegalArgumentException("Invalid parameter index");
-        }
-    }
-
-    private void assignRanksAndCrowding(Individual[] population) {
-        // Non-dominated sorting
-        int[] dominationCount = new int[population.length];
-        int[][] dominatedBy = new int[population.length][population.length];
-        int[] dominatedCount = new int[population.length];
-        int frontIndex = 0;
-        int[] rank = new int[population.length];
-        boolean[] assigned = new boolean[population.length];
-
+    void assignRanksAndCrowding(Individual[] population) {
+        double[][] objectives = new double[population.length][];
         for (int i = 0; i < population.length; i++) {
-            for (int j = 0; j < population.length; j++) {
-                if (i == j) continue;
-                if (dominates(population[i], population[j])) {
-                    dominatedBy[i][dominatedCount[i]++] = j;
-                } else if (dominates(population[j], population[i])) {
-                    dominationCount[i]++;
-                }
-            }
-            if (dominationCount[i] == 0) {
-                rank[i] = 1;
-                assigned[i] = true;
-            }
-        }
-        while (IntStream.range(0, population.length).anyMatch(i -> !assigned[i])) {
-            frontIndex++;
-            for (int i = 0; i < population.length; i++) {
-                if (rank[i] != frontIndex) continue;
-                for (int j = 0; j < dominatedCount[i]; j++) {
-                    int dominated = dominatedBy[i][j];
-                    dominationCount[dominated]--;
-                    if (dominationCount[dominated] == 0) {
-                        rank[dominated] = frontIndex + 1;
-                        assigned[dominated] = true;
-                    }
-                }
-            }
+            objectives[i] = population[i].objectives;
         }
+        int[] rank = sorter.rank(objectives);
         for (int i = 0; i < population.length; i++) {
             population[i].rank = rank[i];
+            population[i].crowdingDistance = 0.0;
         }
-        /// Crowding distance
-        for (Individual ind : population) {
-            ind.crowdingDistance = 0.0;
+        /// Group the population by front; crowding distance only compares members of the same front
+        Arrays.sort(population, Comparator.comparingInt(ind -> ind.rank));
+        int from = 0;
+        while (from < population.length) {
+            int to = from + 1;
+            while (to < population.length && population[to].rank == population[from].rank) to++;
+            assignCrowdingDistance(population, from, to);
+            from = to;
         }
-        for (int obj = 0; obj < 3; obj++) {
+    }
+
+    private void assignCrowdingDistance(Individual[] population, int from, int to) {
+        for (int obj = 0; obj < population[from].objectives.length; obj++) {
             int finalObj = obj;
-            Arrays.sort(population, Comparator.comparingDouble(ind -> ind.objectives[finalObj]));
-            population[0].crowdingDistance = Double.POSITIVE_INFINITY;
-            population[population.length - 1].crowdingDistance = Double.POSITIVE_INFINITY;
-            double objRange = population[population.length - 1].objectives[obj] - population[0].objectives[obj];
+            Arrays.sort(population, from, to, Comparator.comparingDouble(ind -> ind.objectives[finalObj]));
+            population[from].crowdingDistance = Double.POSITIVE_INFINITY;
+            population[to - 1].crowdingDistance = Double.POSITIVE_INFINITY;
+            double objRange = population[to - 1].objectives[obj] - population[from].objectives[obj];
             if (objRange == 0) continue;
-            for (int i = 1; i < population.length - 1; i++) {
+            for (int i = from + 1; i < to - 1; i++) {
                 population[i].crowdingDistance += (population[i + 1].objectives[obj] - population[i - 1].objectives[obj]) / objRange;
             }
         }
     }
 
-    private boolean dominates(Individual ind1, Individual ind2) {
-        boolean betterInAny = false;
-        for (int i = 0; i < ind1.objectives.length; i++) {
-            if (ind1.objectives[i] > ind2.objectives[i]) {
-                return false;
-            }
-            if (ind1.objectives[i] < ind2.objectives[i]) {
-                betterInAny = true;
-            }
-        }
-        return betterInAny;
-    }
-
     private Individual[] selectNextPopulation(Individual[] combined) {
         Arrays.sort(combined, (a, b) -> {
             if (a.rank != b.rank) return Integer.compare(a.rank, b.rank);
             return Double.compare(b.crowdingDistance, a.crowdingDistance);
         });
-        Individual[] nextPopulation = new Individual[populationSize];
-        System.arraycopy(combined, 0, nextPopulation, 0, populationSize);
+        Individual[] nextPopulation = new Individual[problem.populationSize];
+        System.arraycopy(combined, 0, nextPopulation, 0, problem.populationSize);
         return nextPopulation;
     }
 }
\ No newline at end of file
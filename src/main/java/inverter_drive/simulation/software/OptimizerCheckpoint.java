@@ -0,0 +1,198 @@
+package inverter_drive.simulation.software;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/// State of an optimizer run at the end of a generation: everything the remaining generations depend on, so
+/// a resumed run continues exactly as the uninterrupted one would have. Stored as big-endian binary behind a
+/// magic number, followed by a CRC-32 of the whole content. The file is written next to its destination
+/// and renamed over it, so a crash while writing leaves the previous checkpoint intact.
+final class OptimizerCheckpoint {
+    static final int MAGIC = 0x49444f43; // "IDOC"
+    static final int VERSION = 1;
+
+    /// Problem, scenario and optimizer settings the run was started with; a resume must match it
+    final String fingerprint;
+    final long seed;
+    /// Values drawn so far from the optimizer's random stream
+    final long draws;
+    /// Generations completed
+    final int generation;
+    final long simulatedCount;
+    final long simulatedSteps;
+    final long abortedCount;
+    final double[][] hypervolumeScale;
+    final Optimizer.Individual[] population;
+    final List<double[]> archiveParameters;
+    final List<double[]> archiveObjectives;
+    final List<Optimizer.GenerationReport> reports;
+    /// null when caching is disabled
+    final FitnessCache fitnessCache;
+
+    OptimizerCheckpoint(String fingerprint, long seed, long draws, int generation, long simulatedCount,
+                        long simulatedSteps, long abortedCount, double[][] hypervolumeScale,
+                        Optimizer.Individual[] population, List<double[]> archiveParameters,
+                        List<double[]> archiveObjectives, List<Optimizer.GenerationReport> reports,
+                        FitnessCache fitnessCache) {
+        this.fingerprint = fingerprint;
+        this.seed = seed;
+        this.draws = draws;
+        this.generation = generation;
+        this.simulatedCount = simulatedCount;
+        this.simulatedSteps = simulatedSteps;
+        this.abortedCount = abortedCount;
+        this.hypervolumeScale = hypervolumeScale;
+        this.population = population;
+        this.archiveParameters = archiveParameters;
+        this.archiveObjectives = archiveObjectives;
+        this.reports = reports;
+        this.fitnessCache = fitnessCache;
+    }
+
+    /// Replaces file atomically where the file system supports it
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(stream, crc)));
+            writeContent(out);
+            out.flush();
+            new DataOutputStream(stream).writeLong(crc.getValue());
+            stream.getChannel().force(true);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeContent(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(fingerprint);
+        out.writeLong(seed);
+        out.writeLong(draws);
+        out.writeInt(generation);
+        out.writeLong(simulatedCount);
+        out.writeLong(simulatedSteps);
+        out.writeLong(abortedCount);
+        writeMatrix(out, hypervolumeScale);
+        out.writeInt(population.length);
+        for (Optimizer.Individual ind : population) {
+            writeVector(out, ind.parameters);
+            writeVector(out, ind.objectives);
+            out.writeInt(ind.rank);
+            out.writeDouble(ind.crowdingDistance);
+            out.writeBoolean(ind.evaluated);
+            out.writeBoolean(ind.aborted);
+            out.writeInt(ind.simulatedSteps);
+        }
+        writeMatrix(out, archiveParameters.toArray(new double[0][]));
+        writeMatrix(out, archiveObjectives.toArray(new double[0][]));
+        out.writeInt(reports.size());
+        for (Optimizer.GenerationReport report : reports) {
+            out.writeInt(report.generation);
+            out.writeInt(report.candidates);
+            out.writeInt(report.simulated);
+            out.writeInt(report.aborted);
+            out.writeInt(report.trainingPoints);
+            writeVector(out, report.predictionError);
+            out.writeDouble(report.hypervolume);
+        }
+        out.writeBoolean(fitnessCache != null);
+        if (fitnessCache != null) {
+            fitnessCache.write(out);
+        }
+    }
+
+    static OptimizerCheckpoint read(Path file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(stream, crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an optimizer checkpoint: " + file);
+            }
+            String fingerprint = in.readUTF();
+            long seed = in.readLong();
+            long draws = in.readLong();
+            int generation = in.readInt();
+            long simulatedCount = in.readLong();
+            long simulatedSteps = in.readLong();
+            long abortedCount = in.readLong();
+            double[][] hypervolumeScale = readMatrix(in);
+            Optimizer.Individual[] population = new Optimizer.Individual[in.readInt()];
+            for (int i = 0; i < population.length; i++) {
+                Optimizer.Individual ind = new Optimizer.Individual(readVector(in), 0);
+                ind.objectives = readVector(in);
+                ind.rank = in.readInt();
+                ind.crowdingDistance = in.readDouble();
+                ind.evaluated = in.readBoolean();
+                ind.aborted = in.readBoolean();
+                ind.simulatedSteps = in.readInt();
+                population[i] = ind;
+            }
+            List<double[]> archiveParameters = new ArrayList<>(List.of(readMatrix(in)));
+            List<double[]> archiveObjectives = new ArrayList<>(List.of(readMatrix(in)));
+            int reportCount = in.readInt();
+            List<Optimizer.GenerationReport> reports = new ArrayList<>(reportCount);
+            for (int r = 0; r < reportCount; r++) {
+                reports.add(new Optimizer.GenerationReport(in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                        in.readInt(), readVector(in), in.readDouble()));
+            }
+            FitnessCache fitnessCache = in.readBoolean() ? FitnessCache.read(in) : null;
+            long expected = crc.getValue();
+            if (new DataInputStream(stream).readLong() != expected) {
+                throw new IOException("Corrupt optimizer checkpoint: " + file);
+            }
+            return new OptimizerCheckpoint(fingerprint, seed, draws, generation, simulatedCount, simulatedSteps,
+                    abortedCount, hypervolumeScale, population, archiveParameters, archiveObjectives, reports,
+                    fitnessCache);
+        }
+    }
+
+    private static void writeVector(DataOutputStream out, double[] vector) throws IOException {
+        out.writeInt(vector.length);
+        for (double value : vector) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readVector(DataInputStream in) throws IOException {
+        double[] vector = new double[in.readInt()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = in.readDouble();
+        }
+        return vector;
+    }
+
+    private static void writeMatrix(DataOutputStream out, double[][] matrix) throws IOException {
+        out.writeInt(matrix.length);
+        for (double[] row : matrix) {
+            writeVector(out, row);
+        }
+    }
+
+    private static double[][] readMatrix(DataInputStream in) throws IOException {
+        double[][] matrix = new double[in.readInt()][];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = readVector(in);
+        }
+        return matrix;
+    }
+}
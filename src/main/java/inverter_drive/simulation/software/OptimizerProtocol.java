@@ -0,0 +1,342 @@
+package inverter_drive.simulation.software;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/// Messages between a DistributedEvaluator and its OptimizerWorkers over one TCP connection, as big-endian
+/// DataOutput fields. After the handshake the coordinator sends a JOB whenever it starts evaluating a new
+/// population, followed by BATCH messages; the worker answers every batch with a RESULT or an ERROR carrying
+/// the job id, so a result can always be matched to what was sent. A JOB fully describes the evaluation: the
+/// drive template's configuration, the problem with its scenario, the early abort rule and whether batches run
+/// on the Vector API kernel, which workers must follow to reproduce the coordinator's rounding. Only the built-in
+/// decision variables and objectives can be sent; custom setters and accumulators stay in the coordinator.
+final class OptimizerProtocol {
+    static final int MAGIC = 0x49444f57; // "IDOW"
+    static final int VERSION = 2;
+    static final int JOB = 1;
+    static final int BATCH = 2;
+    static final int RESULT = 3;
+    static final int ERROR = 4;
+
+    private static final List<DecisionVariable> VARIABLES = List.of(DecisionVariable.PWM_FREQUENCY,
+            DecisionVariable.MODULATION_INDEX, DecisionVariable.FAN_SPEED, DecisionVariable.COOLANT_FLOW,
+            DecisionVariable.DEAD_TIME, DecisionVariable.DC_LINK_VOLTAGE, DecisionVariable.KP, DecisionVariable.KI,
+            DecisionVariable.PWM_TYPE);
+    private static final List<Objective> OBJECTIVES = List.of(Objective.POWER_LOSS, Objective.PEAK_TEMPERATURE,
+            Objective.FAULT_IMPACT, Objective.TORQUE_RIPPLE);
+
+    private OptimizerProtocol() {
+    }
+
+    /// Everything a worker needs to evaluate batches of one population
+    static final class Job {
+        final long id;
+        final DriveSystem template;
+        final OptimizationProblem problem;
+        final EarlyAbortRule abort;
+        final boolean batchEvaluation;
+        final boolean vectorKernel;
+
+        Job(long id, DriveSystem template, OptimizationProblem problem, EarlyAbortRule abort,
+            boolean batchEvaluation, boolean vectorKernel) {
+            this.id = id;
+            this.template = template;
+            this.problem = problem;
+            this.abort = abort;
+            this.batchEvaluation = batchEvaluation;
+            this.vectorKernel = vectorKernel;
+        }
+    }
+
+    /// Objectives and outcome of every individual of one batch, in batch order
+    static final class Result {
+        final long jobId;
+        final int batch;
+        final double[][] objectives;
+        final int[] simulatedSteps;
+        final boolean[] aborted;
+        /// Set instead of the arrays when the worker could not evaluate the batch
+        final String error;
+
+        Result(long jobId, int batch, double[][] objectives, int[] simulatedSteps, boolean[] aborted, String error) {
+            this.jobId = jobId;
+            this.batch = batch;
+            this.objectives = objectives;
+            this.simulatedSteps = simulatedSteps;
+            this.aborted = aborted;
+            this.error = error;
+        }
+    }
+
+    /// Coordinator side; returns the number of batches the worker evaluates at once
+    static int connect(DataInputStream in, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an optimizer worker, or an incompatible version");
+        }
+        return Math.max(1, in.readInt());
+    }
+
+    /// Worker side
+    static void accept(DataInputStream in, DataOutputStream out, int parallelism) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an optimizer coordinator, or an incompatible version");
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(parallelism);
+        out.flush();
+    }
+
+    /// The complete JOB message, encoded once and sent to every worker
+    static byte[] encodeJob(long id, DriveSystem template, OptimizationProblem problem, EarlyAbortRule abort,
+                            boolean batchEvaluation, boolean vectorKernel) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(JOB);
+            out.writeLong(id);
+            /// Configuration only: every evaluation starts from a fresh isolated copy of the template
+            DriveState.writeConfiguration(out, template);
+            writeProblem(out, problem);
+            writeAbortRule(out, abort);
+            out.writeBoolean(batchEvaluation);
+            out.writeBoolean(vectorKernel);
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory stream failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /// Reads a JOB after its type byte
+    static Job readJob(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        DriveSystem template = DriveState.readConfiguration(in);
+        OptimizationProblem problem = readProblem(in);
+        EarlyAbortRule abort = readAbortRule(in);
+        boolean batchEvaluation = in.readBoolean();
+        return new Job(id, template, problem, abort, batchEvaluation, in.readBoolean());
+    }
+
+    static void writeBatch(DataOutputStream out, long jobId, int batch, double[][] parameters, long[] seeds)
+            throws IOException {
+        out.writeByte(BATCH);
+        out.writeLong(jobId);
+        out.writeInt(batch);
+        out.writeInt(parameters.length);
+        out.writeInt(parameters.length == 0 ? 0 : parameters[0].length);
+        for (int i = 0; i < parameters.length; i++) {
+            for (double value : parameters[i]) {
+                out.writeDouble(value);
+            }
+            out.writeLong(seeds[i]);
+        }
+    }
+
+    static void writeResult(DataOutputStream out, long jobId, int batch, double[][] objectives,
+                            int[] simulatedSteps, boolean[] aborted) throws IOException {
+        out.writeByte(RESULT);
+        out.writeLong(jobId);
+        out.writeInt(batch);
+        out.writeInt(objectives.length);
+        out.writeInt(objectives.length == 0 ? 0 : objectives[0].length);
+        for (int i = 0; i < objectives.length; i++) {
+            for (double value : objectives[i]) {
+                out.writeDouble(value);
+            }
+            out.writeInt(simulatedSteps[i]);
+            out.writeBoolean(aborted[i]);
+        }
+    }
+
+    static void writeError(DataOutputStream out, long jobId, int batch, String message) throws IOException {
+        out.writeByte(ERROR);
+        out.writeLong(jobId);
+        out.writeInt(batch);
+        out.writeUTF(message == null ? "" : message);
+    }
+
+    /// Reads the next RESULT or ERROR
+    static Result readResult(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        long jobId = in.readLong();
+        int batch = in.readInt();
+        if (type == ERROR) {
+            return new Result(jobId, batch, null, null, null, in.readUTF());
+        }
+        if (type != RESULT) {
+            throw new IOException("Unexpected message type " + type);
+        }
+        int count = in.readInt();
+        int objectiveCount = in.readInt();
+        double[][] objectives = new double[count][objectiveCount];
+        int[] simulatedSteps = new int[count];
+        boolean[] aborted = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            for (int obj = 0; obj < objectiveCount; obj++) {
+                objectives[i][obj] = in.readDouble();
+            }
+            simulatedSteps[i] = in.readInt();
+            aborted[i] = in.readBoolean();
+        }
+        return new Result(jobId, batch, objectives, simulatedSteps, aborted, null);
+    }
+
+    private static void writeProblem(DataOutputStream out, OptimizationProblem problem) throws IOException {
+        out.writeInt(problem.variables.size());
+        for (DecisionVariable variable : problem.variables) {
+            int index = builtInIndex(variable);
+            if (index < 0) {
+                throw new IllegalArgumentException("Decision variable " + variable.getName()
+                        + " is not built in and cannot be evaluated by remote workers");
+            }
+            out.writeInt(index);
+            out.writeDouble(variable.getLower());
+            out.writeDouble(variable.getUpper());
+        }
+        out.writeInt(problem.objectives.size());
+        for (Objective objective : problem.objectives) {
+            int index = OBJECTIVES.indexOf(objective);
+            if (index < 0) {
+                throw new IllegalArgumentException("Objective " + objective.getName()
+                        + " is not built in and cannot be evaluated by remote workers");
+            }
+            out.writeInt(index);
+        }
+        writeScenario(out, problem.scenario);
+        out.writeUTF(problem.fault.name());
+        out.writeDouble(problem.duration);
+        out.writeInt(problem.populationSize);
+        out.writeInt(problem.generations);
+    }
+
+    private static OptimizationProblem readProblem(DataInputStream in) throws IOException {
+        DecisionVariable[] variables = new DecisionVariable[in.readInt()];
+        for (int v = 0; v < variables.length; v++) {
+            DecisionVariable variable = VARIABLES.get(checkIndex(in.readInt(), VARIABLES.size()));
+            double lower = in.readDouble();
+            double upper = in.readDouble();
+            variables[v] = variable.isChoice() ? variable : variable.withBounds(lower, upper);
+        }
+        Objective[] objectives = new Objective[in.readInt()];
+        for (int obj = 0; obj < objectives.length; obj++) {
+            objectives[obj] = OBJECTIVES.get(checkIndex(in.readInt(), OBJECTIVES.size()));
+        }
+        SimulationParameters scenario = readScenario(in);
+        FaultMode fault = DriveState.readEnum(in, FaultMode.class);
+        double duration = in.readDouble();
+        int populationSize = in.readInt();
+        int generations = in.readInt();
+        return new OptimizationProblem.Builder().variables(variables).objectives(objectives).scenario(scenario)
+                .fault(fault).duration(duration).population(populationSize, generations).build();
+    }
+
+    private static void writeScenario(DataOutputStream out, SimulationParameters p) throws IOException {
+        out.writeUTF(p.controlMode.name());
+        out.writeDouble(p.speedRef);
+        out.writeDouble(p.torqueRef);
+        out.writeDouble(p.fluxRef);
+        out.writeDouble(p.accelRate);
+        out.writeDouble(p.direction);
+        out.writeDouble(p.kp);
+        out.writeDouble(p.ki);
+        out.writeDouble(p.dcLinkVoltage);
+        out.writeDouble(p.pwmFrequency);
+        out.writeDouble(p.deadTime);
+        out.writeDouble(p.modulationIndex);
+        out.writeBoolean(p.harmonicInjection);
+        out.writeBoolean(p.overmodulation);
+        out.writeUTF(p.pwmType.name());
+        out.writeDouble(p.fanSpeed);
+        out.writeDouble(p.coolantFlow);
+        out.writeDouble(p.maxTemp);
+        out.writeUTF(p.protectionMode.name());
+        out.writeBoolean(p.autoReset);
+        out.writeDouble(p.ratedVoltage);
+        out.writeDouble(p.ratedPower);
+        out.writeInt(p.polePairs);
+        out.writeDouble(p.resistance);
+        out.writeDouble(p.inductance);
+        out.writeUTF(p.loadType.name());
+        out.writeDouble(p.loadInertia);
+        out.writeDouble(p.damping);
+        out.writeDouble(p.shaftInertia);
+        out.writeDouble(p.friction);
+        out.writeDouble(p.tempCoefficient);
+        out.writeDouble(p.couplingStiffness);
+        out.writeDouble(p.mechanicalTimeStep);
+        out.writeDouble(p.thermalTimeStep);
+        out.writeUTF(p.integrator.name());
+        out.writeUTF(p.trigPrecision.name());
+    }
+
+    private static SimulationParameters readScenario(DataInputStream in) throws IOException {
+        return new SimulationParameters.Builder()
+                .control(DriveState.readEnum(in, ControlStrategy.class), in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble())
+                .gains(in.readDouble(), in.readDouble())
+                .powerStage(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readBoolean(),
+                        in.readBoolean(), DriveState.readEnum(in, ModulationStrategy.class))
+                .thermal(in.readDouble(), in.readDouble(), in.readDouble(), DriveState.readEnum(in, ProtectionMode.class),
+                        in.readBoolean())
+                .motor(in.readDouble(), in.readDouble(), in.readInt(), in.readDouble(), in.readDouble(),
+                        DriveState.readEnum(in, LoadModel.class), in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble())
+                .timeSteps(in.readDouble(), in.readDouble())
+                .integrator(DriveState.readEnum(in, OdeIntegrator.Method.class))
+                .trigPrecision(DriveState.readEnum(in, FastTrig.Precision.class))
+                .build();
+    }
+
+    private static void writeAbortRule(DataOutputStream out, EarlyAbortRule abort) throws IOException {
+        out.writeBoolean(abort != null);
+        if (abort == null) return;
+        out.writeDouble(abort.temperatureLimit);
+        out.writeDouble(abort.dominanceMargin);
+        out.writeDouble(abort.minimumFraction);
+        out.writeDouble(abort.penalty);
+        out.writeInt(abort.front == null ? -1 : abort.front.length);
+        if (abort.front == null) return;
+        for (double[] member : abort.front) {
+            out.writeInt(member.length);
+            for (double value : member) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    private static EarlyAbortRule readAbortRule(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        double temperatureLimit = in.readDouble();
+        double dominanceMargin = in.readDouble();
+        double minimumFraction = in.readDouble();
+        double penalty = in.readDouble();
+        int frontSize = in.readInt();
+        double[][] front = frontSize < 0 ? null : new double[frontSize][];
+        for (int f = 0; f < frontSize; f++) {
+            front[f] = new double[in.readInt()];
+            for (int obj = 0; obj < front[f].length; obj++) {
+                front[f][obj] = in.readDouble();
+            }
+        }
+        return new EarlyAbortRule(temperatureLimit, dominanceMargin, minimumFraction, penalty, front);
+    }
+
+    private static int builtInIndex(DecisionVariable variable) {
+        for (int i = 0; i < VARIABLES.size(); i++) {
+            if (variable.sameTarget(VARIABLES.get(i))) return i;
+        }
+        return -1;
+    }
+
+    private static int checkIndex(int index, int size) throws IOException {
+        if (index < 0 || index >= size) {
+            throw new IOException("Unknown built-in index " + index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,225 @@
+package inverter_drive.simulation.software;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Evaluates optimizer batches for a DistributedEvaluator. Listens on a TCP port and serves any number of
+/// coordinators, each on its own connection; batches run on a shared pool of worker threads and results are
+/// sent back as each batch finishes. A worker holds no state between jobs, so it can be started, killed and
+/// restarted at any time; the coordinator retries whatever a lost worker was evaluating.
+/// Usage: OptimizerWorker [port] [threads] listens on all interfaces; port 0 picks a free port.
+public class OptimizerWorker implements Closeable {
+    private final ServerSocket server;
+    private final int parallelism;
+    private final ExecutorService pool;
+    private final Thread acceptor;
+    private final List<Socket> connections = new ArrayList<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong evaluatedBatches = new AtomicLong();
+    private volatile boolean running = true;
+
+    /// Listens on an ephemeral port of the loopback interface
+    public OptimizerWorker(int parallelism) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), parallelism);
+    }
+
+    public OptimizerWorker(InetSocketAddress bindAddress, int parallelism) throws IOException {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+        this.parallelism = parallelism;
+        this.server = new ServerSocket();
+        server.bind(bindAddress);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "optimizer-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptor = new Thread(this::acceptLoop, "optimizer-worker-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /// Address coordinators connect to
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /// Batches evaluated and answered so far
+    public long getEvaluatedBatchCount() {
+        return evaluatedBatches.get();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                synchronized (connections) {
+                    connections.add(socket);
+                }
+                Thread reader = new Thread(() -> serve(socket),
+                        "optimizer-worker-connection-" + connectionCount.incrementAndGet());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                /// The server socket was closed by close(), or accept failed for this one client
+                if (!running) return;
+            }
+        }
+    }
+
+    /// Reads jobs and batches from one coordinator until it disconnects
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            OptimizerProtocol.accept(in, out, parallelism);
+            OptimizerProtocol.Job job = null;
+            Optimizer optimizer = null;
+            while (running) {
+                int type = in.read();
+                if (type < 0) break;
+                if (type == OptimizerProtocol.JOB) {
+                    job = OptimizerProtocol.readJob(in);
+                    if (job.vectorKernel && !PopulationBatchEvaluator.isVectorApiAvailable()) {
+                        throw new IOException("Job needs the Vector API kernel; start the worker with "
+                                + "--add-modules jdk.incubator.vector");
+                    }
+                    optimizer = evaluator(job);
+                } else if (type == OptimizerProtocol.BATCH) {
+                    long jobId = in.readLong();
+                    int batch = in.readInt();
+                    int count = in.readInt();
+                    int dimensions = in.readInt();
+                    if (job == null || job.id != jobId) {
+                        throw new IOException("Batch for unknown job " + jobId);
+                    }
+                    /// Checked before allocating anything sized by the message
+                    if (count < 0 || count > Optimizer.BATCH_LANES || dimensions != job.problem.dimensions()) {
+                        throw new IOException("Batch of " + count + " x " + dimensions + " does not fit job " + jobId);
+                    }
+                    double[][] parameters = new double[count][dimensions];
+                    long[] seeds = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        for (int v = 0; v < dimensions; v++) {
+                            parameters[i][v] = in.readDouble();
+                        }
+                        seeds[i] = in.readLong();
+                    }
+                    OptimizerProtocol.Job batchJob = job;
+                    Optimizer batchOptimizer = optimizer;
+                    pool.execute(() -> evaluate(socket, out, batchJob, batchOptimizer, batch, parameters, seeds));
+                } else {
+                    throw new IOException("Unexpected message type " + type);
+                }
+            }
+        } catch (IOException e) {
+            /// Coordinator gone or protocol error; it retries whatever was in flight on this connection
+        } finally {
+            synchronized (connections) {
+                connections.remove(socket);
+            }
+        }
+    }
+
+    /// An optimizer configured like the coordinator's, used only for its evaluation paths
+    private static Optimizer evaluator(OptimizerProtocol.Job job) {
+        DriveSystem template = job.template;
+        Optimizer optimizer = new Optimizer(template.getInverter(), template.getMotor(),
+                template.getFaultSimulator(), template.getSensors(), template.getController(), null, 0L);
+        optimizer.setFitnessCache(null);
+        optimizer.setProblem(job.problem);
+        optimizer.setBatchEvaluation(job.batchEvaluation);
+        optimizer.setVectorKernel(job.vectorKernel);
+        optimizer.setParallelism(1);
+        return optimizer;
+    }
+
+    private void evaluate(Socket socket, DataOutputStream out, OptimizerProtocol.Job job, Optimizer optimizer,
+                          int batch, double[][] parameters, long[] seeds) {
+        try {
+            double[][] objectives = new double[parameters.length][];
+            int[] simulatedSteps = new int[parameters.length];
+            boolean[] aborted = new boolean[parameters.length];
+            String error = null;
+            try {
+                List<Optimizer.Individual> chunk = new ArrayList<>();
+                for (double[] p : parameters) {
+                    chunk.add(new Optimizer.Individual(p, job.problem.objectiveCount()));
+                }
+                optimizer.evaluateChunk(chunk, seeds, job.template, job.abort);
+                for (int i = 0; i < chunk.size(); i++) {
+                    objectives[i] = chunk.get(i).objectives;
+                    simulatedSteps[i] = chunk.get(i).simulatedSteps;
+                    aborted[i] = chunk.get(i).aborted;
+                }
+            } catch (RuntimeException e) {
+                error = e.toString();
+            }
+            synchronized (out) {
+                if (error != null) {
+                    OptimizerProtocol.writeError(out, job.id, batch, error);
+                } else {
+                    OptimizerProtocol.writeResult(out, job.id, batch, objectives, simulatedSteps, aborted);
+                }
+                out.flush();
+            }
+            evaluatedBatches.incrementAndGet();
+        } catch (IOException e) {
+            /// Closing the socket ends the reader too
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                /// Already closed
+            }
+        }
+    }
+
+    /// Stops listening and drops every connection; batches in progress are abandoned
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        synchronized (connections) {
+            for (Socket socket : connections) {
+                socket.close();
+            }
+            connections.clear();
+        }
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 2) {
+            System.err.println("Usage: OptimizerWorker [port] [threads]");
+            System.exit(2);
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        OptimizerWorker worker = new OptimizerWorker(new InetSocketAddress(port), threads);
+        System.out.printf("Optimizer worker listening on port %d with %d threads%n", worker.getPort(), threads);
+        worker.acceptor.join();
+    }
+}
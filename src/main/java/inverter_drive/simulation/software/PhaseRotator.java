@@ -0,0 +1,110 @@
+package inverter_drive.simulation.software;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/// cos and sin of a phase angle that normally advances by the same increment every step, as in the inverse
+/// Park transform at a fixed reference frequency. A step that repeats the previous increment is one
+/// multiplication by the cached rotation (the angle-addition recurrence) instead of two trig calls. Any
+/// other step, and every RESYNC_INTERVAL steps, is evaluated at the rotator's precision, which bounds the
+/// rounding drift of the recurrence.
+public final class PhaseRotator {
+    static final int RESYNC_INTERVAL = 1024;
+
+    private FastTrig.Precision precision;
+    /// Phases within this of the predicted one count as the same increment
+    private double tolerance;
+    private double phase = Double.NaN;
+    private double increment = Double.NaN;
+    private double cos;
+    private double sin;
+    private double stepCos;
+    private double stepSin;
+    private int sinceResync;
+
+    public PhaseRotator(FastTrig.Precision precision) {
+        setPrecision(precision);
+    }
+
+    public void setPrecision(FastTrig.Precision precision) {
+        this.precision = precision;
+        this.tolerance = Math.max(precision.maxError(), 1e-12);
+        this.phase = Double.NaN;
+        this.increment = Double.NaN;
+    }
+
+    public FastTrig.Precision getPrecision() {
+        return precision;
+    }
+
+    /// Moves to the given phase (rad); read the result with cos() and sin()
+    public void rotateTo(double target) {
+        double predicted = phase + increment;
+        if (sinceResync < RESYNC_INTERVAL && Math.abs(target - predicted) <= tolerance) {
+            double c = cos * stepCos - sin * stepSin;
+            sin = sin * stepCos + cos * stepSin;
+            cos = c;
+            phase = predicted;
+            sinceResync++;
+            return;
+        }
+        double step = target - phase;
+        if (!(Math.abs(step - increment) <= tolerance)) {
+            /// The cached rotation is reused for many steps, so it is computed exactly
+            increment = step;
+            stepCos = Math.cos(step);
+            stepSin = Math.sin(step);
+        }
+        phase = target;
+        cos = precision.cos(target);
+        sin = precision.sin(target);
+        sinceResync = 0;
+    }
+
+    public double cos() {
+        return cos;
+    }
+
+    public double sin() {
+        return sin;
+    }
+
+    /// Continues where source stands. Its cached values are only valid at its own precision, so a rotator
+    /// of another precision is reset instead and resynchronizes on the next step.
+    void copyStateFrom(PhaseRotator source) {
+        if (source.precision != precision) {
+            phase = Double.NaN;
+            increment = Double.NaN;
+            return;
+        }
+        phase = source.phase;
+        increment = source.increment;
+        cos = source.cos;
+        sin = source.sin;
+        stepCos = source.stepCos;
+        stepSin = source.stepSin;
+        sinceResync = source.sinceResync;
+    }
+
+    /// Position and cached rotation; the precision is part of the owner's configuration
+    void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(phase);
+        out.writeDouble(increment);
+        out.writeDouble(cos);
+        out.writeDouble(sin);
+        out.writeDouble(stepCos);
+        out.writeDouble(stepSin);
+        out.writeInt(sinceResync);
+    }
+
+    void readState(DataInputStream in) throws IOException {
+        phase = in.readDouble();
+        increment = in.readDouble();
+        cos = in.readDouble();
+        sin = in.readDouble();
+        stepCos = in.readDouble();
+        stepSin = in.readDouble();
+        sinceResync = in.readInt();
+    }
+}
@@ -0,0 +1,377 @@
+package inverter_drive.simulation.software;
+
+import java.util.random.RandomGenerator;
+
+/// Structure-of-arrays evaluator for the optimizer's fixed scenario.
+/// The state of every individual lives in primitive double[popSize] columns and the whole batch is
+/// advanced one SIMULATION_TIME_STEP at a time, so each step is a data-parallel loop over lanes.
+/// When the jdk.incubator.vector module is present the step runs on SIMD lanes (VectorBatchKernel);
+/// otherwise the scalar loop below is used, which reproduces the DriveSystem pipeline operation for operation.
+/// Only the scenario the optimizer uses is modelled: V/f control, SVPWM, constant load,
+/// Warning or no thermal protection, no harmonic injection and a healthy current sensor.
+/// Below EXACT trig precision the scalar loop runs the table-based path of VfController and
+/// InverterPowerStage; the vector kernel is only used at EXACT.
+public class PopulationBatchEvaluator {
+    private static final boolean VECTOR_API_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    static final double DT = Config.SIMULATION_TIME_STEP;
+    static final double AUTO_RESET_DELAY = Config.FAULT_AUTO_RESET_DELAY;
+    static final double FAULT_NONE = 0;
+    static final double FAULT_OVERCURRENT = 1;
+    static final double FAULT_OVERHEAT = 2;
+
+    /// Scenario and template constants shared by all lanes
+    final double speedRef;
+    final double direction;
+    final double maxFreqChange;
+    final double kp;
+    final double ki;
+    final double dcLinkVoltage;
+    final double deadTime;
+    final double overmodulationFactor;
+    final double maxTemp;
+    final boolean autoReset;
+    final double resistance;
+    final double sensorImpedance;
+    final double partialFailureScale;
+    final double polePairs;
+    final double inductance;
+    final double totalInertia;
+    final double viscousFriction;
+    final double couplingStiffness;
+    final FastTrig.Precision trigPrecision;
+    private final int steps;
+    private final boolean useVectorApi;
+
+    /// Per-lane parameters
+    double[] pwmFrequency;
+    double[] modulationIndex;
+    double[] fanSpeed;
+    double[] coolantFlow;
+    /// Per-lane state
+    double[] speed;
+    double[] torque;
+    double[] rotorFlux;
+    double[] motorTemperature;
+    double[] inverterTemperature;
+    double[] integralError;
+    double[] commandFrequency;
+    double[] faultCode;
+    double[] faultTime;
+    /// Per-lane sensor noise for the current step, drawn from each lane's own generator
+    double[] noiseA;
+    double[] noiseB;
+    double[] noiseC;
+    RandomGenerator[] noiseSources;
+    /// Per-lane objective accumulators
+    double[] powerLoss;
+    double[] peakTemperature;
+    double[] faultImpact;
+    /// Index into the caller's arrays of the individual each lane holds; lanes are compacted as they abort
+    int[] laneIndex;
+    int lanes;
+
+    /// template must already carry the optimizer's fixed motor settings; scenario supplies the per-step settings
+    public PopulationBatchEvaluator(DriveSystem template, SimulationParameters scenario, int steps) {
+        this(template, scenario, steps, true);
+    }
+
+    /// As above; vectorKernel false runs the scalar loop even when the Vector API is available, for results
+    /// that are bit-identical to a JVM without it
+    public PopulationBatchEvaluator(DriveSystem template, SimulationParameters scenario, int steps,
+                                    boolean vectorKernel) {
+        if (!supports(template, scenario)) {
+            throw new IllegalArgumentException("Scenario is not supported by the batch evaluator");
+        }
+        InverterPowerStage inverter = template.getInverter();
+        InductionMotor motor = template.getMotor();
+        this.speedRef = scenario.speedRef;
+        this.direction = scenario.direction;
+        this.maxFreqChange = scenario.accelRate * DT / (2 * Math.PI);
+        this.kp = template.getController().getKp();
+        this.ki = template.getController().getKi();
+        this.dcLinkVoltage = inverter.getDcLinkVoltage();
+        this.deadTime = inverter.getDeadTime();
+        this.overmodulationFactor = inverter.isOvermodulation() ? 1.15 : 1.0;
+        this.maxTemp = scenario.protectionMode == ProtectionMode.WARNING ? scenario.maxTemp : Double.POSITIVE_INFINITY;
+        this.autoReset = scenario.autoReset;
+        this.resistance = motor.getResistance();
+        this.sensorImpedance = motor.getResistance() + motor.getInductance() * 0.1;
+        this.partialFailureScale = template.getSensors().getPartialFailureScale();
+        this.polePairs = motor.getPolePairs();
+        this.inductance = motor.getInductance();
+        this.totalInertia = motor.getLoadInertia() + motor.getShaftInertia();
+        this.viscousFriction = motor.getDamping() + motor.getFriction();
+        this.couplingStiffness = motor.getCouplingStiffness();
+        this.trigPrecision = scenario.trigPrecision;
+        this.steps = steps;
+        this.useVectorApi = vectorKernel && VECTOR_API_AVAILABLE && trigPrecision == FastTrig.Precision.EXACT;
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return VECTOR_API_AVAILABLE;
+    }
+
+    public static boolean supports(DriveSystem template, SimulationParameters scenario) {
+        return scenario.controlMode == ControlStrategy.V_F && scenario.pwmType == ModulationStrategy.SVPWM
+                && scenario.loadType == LoadModel.CONSTANT
+                && (scenario.protectionMode == ProtectionMode.WARNING || scenario.protectionMode == ProtectionMode.NONE)
+                && !template.getInverter().isHarmonicInjection()
+                && !template.getSensors().isCurrentSensorFault()
+                && scenario.mechanicalInterval == 1 && scenario.thermalInterval == 1
+                && scenario.integrator == OdeIntegrator.Method.FORWARD_EULER;
+    }
+
+    /// parameters[i] = [pwmFreq, modIndex, fanSpeed, coolantFlow]; seeds[i] seeds lane i's sensor noise.
+    /// Writes [powerLoss, maxTemp, faultImpact] into objectives[i].
+    public void evaluate(double[][] parameters, long[] seeds, double[][] objectives) {
+        evaluate(parameters, seeds, objectives, null, null);
+    }
+
+    /// As above, stopping individuals early under abort (may be null). An aborted lane is swapped with the
+    /// last running one so the remaining lanes stay contiguous. completedSteps, if given, receives the
+    /// number of steps each individual ran.
+    public void evaluate(double[][] parameters, long[] seeds, double[][] objectives, EarlyAbortRule abort,
+                         int[] completedSteps) {
+        reset(parameters, seeds);
+        double[] estimates = new double[3];
+        double time = 0.0;
+        for (int step = 0; step < steps && lanes > 0; step++) {
+            for (int i = 0; i < lanes; i++) {
+                RandomGenerator noise = noiseSources[i];
+                noiseA[i] = noise.nextGaussian();
+                noiseB[i] = noise.nextGaussian();
+                noiseC[i] = noise.nextGaussian();
+            }
+            if (useVectorApi) {
+                VectorBatchKernel.step(this, time);
+            } else {
+                stepLanes(0, lanes, time);
+            }
+            time += DT;
+            if (abort != null && abort.isDue(step + 1, steps)) {
+                for (int i = lanes - 1; i >= 0; i--) {
+                    estimates[0] = powerLoss[i] / (step + 1);
+                    estimates[1] = peakTemperature[i];
+                    estimates[2] = faultImpact[i] / (step + 1);
+                    if (abort.shouldAbort(estimates, peakTemperature[i], step + 1, steps)) {
+                        abort.penalize(estimates, objectives[laneIndex[i]]);
+                        if (completedSteps != null) completedSteps[laneIndex[i]] = step + 1;
+                        swapLanes(i, --lanes);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < lanes; i++) {
+            objectives[laneIndex[i]][0] = powerLoss[i] / steps;
+            objectives[laneIndex[i]][1] = peakTemperature[i];
+            objectives[laneIndex[i]][2] = faultImpact[i] / steps;
+            if (completedSteps != null) completedSteps[laneIndex[i]] = steps;
+        }
+    }
+
+    private void swapLanes(int a, int b) {
+        if (a == b) return;
+        for (double[] column : new double[][]{pwmFrequency, modulationIndex, fanSpeed, coolantFlow, speed, torque,
+                rotorFlux, motorTemperature, inverterTemperature, integralError, commandFrequency, faultCode,
+                faultTime, powerLoss, peakTemperature, faultImpact}) {
+            double swap = column[a];
+            column[a] = column[b];
+            column[b] = swap;
+        }
+        RandomGenerator noise = noiseSources[a];
+        noiseSources[a] = noiseSources[b];
+        noiseSources[b] = noise;
+        int index = laneIndex[a];
+        laneIndex[a] = laneIndex[b];
+        laneIndex[b] = index;
+    }
+
+    private void reset(double[][] parameters, long[] seeds) {
+        int n = parameters.length;
+        if (speed == null || speed.length < n) {
+            pwmFrequency = new double[n];
+            modulationIndex = new double[n];
+            fanSpeed = new double[n];
+            coolantFlow = new double[n];
+            speed = new double[n];
+            torque = new double[n];
+            rotorFlux = new double[n];
+            motorTemperature = new double[n];
+            inverterTemperature = new double[n];
+            integralError = new double[n];
+            commandFrequency = new double[n];
+            faultCode = new double[n];
+            faultTime = new double[n];
+            noiseA = new double[n];
+            noiseB = new double[n];
+            noiseC = new double[n];
+            noiseSources = new RandomGenerator[n];
+            powerLoss = new double[n];
+            peakTemperature = new double[n];
+            faultImpact = new double[n];
+            laneIndex = new int[n];
+        }
+        lanes = n;
+        for (int i = 0; i < n; i++) {
+            pwmFrequency[i] = parameters[i][0];
+            modulationIndex[i] = parameters[i][1];
+            fanSpeed[i] = parameters[i][2];
+            coolantFlow[i] = parameters[i][3];
+            speed[i] = 0.0;
+            torque[i] = 0.0;
+            rotorFlux[i] = 1.0;
+            motorTemperature[i] = Config.AMBIENT_TEMPERATURE;
+            inverterTemperature[i] = Config.AMBIENT_TEMPERATURE;
+            integralError[i] = 0.0;
+            commandFrequency[i] = 0.0;
+            faultCode[i] = FAULT_OVERCURRENT;
+            faultTime[i] = 0.0;
+            noiseSources[i] = DriveSystem.sensorStream(seeds[i]);
+            powerLoss[i] = 0.0;
+            peakTemperature[i] = 25.0;
+            faultImpact[i] = 0.0;
+            laneIndex[i] = i;
+        }
+    }
+
+    /// Scalar step of lanes [from, to); also handles the tail the vector kernel leaves over
+    void stepLanes(int from, int to, double time) {
+        for (int i = from; i < to; i++) {
+            /// V/f control
+            double speedError = speedRef - speed[i];
+            integralError[i] += speedError * DT;
+            double freq = kp * speedError + ki * integralError[i];
+            freq = Math.max(Math.min(freq, commandFrequency[i] + maxFreqChange), commandFrequency[i] - maxFreqChange);
+            commandFrequency[i] = freq;
+            double omega = 2 * Math.PI * freq * direction;
+            boolean exact = trigPrecision == FastTrig.Precision.EXACT;
+            double pwmA;
+            double pwmB;
+            double pwmC;
+            if (exact) {
+                pwmA = 0.5 * (1 + Math.sin(omega * time));
+                pwmB = 0.5 * (1 + Math.sin(omega * time - 2 * Math.PI / 3));
+                pwmC = 0.5 * (1 + Math.sin(omega * time + 2 * Math.PI / 3));
+            } else {
+                double sin = trigPrecision.sin(omega * time);
+                double cos = trigPrecision.cos(omega * time);
+                pwmA = 0.5 * (1 + sin);
+                pwmB = 0.5 * (1 - 0.5 * sin - FastTrig.HALF_SQRT3 * cos);
+                pwmC = 0.5 * (1 - 0.5 * sin + FastTrig.HALF_SQRT3 * cos);
+            }
+            /// SVPWM
+            double deadTimeFactor = 1.0 - deadTime * pwmFrequency[i];
+            double modFactor = modulationIndex[i] * overmodulationFactor;
+            double vRef0 = 2.0 * pwmA - 1.0;
+            double vRef1 = 2.0 * pwmB - 1.0;
+            double vRef2 = 2.0 * pwmC - 1.0;
+            double vAlpha = (2.0 / 3.0) * (vRef0 - 0.5 * (vRef1 + vRef2));
+            double vBeta = (1.0 / Math.sqrt(3)) * (vRef1 - vRef2);
+            double T = 1.0 / pwmFrequency[i];
+            int sector;
+            double T1;
+            double T2;
+            if (exact) {
+                double vMag = Math.sqrt(vAlpha * vAlpha + vBeta * vBeta);
+                double theta = Math.atan2(vBeta, vAlpha);
+                sector = (int) Math.floor(theta / (Math.PI / 3.0)) % 6;
+                if (sector < 0) sector += 6;
+                double sectorAngle = theta - sector * Math.PI / 3.0;
+                double m = vMag * Math.sqrt(3) / dcLinkVoltage;
+                T1 = m * T * Math.sin(Math.PI / 3.0 - sectorAngle);
+                T2 = m * T * Math.sin(sectorAngle);
+            } else {
+                sector = InverterPowerStage.sector(vAlpha, vBeta);
+                double edgeCos = InverterPowerStage.SECTOR_COS[sector];
+                double edgeSin = InverterPowerStage.SECTOR_SIN[sector];
+                double a = vAlpha * edgeCos + vBeta * edgeSin;
+                double b = vBeta * edgeCos - vAlpha * edgeSin;
+                T1 = T / dcLinkVoltage * (1.5 * a - FastTrig.HALF_SQRT3 * b);
+                T2 = T / dcLinkVoltage * FastTrig.SQRT3 * b;
+            }
+            double T0 = T - T1 - T2;
+            double full = (T1 + T2 + T0 / 2) / T;
+            double second = (T2 + T0 / 2) / T;
+            double first = (T1 + T0 / 2) / T;
+            double zero = T0 / (2 * T);
+            double dutyA;
+            double dutyB;
+            double dutyC;
+            switch (sector) {
+                case 0: dutyA = full; dutyB = second; dutyC = zero; break;
+                case 1: dutyA = first; dutyB = full; dutyC = zero; break;
+                case 2: dutyA = zero; dutyB = full; dutyC = second; break;
+                case 3: dutyA = zero; dutyB = first; dutyC = full; break;
+                case 4: dutyA = second; dutyB = zero; dutyC = full; break;
+                default: dutyA = full; dutyB = zero; dutyC = first; break;
+            }
+            double va = dutyA * dcLinkVoltage * deadTimeFactor * modFactor;
+            double vb = dutyB * dcLinkVoltage * deadTimeFactor * modFactor;
+            double vc = dutyC * dcLinkVoltage * deadTimeFactor * modFactor;
+            /// Inverter thermal model
+            double switchingLosses = pwmFrequency[i] * 0.0001 * dcLinkVoltage;
+            double inverterT = inverterTemperature[i];
+            double hInv = Config.INVERTER_CONVECTION_BASE + Config.INVERTER_CONVECTION_FAN_COEFF * fanSpeed[i]
+                    + Config.INVERTER_CONVECTION_COOLANT_COEFF * coolantFlow[i];
+            double qConvInv = hInv * Config.INVERTER_SURFACE_AREA * (inverterT - Config.AMBIENT_TEMPERATURE);
+            double qRadInv = Config.INVERTER_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.INVERTER_SURFACE_AREA
+                    * (Math.pow(inverterT + 273.15, 4) - Math.pow(Config.AMBIENT_TEMPERATURE + 273.15, 4));
+            inverterT += (switchingLosses * Config.INVERTER_THERMAL_RESISTANCE
+                    - (qConvInv + qRadInv) / Config.INVERTER_THERMAL_CAPACITANCE) * DT;
+            if (inverterT < Config.AMBIENT_TEMPERATURE) inverterT = Config.AMBIENT_TEMPERATURE;
+            inverterTemperature[i] = inverterT;
+            /// Faults: overcurrent scales the voltages; an over-temperature warning replaces it
+            if ((motorTemperature[i] > maxTemp || inverterT > maxTemp) && faultCode[i] != FAULT_OVERHEAT) {
+                faultCode[i] = FAULT_OVERHEAT;
+                faultTime[i] = time;
+            }
+            if (autoReset && faultCode[i] != FAULT_NONE && time - faultTime[i] > AUTO_RESET_DELAY) {
+                faultCode[i] = FAULT_NONE;
+            }
+            if (faultCode[i] == FAULT_OVERCURRENT) {
+                va *= Config.OVERCURRENT_VOLTAGE_SCALE;
+                vb *= Config.OVERCURRENT_VOLTAGE_SCALE;
+                vc *= Config.OVERCURRENT_VOLTAGE_SCALE;
+            }
+            /// Current sensors
+            double ia = va / sensorImpedance;
+            ia += noiseA[i] * Config.SENSOR_NOISE_STDDEV * ia;
+            ia *= partialFailureScale;
+            double ib = vb / sensorImpedance;
+            ib += noiseB[i] * Config.SENSOR_NOISE_STDDEV * ib;
+            ib *= partialFailureScale;
+            double ic = vc / sensorImpedance;
+            ic += noiseC[i] * Config.SENSOR_NOISE_STDDEV * ic;
+            ic *= partialFailureScale;
+            /// Motor thermal model
+            double currentSquared = ia * ia + ib * ib + ic * ic;
+            double motorT = motorTemperature[i];
+            double hMotor = Config.MOTOR_CONVECTION_BASE + Config.MOTOR_CONVECTION_FAN_COEFF * fanSpeed[i]
+                    + Config.MOTOR_CONVECTION_COOLANT_COEFF * coolantFlow[i];
+            double qConvMotor = hMotor * Config.MOTOR_SURFACE_AREA * (motorT - Config.AMBIENT_TEMPERATURE);
+            double qRadMotor = Config.MOTOR_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.MOTOR_SURFACE_AREA
+                    * (Math.pow(motorT + 273.15, 4) - Math.pow(Config.AMBIENT_TEMPERATURE + 273.15, 4));
+            motorT += (currentSquared * resistance * Config.MOTOR_THERMAL_RESISTANCE
+                    - (qConvMotor + qRadMotor) / Config.MOTOR_THERMAL_CAPACITANCE) * DT;
+            if (motorT < Config.AMBIENT_TEMPERATURE) motorT = Config.AMBIENT_TEMPERATURE;
+            motorTemperature[i] = motorT;
+            /// Motor electromechanical model with constant load torque
+            double iq = (2.0 / 3.0) * (ia - 0.5 * (ib + ic));
+            double id = (1.0 / Math.sqrt(3)) * (ib - ic);
+            double flux = rotorFlux[i];
+            double tq = 1.5 * polePairs * flux * iq;
+            torque[i] = tq;
+            rotorFlux[i] = flux + DT * (-flux / inductance + id);
+            double w = speed[i];
+            double acceleration = (tq - 10.0 - viscousFriction * w - couplingStiffness * w * DT) / totalInertia;
+            w += acceleration * DT;
+            if (w < 0) w = 0;
+            speed[i] = w;
+            /// Objectives
+            powerLoss[i] += (switchingLosses + currentSquared * resistance) * DT;
+            peakTemperature[i] = Math.max(peakTemperature[i], Math.max(motorT, inverterT));
+            faultImpact[i] += Math.abs(w - speedRef) * DT;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package inverter_drive.simulation.software;
+
+/// What FaultSimulator does when the motor or inverter exceeds the maximum temperature
+public enum ProtectionMode {
+    /// Nothing
+    NONE("None"),
+    /// Raises the overheat fault, which auto-reset may clear
+    WARNING("Warning"),
+    /// Raises the overheat fault and cuts the inverter output while it is active
+    SHUTDOWN("Shutdown");
+
+    private final String label;
+
+    ProtectionMode(String label) {
+        this.label = label;
+    }
+
+    /// Name shown in the UI and fault campaign files
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static ProtectionMode fromLabel(String label) {
+        for (ProtectionMode mode : values()) {
+            if (mode.label.equals(label)) return mode;
+        }
+        throw new IllegalArgumentException("Unknown protection mode: " + label);
+    }
+}
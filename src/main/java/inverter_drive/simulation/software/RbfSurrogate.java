@@ -0,0 +1,156 @@
+package inverter_drive.simulation.software;
+
+/// Radial basis function interpolant of several objectives over a box-bounded parameter space:
+/// cubic kernel r^3 plus a linear polynomial tail, fitted on points normalized to the unit box.
+/// All objectives share one kernel matrix, factorized once per fit. A small ridge term keeps the system
+/// solvable when two training points nearly coincide. Not thread-safe.
+public class RbfSurrogate {
+    private static final double RIDGE = 1e-8;
+
+    private final double[] lower;
+    private final double[] scale;
+    private final int dimensions;
+    private final int outputs;
+    private double[][] centers = new double[0][];
+    /// weights[k][j]: kernel weights j < n, then the constant and linear tail coefficients
+    private double[][] weights = new double[0][];
+    private final double[] normalized;
+
+    public RbfSurrogate(double[] lowerBounds, double[] upperBounds, int outputs) {
+        this.dimensions = lowerBounds.length;
+        this.outputs = outputs;
+        this.lower = lowerBounds.clone();
+        this.scale = new double[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            double range = upperBounds[d] - lowerBounds[d];
+            scale[d] = range > 0 ? 1.0 / range : 1.0;
+        }
+        this.normalized = new double[dimensions];
+    }
+
+    /// Interpolates values[i][k] at points[i]; needs at least dimensions + 1 points
+    public void fit(double[][] points, double[][] values) {
+        int n = points.length;
+        if (n < dimensions + 1) {
+            throw new IllegalArgumentException("Need at least " + (dimensions + 1) + " points, got " + n);
+        }
+        centers = new double[n][];
+        for (int i = 0; i < n; i++) {
+            centers[i] = normalize(points[i], new double[dimensions]);
+        }
+        int size = n + dimensions + 1;
+        double[][] a = new double[size][size];
+        double[][] b = new double[size][outputs];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                a[i][j] = kernel(centers[i], centers[j]);
+            }
+            a[i][i] += RIDGE;
+            a[i][n] = 1.0;
+            a[n][i] = 1.0;
+            for (int d = 0; d < dimensions; d++) {
+                a[i][n + 1 + d] = centers[i][d];
+                a[n + 1 + d][i] = centers[i][d];
+            }
+            System.arraycopy(values[i], 0, b[i], 0, outputs);
+        }
+        solve(a, b);
+        weights = new double[outputs][size];
+        for (int k = 0; k < outputs; k++) {
+            for (int j = 0; j < size; j++) {
+                weights[k][j] = b[j][k];
+            }
+        }
+    }
+
+    public int getTrainingSize() {
+        return centers.length;
+    }
+
+    /// Writes the predicted objectives at point into out and returns it
+    public double[] predict(double[] point, double[] out) {
+        double[] x = normalize(point, normalized);
+        int n = centers.length;
+        for (int k = 0; k < outputs; k++) {
+            double[] w = weights[k];
+            double sum = w[n];
+            for (int d = 0; d < dimensions; d++) {
+                sum += w[n + 1 + d] * x[d];
+            }
+            out[k] = sum;
+        }
+        for (int j = 0; j < n; j++) {
+            double phi = kernel(x, centers[j]);
+            for (int k = 0; k < outputs; k++) {
+                out[k] += weights[k][j] * phi;
+            }
+        }
+        return out;
+    }
+
+    /// Distance in the unit box to the nearest training point; the surrogate's uncertainty proxy
+    public double distanceToNearest(double[] point) {
+        double[] x = normalize(point, normalized);
+        double best = Double.POSITIVE_INFINITY;
+        for (double[] c : centers) {
+            double sum = 0.0;
+            for (int d = 0; d < dimensions; d++) {
+                double diff = x[d] - c[d];
+                sum += diff * diff;
+            }
+            best = Math.min(best, sum);
+        }
+        return Math.sqrt(best);
+    }
+
+    private double[] normalize(double[] point, double[] out) {
+        for (int d = 0; d < dimensions; d++) {
+            out[d] = (point[d] - lower[d]) * scale[d];
+        }
+        return out;
+    }
+
+    private double kernel(double[] x, double[] y) {
+        double sum = 0.0;
+        for (int d = 0; d < dimensions; d++) {
+            double diff = x[d] - y[d];
+            sum += diff * diff;
+        }
+        double r = Math.sqrt(sum);
+        return r * r * r;
+    }
+
+    /// Gaussian elimination with partial pivoting; overwrites b with the solution of a x = b
+    private static void solve(double[][] a, double[][] b) {
+        int size = a.length;
+        int columns = b[0].length;
+        for (int col = 0; col < size; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < size; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) pivot = row;
+            }
+            if (a[pivot][col] == 0.0) {
+                throw new IllegalStateException("Singular RBF system; training points are degenerate");
+            }
+            double[] swap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = swap;
+            swap = b[col];
+            b[col] = b[pivot];
+            b[pivot] = swap;
+            for (int row = col + 1; row < size; row++) {
+                double factor = a[row][col] / a[col][col];
+                if (factor == 0.0) continue;
+                for (int k = col; k < size; k++) a[row][k] -= factor * a[col][k];
+                for (int k = 0; k < columns; k++) b[row][k] -= factor * b[col][k];
+            }
+        }
+        for (int row = size - 1; row >= 0; row--) {
+            for (int k = 0; k < columns; k++) {
+                double sum = b[row][k];
+                for (int j = row + 1; j < size; j++) sum -= a[row][j] * b[j][k];
+                b[row][k] = sum / a[row][row];
+            }
+        }
+    }
+}
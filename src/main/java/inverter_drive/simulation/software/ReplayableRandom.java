@@ -0,0 +1,63 @@
+package inverter_drive.simulation.software;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/// The optimizer's random stream, with a position that can be saved. Every value comes from nextLong or
+/// nextInt of the underlying generator; the other methods are RandomGenerator's defaults built on those two,
+/// which is also how SplittableRandom derives them, so wrapping changes no value. Each of the two calls
+/// advances a SplittableRandom by exactly one step and is counted, so a stream created from a seed is fully
+/// described by the seed and the draw count, and replay recreates it at the same position.
+final class ReplayableRandom implements RandomGenerator {
+    private final RandomGenerator source;
+    private final long seed;
+    private final boolean seeded;
+    private long draws;
+
+    ReplayableRandom(long seed) {
+        this.source = new SplittableRandom(seed);
+        this.seed = seed;
+        this.seeded = true;
+    }
+
+    /// A stream without a known seed; it cannot be saved
+    ReplayableRandom(RandomGenerator source) {
+        this.source = source;
+        this.seed = 0L;
+        this.seeded = false;
+    }
+
+    /// The stream of seed after draws values have been taken from it
+    static ReplayableRandom replay(long seed, long draws) {
+        ReplayableRandom random = new ReplayableRandom(seed);
+        for (long i = 0; i < draws; i++) {
+            random.source.nextLong();
+        }
+        random.draws = draws;
+        return random;
+    }
+
+    @Override
+    public long nextLong() {
+        draws++;
+        return source.nextLong();
+    }
+
+    @Override
+    public int nextInt() {
+        draws++;
+        return source.nextInt();
+    }
+
+    boolean isSeeded() {
+        return seeded;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    long getDraws() {
+        return draws;
+    }
+}
@@ -0,0 +1,46 @@
+package inverter_drive.simulation.software;
+
+/// Classic fourth-order Runge–Kutta, one step of size h per call
+public class RungeKutta4 implements OdeIntegrator {
+    private double[] k1 = new double[0];
+    private double[] k2 = new double[0];
+    private double[] k3 = new double[0];
+    private double[] k4 = new double[0];
+    private double[] stage = new double[0];
+    private long evaluations = 0;
+    private long steps = 0;
+
+    @Override
+    public void integrate(OdeSystem system, double t, double[] y, double h) {
+        int n = y.length;
+        if (k1.length != n) {
+            k1 = new double[n];
+            k2 = new double[n];
+            k3 = new double[n];
+            k4 = new double[n];
+            stage = new double[n];
+        }
+        system.derivatives(t, y, k1);
+        for (int i = 0; i < n; i++) stage[i] = y[i] + 0.5 * h * k1[i];
+        system.derivatives(t + 0.5 * h, stage, k2);
+        for (int i = 0; i < n; i++) stage[i] = y[i] + 0.5 * h * k2[i];
+        system.derivatives(t + 0.5 * h, stage, k3);
+        for (int i = 0; i < n; i++) stage[i] = y[i] + h * k3[i];
+        system.derivatives(t + h, stage, k4);
+        for (int i = 0; i < n; i++) {
+            y[i] += h / 6.0 * (k1[i] + 2.0 * k2[i] + 2.0 * k3[i] + k4[i]);
+        }
+        evaluations += 4;
+        steps++;
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    @Override
+    public long getSteps() {
+        return steps;
+    }
+}
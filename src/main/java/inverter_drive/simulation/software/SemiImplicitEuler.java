@@ -0,0 +1,54 @@
+package inverter_drive.simulation.software;
+
+/// Linearly implicit (Rosenbrock–Euler) step with the Jacobian diagonal estimated by finite differences:
+/// y_i += h * f_i / (1 - h * J_ii). Exact implicit Euler for a linear decay such as the rotor flux
+/// equation, so stiff states stay stable at steps far beyond their time constant. Off-diagonal coupling
+/// is treated explicitly. Costs n + 1 derivative evaluations per call.
+public class SemiImplicitEuler implements OdeIntegrator {
+    private static final double PERTURBATION = 1.4901161193847656E-8; // sqrt(machine epsilon)
+
+    private double[] f0 = new double[0];
+    private double[] f1 = new double[0];
+    private double[] perturbed = new double[0];
+    private double[] slope = new double[0];
+    private long evaluations = 0;
+    private long steps = 0;
+
+    @Override
+    public void integrate(OdeSystem system, double t, double[] y, double h) {
+        int n = y.length;
+        if (f0.length != n) {
+            f0 = new double[n];
+            f1 = new double[n];
+            perturbed = new double[n];
+            slope = new double[n];
+        }
+        system.derivatives(t, y, f0);
+        System.arraycopy(y, 0, perturbed, 0, n);
+        for (int i = 0; i < n; i++) {
+            double delta = PERTURBATION * Math.max(1.0, Math.abs(y[i]));
+            perturbed[i] = y[i] + delta;
+            system.derivatives(t, perturbed, f1);
+            perturbed[i] = y[i];
+            double jacobian = (f1[i] - f0[i]) / delta;
+            /// Only damp: a positive diagonal (growing mode) is integrated explicitly
+            double denominator = 1.0 - h * Math.min(0.0, jacobian);
+            slope[i] = f0[i] / denominator;
+        }
+        for (int i = 0; i < n; i++) {
+            y[i] += h * slope[i];
+        }
+        evaluations += n + 1;
+        steps++;
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    @Override
+    public long getSteps() {
+        return steps;
+    }
+}
@@ -1,13 +1,47 @@
 package inverter_drive.simulation.software;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 public class SensorModel {
     private boolean currentSensorFault = false;
     private double partialFailureScale = 1.0;
-    private final Random random = new Random();
+    private final RandomGenerator random;
+
+    public SensorModel() {
+        this(new SplittableRandom());
+    }
+
+    public SensorModel(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /// Draws its noise from random, which must not be shared with another thread
+    public SensorModel(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /// Creates a sensor model with the template's fault settings and its own seeded noise source
+    public SensorModel(SensorModel template, long seed) {
+        this(template, new SplittableRandom(seed));
+    }
+
+    /// Creates a sensor model with the template's fault settings and the given noise source
+    public SensorModel(SensorModel template, RandomGenerator random) {
+        this(random);
+        this.currentSensorFault = template.currentSensorFault;
+        this.partialFailureScale = template.partialFailureScale;
+    }
+
     public double[] measureCurrents(double[] phaseVoltages, InductionMotor motor) {
-        double[] currents = new double[3];
-        if (!currentSensorFault) {
+        return measureCurrents(phaseVoltages, motor, new double[3]);
+    }
+    /// Writes the measured currents into currents and returns it; allocates nothing
+    public double[] measureCurrents(double[] phaseVoltages, InductionMotor motor, double[] currents) {
+        if (currentSensorFault) {
+            currents[0] = 0;
+            currents[1] = 0;
+            currents[2] = 0;
+        } else {
             for (int i = 0; i < 3; i++) {
                 currents[i] = phaseVoltages[i] / (motor.getResistance() + motor.getInductance() * 0.1);
                 /// Add Gaussian noise
@@ -24,4 +58,10 @@ public class SensorModel {
     public void setPartialFailureScale(double scale) {
         this.partialFailureScale = Math.max(0.0, Math.min(1.0, scale));
     }
+    public boolean isCurrentSensorFault() {
+        return currentSensorFault;
+    }
+    public double getPartialFailureScale() {
+        return partialFailureScale;
+    }
 }
\ No newline at end of file
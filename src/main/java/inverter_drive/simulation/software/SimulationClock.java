@@ -0,0 +1,144 @@
+package inverter_drive.simulation.software;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Decides how many simulation steps the engine runs per wall-clock tick, and measures what it achieves.
+/// Mode, ratio and single-step requests may be set from any thread; stepsDue and update are called by the
+/// engine thread only.
+public class SimulationClock {
+    public enum Mode {
+        /// As many steps as possible, no pacing
+        FREE_RUNNING,
+        /// Simulated time advances at realTimeRatio times wall time (1.0 = real time)
+        REAL_TIME_RATIO,
+        /// Only the steps requested through requestSteps are run
+        SINGLE_STEP
+    }
+
+    static final long STEP_NANOS = (long) (Config.SIMULATION_TIME_STEP * 1e9);
+    /// Upper bound on one batch; also how far the paced modes may fall behind before the backlog is dropped
+    static final int MAX_STEPS_PER_BATCH = 10000;
+    /// Batch size in FREE_RUNNING mode, small enough that commands and parameters are picked up promptly
+    static final int FREE_RUNNING_BATCH = 1000;
+    private static final long STATS_WINDOW_NANOS = 500_000_000L;
+
+    private volatile Mode mode = Mode.REAL_TIME_RATIO;
+    private volatile double realTimeRatio = 1.0;
+    private final AtomicLong requestedSteps = new AtomicLong();
+    /// Pacing anchor, engine thread only; reset whenever the mode or ratio changes
+    private Mode anchoredMode;
+    private double anchoredRatio;
+    private long anchorNanos;
+    private long anchorStep;
+    /// Statistics, written by the engine thread
+    private long windowStartNanos;
+    private long windowStartStep;
+    private volatile double stepsPerSecond;
+    private volatile double lagSeconds;
+    private volatile long droppedSteps;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public double getRealTimeRatio() {
+        return realTimeRatio;
+    }
+
+    /// Simulated seconds per wall-clock second in REAL_TIME_RATIO mode, e.g. 0.1, 1 or 10
+    public void setRealTimeRatio(double realTimeRatio) {
+        if (!(realTimeRatio > 0) || Double.isInfinite(realTimeRatio)) {
+            throw new IllegalArgumentException("Real-time ratio must be a positive number");
+        }
+        this.realTimeRatio = realTimeRatio;
+    }
+
+    /// Queues steps for SINGLE_STEP mode
+    public void requestSteps(long steps) {
+        if (steps > 0) {
+            requestedSteps.addAndGet(steps);
+        }
+    }
+
+    /// Achieved simulation steps per wall-clock second, averaged over the last half second
+    public double getStepsPerSecond() {
+        return stepsPerSecond;
+    }
+
+    /// Achieved simulated seconds per wall-clock second
+    public double getAchievedRatio() {
+        return stepsPerSecond * Config.SIMULATION_TIME_STEP;
+    }
+
+    /// Wall-clock seconds the engine was behind the REAL_TIME_RATIO schedule at the start of its last batch
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    /// Steps skipped because the engine fell more than MAX_STEPS_PER_BATCH behind the REAL_TIME_RATIO schedule
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /// Forgets the pacing anchor and statistics; called by the engine when its thread starts
+    void reset(long nowNanos, long stepCount) {
+        anchoredMode = null;
+        windowStartNanos = nowNanos;
+        windowStartStep = stepCount;
+        stepsPerSecond = 0;
+        lagSeconds = 0;
+    }
+
+    /// Steps the engine should run now; zero means wait for the next tick
+    long stepsDue(long nowNanos, long stepCount) {
+        Mode currentMode = mode;
+        double ratio = realTimeRatio;
+        if (currentMode != anchoredMode || ratio != anchoredRatio) {
+            anchoredMode = currentMode;
+            anchoredRatio = ratio;
+            anchorNanos = nowNanos;
+            anchorStep = stepCount;
+        }
+        switch (currentMode) {
+            case FREE_RUNNING:
+                lagSeconds = 0;
+                return FREE_RUNNING_BATCH;
+            case SINGLE_STEP: {
+                lagSeconds = 0;
+                long requested;
+                long granted;
+                do {
+                    requested = requestedSteps.get();
+                    granted = Math.min(requested, MAX_STEPS_PER_BATCH);
+                } while (granted > 0 && !requestedSteps.compareAndSet(requested, requested - granted));
+                return granted;
+            }
+            default: {
+                long target = anchorStep + (long) ((nowNanos - anchorNanos) * ratio / STEP_NANOS);
+                long due = target - stepCount;
+                lagSeconds = Math.max(0, due - 1) * Config.SIMULATION_TIME_STEP / ratio;
+                if (due > MAX_STEPS_PER_BATCH) {
+                    /// Too far behind wall clock; drop the backlog instead of letting it grow
+                    droppedSteps += due - MAX_STEPS_PER_BATCH;
+                    anchorStep -= due - MAX_STEPS_PER_BATCH;
+                    due = MAX_STEPS_PER_BATCH;
+                }
+                return Math.max(0, due);
+            }
+        }
+    }
+
+    /// Updates the throughput statistics after a batch
+    void update(long nowNanos, long stepCount) {
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed >= STATS_WINDOW_NANOS) {
+            stepsPerSecond = (stepCount - windowStartStep) * 1e9 / elapsed;
+            windowStartNanos = nowNanos;
+            windowStartStep = stepCount;
+        }
+    }
+}
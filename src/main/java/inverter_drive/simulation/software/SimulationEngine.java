@@ -0,0 +1,170 @@
+package inverter_drive.simulation.software;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/// Runs the VfController → InverterPowerStage → FaultSimulator → SensorModel → InductionMotor pipeline
+/// on its own thread, independent of the JavaFX application thread.
+/// Settings arrive as immutable SimulationParameters snapshots, discrete operator actions (fault inject/clear)
+/// are queued as commands, and the drive state is published as SimulationState for the UI to sample.
+/// How fast the thread steps is decided by a SimulationClock: free-running, a fixed real-time ratio, or single steps.
+public class SimulationEngine {
+    /// Wall-clock tick of the paced modes; each tick runs however many steps the clock says are due
+    private static final long IDLE_PARK_NANOS = 200_000;
+
+    private final DriveSystem drive;
+    private final DataLogger dataLogger;
+    private volatile WaveformVisualizer visualizer;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final SimulationClock clock = new SimulationClock();
+    private volatile SimulationParameters parameters;
+    private volatile SimulationState state;
+    private volatile boolean running = false;
+    private SimulationParameters appliedParameters;
+    private Thread thread;
+    private double simulationTime = 0.0;
+    private long stepCount = 0;
+
+    public SimulationEngine(DriveSystem drive, DataLogger dataLogger, SimulationParameters parameters) {
+        this.drive = drive;
+        this.dataLogger = dataLogger;
+        this.parameters = parameters;
+        publishState();
+    }
+
+    /// Called by the UI whenever a control changes; picked up by the engine before its next step
+    public void publishParameters(SimulationParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /// Receives every step's voltages, currents and speed; null detaches it
+    public void setVisualizer(WaveformVisualizer visualizer) {
+        this.visualizer = visualizer;
+    }
+
+    public SimulationParameters getParameters() {
+        return parameters;
+    }
+
+    public void injectFault(FaultMode faultType) {
+        commands.add(() -> drive.getFaultSimulator().injectFault(faultType));
+    }
+
+    public void clearFault() {
+        commands.add(() -> drive.getFaultSimulator().clearFault());
+    }
+
+    /// Replaces the fault timeline; event times are absolute simulated seconds, as shown in SimulationState
+    public void setFaultSchedule(FaultSchedule schedule) {
+        commands.add(() -> drive.getFaultSimulator().setSchedule(schedule));
+    }
+
+    /// Latest published drive state; safe to call from any thread
+    public SimulationState getState() {
+        return state;
+    }
+
+    public DriveSystem getDrive() {
+        return drive;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /// Pacing mode, real-time ratio, single-step requests and achieved steps/sec and lag
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /// In SINGLE_STEP mode, runs the given number of steps on the engine thread
+    public void singleStep(long steps) {
+        clock.requestSteps(steps);
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /// Starts stepping on a dedicated thread, paced by the clock; paced modes catch up in batches when behind
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::runClocked, "simulation-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /// Headless batch mode: advances the drive as fast as possible on the calling thread
+    public synchronized void runSteps(long steps) {
+        if (running) {
+            throw new IllegalStateException("Engine is already running in real time");
+        }
+        for (long i = 0; i < steps; i++) {
+            step();
+        }
+        publishState();
+    }
+
+    private void runClocked() {
+        clock.reset(System.nanoTime(), stepCount);
+        while (running) {
+            long due = clock.stepsDue(System.nanoTime(), stepCount);
+            if (due <= 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                clock.update(System.nanoTime(), stepCount);
+                continue;
+            }
+            for (long i = 0; i < due && running; i++) {
+                step();
+            }
+            publishState();
+            clock.update(System.nanoTime(), stepCount);
+        }
+    }
+
+    private void step() {
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+        }
+        SimulationParameters p = parameters;
+        if (p != appliedParameters) {
+            drive.apply(p);
+            appliedParameters = p;
+        }
+        drive.step(p, simulationTime);
+        InductionMotor motor = drive.getMotor();
+        if (dataLogger != null) {
+            dataLogger.logData(simulationTime, drive.getPhaseVoltages(), drive.getPhaseCurrents(),
+                    motor.getSpeed(), motor.getTorque(), p.controlMode.toString(),
+                    drive.getFaultSimulator().getCurrentFault().toString());
+        }
+        WaveformVisualizer visualizer = this.visualizer;
+        if (visualizer != null) {
+            visualizer.ingest(drive.getPhaseVoltages(), drive.getPhaseCurrents(), motor.getSpeed());
+        }
+        simulationTime += Config.SIMULATION_TIME_STEP;
+        stepCount++;
+    }
+
+    private void publishState() {
+        InductionMotor motor = drive.getMotor();
+        state = new SimulationState(simulationTime, stepCount, motor.getSpeed(), motor.getTorque(),
+                motor.getTemperature(), drive.getInverter().getTemperature(),
+                drive.getFaultSimulator().getCurrentFault(), drive.getPhaseVoltages(), drive.getPhaseCurrents());
+    }
+}
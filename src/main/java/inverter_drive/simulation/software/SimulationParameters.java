@@ -0,0 +1,277 @@
+package inverter_drive.simulation.software;
+
+/// Immutable snapshot of every operator setting the simulation reads.
+/// The UI publishes a new instance only when a control changes; the engine never sees a half-updated set.
+/// Modes are enums, so the per-step code dispatches on constants and never compares strings.
+public final class SimulationParameters {
+    /// Controller
+    public final ControlStrategy controlMode;
+    public final double speedRef;
+    public final double torqueRef;
+    public final double fluxRef;
+    public final double accelRate;
+    public final double direction;
+    public final double kp;
+    public final double ki;
+    /// Power stage
+    public final double dcLinkVoltage;
+    public final double pwmFrequency; // Hz
+    public final double deadTime; // s
+    public final double modulationIndex;
+    public final boolean harmonicInjection;
+    public final boolean overmodulation;
+    public final ModulationStrategy pwmType;
+    /// Thermal and protection
+    public final double fanSpeed; // 0–1
+    public final double coolantFlow; // L/min
+    public final double maxTemp; // °C
+    public final ProtectionMode protectionMode;
+    public final boolean autoReset;
+    /// Motor and load
+    public final double ratedVoltage;
+    public final double ratedPower;
+    public final int polePairs;
+    public final double resistance;
+    public final double inductance;
+    public final LoadModel loadType;
+    public final double loadInertia;
+    public final double damping;
+    public final double shaftInertia;
+    public final double friction;
+    public final double tempCoefficient;
+    public final double couplingStiffness;
+    /// Multi-rate integration: the electrical subsystem always runs at SIMULATION_TIME_STEP, the mechanical
+    /// and thermal subsystems every mechanicalInterval and thermalInterval electrical steps
+    public final double mechanicalTimeStep; // s
+    public final double thermalTimeStep; // s
+    public final int mechanicalInterval;
+    public final int thermalInterval;
+    /// Integration method for the continuous states of the motor and inverter models
+    public final OdeIntegrator.Method integrator;
+    /// Accuracy of the sines and cosines in control and modulation
+    public final FastTrig.Precision trigPrecision;
+
+    private SimulationParameters(Builder b) {
+        this.controlMode = b.controlMode;
+        this.speedRef = b.speedRef;
+        this.torqueRef = b.torqueRef;
+        this.fluxRef = b.fluxRef;
+        this.accelRate = b.accelRate;
+        this.direction = b.direction;
+        this.kp = b.kp;
+        this.ki = b.ki;
+        this.dcLinkVoltage = b.dcLinkVoltage;
+        this.pwmFrequency = b.pwmFrequency;
+        this.deadTime = b.deadTime;
+        this.modulationIndex = b.modulationIndex;
+        this.harmonicInjection = b.harmonicInjection;
+        this.overmodulation = b.overmodulation;
+        this.pwmType = b.pwmType;
+        this.fanSpeed = b.fanSpeed;
+        this.coolantFlow = b.coolantFlow;
+        this.maxTemp = b.maxTemp;
+        this.protectionMode = b.protectionMode;
+        this.autoReset = b.autoReset;
+        this.ratedVoltage = b.ratedVoltage;
+        this.ratedPower = b.ratedPower;
+        this.polePairs = b.polePairs;
+        this.resistance = b.resistance;
+        this.inductance = b.inductance;
+        this.loadType = b.loadType;
+        this.loadInertia = b.loadInertia;
+        this.damping = b.damping;
+        this.shaftInertia = b.shaftInertia;
+        this.friction = b.friction;
+        this.tempCoefficient = b.tempCoefficient;
+        this.couplingStiffness = b.couplingStiffness;
+        this.mechanicalInterval = interval(b.mechanicalTimeStep);
+        this.thermalInterval = interval(b.thermalTimeStep);
+        this.mechanicalTimeStep = mechanicalInterval * Config.SIMULATION_TIME_STEP;
+        this.thermalTimeStep = thermalInterval * Config.SIMULATION_TIME_STEP;
+        this.integrator = b.integrator;
+        this.trigPrecision = b.trigPrecision;
+        checkStability("Mechanical", mechanicalTimeStep, mechanicalRate());
+        checkStability("Thermal", thermalTimeStep, Math.max(
+                thermalRate(Config.MOTOR_CONVECTION_BASE, Config.MOTOR_CONVECTION_FAN_COEFF,
+                        Config.MOTOR_CONVECTION_COOLANT_COEFF, Config.MOTOR_SURFACE_AREA, Config.MOTOR_EMISSIVITY,
+                        Config.MOTOR_THERMAL_CAPACITANCE),
+                thermalRate(Config.INVERTER_CONVECTION_BASE, Config.INVERTER_CONVECTION_FAN_COEFF,
+                        Config.INVERTER_CONVECTION_COOLANT_COEFF, Config.INVERTER_SURFACE_AREA,
+                        Config.INVERTER_EMISSIVITY, Config.INVERTER_THERMAL_CAPACITANCE)));
+    }
+
+    private void checkStability(String subsystem, double timeStep, double decayRate) {
+        if (timeStep * decayRate > integrator.stabilityLimit()) {
+            throw new IllegalArgumentException(String.format(
+                    "%s step of %.4g s is unstable with %s; at most %.4g s", subsystem, timeStep, integrator,
+                    integrator.stabilityLimit() / decayRate));
+        }
+    }
+
+    /// Decay rate of the shaft speed: damping, friction, coupling and the load's slope at the reference speed
+    private double mechanicalRate() {
+        double slope = loadType.slope(Math.abs(speedRef));
+        return (damping + friction + couplingStiffness * Config.SIMULATION_TIME_STEP + slope)
+                / (loadInertia + shaftInertia);
+    }
+
+    /// Decay rate of a temperature: convection at the scenario's cooling plus radiation linearized at maxTemp
+    private double thermalRate(double convectionBase, double fanCoefficient, double coolantCoefficient,
+                               double area, double emissivity, double capacitance) {
+        double h = convectionBase + fanCoefficient * fanSpeed + coolantCoefficient * coolantFlow;
+        double kelvin = Math.max(maxTemp, Config.AMBIENT_TEMPERATURE) + 273.15;
+        double radiation = 4 * emissivity * Config.STEFAN_BOLTZMANN * kelvin * kelvin * kelvin;
+        return (h + radiation) * area / capacitance;
+    }
+
+    /// Nearest whole number of electrical steps, at least one
+    private static int interval(double timeStep) {
+        if (!(timeStep > Config.SIMULATION_TIME_STEP)) return 1;
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(timeStep / Config.SIMULATION_TIME_STEP));
+    }
+
+    /// Defaults match the initial values of the UI controls
+    public static class Builder {
+        private ControlStrategy controlMode = ControlStrategy.V_F;
+        private double speedRef = 100.0;
+        private double torqueRef = 50.0;
+        private double fluxRef = 1.0;
+        private double accelRate = 10.0;
+        private double direction = 1.0;
+        private double kp = 0.1;
+        private double ki = 0.01;
+        private double dcLinkVoltage = 400.0;
+        private double pwmFrequency = 10000.0;
+        private double deadTime = 1e-6;
+        private double modulationIndex = 0.8;
+        private boolean harmonicInjection = false;
+        private boolean overmodulation = false;
+        private ModulationStrategy pwmType = ModulationStrategy.SPWM;
+        private double fanSpeed = 0.5;
+        private double coolantFlow = 5.0;
+        private double maxTemp = 150.0;
+        private ProtectionMode protectionMode = ProtectionMode.WARNING;
+        private boolean autoReset = false;
+        private double ratedVoltage = 230.0;
+        private double ratedPower = 5.0;
+        private int polePairs = 2;
+        private double resistance = 0.5;
+        private double inductance = 0.01;
+        private LoadModel loadType = LoadModel.CONSTANT;
+        private double loadInertia = 0.1;
+        private double damping = 0.01;
+        private double shaftInertia = 0.05;
+        private double friction = 0.01;
+        private double tempCoefficient = 0.005;
+        private double couplingStiffness = 5000;
+        private double mechanicalTimeStep = Config.SIMULATION_TIME_STEP;
+        private double thermalTimeStep = Config.SIMULATION_TIME_STEP;
+        private OdeIntegrator.Method integrator = OdeIntegrator.Method.FORWARD_EULER;
+        private FastTrig.Precision trigPrecision = FastTrig.Precision.EXACT;
+
+        public Builder() {
+        }
+
+        /// Starts from every setting of an existing snapshot
+        public Builder(SimulationParameters source) {
+            control(source.controlMode, source.speedRef, source.torqueRef, source.fluxRef, source.accelRate,
+                    source.direction);
+            gains(source.kp, source.ki);
+            powerStage(source.dcLinkVoltage, source.pwmFrequency, source.deadTime, source.modulationIndex,
+                    source.harmonicInjection, source.overmodulation, source.pwmType);
+            thermal(source.fanSpeed, source.coolantFlow, source.maxTemp, source.protectionMode, source.autoReset);
+            motor(source.ratedVoltage, source.ratedPower, source.polePairs, source.resistance, source.inductance,
+                    source.loadType, source.loadInertia, source.damping, source.shaftInertia, source.friction,
+                    source.tempCoefficient, source.couplingStiffness);
+            timeSteps(source.mechanicalTimeStep, source.thermalTimeStep);
+            integrator(source.integrator);
+            trigPrecision(source.trigPrecision);
+        }
+
+        public Builder control(ControlStrategy controlMode, double speedRef, double torqueRef, double fluxRef,
+                               double accelRate, double direction) {
+            this.controlMode = controlMode;
+            this.speedRef = speedRef;
+            this.torqueRef = torqueRef;
+            this.fluxRef = fluxRef;
+            this.accelRate = accelRate;
+            this.direction = direction;
+            return this;
+        }
+
+        public Builder gains(double kp, double ki) {
+            this.kp = kp;
+            this.ki = ki;
+            return this;
+        }
+
+        public Builder powerStage(double dcLinkVoltage, double pwmFrequency, double deadTime, double modulationIndex,
+                                  boolean harmonicInjection, boolean overmodulation,
+                                  ModulationStrategy pwmType) {
+            this.dcLinkVoltage = dcLinkVoltage;
+            this.pwmFrequency = pwmFrequency;
+            this.deadTime = deadTime;
+            this.modulationIndex = modulationIndex;
+            this.harmonicInjection = harmonicInjection;
+            this.overmodulation = overmodulation;
+            this.pwmType = pwmType;
+            return this;
+        }
+
+        public Builder pwmType(ModulationStrategy pwmType) {
+            this.pwmType = pwmType;
+            return this;
+        }
+
+        public Builder thermal(double fanSpeed, double coolantFlow, double maxTemp,
+                               ProtectionMode protectionMode, boolean autoReset) {
+            this.fanSpeed = fanSpeed;
+            this.coolantFlow = coolantFlow;
+            this.maxTemp = maxTemp;
+            this.protectionMode = protectionMode;
+            this.autoReset = autoReset;
+            return this;
+        }
+
+        public Builder motor(double ratedVoltage, double ratedPower, int polePairs,
+                             double resistance, double inductance, LoadModel loadType,
+                             double loadInertia, double damping, double shaftInertia,
+                             double friction, double tempCoefficient, double couplingStiffness) {
+            this.ratedVoltage = ratedVoltage;
+            this.ratedPower = ratedPower;
+            this.polePairs = polePairs;
+            this.resistance = resistance;
+            this.inductance = inductance;
+            this.loadType = loadType;
+            this.loadInertia = loadInertia;
+            this.damping = damping;
+            this.shaftInertia = shaftInertia;
+            this.friction = friction;
+            this.tempCoefficient = tempCoefficient;
+            this.couplingStiffness = couplingStiffness;
+            return this;
+        }
+
+        /// Rounded to whole multiples of SIMULATION_TIME_STEP; anything shorter runs every step. build() rejects
+        /// steps at which the chosen integrator would be unstable.
+        public Builder timeSteps(double mechanicalTimeStep, double thermalTimeStep) {
+            this.mechanicalTimeStep = mechanicalTimeStep;
+            this.thermalTimeStep = thermalTimeStep;
+            return this;
+        }
+
+        public Builder integrator(OdeIntegrator.Method integrator) {
+            this.integrator = integrator;
+            return this;
+        }
+
+        public Builder trigPrecision(FastTrig.Precision trigPrecision) {
+            this.trigPrecision = trigPrecision;
+            return this;
+        }
+
+        public SimulationParameters build() {
+            return new SimulationParameters(this);
+        }
+    }
+}
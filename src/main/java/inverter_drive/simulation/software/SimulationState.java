@@ -0,0 +1,36 @@
+package inverter_drive.simulation.software;
+
+/// Immutable view of the drive published by the simulation engine for display-rate sampling
+public final class SimulationState {
+    public final double time;
+    public final long stepCount;
+    public final double speed;
+    public final double torque;
+    public final double motorTemperature;
+    public final double inverterTemperature;
+    public final FaultMode fault;
+    private final double[] voltages;
+    private final double[] currents;
+
+    public SimulationState(double time, long stepCount, double speed, double torque,
+                           double motorTemperature, double inverterTemperature, FaultMode fault,
+                           double[] voltages, double[] currents) {
+        this.time = time;
+        this.stepCount = stepCount;
+        this.speed = speed;
+        this.torque = torque;
+        this.motorTemperature = motorTemperature;
+        this.inverterTemperature = inverterTemperature;
+        this.fault = fault;
+        this.voltages = voltages.clone();
+        this.currents = currents.clone();
+    }
+
+    public double[] getVoltages() {
+        return voltages.clone();
+    }
+
+    public double[] getCurrents() {
+        return currents.clone();
+    }
+}
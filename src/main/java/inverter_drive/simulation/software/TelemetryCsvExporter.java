@@ -0,0 +1,46 @@
+package inverter_drive.simulation.software;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/// Offline conversion of a TelemetryLog file to the CSV layout the data logger used to write.
+/// Usage: TelemetryCsvExporter <log file> <csv file>
+public class TelemetryCsvExporter {
+    public static final String CSV_HEADER = "Time,Va,Vb,Vc,Ia,Ib,Ic,Speed,Torque,ControlMode,Fault\n";
+
+    private TelemetryCsvExporter() {
+    }
+
+    /// Writes every sample of the log to csvFile, replacing it; returns the number of rows written
+    public static long export(Path logFile, Path csvFile) throws IOException {
+        long rows = 0;
+        try (TelemetryLogReader reader = new TelemetryLogReader(logFile);
+             BufferedWriter writer = Files.newBufferedWriter(csvFile)) {
+            writer.write(CSV_HEADER);
+            while (reader.nextBlock()) {
+                for (int i = 0; i < reader.getSampleCount(); i++) {
+                    writer.write(String.format("%.3f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%s,%s\n",
+                            reader.get(TelemetryLog.TIME, i),
+                            reader.get(TelemetryLog.VA, i), reader.get(TelemetryLog.VB, i), reader.get(TelemetryLog.VC, i),
+                            reader.get(TelemetryLog.IA, i), reader.get(TelemetryLog.IB, i), reader.get(TelemetryLog.IC, i),
+                            reader.get(TelemetryLog.SPEED, i), reader.get(TelemetryLog.TORQUE, i),
+                            reader.getControlMode(i), reader.getFault(i)));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TelemetryCsvExporter <log file> <csv file>");
+            System.exit(2);
+        }
+        long rows = export(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Exported " + rows + " samples to " + args[1]);
+    }
+}
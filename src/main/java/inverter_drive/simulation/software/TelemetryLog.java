@@ -0,0 +1,254 @@
+package inverter_drive.simulation.software;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Append-only binary columnar telemetry log.
+/// Samples are stored in blocks; inside a block every signal is one contiguous primitive column, and the
+/// control mode and fault are dictionary-encoded as short codes. Each block is a memory-mapped region of the
+/// file that samples are written into directly, and the block's sample count is updated with every sample,
+/// so the OS holds all logged history even if the process dies. Opening an existing log appends to it.
+///
+/// Layout (little-endian): header [magic, version, doubleColumns, reserved], then records:
+/// DICTIONARY [tag, dictionary(byte), code(short), length(short), UTF-8 bytes]
+/// BLOCK [tag, capacity, count, doubleColumns x capacity doubles, 2 x capacity shorts]
+public class TelemetryLog implements Closeable {
+    public static final int TIME = 0;
+    public static final int VA = 1;
+    public static final int VB = 2;
+    public static final int VC = 3;
+    public static final int IA = 4;
+    public static final int IB = 5;
+    public static final int IC = 6;
+    public static final int SPEED = 7;
+    public static final int TORQUE = 8;
+    public static final int DOUBLE_COLUMNS = 9;
+    public static final String[] COLUMN_NAMES = {"Time", "Va", "Vb", "Vc", "Ia", "Ib", "Ic", "Speed", "Torque"};
+    public static final int DEFAULT_BLOCK_CAPACITY = 8192;
+
+    static final int MAGIC = 0x4C544449; // "IDTL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int TAG_DICTIONARY = 1;
+    static final int TAG_BLOCK = 2;
+    static final int BLOCK_HEADER_BYTES = 12;
+    static final int MODE_DICTIONARY = 0;
+    static final int FAULT_DICTIONARY = 1;
+
+    private final FileChannel channel;
+    private final int blockCapacity;
+    private final List<Map<String, Short>> dictionaries = new ArrayList<>();
+    private long end;
+    private long sampleCount;
+    private MappedByteBuffer block;
+    private int blockCount;
+    /// Last strings seen and their codes, so steady-state samples skip the dictionary lookup
+    private String lastMode;
+    private short lastModeCode;
+    private String lastFault;
+    private short lastFaultCode;
+
+    public TelemetryLog(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_CAPACITY);
+    }
+
+    public TelemetryLog(Path file, int blockCapacity) throws IOException {
+        if (blockCapacity <= 0) {
+            throw new IllegalArgumentException("Block capacity must be positive");
+        }
+        this.blockCapacity = blockCapacity;
+        dictionaries.add(new HashMap<>());
+        dictionaries.add(new HashMap<>());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(DOUBLE_COLUMNS).putInt(0).flip();
+                writeFully(header, 0);
+                end = HEADER_BYTES;
+            } else {
+                recover();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static int blockBytes(int capacity) {
+        return BLOCK_HEADER_BYTES + capacity * (DOUBLE_COLUMNS * Double.BYTES + 2 * Short.BYTES);
+    }
+
+    /// Walks the existing records to rebuild the dictionaries and find where to append
+    private void recover() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != DOUBLE_COLUMNS) {
+            throw new IOException("Not a telemetry log of this version");
+        }
+        long size = channel.size();
+        long position = HEADER_BYTES;
+        ByteBuffer record = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (position + 4 <= size) {
+            record.clear().limit(4);
+            readFully(record, position);
+            int tag = record.getInt(0);
+            if (tag == TAG_BLOCK) {
+                if (position + BLOCK_HEADER_BYTES > size) break;
+                record.clear();
+                readFully(record, position);
+                int capacity = record.getInt(4);
+                int count = record.getInt(8);
+                long next = position + blockBytes(capacity);
+                if (capacity <= 0 || next > size) break;
+                sampleCount += Math.min(count, capacity);
+                position = next;
+            } else if (tag == TAG_DICTIONARY) {
+                if (position + 9 > size) break;
+                ByteBuffer entry = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(entry, position + 4);
+                int dictionary = entry.get(0);
+                short code = entry.getShort(1);
+                int length = entry.getShort(3) & 0xFFFF;
+                if (dictionary < 0 || dictionary >= dictionaries.size() || position + 9 + length > size) break;
+                ByteBuffer text = ByteBuffer.allocate(length);
+                readFully(text, position + 9);
+                dictionaries.get(dictionary).put(new String(text.array(), StandardCharsets.UTF_8), code);
+                position += 9 + length;
+            } else {
+                break;
+            }
+        }
+        /// Anything after the last complete record is a torn write from an interrupted append
+        end = position;
+        if (end < size) {
+            channel.truncate(end);
+        }
+    }
+
+    /// Appends one sample; only blocks when a new block has to be mapped or a new dictionary entry written
+    public void append(double time, double[] voltages, double[] currents, double speed, double torque,
+                       String controlMode, String fault) throws IOException {
+        short modeCode;
+        if (controlMode == lastMode) {
+            modeCode = lastModeCode;
+        } else {
+            modeCode = code(MODE_DICTIONARY, controlMode);
+            lastMode = controlMode;
+            lastModeCode = modeCode;
+        }
+        short faultCode;
+        if (fault == lastFault) {
+            faultCode = lastFaultCode;
+        } else {
+            faultCode = code(FAULT_DICTIONARY, fault);
+            lastFault = fault;
+            lastFaultCode = faultCode;
+        }
+        if (block == null || blockCount == blockCapacity) {
+            startBlock();
+        }
+        int i = blockCount;
+        int column = BLOCK_HEADER_BYTES + i * Double.BYTES;
+        int stride = blockCapacity * Double.BYTES;
+        block.putDouble(column, time);
+        block.putDouble(column + stride, voltages[0]);
+        block.putDouble(column + 2 * stride, voltages[1]);
+        block.putDouble(column + 3 * stride, voltages[2]);
+        block.putDouble(column + 4 * stride, currents[0]);
+        block.putDouble(column + 5 * stride, currents[1]);
+        block.putDouble(column + 6 * stride, currents[2]);
+        block.putDouble(column + 7 * stride, speed);
+        block.putDouble(column + 8 * stride, torque);
+        int codes = BLOCK_HEADER_BYTES + DOUBLE_COLUMNS * stride + i * Short.BYTES;
+        block.putShort(codes, modeCode);
+        block.putShort(codes + blockCapacity * Short.BYTES, faultCode);
+        blockCount = i + 1;
+        block.putInt(8, blockCount);
+        sampleCount++;
+    }
+
+    private short code(int dictionary, String value) throws IOException {
+        if (value == null) value = "";
+        Map<String, Short> codes = dictionaries.get(dictionary);
+        Short code = codes.get(value);
+        if (code != null) return code;
+        if (codes.size() > Short.MAX_VALUE) {
+            throw new IOException("Too many distinct values in telemetry dictionary");
+        }
+        short newCode = (short) codes.size();
+        byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(9 + text.length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(TAG_DICTIONARY).put((byte) dictionary).putShort(newCode).putShort((short) text.length)
+                .put(text).flip();
+        /// The entry must precede the samples that use it, so the open block is closed first
+        closeBlock();
+        writeFully(record, end);
+        end += record.capacity();
+        codes.put(value, newCode);
+        return newCode;
+    }
+
+    private void startBlock() throws IOException {
+        closeBlock();
+        block = channel.map(FileChannel.MapMode.READ_WRITE, end, blockBytes(blockCapacity));
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(0, TAG_BLOCK);
+        block.putInt(4, blockCapacity);
+        block.putInt(8, 0);
+        blockCount = 0;
+        end += blockBytes(blockCapacity);
+    }
+
+    private void closeBlock() {
+        block = null;
+        blockCount = 0;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /// Forces mapped samples and metadata to the storage device
+    public void flush() throws IOException {
+        if (block != null) {
+            block.force();
+        }
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            closeBlock();
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of telemetry log");
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package inverter_drive.simulation.software;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Sequential block reader for files written by TelemetryLog; each block is mapped read-only in turn
+public class TelemetryLogReader implements Closeable {
+    private final FileChannel channel;
+    private final List<List<String>> dictionaries = new ArrayList<>();
+    private long position = TelemetryLog.HEADER_BYTES;
+    private MappedByteBuffer block;
+    private int capacity;
+    private int count;
+
+    public TelemetryLogReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, TelemetryLog.HEADER_BYTES);
+            if (header == null || header.getInt(0) != TelemetryLog.MAGIC || header.getInt(4) != TelemetryLog.VERSION
+                    || header.getInt(8) != TelemetryLog.DOUBLE_COLUMNS) {
+                throw new IOException("Not a telemetry log of this version");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        dictionaries.add(new ArrayList<>());
+        dictionaries.add(new ArrayList<>());
+    }
+
+    /// Advances to the next block that holds samples, applying dictionary records on the way; false at the end
+    public boolean nextBlock() throws IOException {
+        block = null;
+        count = 0;
+        long size = channel.size();
+        while (position + 4 <= size) {
+            ByteBuffer tag = read(position, 4);
+            if (tag.getInt(0) == TelemetryLog.TAG_BLOCK) {
+                ByteBuffer header = read(position, TelemetryLog.BLOCK_HEADER_BYTES);
+                if (header == null) return false;
+                int blockCapacity = header.getInt(4);
+                long bytes = TelemetryLog.blockBytes(blockCapacity);
+                if (blockCapacity <= 0 || position + bytes > size) return false;
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                position += bytes;
+                int blockCount = Math.min(mapped.getInt(8), blockCapacity);
+                if (blockCount > 0) {
+                    block = mapped;
+                    capacity = blockCapacity;
+                    count = blockCount;
+                    return true;
+                }
+            } else if (tag.getInt(0) == TelemetryLog.TAG_DICTIONARY) {
+                ByteBuffer entry = read(position + 4, 5);
+                if (entry == null) return false;
+                int dictionary = entry.get(0);
+                int code = entry.getShort(1);
+                int length = entry.getShort(3) & 0xFFFF;
+                ByteBuffer text = read(position + 9, length);
+                if (text == null || dictionary < 0 || dictionary >= dictionaries.size()) return false;
+                List<String> values = dictionaries.get(dictionary);
+                while (values.size() <= code) values.add(null);
+                values.set(code, new String(text.array(), StandardCharsets.UTF_8));
+                position += 9 + length;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /// Samples in the current block
+    public int getSampleCount() {
+        return count;
+    }
+
+    /// Value of a TelemetryLog column (TIME .. TORQUE) for a sample of the current block
+    public double get(int column, int sample) {
+        return block.getDouble(TelemetryLog.BLOCK_HEADER_BYTES + (column * capacity + sample) * Double.BYTES);
+    }
+
+    public String getControlMode(int sample) {
+        return decode(TelemetryLog.MODE_DICTIONARY, sample);
+    }
+
+    public String getFault(int sample) {
+        return decode(TelemetryLog.FAULT_DICTIONARY, sample);
+    }
+
+    private String decode(int dictionary, int sample) {
+        int offset = TelemetryLog.BLOCK_HEADER_BYTES + TelemetryLog.DOUBLE_COLUMNS * capacity * Double.BYTES
+                + (dictionary * capacity + sample) * Short.BYTES;
+        return dictionaries.get(dictionary).get(block.getShort(offset));
+    }
+
+    @Override
+    public void close() throws IOException {
+        block = null;
+        channel.close();
+    }
+
+    private ByteBuffer read(long from, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) return null;
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,120 @@
+package inverter_drive.simulation.software;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Bounded lock-free ring of telemetry samples between one producer (the simulation thread) and one
+/// consumer (the log writer). Samples are stored as primitive fields in a flat double[]; mode and fault
+/// are stored as the caller's String references, so publishing allocates nothing.
+/// head is only advanced by the producer. tail is advanced by the consumer with a CAS, and by the
+/// producer when it overwrites the oldest sample; the consumer copies a batch first and only keeps it if
+/// its CAS on tail succeeds, so a batch that raced with an overwrite is discarded and read again.
+public class TelemetryRingBuffer {
+    public static final int FIELDS = TelemetryLog.DOUBLE_COLUMNS;
+
+    private final int capacity;
+    private final int mask;
+    private final double[] values;
+    private final String[] modes;
+    private final String[] faults;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    /// Producer-local copy of tail, refreshed only when the ring looks full
+    private long cachedTail;
+
+    /// capacity is rounded up to a power of two
+    public TelemetryRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int rounded = 1;
+        while (rounded < capacity) rounded <<= 1;
+        this.capacity = rounded;
+        this.mask = rounded - 1;
+        this.values = new double[rounded * FIELDS];
+        this.modes = new String[rounded];
+        this.faults = new String[rounded];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /// Samples published but not yet drained
+    public int size() {
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(capacity, h - t));
+    }
+
+    /// Producer only: publishes a sample if there is room; returns false when the ring is full
+    public boolean offer(double time, double[] voltages, double[] currents, double speed, double torque,
+                         String controlMode, String fault) {
+        long h = head.get();
+        if (h - cachedTail >= capacity) {
+            cachedTail = tail.get();
+            if (h - cachedTail >= capacity) {
+                return false;
+            }
+        }
+        write(h, time, voltages, currents, speed, torque, controlMode, fault);
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /// Producer only: publishes a sample, discarding the oldest one if the ring is full.
+    /// Returns true if a sample was discarded.
+    public boolean overwrite(double time, double[] voltages, double[] currents, double speed, double torque,
+                             String controlMode, String fault) {
+        long h = head.get();
+        boolean dropped = false;
+        while (true) {
+            long t = tail.get();
+            if (h - t < capacity) break;
+            if (tail.compareAndSet(t, t + 1)) {
+                dropped = true;
+                break;
+            }
+        }
+        write(h, time, voltages, currents, speed, torque, controlMode, fault);
+        head.lazySet(h + 1);
+        return dropped;
+    }
+
+    private void write(long sequence, double time, double[] voltages, double[] currents, double speed,
+                       double torque, String controlMode, String fault) {
+        int slot = (int) sequence & mask;
+        int base = slot * FIELDS;
+        values[base + TelemetryLog.TIME] = time;
+        values[base + TelemetryLog.VA] = voltages[0];
+        values[base + TelemetryLog.VB] = voltages[1];
+        values[base + TelemetryLog.VC] = voltages[2];
+        values[base + TelemetryLog.IA] = currents[0];
+        values[base + TelemetryLog.IB] = currents[1];
+        values[base + TelemetryLog.IC] = currents[2];
+        values[base + TelemetryLog.SPEED] = speed;
+        values[base + TelemetryLog.TORQUE] = torque;
+        modes[slot] = controlMode;
+        faults[slot] = fault;
+    }
+
+    /// Consumer only: moves up to modes.length samples into the given arrays (FIELDS doubles per sample)
+    /// and returns how many were moved
+    public int drain(double[] outValues, String[] outModes, String[] outFaults) {
+        int max = Math.min(outModes.length, Math.min(outFaults.length, outValues.length / FIELDS));
+        while (true) {
+            long t = tail.get();
+            long h = head.get();
+            int n = (int) Math.min(max, h - t);
+            if (n <= 0) return 0;
+            for (int k = 0; k < n; k++) {
+                int slot = (int) (t + k) & mask;
+                System.arraycopy(values, slot * FIELDS, outValues, k * FIELDS, FIELDS);
+                outModes[k] = modes[slot];
+                outFaults[k] = faults[slot];
+            }
+            if (tail.compareAndSet(t, t + n)) {
+                return n;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package inverter_drive.simulation.software;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/// SIMD version of PopulationBatchEvaluator.stepLanes using the JDK Vector API.
+/// Only loaded when the jdk.incubator.vector module is present; results match the scalar step
+/// up to floating-point rounding of the vectorized transcendental functions.
+final class VectorBatchKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double DT = PopulationBatchEvaluator.DT;
+    private static final double SECTOR_WIDTH = Math.PI / 3.0;
+    private static final double AMBIENT_K4 = Math.pow(Config.AMBIENT_TEMPERATURE + 273.15, 4);
+
+    private VectorBatchKernel() {
+    }
+
+    static void step(PopulationBatchEvaluator e, double time) {
+        int upper = SPECIES.loopBound(e.lanes);
+        for (int i = 0; i < upper; i += SPECIES.length()) {
+            stepVector(e, i, time);
+        }
+        e.stepLanes(upper, e.lanes, time);
+    }
+
+    private static void stepVector(PopulationBatchEvaluator e, int i, double time) {
+        /// V/f control
+        DoubleVector speed = DoubleVector.fromArray(SPECIES, e.speed, i);
+        DoubleVector speedError = speed.neg().add(e.speedRef);
+        DoubleVector integral = DoubleVector.fromArray(SPECIES, e.integralError, i).add(speedError.mul(DT));
+        integral.intoArray(e.integralError, i);
+        DoubleVector command = DoubleVector.fromArray(SPECIES, e.commandFrequency, i);
+        DoubleVector freq = speedError.mul(e.kp).add(integral.mul(e.ki))
+                .min(command.add(e.maxFreqChange))
+                .max(command.sub(e.maxFreqChange));
+        freq.intoArray(e.commandFrequency, i);
+        DoubleVector angle = freq.mul(2 * Math.PI * e.direction * time);
+        DoubleVector pwmA = angle.lanewise(VectorOperators.SIN).add(1).mul(0.5);
+        DoubleVector pwmB = angle.sub(2 * Math.PI / 3).lanewise(VectorOperators.SIN).add(1).mul(0.5);
+        DoubleVector pwmC = angle.add(2 * Math.PI / 3).lanewise(VectorOperators.SIN).add(1).mul(0.5);
+        /// SVPWM
+        DoubleVector pwmFrequency = DoubleVector.fromArray(SPECIES, e.pwmFrequency, i);
+        DoubleVector scale = pwmFrequency.mul(-e.deadTime).add(1.0)
+                .mul(DoubleVector.fromArray(SPECIES, e.modulationIndex, i).mul(e.overmodulationFactor))
+                .mul(e.dcLinkVoltage);
+        DoubleVector vRef0 = pwmA.mul(2.0).sub(1.0);
+        DoubleVector vRef1 = pwmB.mul(2.0).sub(1.0);
+        DoubleVector vRef2 = pwmC.mul(2.0).sub(1.0);
+        DoubleVector vAlpha = vRef0.sub(vRef1.add(vRef2).mul(0.5)).mul(2.0 / 3.0);
+        DoubleVector vBeta = vRef1.sub(vRef2).mul(1.0 / Math.sqrt(3));
+        DoubleVector vMag = vAlpha.mul(vAlpha).add(vBeta.mul(vBeta)).sqrt();
+        DoubleVector theta = vBeta.lanewise(VectorOperators.ATAN2, vAlpha);
+        DoubleVector sector = floor(theta.div(SECTOR_WIDTH));
+        sector = sector.blend(sector.add(6), sector.compare(VectorOperators.LT, 0));
+        DoubleVector sectorAngle = theta.sub(sector.mul(SECTOR_WIDTH));
+        DoubleVector period = DoubleVector.broadcast(SPECIES, 1.0).div(pwmFrequency);
+        DoubleVector mT = vMag.mul(Math.sqrt(3) / e.dcLinkVoltage).mul(period);
+        DoubleVector t1 = mT.mul(sectorAngle.neg().add(SECTOR_WIDTH).lanewise(VectorOperators.SIN));
+        DoubleVector t2 = mT.mul(sectorAngle.lanewise(VectorOperators.SIN));
+        DoubleVector halfT0 = period.sub(t1).sub(t2).mul(0.5);
+        DoubleVector full = t1.add(t2).add(halfT0).div(period);
+        DoubleVector second = t2.add(halfT0).div(period);
+        DoubleVector first = t1.add(halfT0).div(period);
+        DoubleVector zero = halfT0.div(period);
+        VectorMask<Double> s1 = sector.compare(VectorOperators.EQ, 1);
+        VectorMask<Double> s2 = sector.compare(VectorOperators.EQ, 2);
+        VectorMask<Double> s3 = sector.compare(VectorOperators.EQ, 3);
+        VectorMask<Double> s4 = sector.compare(VectorOperators.EQ, 4);
+        VectorMask<Double> s5 = sector.compare(VectorOperators.EQ, 5);
+        DoubleVector dutyA = full.blend(first, s1).blend(zero, s2.or(s3)).blend(second, s4);
+        DoubleVector dutyB = second.blend(full, s1.or(s2)).blend(first, s3).blend(zero, s4.or(s5));
+        DoubleVector dutyC = zero.blend(second, s2).blend(full, s3.or(s4)).blend(first, s5);
+        DoubleVector va = dutyA.mul(scale);
+        DoubleVector vb = dutyB.mul(scale);
+        DoubleVector vc = dutyC.mul(scale);
+        /// Inverter thermal model
+        DoubleVector fanSpeed = DoubleVector.fromArray(SPECIES, e.fanSpeed, i);
+        DoubleVector coolantFlow = DoubleVector.fromArray(SPECIES, e.coolantFlow, i);
+        DoubleVector switchingLosses = pwmFrequency.mul(0.0001 * e.dcLinkVoltage);
+        DoubleVector inverterT = DoubleVector.fromArray(SPECIES, e.inverterTemperature, i);
+        DoubleVector hInv = fanSpeed.mul(Config.INVERTER_CONVECTION_FAN_COEFF)
+                .add(coolantFlow.mul(Config.INVERTER_CONVECTION_COOLANT_COEFF))
+                .add(Config.INVERTER_CONVECTION_BASE);
+        DoubleVector qConvInv = hInv.mul(inverterT.sub(Config.AMBIENT_TEMPERATURE)).mul(Config.INVERTER_SURFACE_AREA);
+        DoubleVector qRadInv = radiation(inverterT).mul(
+                Config.INVERTER_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.INVERTER_SURFACE_AREA);
+        inverterT = inverterT.add(switchingLosses.mul(Config.INVERTER_THERMAL_RESISTANCE)
+                        .sub(qConvInv.add(qRadInv).div(Config.INVERTER_THERMAL_CAPACITANCE)).mul(DT))
+                .max(Config.AMBIENT_TEMPERATURE);
+        inverterT.intoArray(e.inverterTemperature, i);
+        /// Faults
+        DoubleVector motorT = DoubleVector.fromArray(SPECIES, e.motorTemperature, i);
+        DoubleVector faultCode = DoubleVector.fromArray(SPECIES, e.faultCode, i);
+        DoubleVector faultTime = DoubleVector.fromArray(SPECIES, e.faultTime, i);
+        VectorMask<Double> overheat = motorT.compare(VectorOperators.GT, e.maxTemp)
+                .or(inverterT.compare(VectorOperators.GT, e.maxTemp))
+                .and(faultCode.compare(VectorOperators.NE, PopulationBatchEvaluator.FAULT_OVERHEAT));
+        faultCode = faultCode.blend(PopulationBatchEvaluator.FAULT_OVERHEAT, overheat);
+        faultTime = faultTime.blend(time, overheat);
+        if (e.autoReset) {
+            VectorMask<Double> expired = faultCode.compare(VectorOperators.NE, PopulationBatchEvaluator.FAULT_NONE)
+                    .and(faultTime.neg().add(time).compare(VectorOperators.GT, PopulationBatchEvaluator.AUTO_RESET_DELAY));
+            faultCode = faultCode.blend(PopulationBatchEvaluator.FAULT_NONE, expired);
+        }
+        faultCode.intoArray(e.faultCode, i);
+        faultTime.intoArray(e.faultTime, i);
+        DoubleVector faultScale = DoubleVector.broadcast(SPECIES, 1.0).blend(Config.OVERCURRENT_VOLTAGE_SCALE,
+                faultCode.compare(VectorOperators.EQ, PopulationBatchEvaluator.FAULT_OVERCURRENT));
+        /// Current sensors
+        double sensorGain = e.partialFailureScale / e.sensorImpedance;
+        DoubleVector ia = va.mul(faultScale).mul(DoubleVector.fromArray(SPECIES, e.noiseA, i)
+                .mul(Config.SENSOR_NOISE_STDDEV).add(1.0)).mul(sensorGain);
+        DoubleVector ib = vb.mul(faultScale).mul(DoubleVector.fromArray(SPECIES, e.noiseB, i)
+                .mul(Config.SENSOR_NOISE_STDDEV).add(1.0)).mul(sensorGain);
+        DoubleVector ic = vc.mul(faultScale).mul(DoubleVector.fromArray(SPECIES, e.noiseC, i)
+                .mul(Config.SENSOR_NOISE_STDDEV).add(1.0)).mul(sensorGain);
+        /// Motor thermal model
+        DoubleVector conduction = ia.mul(ia).add(ib.mul(ib)).add(ic.mul(ic)).mul(e.resistance);
+        DoubleVector hMotor = fanSpeed.mul(Config.MOTOR_CONVECTION_FAN_COEFF)
+                .add(coolantFlow.mul(Config.MOTOR_CONVECTION_COOLANT_COEFF))
+                .add(Config.MOTOR_CONVECTION_BASE);
+        DoubleVector qConvMotor = hMotor.mul(motorT.sub(Config.AMBIENT_TEMPERATURE)).mul(Config.MOTOR_SURFACE_AREA);
+        DoubleVector qRadMotor = radiation(motorT).mul(
+                Config.MOTOR_EMISSIVITY * Config.STEFAN_BOLTZMANN * Config.MOTOR_SURFACE_AREA);
+        motorT = motorT.add(conduction.mul(Config.MOTOR_THERMAL_RESISTANCE)
+                        .sub(qConvMotor.add(qRadMotor).div(Config.MOTOR_THERMAL_CAPACITANCE)).mul(DT))
+                .max(Config.AMBIENT_TEMPERATURE);
+        motorT.intoArray(e.motorTemperature, i);
+        /// Motor electromechanical model with constant load torque
+        DoubleVector iq = ia.sub(ib.add(ic).mul(0.5)).mul(2.0 / 3.0);
+        DoubleVector id = ib.sub(ic).mul(1.0 / Math.sqrt(3));
+        DoubleVector flux = DoubleVector.fromArray(SPECIES, e.rotorFlux, i);
+        DoubleVector torque = flux.mul(iq).mul(1.5 * e.polePairs);
+        torque.intoArray(e.torque, i);
+        flux.add(flux.div(-e.inductance).add(id).mul(DT)).intoArray(e.rotorFlux, i);
+        DoubleVector acceleration = torque.sub(10.0)
+                .sub(speed.mul(e.viscousFriction + e.couplingStiffness * DT))
+                .div(e.totalInertia);
+        speed = speed.add(acceleration.mul(DT)).max(0.0);
+        speed.intoArray(e.speed, i);
+        /// Objectives
+        DoubleVector.fromArray(SPECIES, e.powerLoss, i).add(switchingLosses.add(conduction).mul(DT))
+                .intoArray(e.powerLoss, i);
+        DoubleVector.fromArray(SPECIES, e.peakTemperature, i).max(motorT.max(inverterT))
+                .intoArray(e.peakTemperature, i);
+        DoubleVector.fromArray(SPECIES, e.faultImpact, i).add(speed.sub(e.speedRef).abs().mul(DT))
+                .intoArray(e.faultImpact, i);
+    }
+
+    private static DoubleVector floor(DoubleVector x) {
+        DoubleVector truncated = ((LongVector) x.convert(VectorOperators.D2L, 0)).convert(VectorOperators.L2D, 0)
+                .reinterpretAsDoubles();
+        return truncated.blend(truncated.sub(1.0), truncated.compare(VectorOperators.GT, x));
+    }
+
+    /// T_K^4 - T_amb_K^4
+    private static DoubleVector radiation(DoubleVector temperature) {
+        DoubleVector kelvin = temperature.add(273.15);
+        DoubleVector squared = kelvin.mul(kelvin);
+        return squared.mul(squared).sub(AMBIENT_K4);
+    }
+}
@@ -1,6 +1,28 @@
 package inverter_drive.simulation.software;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class VfController {
+    /// DTC switching table: {flux, torque} -> voltage vector, indexed by (fluxState + 1) * 3 + (torqueState + 1)
+    private static final int[][] SWITCHING_TABLE = {
+            {1, 1, 2}, {1, 0, 7}, {1, -1, 6},
+            {0, 1, 3}, {0, 0, 0}, {0, -1, 5},
+            {-1, 1, 4}, {-1, 0, 8}, {-1, -1, 4}
+    };
+    /// Inverter switch states for each voltage vector; index 0 is the default (all off)
+    private static final double[][] VOLTAGE_VECTORS = {
+            {0, 0, 0},
+            {1, 0, 0}, // V1 (100)
+            {1, 1, 0}, // V2 (110)
+            {0, 1, 0}, // V3 (010)
+            {0, 1, 1}, // V4 (011)
+            {0, 0, 1}, // V5 (001)
+            {1, 0, 1}, // V6 (101)
+            {1, 1, 1}, // V7 (111)
+            {0, 0, 0}  // V0 (000)
+    };
     private final InductionMotor motor;
     private double vPerHz;
     private double maxVoltage = 230;
@@ -15,20 +37,81 @@ public class VfController {
     private final double kiTorque = 0.05;
     private final double kpFlux = 0.3;
     private final double kiFlux = 0.03;
+    /// Below EXACT, the three phases come from one sine/cosine pair and the FOC angle from a PhaseRotator
+    private FastTrig.Precision trigPrecision = FastTrig.Precision.EXACT;
+    private final PhaseRotator parkRotator = new PhaseRotator(trigPrecision);
 
     public VfController(InductionMotor motor) {
         this.motor = motor;
         this.vPerHz = maxVoltage / 50.0;
     }
 
+    /// Creates a controller for the given motor with the template's gains and cleared integrators
+    public VfController(VfController template, InductionMotor motor) {
+        this.motor = motor;
+        this.vPerHz = template.vPerHz;
+        this.maxVoltage = template.maxVoltage;
+        this.kp = template.kp;
+        this.ki = template.ki;
+        setTrigPrecision(template.trigPrecision);
+    }
+
     public void setGains(double kp, double ki) {
         this.kp = kp;
         this.ki = ki;
     }
 
-    public double[] updateControl(String mode, double speedRef, double torqueRef, double fluxRef,
+    public double getKp() {
+        return kp;
+    }
+
+    public double getKi() {
+        return ki;
+    }
+
+    public FastTrig.Precision getTrigPrecision() {
+        return trigPrecision;
+    }
+
+    public void setTrigPrecision(FastTrig.Precision trigPrecision) {
+        this.trigPrecision = trigPrecision;
+        parkRotator.setPrecision(trigPrecision);
+    }
+
+    /// Takes over the integrators, the ramped V/f frequency and the Park rotation of source; gains stay as they are
+    void copyStateFrom(VfController source) {
+        integralError = source.integralError;
+        currentSpeed = source.currentSpeed;
+        torqueErrorIntegral = source.torqueErrorIntegral;
+        fluxErrorIntegral = source.fluxErrorIntegral;
+        parkRotator.copyStateFrom(source.parkRotator);
+    }
+
+    void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(integralError);
+        out.writeDouble(currentSpeed);
+        out.writeDouble(torqueErrorIntegral);
+        out.writeDouble(fluxErrorIntegral);
+        parkRotator.writeState(out);
+    }
+
+    void readState(DataInputStream in) throws IOException {
+        integralError = in.readDouble();
+        currentSpeed = in.readDouble();
+        torqueErrorIntegral = in.readDouble();
+        fluxErrorIntegral = in.readDouble();
+        parkRotator.readState(in);
+    }
+
+    public double[] updateControl(ControlStrategy mode, double speedRef, double torqueRef, double fluxRef,
                                   double accelRate, double direction, double time) {
-        if (mode.equals("DTC")) {
+        return updateControl(mode, speedRef, torqueRef, fluxRef, accelRate, direction, time, new double[3]);
+    }
+
+    /// Writes the three PWM signals into pwmSignals and returns it; allocates nothing
+    public double[] updateControl(ControlStrategy mode, double speedRef, double torqueRef, double fluxRef,
+                                  double accelRate, double direction, double time, double[] pwmSignals) {
+        if (mode == ControlStrategy.DTC) {
             /// Direct Torque Control
             double torqueError = torqueRef - motor.getTorque();
             double fluxError = fluxRef - motor.getRotorFlux();
@@ -48,35 +131,16 @@ public class VfController {
             /// Determine sector (1 to 6)
             int sector = (int) Math.floor((fluxAngle + Math.PI) / (Math.PI / 3.0)) % 6 + 1;
             if (sector < 1) sector += 6;
-            /// Switching table for DTC
-            int[][] switchingTable = {
-                    /// {flux, torque} -> vector
-                    {1, 1, 2}, {1, 0, 7}, {1, -1, 6},
-                    {0, 1, 3}, {0, 0, 0}, {0, -1, 5},
-                    {-1, 1, 4}, {-1, 0, 8}, {-1, -1, 4}
-            };
             int tableIndex = (fluxState + 1) * 3 + (torqueState + 1);
-            int vector = switchingTable[tableIndex][2];
+            int vector = SWITCHING_TABLE[tableIndex][2];
             /// Voltage vector to PWM signals
-            double[] va = new double[3];
-            switch (vector) {
-                case 1: va = new double[]{1, 0, 0}; break; // V1 (100)
-                case 2: va = new double[]{1, 1, 0}; break; // V2 (110)
-                case 3: va = new double[]{0, 1, 0}; break; // V3 (010)
-                case 4: va = new double[]{0, 1, 1}; break; // V4 (011)
-                case 5: va = new double[]{0, 0, 1}; break; // V5 (001)
-                case 6: va = new double[]{1, 0, 1}; break; // V6 (101)
-                case 7: va = new double[]{1, 1, 1}; break; // V7 (111)
-                case 8: va = new double[]{0, 0, 0}; break; // V0 (000)
-                default: va = new double[]{0, 0, 0};
-            }
+            double[] va = VOLTAGE_VECTORS[vector];
             /// Convert to PWM signals [0,1]
-            double[] pwmSignals = new double[3];
             for (int i = 0; i < 3; i++) {
                 pwmSignals[i] = 0.5 * (1 + va[i] * maxVoltage / (motor.getRatedVoltage() / Math.sqrt(3)));
             }
             return pwmSignals;
-        } else if (mode.equals("FOC")) {
+        } else if (mode == ControlStrategy.FOC) {
             /// Field-Oriented Control
             double speedError = speedRef - motor.getSpeed();
             double torqueRefAdjusted = kp * speedError + ki * (integralError += speedError * Config.SIMULATION_TIME_STEP);
@@ -87,9 +151,26 @@ public class VfController {
             double vd = kpFlux * fluxError + kiFlux * (fluxErrorIntegral += fluxError * Config.SIMULATION_TIME_STEP);
             /// Convert d-q voltages to three-phase (inverse Park-Clarke)
             double theta = 2 * Math.PI * speedRef * time * direction;
-            double va = vd * Math.cos(theta) - vq * Math.sin(theta);
-            double vb = vd * Math.cos(theta - 2 * Math.PI / 3) - vq * Math.sin(theta - 2 * Math.PI / 3);
-            double vc = vd * Math.cos(theta + 2 * Math.PI / 3) - vq * Math.sin(theta + 2 * Math.PI / 3);
+            double va;
+            double vb;
+            double vc;
+            if (trigPrecision == FastTrig.Precision.EXACT) {
+                va = vd * Math.cos(theta) - vq * Math.sin(theta);
+                vb = vd * Math.cos(theta - 2 * Math.PI / 3) - vq * Math.sin(theta - 2 * Math.PI / 3);
+                vc = vd * Math.cos(theta + 2 * Math.PI / 3) - vq * Math.sin(theta + 2 * Math.PI / 3);
+            } else {
+                /// theta advances by the same angle every step at a fixed speed reference
+                parkRotator.rotateTo(theta);
+                double cos = parkRotator.cos();
+                double sin = parkRotator.sin();
+                double cosB = -0.5 * cos + FastTrig.HALF_SQRT3 * sin;
+                double sinB = -0.5 * sin - FastTrig.HALF_SQRT3 * cos;
+                double cosC = -0.5 * cos - FastTrig.HALF_SQRT3 * sin;
+                double sinC = -0.5 * sin + FastTrig.HALF_SQRT3 * cos;
+                va = vd * cos - vq * sin;
+                vb = vd * cosB - vq * sinB;
+                vc = vd * cosC - vq * sinC;
+            }
             /// Normalize to PWM signals
             double max = Math.max(Math.abs(va), Math.max(Math.abs(vb), Math.abs(vc)));
             if (max > 0) {
@@ -97,7 +178,10 @@ public class VfController {
                 vb /= max;
                 vc /= max;
             }
-            return new double[]{0.5 * (1 + va), 0.5 * (1 + vb), 0.5 * (1 + vc)};
+            pwmSignals[0] = 0.5 * (1 + va);
+            pwmSignals[1] = 0.5 * (1 + vb);
+            pwmSignals[2] = 0.5 * (1 + vc);
+            return pwmSignals;
         } else {
             /// V/f control
             double speedError = speedRef - motor.getSpeed();
@@ -108,10 +192,18 @@ public class VfController {
             currentSpeed = freq;
             double voltage = freq * vPerHz;
             double omega = 2 * Math.PI * freq * direction;
-            double[] pwmSignals = new double[3];
-            pwmSignals[0] = 0.5 * (1 + Math.sin(omega * time));
-            pwmSignals[1] = 0.5 * (1 + Math.sin(omega * time - 2 * Math.PI / 3));
-            pwmSignals[2] = 0.5 * (1 + Math.sin(omega * time + 2 * Math.PI / 3));
+            if (trigPrecision == FastTrig.Precision.EXACT) {
+                pwmSignals[0] = 0.5 * (1 + Math.sin(omega * time));
+                pwmSignals[1] = 0.5 * (1 + Math.sin(omega * time - 2 * Math.PI / 3));
+                pwmSignals[2] = 0.5 * (1 + Math.sin(omega * time + 2 * Math.PI / 3));
+            } else {
+                /// sin(x ∓ 120°) = -sin(x)/2 ∓ cos(x)·√3/2
+                double sin = trigPrecision.sin(omega * time);
+                double cos = trigPrecision.cos(omega * time);
+                pwmSignals[0] = 0.5 * (1 + sin);
+                pwmSignals[1] = 0.5 * (1 - 0.5 * sin - FastTrig.HALF_SQRT3 * cos);
+                pwmSignals[2] = 0.5 * (1 - 0.5 * sin + FastTrig.HALF_SQRT3 * cos);
+            }
             return pwmSignals;
         }
     }
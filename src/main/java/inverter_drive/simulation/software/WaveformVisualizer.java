@@ -1,34 +1,116 @@
 package inverter_drive.simulation.software;
+import javafx.scene.Node;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
+/// Oscilloscope-style sweep of the phase voltages, phase currents and speed.
+/// The simulation thread calls ingest once per step, which only writes into a lock-free circular buffer.
+/// render runs on the JavaFX thread once per frame: it folds the samples that arrived since the last frame
+/// into per-pixel-column min/max/first/last aggregates and redraws only the columns that changed, so the
+/// cost per frame depends on the 680 columns rather than on how fast the simulation runs.
+/// Grid and labels live on a background canvas that is drawn once.
 public class WaveformVisualizer {
+    private static final int WIDTH = 680;
+    private static final int HEIGHT = 550;
+    private static final int CHANNELS = 7; // Va, Vb, Vc, Ia, Ib, Ic, Speed
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final Color[] COLORS = {Color.CYAN, Color.YELLOW, Color.RED,
+            Color.MAGENTA, Color.LIGHTSKYBLUE, Color.ORANGE, Color.LIME};
+
+    private final Canvas background;
     private final Canvas canvas;
-    private final double[][] voltageData = new double[3][1000]; // Va, Vb, Vc
-    private final double[][] currentData = new double[3][1000]; // Ia, Ib, Ic
-    private final double[] speedData = new double[1000];
-    private int dataIndex = 0;
-    private int lastDrawnIndex = -1;
-    private boolean resetCanvas = false;
+    private final StackPane view;
+    /// Ingestion ring, written by one producer thread and read by the renderer
+    private final double[][] ring = new double[CHANNELS][RING_CAPACITY];
+    private final AtomicLong head = new AtomicLong();
+    /// Renderer state, JavaFX thread only
+    private final double[][] columnMin = new double[CHANNELS][WIDTH];
+    private final double[][] columnMax = new double[CHANNELS][WIDTH];
+    private final double[][] columnFirst = new double[CHANNELS][WIDTH];
+    private final double[][] columnLast = new double[CHANNELS][WIDTH];
+    private final long[] columnPass = new long[WIDTH];
+    private final boolean[] columnFilled = new boolean[WIDTH];
+    private long consumed = 0;
+    private long sweepOrigin = 0;
+    private int windowSamples = 1000;
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo = -1;
+    private long skippedSamples = 0;
+    private volatile boolean resetCanvas = true;
     private double voltageScale = 0.1;
     private double currentScale = 0.5;
     private double speedScale = 0.01;
+
     public WaveformVisualizer() {
-        canvas = new Canvas(680, 550);
+        background = new Canvas(WIDTH, HEIGHT);
+        canvas = new Canvas(WIDTH, HEIGHT);
+        view = new StackPane(background, canvas);
+        drawBackground(background.getGraphicsContext2D());
+    }
+
+    /// Background and trace layers stacked; this is what goes into the scene
+    public Node getView() {
+        return view;
     }
+
+    /// Trace layer
     public Canvas getCanvas() {
         return canvas;
     }
+
     public void setScales(double maxVoltage, double maxCurrent, double maxSpeed) {
-        voltageScale = maxVoltage > 0 ? 100.0 / maxVoltage : 0.1;
-        currentScale = maxCurrent > 0 ? 50.0 / maxCurrent : 0.5;
-        speedScale = maxSpeed > 0 ? 50.0 / maxSpeed : 0.01;
+        double newVoltageScale = maxVoltage > 0 ? 100.0 / maxVoltage : 0.1;
+        double newCurrentScale = maxCurrent > 0 ? 50.0 / maxCurrent : 0.5;
+        double newSpeedScale = maxSpeed > 0 ? 50.0 / maxSpeed : 0.01;
+        if (newVoltageScale != voltageScale || newCurrentScale != currentScale || newSpeedScale != speedScale) {
+            voltageScale = newVoltageScale;
+            currentScale = newCurrentScale;
+            speedScale = newSpeedScale;
+            markDirty(0, WIDTH - 1);
+        }
+    }
+
+    /// Samples shown across the full width of one sweep
+    public void setWindow(int samples) {
+        windowSamples = Math.max(1, samples);
+        resetCanvas = true;
+    }
+
+    public int getWindow() {
+        return windowSamples;
+    }
+
+    /// Samples the renderer never saw because the simulation lapped the ingestion ring between frames
+    public long getSkippedSamples() {
+        return skippedSamples;
     }
+
+    /// Starts a new sweep at the left edge on the next frame; safe to call from any thread
     public void resetCanvas() {
         resetCanvas = true;
     }
+
+    private void drawBackground(GraphicsContext gc) {
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, WIDTH, HEIGHT);
+        gc.setStroke(Color.WHITE);
+        gc.setLineWidth(0.3);
+        for (int i = 1; i < 13; i++) {
+            double y = i * (double) HEIGHT / 13;
+            gc.strokeLine(0, y, WIDTH, y);
+        }
+        for (int i = 1; i < 15; i++) {
+            double x = i * (double) WIDTH / 15;
+            gc.strokeLine(x, 0, x, HEIGHT);
+        }
+        drawLabels(gc, HEIGHT);
+    }
+
     private void drawLabels(GraphicsContext gc, double height) {
         gc.setFont(Font.font("Consolas", 14));
         /// Voltage labels (Va, Vb, Vc)
@@ -49,95 +131,113 @@ public class WaveformVisualizer {
         gc.setFill(Color.LIME);
         gc.fillText("Speed", 5, 3 * height / 4);
     }
-    public synchronized void updateWaveforms(double[] voltages, double[] currents, double speed, double time) {
-        for (int i = 0; i < 3; i++) {
-            voltageData[i][dataIndex % 1000] = voltages[i];
-            currentData[i][dataIndex % 1000] = currents[i];
-        }
-        speedData[dataIndex % 1000] = speed;
-        dataIndex++;
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-        double width = canvas.getWidth();
-        double height = canvas.getHeight();
-        int maxPoints = Math.min(dataIndex, 1000);
-        if (resetCanvas || dataIndex == 1 || dataIndex % 1000 == 0) {
-            gc.setFill(Color.BLACK);
-            gc.fillRect(0, 0, width, height);
-            drawLabels(gc, height);
-            lastDrawnIndex = -1;
+
+    /// Producer side, called by the simulation thread every step; never blocks and never allocates
+    public void ingest(double[] voltages, double[] currents, double speed) {
+        long h = head.get();
+        int slot = (int) h & (RING_CAPACITY - 1);
+        ring[0][slot] = voltages[0];
+        ring[1][slot] = voltages[1];
+        ring[2][slot] = voltages[2];
+        ring[3][slot] = currents[0];
+        ring[4][slot] = currents[1];
+        ring[5][slot] = currents[2];
+        ring[6][slot] = speed;
+        head.lazySet(h + 1);
+    }
+
+    /// Renderer side, called once per frame on the JavaFX thread
+    public void render() {
+        long available = head.get();
+        if (resetCanvas) {
             resetCanvas = false;
+            consumed = available;
+            sweepOrigin = available;
+            Arrays.fill(columnFilled, false);
+            markDirty(0, WIDTH - 1);
         }
-        int startIndex = lastDrawnIndex + 1;
-        if (startIndex < 0) startIndex = 0;
-        /// Plot voltages (Va, Vb, Vc)
-        Color[] voltageColors = {Color.CYAN, Color.YELLOW, Color.RED};
-        for (int phase = 0; phase < 3; phase++) {
-            gc.setStroke(voltageColors[phase]);
-            gc.setLineWidth(1.5);
-            gc.beginPath();
-            for (int i = startIndex; i < maxPoints; i++) {
-                double x = i * width / 1000;
-                double y = height / 4 - voltageData[phase][i] * voltageScale;
-                if (i == startIndex) {
-                    gc.moveTo(x, y);
-                } else {
-                    double prevX = (i - 1) * width / 1000;
-                    double prevY = height / 4 - voltageData[phase][i - 1] * voltageScale;
-                    gc.quadraticCurveTo(prevX, prevY, (prevX + x) / 2, (prevY + y) / 2);
-                    gc.lineTo(x, y);
-                }
+        /// Never reach back more than half the ring, leaving the producer half a ring of headroom before it
+        /// could overwrite a sample that is being read
+        long oldest = available - RING_CAPACITY / 2;
+        if (consumed < oldest) {
+            skippedSamples += oldest - consumed;
+            consumed = oldest;
+        }
+        for (long s = consumed; s < available; s++) {
+            aggregate(s);
+        }
+        consumed = available;
+        if (dirtyTo >= dirtyFrom) {
+            redraw(dirtyFrom, dirtyTo);
+            dirtyFrom = Integer.MAX_VALUE;
+            dirtyTo = -1;
+        }
+    }
+
+    private void aggregate(long sample) {
+        long offset = sample - sweepOrigin;
+        long pass = offset / windowSamples;
+        int column = (int) ((offset % windowSamples) * WIDTH / windowSamples);
+        int slot = (int) sample & (RING_CAPACITY - 1);
+        if (!columnFilled[column] || columnPass[column] != pass) {
+            columnFilled[column] = true;
+            columnPass[column] = pass;
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                double value = ring[ch][slot];
+                columnMin[ch][column] = value;
+                columnMax[ch][column] = value;
+                columnFirst[ch][column] = value;
+                columnLast[ch][column] = value;
+            }
+        } else {
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                double value = ring[ch][slot];
+                if (value < columnMin[ch][column]) columnMin[ch][column] = value;
+                if (value > columnMax[ch][column]) columnMax[ch][column] = value;
+                columnLast[ch][column] = value;
             }
-            gc.stroke();
         }
-        /// Plot currents (Ia, Ib, Ic)
-        Color[] currentColors = {Color.MAGENTA, Color.LIGHTSKYBLUE, Color.ORANGE};
-        for (int phase = 0; phase < 3; phase++) {
-            gc.setStroke(currentColors[phase]);
-            gc.setLineWidth(1.5);
+        markDirty(column, column);
+    }
+
+    private void markDirty(int from, int to) {
+        if (from < dirtyFrom) dirtyFrom = from;
+        if (to > dirtyTo) dirtyTo = to;
+    }
+
+    /// Clears and redraws columns [from, to]; the next column is redrawn too because its connecting segment
+    /// starts inside the cleared region
+    private void redraw(int from, int to) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        int last = Math.min(WIDTH - 1, to + 1);
+        gc.clearRect(from, 0, last - from + 1, HEIGHT);
+        gc.setLineWidth(1.5);
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            double baseline = ch < 3 ? HEIGHT / 4.0 : ch < 6 ? HEIGHT / 2.0 : 3 * HEIGHT / 4.0;
+            double scale = ch < 3 ? voltageScale : ch < 6 ? currentScale : speedScale;
+            gc.setStroke(COLORS[ch]);
             gc.beginPath();
-            for (int i = startIndex; i < maxPoints; i++) {
-                double x = i * width / 1000;
-                double y = height / 2 - currentData[phase][i] * currentScale;
-                if (i == startIndex) {
-                    gc.moveTo(x, y);
-                } else {
-                    double prevX = (i - 1) * width / 1000;
-                    double prevY = height / 2 - currentData[phase][i - 1] * currentScale;
-                    gc.quadraticCurveTo(prevX, prevY, (prevX + x) / 2, (prevY + y) / 2);
-                    gc.lineTo(x, y);
+            int previous = previousFilled(from);
+            for (int column = from; column <= last; column++) {
+                if (!columnFilled[column]) continue;
+                double x = column + 0.5;
+                /// Columns ahead of the sweep cursor still hold the previous pass; never join across passes
+                if (previous >= 0 && columnPass[previous] == columnPass[column]) {
+                    gc.moveTo(previous + 0.5, baseline - columnLast[ch][previous] * scale);
+                    gc.lineTo(x, baseline - columnFirst[ch][column] * scale);
                 }
+                gc.moveTo(x, baseline - columnMax[ch][column] * scale);
+                gc.lineTo(x, baseline - columnMin[ch][column] * scale);
+                previous = column;
             }
             gc.stroke();
         }
-        /// Plot speed
-        gc.setStroke(Color.LIME);
-        gc.setLineWidth(1.5);
-        gc.beginPath();
-        for (int i = startIndex; i < maxPoints; i++) {
-            double x = i * width / 1000;
-            double y = 3 * height / 4 - speedData[i] * speedScale;
-            if (i == startIndex) {
-                gc.moveTo(x, y);
-            } else {
-                double prevX = (i - 1) * width / 1000;
-                double prevY = 3 * height / 4 - speedData[i - 1] * speedScale;
-                gc.quadraticCurveTo(prevX, prevY, (prevX + x) / 2, (prevY + y) / 2);
-                gc.lineTo(x, y);
-            }
-        }
-        gc.stroke();
+    }
 
-        /// Grid
-        gc.setStroke(Color.WHITE);
-        gc.setLineWidth(0.3);
-        for (int i = 1; i < 13; i++) {
-            double y = i * height / 13;
-            gc.strokeLine(0, y, width, y);
-        }
-        for (int i = 1; i < 15; i++) {
-            double x = i * width / 15;
-            gc.strokeLine(x, 0, x, height);
+    private int previousFilled(int column) {
+        for (int c = column - 1; c >= 0; c--) {
+            if (columnFilled[c]) return c;
         }
-        lastDrawnIndex = maxPoints - 1;
+        return -1;
     }
 }
\ No newline at end of file
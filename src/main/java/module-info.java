@@ -1,6 +1,8 @@
 module inverter_drive.simulation.software.inverterdrivesimulationsoftware3 {
     requires javafx.controls;
     requires javafx.fxml;
+    /// Optional SIMD path for PopulationBatchEvaluator; enabled with --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
 
 
     opens inverter_drive.simulation.software to javafx.fxml;
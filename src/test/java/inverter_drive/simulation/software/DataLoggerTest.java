@@ -0,0 +1,117 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataLoggerTest {
+    /// The writer parks for a millisecond when the ring is empty, long enough for the producer to fill it
+    private static final int CAPACITY = 64;
+    private static final int DECIMATION = 4;
+    private static final int SAMPLES = 200_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void blockLosesNothing() throws IOException {
+        DataLogger logger = run(DataLogger.Backpressure.BLOCK);
+        List<Long> logged = loggedSamples(logger.getLogFile());
+
+        assertEquals(SAMPLES, logger.getPublishedCount());
+        assertEquals(SAMPLES, logger.getWrittenCount());
+        assertEquals(0, logger.getDroppedCount());
+        assertEquals(0, logger.getDecimatedCount());
+        assertTrue(logger.getBlockedCount() > 0, "the ring never filled");
+        assertEquals(SAMPLES, logged.size());
+        for (int i = 0; i < SAMPLES; i++) {
+            assertEquals(i, logged.get(i));
+        }
+    }
+
+    /// Every published sample is either written or overwritten before the writer reached it
+    @Test
+    void dropOldestAccountsForEveryPublishedSample() throws IOException {
+        DataLogger logger = run(DataLogger.Backpressure.DROP_OLDEST);
+        List<Long> logged = loggedSamples(logger.getLogFile());
+
+        assertEquals(SAMPLES, logger.getPublishedCount());
+        assertTrue(logger.getDroppedCount() > 0, "nothing was overwritten");
+        assertEquals(logger.getPublishedCount(), logger.getWrittenCount() + logger.getDroppedCount());
+        assertEquals(0, logger.getDecimatedCount());
+        assertEquals(logger.getWrittenCount(), logged.size());
+        assertIncreasing(logged);
+        assertEquals(SAMPLES - 1, logged.get(logged.size() - 1));
+    }
+
+    /// Decimated and rejected samples are never published; everything published is written
+    @Test
+    void decimateWritesEveryPublishedSample() throws IOException {
+        DataLogger logger = run(DataLogger.Backpressure.DECIMATE);
+        List<Long> logged = loggedSamples(logger.getLogFile());
+
+        assertTrue(logger.getDecimatedCount() > 0, "the ring never reached half capacity");
+        assertEquals(SAMPLES, logger.getPublishedCount() + logger.getDecimatedCount() + logger.getDroppedCount());
+        assertEquals(logger.getPublishedCount(), logger.getWrittenCount());
+        assertEquals(0, logger.getBlockedCount());
+        assertEquals(logger.getWrittenCount(), logged.size());
+        assertIncreasing(logged);
+    }
+
+    /// Logs SAMPLES numbered samples from a second thread and closes the logger, which drains the ring
+    private DataLogger run(DataLogger.Backpressure backpressure) {
+        DataLogger logger = new DataLogger(directory.resolve("run.idtl"), directory.resolve("run.csv"), CAPACITY,
+                backpressure, DECIMATION);
+        Thread producer = new Thread(() -> {
+            double[] voltages = new double[3];
+            double[] currents = new double[3];
+            for (int i = 0; i < SAMPLES; i++) {
+                voltages[0] = i + 0.5;
+                currents[2] = -i;
+                logger.logData(i, voltages, currents, 2.0 * i, 3.0 * i, "V_F", (i & 1024) == 0 ? "None" : "Overheat");
+            }
+        }, "logger-producer");
+        producer.start();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        logger.close();
+        return logger;
+    }
+
+    /// Sample numbers in log order, checking that each sample's columns belong together
+    private static List<Long> loggedSamples(Path file) throws IOException {
+        List<Long> samples = new ArrayList<>();
+        try (TelemetryLogReader reader = new TelemetryLogReader(file)) {
+            while (reader.nextBlock()) {
+                for (int k = 0; k < reader.getSampleCount(); k++) {
+                    long i = (long) reader.get(TelemetryLog.TIME, k);
+                    assertEquals(i + 0.5, reader.get(TelemetryLog.VA, k));
+                    assertEquals(-i, reader.get(TelemetryLog.IC, k));
+                    assertEquals(2.0 * i, reader.get(TelemetryLog.SPEED, k));
+                    assertEquals(3.0 * i, reader.get(TelemetryLog.TORQUE, k));
+                    assertEquals((i & 1024) == 0 ? "None" : "Overheat", reader.getFault(k));
+                    samples.add(i);
+                }
+            }
+        }
+        return samples;
+    }
+
+    private static void assertIncreasing(List<Long> samples) {
+        for (int k = 1; k < samples.size(); k++) {
+            long previous = samples.get(k - 1);
+            assertTrue(samples.get(k) > previous, "sample " + samples.get(k) + " after " + previous);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistributedEvaluatorTest {
+    /// Three BATCH_LANES batches per population
+    private static final OptimizationProblem PROBLEM = TestDrives.smallProblem(40, 4);
+
+    private final List<Closeable> resources = new ArrayList<>();
+
+    @AfterEach
+    void closeResources() throws IOException {
+        for (Closeable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    void distributedRunMatchesLocalRun() throws IOException {
+        Optimizer.Individual[] local = TestDrives.optimizer(PROBLEM).optimize();
+        DistributedEvaluator evaluator = evaluator(worker(1).getAddress(), worker(2).getAddress(),
+                worker(1).getAddress());
+        Optimizer optimizer = TestDrives.optimizer(PROBLEM);
+        optimizer.setDistributedEvaluator(evaluator);
+
+        TestDrives.assertSameFront(local, optimizer.optimize());
+        assertEquals(0, evaluator.getLocalBatchCount());
+    }
+
+    @Test
+    void batchesOfALostWorkerAreRequeuedAndFinished() throws IOException {
+        Optimizer.Individual[] local = TestDrives.optimizer(PROBLEM).optimize();
+        ScriptedWorker dying = scripted(ScriptedWorker.Behaviour.DISCONNECT);
+        DistributedEvaluator evaluator = evaluator(dying.getAddress(), worker(1).getAddress());
+        Optimizer optimizer = TestDrives.optimizer(PROBLEM);
+        optimizer.setDistributedEvaluator(evaluator);
+
+        TestDrives.assertSameFront(local, optimizer.optimize());
+        assertTrue(evaluator.getRetriedBatchCount() > 0);
+        assertEquals(0, evaluator.getLocalBatchCount());
+    }
+
+    @Test
+    void slowWorkersBatchIsStolenAndTheFirstResultWins() throws IOException {
+        Optimizer.Individual[] local = TestDrives.optimizer(PROBLEM).optimize();
+        /// Answers every batch late and wrongly; only stolen copies can produce the local front
+        ScriptedWorker slow = scripted(ScriptedWorker.Behaviour.SLOW_AND_WRONG);
+        DistributedEvaluator evaluator = evaluator(slow.getAddress(), worker(1).getAddress());
+        Optimizer optimizer = TestDrives.optimizer(PROBLEM);
+        optimizer.setDistributedEvaluator(evaluator);
+
+        TestDrives.assertSameFront(local, optimizer.optimize());
+        assertTrue(evaluator.getStolenBatchCount() > 0);
+        assertEquals(0, evaluator.getRetriedBatchCount());
+    }
+
+    @Test
+    void cancelStopsARunWaitingOnWorkers() throws IOException {
+        ScriptedWorker silent = scripted(ScriptedWorker.Behaviour.SILENT);
+        DistributedEvaluator evaluator = evaluator(silent.getAddress());
+        Optimizer optimizer = TestDrives.optimizer(PROBLEM);
+        optimizer.setDistributedEvaluator(evaluator);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            optimizer.cancel();
+        });
+        canceller.start();
+
+        Optimizer.Individual[] front = assertTimeoutPreemptively(Duration.ofSeconds(30), optimizer::optimize);
+        assertTrue(optimizer.isCancelled());
+        assertEquals(0, front.length);
+    }
+
+    /// The run after a cancelled one must not see the old cancellation and take missing results as evaluated
+    @Test
+    void runAfterACancelledRunIsComplete() throws IOException {
+        DistributedEvaluator evaluator = evaluator(worker(1).getAddress(), worker(1).getAddress());
+        Optimizer optimizer = TestDrives.optimizer(PROBLEM);
+        optimizer.setDistributedEvaluator(evaluator);
+        optimizer.cancel();
+        assertEquals(0, optimizer.optimize().length);
+        assertTrue(optimizer.isCancelled());
+
+        Optimizer.Individual[] next = optimizer.optimize();
+        assertFalse(optimizer.isCancelled());
+        assertTrue(next.length > 0);
+        for (Optimizer.Individual ind : next) {
+            assertTrue(Arrays.stream(ind.objectives).allMatch(objective -> objective > 0.0),
+                    () -> Arrays.toString(ind.objectives));
+        }
+    }
+
+    /// A batch larger than BATCH_LANES, or of the wrong dimension, is refused before anything is allocated
+    @Test
+    void oversizedBatchDropsTheConnection() throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(worker(1).getAddress(), 10_000);
+            socket.setSoTimeout(10_000);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            OptimizerProtocol.connect(in, out);
+            DriveSystem template = TestDrives.defaultDrive(42L);
+            out.write(OptimizerProtocol.encodeJob(7L, template, PROBLEM, null, true, false));
+            out.writeByte(OptimizerProtocol.BATCH);
+            out.writeLong(7L);
+            out.writeInt(0);
+            out.writeInt(Optimizer.BATCH_LANES + 1);
+            out.writeInt(PROBLEM.dimensions());
+            out.flush();
+
+            /// No parameters follow, so a worker that took the batch would wait for them until the timeout
+
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private OptimizerWorker worker(int parallelism) throws IOException {
+        OptimizerWorker worker = new OptimizerWorker(parallelism);
+        resources.add(worker);
+        return worker;
+    }
+
+    private ScriptedWorker scripted(ScriptedWorker.Behaviour behaviour) throws IOException {
+        ScriptedWorker worker = new ScriptedWorker(behaviour);
+        resources.add(worker);
+        return worker;
+    }
+
+    private DistributedEvaluator evaluator(InetSocketAddress... workers) {
+        DistributedEvaluator evaluator = new DistributedEvaluator(List.of(workers));
+        evaluator.setTimeoutMillis(60_000);
+        /// Closed before the workers so no connection waits on a closed worker
+        resources.add(0, evaluator);
+        return evaluator;
+    }
+
+    /// Speaks the worker protocol but misbehaves in one way
+    private static final class ScriptedWorker implements Closeable {
+        enum Behaviour {
+            /// Drops the connection on the first batch it receives
+            DISCONNECT,
+            /// Answers each batch after SLOW_MILLIS with every objective set to -1
+            SLOW_AND_WRONG,
+            /// Takes batches and never answers
+            SILENT
+        }
+
+        static final long SLOW_MILLIS = 300;
+
+        private final Behaviour behaviour;
+        private final ServerSocket server;
+        private final List<Socket> sockets = new ArrayList<>();
+
+        ScriptedWorker(Behaviour behaviour) throws IOException {
+            this.behaviour = behaviour;
+            this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "scripted-worker-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        InetSocketAddress getAddress() {
+            return new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+        }
+
+        private void acceptLoop() {
+            try {
+                while (true) {
+                    Socket socket = server.accept();
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                    Thread reader = new Thread(() -> serve(socket), "scripted-worker-connection");
+                    reader.setDaemon(true);
+                    reader.start();
+                }
+            } catch (IOException e) {
+                /// Closed
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                OptimizerProtocol.accept(in, out, 4);
+                OptimizerProtocol.Job job = null;
+                for (int type = in.read(); type >= 0; type = in.read()) {
+                    if (type == OptimizerProtocol.JOB) {
+                        job = OptimizerProtocol.readJob(in);
+                        continue;
+                    }
+                    long jobId = in.readLong();
+                    int batch = in.readInt();
+                    int count = in.readInt();
+                    int dimensions = in.readInt();
+                    in.skipNBytes((long) count * (dimensions + 1) * Long.BYTES);
+                    if (behaviour == Behaviour.DISCONNECT) return;
+                    if (behaviour == Behaviour.SILENT) continue;
+                    Thread.sleep(SLOW_MILLIS);
+                    double[][] objectives = new double[count][job.problem.objectiveCount()];
+                    for (double[] row : objectives) {
+                        Arrays.fill(row, -1.0);
+                    }
+                    OptimizerProtocol.writeResult(out, jobId, batch, objectives, new int[count], new boolean[count]);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                /// Connection closed
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            synchronized (sockets) {
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DriveStateTest {
+    /// Captured during the scheduled IGBT failure, so the steps afterwards clear it and fire the remaining
+    /// overcurrent events from the restored schedule position
+    private static final int WARM_UP_STEPS = 3000;
+    private static final int STEPS = 3000;
+    private static final long FORK_SEED = 99L;
+
+    @TempDir
+    Path directory;
+
+    /// The original drive, rewound to the snapshot and given the fork's random streams, steps exactly like
+    /// the fork
+    @ParameterizedTest
+    @CsvSource({"V_F, EXACT, FORWARD_EULER", "FOC, MEDIUM, DORMAND_PRINCE_45"})
+    void restoredOriginalStepsLikeAFork(ControlStrategy mode, FastTrig.Precision precision,
+                                        OdeIntegrator.Method integrator) {
+        SimulationParameters parameters = parameters(mode, precision, integrator);
+        SwappableRandom noise = new SwappableRandom(new SplittableRandom(1L));
+        SwappableRandom faults = new SwappableRandom(new SplittableRandom(2L));
+        DriveSystem original = drive(noise, faults);
+        step(original, parameters, 0, WARM_UP_STEPS);
+        DriveState state = original.capture();
+        DriveSystem fork = state.fork(FORK_SEED);
+        step(original, parameters, WARM_UP_STEPS, WARM_UP_STEPS + 500);
+
+        original.restore(state);
+        SplittableRandom streams = new SplittableRandom(FORK_SEED);
+        noise.delegate = streams.split();
+        faults.delegate = streams.split();
+
+        assertEquals(WARM_UP_STEPS, state.getStepCount());
+        assertEquals(state.getStepCount(), original.getStepCount());
+        assertEquals(fork.getFaultSimulator().getPendingEventCount(),
+                original.getFaultSimulator().getPendingEventCount());
+        assertStepIdentical(fork, original, parameters, WARM_UP_STEPS);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"V_F, EXACT, FORWARD_EULER", "FOC, MEDIUM, DORMAND_PRINCE_45"})
+    void snapshotReadBackForksLikeTheOriginal(ControlStrategy mode, FastTrig.Precision precision,
+                                              OdeIntegrator.Method integrator) throws IOException {
+        SimulationParameters parameters = parameters(mode, precision, integrator);
+        DriveSystem drive = drive(new SplittableRandom(1L), new SplittableRandom(2L));
+        step(drive, parameters, 0, WARM_UP_STEPS);
+        DriveState state = drive.capture();
+        Path file = directory.resolve("drive.idds");
+        state.write(file);
+        DriveState back = DriveState.read(file);
+
+        assertEquals(state.getStepCount(), back.getStepCount());
+        assertEquals(state.getSpeed(), back.getSpeed());
+        assertEquals(state.getMotorTemperature(), back.getMotorTemperature());
+        assertEquals(state.getInverterTemperature(), back.getInverterTemperature());
+        assertEquals(state.getFault(), back.getFault());
+        assertStepIdentical(state.fork(FORK_SEED), back.fork(FORK_SEED), parameters, WARM_UP_STEPS);
+    }
+
+    @Test
+    void fileWithoutTheMagicNumberIsRejected() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> DriveState.read(file));
+    }
+
+    private static SimulationParameters parameters(ControlStrategy mode, FastTrig.Precision precision,
+                                                   OdeIntegrator.Method integrator) {
+        return new SimulationParameters.Builder()
+                .control(mode, 100.0, 50.0, 1.0, 10.0, 1.0)
+                .powerStage(400.0, 10000, 1e-6, 0.8, true, false, ModulationStrategy.SVPWM)
+                .thermal(0.5, 5.0, 150.0, ProtectionMode.WARNING, true)
+                .timeSteps(0.001, 0.01)
+                .integrator(integrator)
+                .trigPrecision(precision)
+                .build();
+    }
+
+    private static DriveSystem drive(RandomGenerator noise, RandomGenerator faults) {
+        InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, true, false);
+        InductionMotor motor = new InductionMotor();
+        SensorModel sensors = new SensorModel(noise);
+        FaultSimulator faultSimulator = new FaultSimulator(inverter, sensors, faults);
+        faultSimulator.setSchedule(new FaultSchedule()
+                .inject(0.05, FaultMode.IGBT_FAILURE).clear(0.3)
+                .inject(0.35, FaultMode.OVERCURRENT).clear(0.5, FaultMode.OVERCURRENT));
+        return new DriveSystem(inverter, motor, new VfController(motor), sensors, faultSimulator);
+    }
+
+    private static void step(DriveSystem drive, SimulationParameters parameters, long from, long to) {
+        for (long k = from; k < to; k++) {
+            drive.step(parameters, k * Config.SIMULATION_TIME_STEP);
+        }
+    }
+
+    private static void assertStepIdentical(DriveSystem expected, DriveSystem actual,
+                                            SimulationParameters parameters, long from) {
+        for (long k = from; k < from + STEPS; k++) {
+            double time = k * Config.SIMULATION_TIME_STEP;
+            expected.step(parameters, time);
+            actual.step(parameters, time);
+            long step = k;
+            assertEquals(expected.getStepCount(), actual.getStepCount());
+            for (int phase = 0; phase < 3; phase++) {
+                assertEquals(expected.getPhaseCurrents()[phase], actual.getPhaseCurrents()[phase],
+                        () -> "phase current at step " + step);
+            }
+            assertEquals(expected.getMotor().getSpeed(), actual.getMotor().getSpeed(), () -> "speed at step " + step);
+            assertEquals(expected.getMotor().getTemperature(), actual.getMotor().getTemperature(),
+                    () -> "motor temperature at step " + step);
+            assertEquals(expected.getInverter().getTemperature(), actual.getInverter().getTemperature(),
+                    () -> "inverter temperature at step " + step);
+            assertEquals(expected.getFaultSimulator().getCurrentFault(), actual.getFaultSimulator().getCurrentFault(),
+                    () -> "fault at step " + step);
+            assertEquals(expected.getFaultSimulator().getPendingEventCount(),
+                    actual.getFaultSimulator().getPendingEventCount(), () -> "pending events at step " + step);
+        }
+        assertEquals(0, actual.getFaultSimulator().getPendingEventCount());
+    }
+
+    /// Lets a test hand a drive new random streams after it was built
+    private static final class SwappableRandom implements RandomGenerator {
+        RandomGenerator delegate;
+
+        SwappableRandom(RandomGenerator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long nextLong() {
+            return delegate.nextLong();
+        }
+
+        @Override
+        public int nextInt() {
+            return delegate.nextInt();
+        }
+    }
+}
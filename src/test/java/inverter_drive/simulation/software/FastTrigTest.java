@@ -0,0 +1,30 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FastTrigTest {
+    /// Several periods either side of zero, at a spacing far below the smallest table spacing
+    private static final double RANGE = 20.0;
+    private static final int POINTS = 2_000_000;
+
+    /// The documented bound of each precision holds for sin and cos, and is within a few percent of the error
+    /// actually reached, so it is not vacuous
+    @ParameterizedTest
+    @CsvSource({"EXACT, 0", "HIGH, 2e-8", "MEDIUM, 5e-6", "LOW, 3.1e-4"})
+    void errorStaysWithinTheDocumentedBound(FastTrig.Precision precision, double documented) {
+        double maxError = 0.0;
+        for (int i = 0; i <= POINTS; i++) {
+            double x = -RANGE + 2 * RANGE * i / POINTS;
+            maxError = Math.max(maxError, Math.abs(precision.sin(x) - Math.sin(x)));
+            maxError = Math.max(maxError, Math.abs(precision.cos(x) - Math.cos(x)));
+        }
+        double reached = maxError;
+
+        assertTrue(precision.maxError() <= documented, () -> "maxError() " + precision.maxError());
+        assertTrue(reached <= precision.maxError(), () -> "reached " + reached);
+        assertTrue(reached >= 0.95 * precision.maxError(), () -> "reached only " + reached);
+    }
+}
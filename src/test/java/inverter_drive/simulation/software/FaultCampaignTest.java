@@ -0,0 +1,33 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FaultCampaignTest {
+    @Test
+    void resultsDoNotDependOnThreadCount(@TempDir Path directory) throws IOException {
+        List<FaultScenario> scenarios = FaultScenario.matrix(
+                new FaultMode[]{FaultMode.OVERCURRENT, FaultMode.PHASE_LOSS, FaultMode.IGBT_FAILURE},
+                new double[]{0.02}, new double[]{0.02}, new LoadModel[]{LoadModel.CONSTANT, LoadModel.FAN_PUMP},
+                new double[]{0.5}, ProtectionMode.values());
+        Path sequential = run(scenarios, 1, directory.resolve("sequential.idfc"));
+        Path parallel = run(scenarios, 4, directory.resolve("parallel.idfc"));
+
+        assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel));
+    }
+
+    private static Path run(List<FaultScenario> scenarios, int threads, Path file) throws IOException {
+        FaultCampaign campaign = new FaultCampaign(TestDrives.defaultDrive(0L),
+                new SimulationParameters.Builder().build(), 0.1, 42L);
+        campaign.setParallelism(threads);
+        campaign.run(scenarios, file);
+        return file;
+    }
+}
@@ -0,0 +1,76 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InverterPowerStageTest {
+    private static final int ANGLES = 600_000;
+    private static final double[] RADII = {1e-3, 0.4, 1.0, 300.0};
+    /// Ulps either side of a sector edge probed by the boundary test
+    private static final int EDGE_ULPS = 3;
+
+    @Test
+    void sectorMatchesAtan2AtEveryAngle() {
+        for (int i = 0; i < ANGLES; i++) {
+            double theta = -Math.PI + 2 * Math.PI * i / ANGLES;
+            for (double radius : RADII) {
+                double vAlpha = radius * Math.cos(theta);
+                double vBeta = radius * Math.sin(theta);
+                assertEquals(atan2Sector(vAlpha, vBeta), InverterPowerStage.sector(vAlpha, vBeta),
+                        () -> "angle " + theta);
+            }
+        }
+    }
+
+    /// Within a few ulps of an edge atan2 itself rounds onto the edge, so the sign tests may pick the
+    /// neighbouring sector; the two sectors' dwell times meet there, so the duties are the same either way
+    @Test
+    void sectorEdgesGiveTheSameDutiesAsAtan2() {
+        InverterPowerStage exact = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+        InverterPowerStage fast = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+        fast.setTrigPrecision(FastTrig.Precision.MEDIUM);
+        for (int edge = 0; edge < 6; edge++) {
+            double angle = edge * Math.PI / 3;
+            for (int da = -EDGE_ULPS; da <= EDGE_ULPS; da++) {
+                for (int db = -EDGE_ULPS; db <= EDGE_ULPS; db++) {
+                    double vAlpha = ulps(0.4 * Math.cos(angle), da);
+                    double vBeta = ulps(0.4 * Math.sin(angle), db);
+                    int sector = InverterPowerStage.sector(vAlpha, vBeta);
+                    int reference = atan2Sector(vAlpha, vBeta);
+                    assertTrue(sector == reference || (sector + 1) % 6 == reference || (reference + 1) % 6 == sector,
+                            "sector " + sector + " against " + reference + " at " + vAlpha + ", " + vBeta);
+
+                    double[] pwmSignals = pwmSignals(vAlpha, vBeta);
+                    double[] expected = exact.modulate(pwmSignals, ModulationStrategy.SVPWM, 0.0, new double[3]);
+                    double[] actual = fast.modulate(pwmSignals, ModulationStrategy.SVPWM, 0.0, new double[3]);
+                    for (int phase = 0; phase < 3; phase++) {
+                        assertEquals(expected[phase], actual[phase], 1e-9, "phase " + phase + " at edge " + edge);
+                    }
+                }
+            }
+        }
+    }
+
+    /// The SVPWM branch of modulate at EXACT precision
+    private static int atan2Sector(double vAlpha, double vBeta) {
+        double theta = Math.atan2(vBeta, vAlpha);
+        int sector = (int) Math.floor(theta / (Math.PI / 3.0)) % 6;
+        return sector < 0 ? sector + 6 : sector;
+    }
+
+    /// Controller outputs whose space vector is (vAlpha, vBeta)
+    private static double[] pwmSignals(double vAlpha, double vBeta) {
+        double a = vAlpha;
+        double b = -0.5 * vAlpha + FastTrig.HALF_SQRT3 * vBeta;
+        double c = -0.5 * vAlpha - FastTrig.HALF_SQRT3 * vBeta;
+        return new double[]{(a + 1.0) / 2.0, (b + 1.0) / 2.0, (c + 1.0) / 2.0};
+    }
+
+    private static double ulps(double value, int count) {
+        for (; count > 0; count--) value = Math.nextUp(value);
+        for (; count < 0; count++) value = Math.nextDown(value);
+        return value;
+    }
+}
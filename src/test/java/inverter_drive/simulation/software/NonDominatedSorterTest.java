@@ -0,0 +1,69 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class NonDominatedSorterTest {
+    private static final int TRIALS = 300;
+
+    /// Objectives drawn from a coarse grid, so many vectors tie in some objectives, plus exact duplicates
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 6})
+    void efficientSortRanksLikeFastSort(int objectiveCount) {
+        SplittableRandom random = new SplittableRandom(objectiveCount);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            int n = random.nextInt(0, 120);
+            int levels = random.nextInt(2, 12);
+            double[][] objectives = new double[n][objectiveCount];
+            for (int i = 0; i < n; i++) {
+                if (i > 0 && random.nextInt(5) == 0) {
+                    objectives[i] = objectives[random.nextInt(i)].clone();
+                    continue;
+                }
+                for (int obj = 0; obj < objectiveCount; obj++) {
+                    objectives[i][obj] = random.nextInt(levels) * 0.5;
+                }
+            }
+            int t = trial;
+            assertSameRanks(objectives, () -> "trial " + t);
+        }
+    }
+
+    @Test
+    void continuousObjectivesRankAlike() {
+        SplittableRandom random = new SplittableRandom(11L);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            double[][] objectives = new double[random.nextInt(1, 200)][3];
+            for (double[] row : objectives) {
+                for (int obj = 0; obj < row.length; obj++) {
+                    row[obj] = random.nextDouble();
+                }
+            }
+            int t = trial;
+            assertSameRanks(objectives, () -> "trial " + t);
+        }
+    }
+
+    @Test
+    void allDuplicatesShareTheFirstFront() {
+        double[][] objectives = new double[10][];
+        Arrays.fill(objectives, new double[]{1.0, 2.0, 3.0});
+        int[] ones = new int[10];
+        Arrays.fill(ones, 1);
+        assertArrayEquals(ones, new EfficientNonDominatedSorter().rank(objectives));
+        assertArrayEquals(ones, new FastNonDominatedSorter().rank(objectives));
+    }
+
+    private static void assertSameRanks(double[][] objectives, Supplier<String> message) {
+        int[] expected = new FastNonDominatedSorter().rank(objectives);
+        int[] actual = new EfficientNonDominatedSorter().rank(objectives);
+        assertArrayEquals(expected, actual, () -> message.get() + ": " + Arrays.deepToString(objectives));
+    }
+}
@@ -0,0 +1,99 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OdeIntegratorTest {
+    private static final double LAMBDA = -100.0;
+    private static final double STIFF_STEP = 0.05;
+    private static final int STIFF_STEPS = 20;
+    private static final OdeIntegrator.OdeSystem DECAY = (t, y, dydt) -> dydt[0] = LAMBDA * y[0];
+    /// Winding current for the thermal runs, heating the motor to about 74 °C over 60 s
+    private static final double AMPS = 5.0;
+    private static final double THERMAL_DURATION = 60.0;
+
+    /// RK4 and RK45 at a 1 s thermal step land on the converged temperature; the 0.1 ms Euler run is itself
+    /// off by its O(h) error of about 3e-5 °C
+    @Test
+    void oneSecondThermalStepsMatchTheConvergedTemperature() {
+        double reference = motorTemperature(OdeIntegrator.Method.RK4, 1e-3);
+
+        assertEquals(reference, motorTemperature(OdeIntegrator.Method.DORMAND_PRINCE_45, 1.0), 1e-8);
+        assertEquals(reference, motorTemperature(OdeIntegrator.Method.RK4, 1.0), 1e-6);
+        assertEquals(reference, motorTemperature(OdeIntegrator.Method.FORWARD_EULER, Config.SIMULATION_TIME_STEP),
+                1e-4);
+        assertTrue(reference > Config.AMBIENT_TEMPERATURE + 10.0, "the motor barely heated");
+    }
+
+    /// h·|λ| = 5 is past the stability limit of both explicit fixed-step methods
+    @ParameterizedTest
+    @EnumSource(value = OdeIntegrator.Method.class, names = {"FORWARD_EULER", "RK4"})
+    void explicitFixedStepMethodsDivergeOnAStiffDecay(OdeIntegrator.Method method) {
+        assertTrue(STIFF_STEP * Math.abs(LAMBDA) > method.stabilityLimit());
+        double[] y = {1.0};
+        OdeIntegrator integrator = method.create();
+        for (int k = 0; k < STIFF_STEPS; k++) {
+            integrator.integrate(DECAY, k * STIFF_STEP, y, STIFF_STEP);
+        }
+        assertTrue(Math.abs(y[0]) > 1e6, () -> "y = " + y[0]);
+    }
+
+    /// For a linear decay the semi-implicit step is exactly implicit Euler, y / (1 - hλ), so it decays
+    /// monotonically at any step
+    @Test
+    void semiImplicitEulerIsImplicitEulerOnAStiffDecay() {
+        double[] y = {1.0};
+        double expected = 1.0;
+        SemiImplicitEuler integrator = new SemiImplicitEuler();
+        for (int k = 0; k < STIFF_STEPS; k++) {
+            double before = y[0];
+            integrator.integrate(DECAY, k * STIFF_STEP, y, STIFF_STEP);
+            expected /= 1.0 - STIFF_STEP * LAMBDA;
+            assertEquals(expected, y[0], 1e-6 * expected);
+            assertTrue(y[0] > 0 && y[0] < before);
+        }
+        assertEquals(STIFF_STEPS, integrator.getSteps());
+        assertEquals(2L * STIFF_STEPS, integrator.getEvaluations());
+    }
+
+    /// The first sub-step tries the whole call, fails the error test and is shrunk until the solution is within
+    /// tolerance; once the fast transient has died out the accepted step grows again, up to the method's own
+    /// stability limit
+    @Test
+    void dormandPrinceRejectsAndShrinksStepsOnAStiffDecay() {
+        double[] y = {1.0};
+        DormandPrince45 integrator = new DormandPrince45();
+        integrator.integrate(DECAY, 0.0, y, STIFF_STEP);
+
+        assertTrue(integrator.getRejectedSteps() > 0);
+        assertTrue(integrator.getSteps() > 1);
+        double firstStep = integrator.getCarriedStep();
+        assertTrue(firstStep < STIFF_STEP);
+        assertEquals(Math.exp(LAMBDA * STIFF_STEP), y[0], 1e-8);
+
+        for (int k = 1; k < STIFF_STEPS; k++) {
+            integrator.integrate(DECAY, k * STIFF_STEP, y, STIFF_STEP);
+        }
+        assertEquals(0.0, y[0], 1e-8);
+        assertTrue(integrator.getCarriedStep() > firstStep);
+    }
+
+    /// Motor temperature after THERMAL_DURATION at a constant winding loss, with the thermal update at the
+    /// given step
+    private static double motorTemperature(OdeIntegrator.Method method, double thermalStep) {
+        InductionMotor motor = new InductionMotor();
+        motor.setIntegrator(method);
+        double[] voltages = {0.0, 0.0, 0.0};
+        double[] currents = {AMPS, -AMPS / 2, -AMPS / 2};
+        long steps = Math.round(THERMAL_DURATION / thermalStep);
+        for (long k = 0; k < steps; k++) {
+            motor.updateElectrical(voltages, currents, Config.SIMULATION_TIME_STEP);
+            motor.updateThermal(thermalStep);
+        }
+        return motor.getTemperature();
+    }
+}
@@ -0,0 +1,114 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimizerCheckpointTest {
+    private static final int GENERATIONS = 8;
+
+    @TempDir
+    Path directory;
+
+    /// A run stopped after a checkpoint and resumed ends exactly like the uninterrupted run, including its
+    /// reports, counters and fitness cache
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void resumedRunMatchesUninterruptedRun(boolean allFeatures) throws IOException {
+        Optimizer uninterrupted = optimizer(GENERATIONS, allFeatures);
+        Optimizer.Individual[] expected = uninterrupted.optimize();
+
+        Path file = directory.resolve("run.ckpt");
+        Optimizer interrupted = optimizer(5, allFeatures);
+        interrupted.setCheckpoint(file, 2);
+        interrupted.optimize();
+        Optimizer resumed = optimizer(GENERATIONS, allFeatures);
+        Optimizer.Individual[] actual = resumed.resume(file);
+
+        TestDrives.assertSameFront(expected, actual);
+        assertReportsEqual(uninterrupted.getGenerationReports(), resumed.getGenerationReports());
+        assertEquals(uninterrupted.getSimulatedCount(), resumed.getSimulatedCount());
+        assertEquals(uninterrupted.getSimulatedSteps(), resumed.getSimulatedSteps());
+        assertEquals(uninterrupted.getAbortedCount(), resumed.getAbortedCount());
+        assertEquals(uninterrupted.isConverged(), resumed.isConverged());
+        assertEquals(uninterrupted.getFitnessCache().size(), resumed.getFitnessCache().size());
+        assertEquals(uninterrupted.getFitnessCache().getHits(), resumed.getFitnessCache().getHits());
+    }
+
+    @Test
+    void corruptCheckpointFailsTheCrcCheck() throws IOException {
+        Path file = checkpoint();
+        byte[] content = Files.readAllBytes(file);
+        /// Last content byte, just before the CRC: the low byte of a double, so the file still parses
+        content[content.length - Long.BYTES - 1] ^= 1;
+        Files.write(file, content);
+
+        IOException e = assertThrows(IOException.class, () -> optimizer(GENERATIONS, false).resume(file));
+        assertTrue(e.getMessage().startsWith("Corrupt optimizer checkpoint"), e.getMessage());
+    }
+
+    @Test
+    void checkpointOfAnotherProblemOrSettingsIsRejected() throws IOException {
+        Path file = checkpoint();
+
+        Optimizer otherSettings = optimizer(GENERATIONS, false);
+        otherSettings.setEarlyAbort(true);
+        assertThrows(IllegalStateException.class, () -> otherSettings.resume(file));
+
+        Optimizer otherDuration = optimizer(GENERATIONS, false);
+        otherDuration.setProblem(new OptimizationProblem.Builder(otherDuration.getProblem()).duration(0.06).build());
+        assertThrows(IllegalStateException.class, () -> otherDuration.resume(file));
+
+        Optimizer otherScenario = optimizer(GENERATIONS, false);
+        OptimizationProblem problem = otherScenario.getProblem();
+        otherScenario.setProblem(new OptimizationProblem.Builder(problem).scenario(
+                new SimulationParameters.Builder(problem.scenario).gains(0.2, 0.01).build()).build());
+        assertThrows(IllegalStateException.class, () -> otherScenario.resume(file));
+    }
+
+    private static void assertReportsEqual(List<Optimizer.GenerationReport> expected,
+                                           List<Optimizer.GenerationReport> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Optimizer.GenerationReport e = expected.get(i);
+            Optimizer.GenerationReport a = actual.get(i);
+            assertEquals(e.generation, a.generation);
+            assertEquals(e.candidates, a.candidates);
+            assertEquals(e.simulated, a.simulated);
+            assertEquals(e.aborted, a.aborted);
+            assertEquals(e.trainingPoints, a.trainingPoints);
+            assertArrayEquals(e.predictionError, a.predictionError);
+            assertEquals(e.hypervolume, a.hypervolume);
+        }
+    }
+
+    private Path checkpoint() {
+        Path file = directory.resolve("run.ckpt");
+        Optimizer optimizer = optimizer(3, false);
+        optimizer.setCheckpoint(file, 1);
+        optimizer.optimize();
+        return file;
+    }
+
+    private static Optimizer optimizer(int generations, boolean allFeatures) {
+        Optimizer optimizer = TestDrives.optimizer(TestDrives.smallProblem(20, generations));
+        optimizer.setParallelism(2);
+        if (allFeatures) {
+            optimizer.setSurrogateScreening(true);
+            optimizer.setEarlyAbort(true);
+            optimizer.setStagnationDetection(true);
+        }
+        return optimizer;
+    }
+}
@@ -0,0 +1,35 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/// The optimizer's result depends only on its seed and settings: not on the number of worker threads, and not
+/// on whether populations are simulated one drive at a time or as PopulationBatchEvaluator batches. Without
+/// the Vector API module, as here, the batch evaluator runs its scalar loop.
+class OptimizerDeterminismTest {
+    /// Two full BATCH_LANES batches and a partial one per population
+    private static final OptimizationProblem PROBLEM = TestDrives.smallProblem(40, 5);
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void frontDoesNotDependOnThreadCount(boolean batchEvaluation) {
+        Optimizer.Individual[] sequential = run(1, batchEvaluation, false);
+        TestDrives.assertSameFront(sequential, run(2, batchEvaluation, false));
+        TestDrives.assertSameFront(sequential, run(5, batchEvaluation, false));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void batchEvaluationMatchesPerIndividualSimulation(boolean earlyAbort) {
+        TestDrives.assertSameFront(run(1, false, earlyAbort), run(1, true, earlyAbort));
+        TestDrives.assertSameFront(run(4, false, earlyAbort), run(4, true, earlyAbort));
+    }
+
+    private static Optimizer.Individual[] run(int parallelism, boolean batchEvaluation, boolean earlyAbort) {
+        Optimizer optimizer = TestDrives.optimizer(PROBLEM);
+        optimizer.setParallelism(parallelism);
+        optimizer.setBatchEvaluation(batchEvaluation);
+        optimizer.setEarlyAbort(earlyAbort);
+        return optimizer.optimize();
+    }
+}
@@ -0,0 +1,54 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PopulationBatchEvaluatorTest {
+    /// Two full SIMD batches and a scalar tail
+    private static final int LANES = 2 * Optimizer.BATCH_LANES + 3;
+    /// Relative difference allowed between the kernels; only the vectorized sin and atan2 round differently
+    private static final double TOLERANCE = 1e-9;
+
+    /// Runs in the surefire execution that adds jdk.incubator.vector and is skipped in the default one
+    @Test
+    void vectorKernelMatchesScalarLoopWithinTolerance() {
+        assumeTrue(PopulationBatchEvaluator.isVectorApiAvailable(), "needs --add-modules jdk.incubator.vector");
+        OptimizationProblem problem = TestDrives.smallProblem(LANES, 1);
+        DriveSystem template = TestDrives.defaultDrive(42L);
+        template.apply(problem.scenario);
+        SplittableRandom random = new SplittableRandom(7L);
+        double[][] parameters = new double[LANES][problem.dimensions()];
+        long[] seeds = new long[LANES];
+        for (int i = 0; i < LANES; i++) {
+            for (int v = 0; v < problem.dimensions(); v++) {
+                DecisionVariable variable = problem.variables.get(v);
+                parameters[i][v] = random.nextDouble(variable.getLower(), variable.getUpper());
+            }
+            seeds[i] = random.nextLong();
+        }
+
+        double[][] scalar = evaluate(template, problem, parameters, seeds, false);
+        double[][] vector = evaluate(template, problem, parameters, seeds, true);
+
+        for (int i = 0; i < LANES; i++) {
+            for (int obj = 0; obj < problem.objectiveCount(); obj++) {
+                int lane = i;
+                int objective = obj;
+                assertEquals(scalar[i][obj], vector[i][obj], TOLERANCE * Math.abs(scalar[i][obj]),
+                        () -> "objective " + objective + " of lane " + lane);
+            }
+        }
+    }
+
+    private static double[][] evaluate(DriveSystem template, OptimizationProblem problem, double[][] parameters,
+                                       long[] seeds, boolean vectorKernel) {
+        double[][] objectives = new double[parameters.length][problem.objectiveCount()];
+        new PopulationBatchEvaluator(template, problem.scenario, problem.steps(), vectorKernel)
+                .evaluate(parameters, seeds, objectives);
+        return objectives;
+    }
+}
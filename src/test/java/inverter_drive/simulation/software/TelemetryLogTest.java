@@ -0,0 +1,159 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TelemetryLogTest {
+    private static final int CAPACITY = 4;
+    private static final long BLOCK_BYTES = TelemetryLog.blockBytes(CAPACITY);
+
+    @TempDir
+    Path directory;
+
+    /// A new dictionary value closes the half-filled block; after reopening, known values reuse their recovered
+    /// codes and new ones get the next free code
+    @Test
+    void reopenedLogRebuildsDictionariesAndAppends() throws IOException {
+        Path file = directory.resolve("run.idtl");
+        try (TelemetryLog log = new TelemetryLog(file, CAPACITY)) {
+            append(log, 0, "V_F", "None");
+            append(log, 1, "V_F", "None");
+            append(log, 2, "V_F", "Overcurrent");
+        }
+        long closedSize = Files.size(file);
+        try (TelemetryLog log = new TelemetryLog(file, CAPACITY)) {
+            assertEquals(3, log.getSampleCount());
+            append(log, 3, "V_F", "Overcurrent");
+            /// A fresh block, but no dictionary entry
+            assertEquals(closedSize + BLOCK_BYTES, Files.size(file));
+            append(log, 4, "FOC", "None");
+            assertEquals(closedSize + BLOCK_BYTES + dictionaryEntryBytes("FOC") + BLOCK_BYTES, Files.size(file));
+            assertEquals(5, log.getSampleCount());
+        }
+
+        assertEquals(List.of(row(0, "V_F", "None"), row(1, "V_F", "None"), row(2, "V_F", "Overcurrent"),
+                row(3, "V_F", "Overcurrent"), row(4, "FOC", "None")), rows(file));
+        assertEquals(List.of(2, 1, 1, 1), blockCounts(file));
+    }
+
+    /// Cutting into the last block or into the last dictionary entry drops that record on reopen; appending
+    /// continues right after the last complete one
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void tornTailIsTruncatedAndAppendingContinues(boolean tearDictionaryEntry) throws IOException {
+        Path file = directory.resolve("run.idtl");
+        try (TelemetryLog log = new TelemetryLog(file, CAPACITY)) {
+            append(log, 0, "V_F", "None");
+            append(log, 1, "V_F", "None");
+            append(log, 2, "V_F", "Overcurrent");
+        }
+        long complete = Files.size(file) - BLOCK_BYTES
+                - (tearDictionaryEntry ? dictionaryEntryBytes("Overcurrent") : 0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - (tearDictionaryEntry ? BLOCK_BYTES + 2 : 1));
+        }
+
+        try (TelemetryLog log = new TelemetryLog(file, CAPACITY)) {
+            assertEquals(2, log.getSampleCount());
+            assertEquals(complete, Files.size(file));
+            append(log, 5, "V_F", "Overcurrent");
+        }
+
+        assertEquals(List.of(row(0, "V_F", "None"), row(1, "V_F", "None"), row(5, "V_F", "Overcurrent")),
+                rows(file));
+    }
+
+    @Test
+    void csvExportWritesOneRowPerSample() throws IOException {
+        Path file = directory.resolve("run.idtl");
+        try (TelemetryLog log = new TelemetryLog(file, CAPACITY)) {
+            for (int i = 0; i < 6; i++) {
+                append(log, i, "V_F", i < 5 ? "None" : "Overheat");
+            }
+        }
+        Path csv = directory.resolve("run.csv");
+        /// The exporter formats with the default locale
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.ROOT);
+        long exported;
+        try {
+            exported = TelemetryCsvExporter.export(file, csv);
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        assertEquals(6, exported);
+        assertEquals(List.of(TelemetryCsvExporter.CSV_HEADER.trim(),
+                "0.000,100.00,-50.00,0.25,0.50,-0.50,0.00,0.00,1.50,V_F,None",
+                "0.001,101.00,-51.00,0.25,1.50,-1.50,0.00,10.00,1.50,V_F,None",
+                "0.002,102.00,-52.00,0.25,2.50,-2.50,0.00,20.00,1.50,V_F,None",
+                "0.003,103.00,-53.00,0.25,3.50,-3.50,0.00,30.00,1.50,V_F,None",
+                "0.004,104.00,-54.00,0.25,4.50,-4.50,0.00,40.00,1.50,V_F,None",
+                "0.005,105.00,-55.00,0.25,5.50,-5.50,0.00,50.00,1.50,V_F,Overheat"), Files.readAllLines(csv));
+    }
+
+    private static void append(TelemetryLog log, int i, String mode, String fault) throws IOException {
+        double[] sample = sample(i);
+        log.append(sample[TelemetryLog.TIME], new double[]{sample[TelemetryLog.VA], sample[TelemetryLog.VB],
+                        sample[TelemetryLog.VC]}, new double[]{sample[TelemetryLog.IA], sample[TelemetryLog.IB],
+                        sample[TelemetryLog.IC]}, sample[TelemetryLog.SPEED], sample[TelemetryLog.TORQUE],
+                mode, fault);
+    }
+
+    /// Column values of sample i, in TelemetryLog column order
+    private static double[] sample(int i) {
+        return new double[]{i * 0.001, 100.0 + i, -50.0 - i, 0.25, i + 0.5, -(i + 0.5), 0.0, 10.0 * i, 1.5};
+    }
+
+    private static String row(int i, String mode, String fault) {
+        StringBuilder row = new StringBuilder();
+        for (double value : sample(i)) {
+            row.append(value).append(',');
+        }
+        return row.append(mode).append(',').append(fault).toString();
+    }
+
+    private static List<String> rows(Path file) throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (TelemetryLogReader reader = new TelemetryLogReader(file)) {
+            while (reader.nextBlock()) {
+                for (int i = 0; i < reader.getSampleCount(); i++) {
+                    StringBuilder row = new StringBuilder();
+                    for (int column = 0; column < TelemetryLog.DOUBLE_COLUMNS; column++) {
+                        row.append(reader.get(column, i)).append(',');
+                    }
+                    rows.add(row.append(reader.getControlMode(i)).append(',').append(reader.getFault(i)).toString());
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static List<Integer> blockCounts(Path file) throws IOException {
+        List<Integer> counts = new ArrayList<>();
+        try (TelemetryLogReader reader = new TelemetryLogReader(file)) {
+            while (reader.nextBlock()) {
+                counts.add(reader.getSampleCount());
+            }
+        }
+        return counts;
+    }
+
+    /// Tag, dictionary, code, length and the UTF-8 text
+    private static long dictionaryEntryBytes(String value) {
+        return 9 + value.length();
+    }
+}
@@ -0,0 +1,115 @@
+package inverter_drive.simulation.software;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryRingBufferTest {
+    /// Small enough that the producer laps the consumer constantly
+    private static final int CAPACITY = 8;
+    private static final int SAMPLES = 500_000;
+
+    @Test
+    void offerDeliversEverySampleInOrder() throws InterruptedException {
+        TelemetryRingBuffer ring = new TelemetryRingBuffer(CAPACITY);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < SAMPLES; i++) {
+                while (!publish(ring, i, false)) {
+                    /// Yield rather than spin, so the consumer also runs on a single core
+                    Thread.yield();
+                }
+            }
+        }, "ring-producer");
+        producer.start();
+
+        Consumer consumer = new Consumer(ring);
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            while (consumer.next < SAMPLES) {
+                if (consumer.drainOnce() == 0) Thread.yield();
+            }
+        });
+        producer.join();
+
+        assertEquals(SAMPLES, consumer.drained);
+        assertEquals(0, consumer.gaps);
+    }
+
+    /// The producer's CAS on tail when it overwrites races the consumer's commit CAS; a batch copied while its
+    /// oldest sample was overwritten must be discarded, never delivered torn or out of order
+    @Test
+    void overwriteRacingTheConsumerLosesOnlyDroppedSamples() throws InterruptedException {
+        TelemetryRingBuffer ring = new TelemetryRingBuffer(CAPACITY);
+        AtomicLong dropped = new AtomicLong();
+        Thread producer = new Thread(() -> {
+            long overwritten = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                if (publish(ring, i, true)) overwritten++;
+            }
+            dropped.set(overwritten);
+        }, "ring-producer");
+        producer.start();
+
+        Consumer consumer = new Consumer(ring);
+        while (producer.isAlive()) {
+            if (consumer.drainOnce() == 0) Thread.yield();
+        }
+        producer.join();
+        while (consumer.drainOnce() > 0) {
+            /// Whatever is still queued
+        }
+
+        assertEquals(SAMPLES, consumer.drained + dropped.get());
+        assertTrue(dropped.get() > 0, "the producer never lapped the consumer");
+        /// The newest sample is never the one overwritten
+        assertEquals(SAMPLES, consumer.next);
+    }
+
+    /// Every field is derived from the sequence number, so a torn copy shows up as a mismatch
+    private static boolean publish(TelemetryRingBuffer ring, int i, boolean overwrite) {
+        double[] voltages = {i + 0.25, i + 0.5, i + 0.75};
+        double[] currents = {-i, -i - 0.25, -i - 0.5};
+        String mode = (i & 1) == 0 ? "V_F" : "FOC";
+        return overwrite
+                ? ring.overwrite(i, voltages, currents, 2.0 * i, 3.0 * i, mode, "None")
+                : ring.offer(i, voltages, currents, 2.0 * i, 3.0 * i, mode, "None");
+    }
+
+    /// Drains in batches and checks that samples arrive intact and in strictly increasing order
+    private static final class Consumer {
+        private final TelemetryRingBuffer ring;
+        private final double[] values = new double[5 * TelemetryRingBuffer.FIELDS];
+        private final String[] modes = new String[5];
+        private final String[] faults = new String[5];
+        long next;
+        long drained;
+        long gaps;
+
+        Consumer(TelemetryRingBuffer ring) {
+            this.ring = ring;
+        }
+
+        int drainOnce() {
+            int n = ring.drain(values, modes, faults);
+            for (int k = 0; k < n; k++) {
+                int base = k * TelemetryRingBuffer.FIELDS;
+                long i = (long) values[base + TelemetryLog.TIME];
+                assertTrue(i >= next, () -> "sample " + i + " after " + (next - 1));
+                if (i > next) gaps++;
+                assertEquals(i + 0.25, values[base + TelemetryLog.VA]);
+                assertEquals(i + 0.75, values[base + TelemetryLog.VC]);
+                assertEquals(-i - 0.5, values[base + TelemetryLog.IC]);
+                assertEquals(2.0 * i, values[base + TelemetryLog.SPEED]);
+                assertEquals(3.0 * i, values[base + TelemetryLog.TORQUE]);
+                assertEquals((i & 1) == 0 ? "V_F" : "FOC", modes[k]);
+                next = i + 1;
+            }
+            drained += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package inverter_drive.simulation.software;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/// Drives, optimizers and front comparisons shared by the tests
+final class TestDrives {
+    private TestDrives() {
+    }
+
+    /// The drive every optimizer in the tests starts from, at its defaults
+    static DriveSystem defaultDrive(long sensorSeed) {
+        InverterPowerStage inverter = new InverterPowerStage(400.0, 10000, 1e-6, 0.8, false, false);
+        InductionMotor motor = new InductionMotor();
+        SensorModel sensors = new SensorModel(sensorSeed);
+        return new DriveSystem(inverter, motor, new VfController(motor), sensors,
+                new FaultSimulator(inverter, sensors));
+    }
+
+    /// The standard problem, shortened to a few generations of short evaluations
+    static OptimizationProblem smallProblem(int populationSize, int generations) {
+        return new OptimizationProblem.Builder().duration(0.05).population(populationSize, generations).build();
+    }
+
+    /// A single-threaded optimizer with seed 42 on a default drive. Batches run on the scalar kernel so results are
+    /// bit-exact whether or not the Vector API module is loaded
+    static Optimizer optimizer(OptimizationProblem problem) {
+        DriveSystem drive = defaultDrive(42L);
+        Optimizer optimizer = new Optimizer(drive.getInverter(), drive.getMotor(), drive.getFaultSimulator(),
+                drive.getSensors(), drive.getController(), null, 42L);
+        optimizer.setProblem(problem);
+        optimizer.setParallelism(1);
+        optimizer.setVectorKernel(false);
+        return optimizer;
+    }
+
+    /// Bit-exact equality of two fronts: same members in the same order with the same parameters and objectives
+    static void assertSameFront(Optimizer.Individual[] expected, Optimizer.Individual[] actual) {
+        assertArrayEquals(rows(expected), rows(actual));
+    }
+
+    private static double[][][] rows(Optimizer.Individual[] front) {
+        double[][][] rows = new double[front.length][][];
+        for (int i = 0; i < front.length; i++) {
+            rows[i] = new double[][]{front[i].parameters, front[i].objectives};
+        }
+        return rows;
+    }
+}